@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.common.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Helpers for compact binary encodings.
+ * <p>
+ * Non-negative numbers are written as unsigned varints (7 bits per byte, high bit set on all bytes but the last). The
+ * helpers work on streams as well as on {@link DataOutput} and {@link DataInput}.
+ *
+ * @since 9.2
+ */
+public class BinaryEncodingUtils {
+
+    @FunctionalInterface
+    private interface ByteWriter {
+        void write(int b) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ByteReader {
+        int read() throws IOException;
+    }
+
+    private BinaryEncodingUtils() {
+        // utility class
+    }
+
+    public static void writeVarint(OutputStream out, long value) throws IOException {
+        writeVarintBytes(out::write, value);
+    }
+
+    public static void writeVarint(DataOutput out, long value) throws IOException {
+        writeVarintBytes(out::write, value);
+    }
+
+    public static long readVarint(InputStream in) throws IOException {
+        return readVarintBytes(() -> read(in));
+    }
+
+    public static long readVarint(DataInput in) throws IOException {
+        return readVarintBytes(in::readUnsignedByte);
+    }
+
+    /**
+     * Reads a varint used as a length or a count, checking its bounds.
+     */
+    public static int readCount(InputStream in) throws IOException {
+        return checkCount(readVarint(in));
+    }
+
+    /**
+     * Reads a varint used as a length or a count, checking its bounds.
+     */
+    public static int readCount(DataInput in) throws IOException {
+        return checkCount(readVarint(in));
+    }
+
+    /**
+     * Parses a string as a UUID, only if its canonical representation is the string itself.
+     *
+     * @return the UUID, or {@code null} if the string is not a canonical UUID
+     */
+    public static UUID toUUID(String string) {
+        if (string.length() != 36 || string.charAt(8) != '-') {
+            return null;
+        }
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(string);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // UUID.fromString is lenient about case and leading zeros
+        return uuid.toString().equals(string) ? uuid : null;
+    }
+
+    private static void writeVarintBytes(ByteWriter out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarintBytes(ByteReader in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid varint");
+    }
+
+    private static int checkCount(long count) throws IOException {
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("Invalid count: " + count);
+        }
+        return (int) count;
+    }
+
+    private static int read(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.common.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class TestBinaryEncodingUtils {
+
+    protected static final long[] VALUES = { 0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE,
+            -1 };
+
+    @Test
+    public void testVarint() throws Exception {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        for (long value : VALUES) {
+            BinaryEncodingUtils.writeVarint(baout, value);
+        }
+        byte[] bytes = baout.toByteArray();
+        // 7 bits per byte
+        assertEquals(1 + 1 + 1 + 2 + 2 + 2 + 3 + 5 + 9 + 10, bytes.length);
+
+        // same encoding through DataOutput
+        baout = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baout)) {
+            for (long value : VALUES) {
+                BinaryEncodingUtils.writeVarint((DataOutput) out, value);
+            }
+        }
+        assertArrayEquals(bytes, baout.toByteArray());
+
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        for (long value : VALUES) {
+            assertEquals(value, BinaryEncodingUtils.readVarint(in));
+        }
+        DataInputStream din = new DataInputStream(new ByteArrayInputStream(bytes));
+        for (long value : VALUES) {
+            assertEquals(value, BinaryEncodingUtils.readVarint((DataInput) din));
+        }
+    }
+
+    @Test
+    public void testReadCount() throws Exception {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        BinaryEncodingUtils.writeVarint(baout, 12);
+        BinaryEncodingUtils.writeVarint(baout, Integer.MAX_VALUE + 1L);
+        ByteArrayInputStream in = new ByteArrayInputStream(baout.toByteArray());
+        assertEquals(12, BinaryEncodingUtils.readCount(in));
+        try {
+            BinaryEncodingUtils.readCount(in);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Invalid count: 2147483648", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        // continuation bit set on the last byte
+        byte[] bytes = { (byte) 0x80 };
+        try {
+            BinaryEncodingUtils.readVarint(new ByteArrayInputStream(bytes));
+            fail();
+        } catch (EOFException e) {
+            // ok
+        }
+        try {
+            BinaryEncodingUtils.readVarint((DataInput) new DataInputStream(new ByteArrayInputStream(bytes)));
+            fail();
+        } catch (EOFException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testToUUID() {
+        String string = "0a1b2c3d-4e5f-6789-abcd-ef0123456789";
+        assertEquals(UUID.fromString(string), BinaryEncodingUtils.toUUID(string));
+        // not canonical
+        assertNull(BinaryEncodingUtils.toUUID(string.toUpperCase()));
+        assertNull(BinaryEncodingUtils.toUUID("a1b2c3d-4e5f-6789-abcd-ef0123456789"));
+        assertNull(BinaryEncodingUtils.toUUID("foo"));
+        assertNull(BinaryEncodingUtils.toUUID("0a1b2c3d-4e5f-6789-abcd-ef012345678z"));
+    }
+
+}
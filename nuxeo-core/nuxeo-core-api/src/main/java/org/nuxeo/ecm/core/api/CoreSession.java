@@ -1121,6 +1121,23 @@ public interface CoreSession extends AutoCloseable {
      */
     ScrollResult scroll(String scrollId);
 
+    /**
+     * Executes the given NXQL query and returns a page of results using keyset (seek) pagination.
+     * <p>
+     * Instead of an offset, the page to fetch is designated by an opaque cursor holding the ORDER BY values of the last
+     * document of the previous page, so that deep pages are as cheap to fetch as the first one, and documents
+     * created or deleted meanwhile don't shift the pages. The ORDER BY clause of the query is completed with
+     * {@code ecm:uuid} to make the order total. Documents having a {@code null} value for one of the ORDER BY columns
+     * cannot be paginated this way.
+     *
+     * @param query the NXQL query to execute
+     * @param cursor the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit the maximum number of documents in the page, must be positive
+     * @return a {@link KeysetResult} including the documents and the cursor of the next page
+     * @since 9.2
+     */
+    KeysetResult queryKeyset(String query, String cursor, long limit);
+
     /** -------------------------- Security API --------------------------- * */
 
     /**
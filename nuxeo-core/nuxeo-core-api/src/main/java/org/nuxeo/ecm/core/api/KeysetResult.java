@@ -0,0 +1,64 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.api;
+
+import java.io.Serializable;
+
+/**
+ * The result of a {@link CoreSession#queryKeyset} call, giving access to a page of documents and to the cursor of the
+ * next page.
+ *
+ * @since 9.2
+ */
+public class KeysetResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final DocumentModelList documents;
+
+    protected final String nextCursor;
+
+    public KeysetResult(DocumentModelList documents, String nextCursor) {
+        this.documents = documents;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the documents of this page.
+     */
+    public DocumentModelList getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Returns the opaque cursor to pass to {@link CoreSession#queryKeyset} to get the next page, or {@code null} if
+     * there is no next page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Returns {@code true} if there may be a next page.
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+}
@@ -29,7 +29,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
@@ -48,10 +53,13 @@ import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
 import org.nuxeo.runtime.api.Framework;
 
 /**
@@ -75,12 +83,18 @@ import org.nuxeo.runtime.api.Framework;
  * <li>password: the password
  * </ul>
  * <p>
+ * The format of new files can also be chosen (since 9.2):
+ * <ul>
+ * <li>format: {@code cbc} (default) for AES-CBC, or {@code ctr} for the seekable AES-CTR format
+ * </ul>
+ * <p>
  * To encrypt a binary, an AES key is needed. This key can be retrieved from a keystore, or generated from a password
  * using PBKDF2 (in which case each stored file contains a different salt for security reasons). The file format is
  * described in {@link #storeAndDigest(InputStream, OutputStream)}.
  * <p>
  * While the binary is being used by the application, a temporarily-decrypted file is held in a temporary directory. It
- * is removed as soon as possible.
+ * is removed as soon as possible. Files in the AES-CTR format don't need it: they are decrypted on the fly when read,
+ * from any position. Files in both formats can always be read, whatever the configured format.
  * <p>
  * Note: if the Java Cryptographic Extension (JCE) is not configured for 256-bit key length, you may get an exception
  * "java.security.InvalidKeyException: Illegal key size or default parameters". If this is the case, go to <a
@@ -97,6 +111,9 @@ public class AESBinaryManager extends LocalBinaryManager {
 
     protected static final int FILE_VERSION_1 = 1;
 
+    /** @since 9.2 */
+    protected static final int FILE_VERSION_2 = 2;
+
     protected static final int USE_KEYSTORE = 1;
 
     protected static final int USE_PBKDF2 = 2;
@@ -105,6 +122,12 @@ public class AESBinaryManager extends LocalBinaryManager {
 
     protected static final String AES_CBC_PKCS5_PADDING = "AES/CBC/PKCS5Padding";
 
+    /** @since 9.2 */
+    protected static final String AES_CTR_NO_PADDING = "AES/CTR/NoPadding";
+
+    /** @since 9.2 */
+    protected static final int AES_BLOCK_SIZE = 16;
+
     protected static final String PBKDF2_WITH_HMAC_SHA1 = "PBKDF2WithHmacSHA1";
 
     protected static final int PBKDF2_ITERATIONS = 10000;
@@ -124,12 +147,24 @@ public class AESBinaryManager extends LocalBinaryManager {
 
     protected static final String PARAM_KEY_PASSWORD = "keyPassword";
 
+    /** @since 9.2 */
+    protected static final String PARAM_FORMAT = "format";
+
+    /** @since 9.2 */
+    protected static final String FORMAT_CBC = "cbc";
+
+    /** @since 9.2 */
+    protected static final String FORMAT_CTR = "ctr";
+
     // for sanity check during reads
     private static final int MAX_SALT_LEN = 1024;
 
     // for sanity check during reads
     private static final int MAX_IV_LEN = 1024;
 
+    // for sanity check during reads
+    private static final int MAX_DIGEST_LEN = 1024;
+
     // Random instances are thread-safe
     protected static final Random RANDOM = new SecureRandom();
 
@@ -150,6 +185,13 @@ public class AESBinaryManager extends LocalBinaryManager {
 
     protected String keyPassword;
 
+    /**
+     * Whether new binaries are written in the seekable AES-CTR format (version 2).
+     *
+     * @since 9.2
+     */
+    protected boolean useCTR;
+
     public AESBinaryManager() {
         setUnlimitedJCEPolicy();
     }
@@ -190,6 +232,7 @@ public class AESBinaryManager extends LocalBinaryManager {
     }
 
     protected void initializeOptions(String options) {
+        String format = null;
         for (String option : options.split(",")) {
             String[] split = option.split("=", 2);
             if (split.length != 2) {
@@ -215,10 +258,20 @@ public class AESBinaryManager extends LocalBinaryManager {
             case PARAM_KEY_PASSWORD:
                 keyPassword = value;
                 break;
+            case PARAM_FORMAT:
+                format = value;
+                break;
             default:
                 throw new NuxeoException("Unrecognized option: " + option);
             }
         }
+        if (format == null || FORMAT_CBC.equals(format)) {
+            useCTR = false;
+        } else if (FORMAT_CTR.equals(format)) {
+            useCTR = true;
+        } else {
+            throw new NuxeoException("Unrecognized " + PARAM_FORMAT + ": " + format);
+        }
         usePBKDF2 = password != null;
         if (usePBKDF2) {
             if (keyStoreType != null) {
@@ -309,6 +362,11 @@ public class AESBinaryManager extends LocalBinaryManager {
 
     @Override
     protected Binary getBinary(InputStream in) throws IOException {
+        if (useCTR) {
+            // encrypt and digest directly into the final file, the binary decrypts it on the fly
+            String digest = storeAndDigest(in);
+            return new DecryptingBinary(digest, blobProviderId, this);
+        }
         // write to a tmp file that will be used by the returned Binary
         // TODO if stream source, avoid copy (no-copy optimization)
         File tmp = File.createTempFile("bin_", ".tmp", tmpDir);
@@ -336,6 +394,10 @@ public class AESBinaryManager extends LocalBinaryManager {
         }
         File tmp;
         try {
+            if (readFileVersion(file) == FILE_VERSION_2) {
+                // seekable format, no need for a decrypted copy
+                return new DecryptingBinary(digest, blobProviderId, this);
+            }
             tmp = File.createTempFile("bin_", ".tmp", tmpDir);
             Framework.trackFile(tmp, tmp);
             OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
@@ -356,17 +418,25 @@ public class AESBinaryManager extends LocalBinaryManager {
     @Override
     protected String storeAndDigest(InputStream in) throws IOException {
         File tmp = File.createTempFile("create_", ".tmp", tmpDir);
-        OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
         /*
          * First, write the input stream to a temporary file, while computing a digest.
          */
         try {
             String digest;
-            try {
-                digest = storeAndDigest(in, out);
-            } finally {
-                in.close();
-                out.close();
+            if (useCTR) {
+                try {
+                    digest = storeAndDigestCTR(in, tmp);
+                } finally {
+                    in.close();
+                }
+            } else {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+                try {
+                    digest = storeAndDigest(in, out);
+                } finally {
+                    in.close();
+                    out.close();
+                }
             }
             /*
              * Move the tmp file to its destination.
@@ -397,6 +467,24 @@ public class AESBinaryManager extends LocalBinaryManager {
      * <li>p bytes: IV data
      * <li>x bytes: encrypted stream
      * </ul>
+     * <p>
+     * File format version 2 is written when the {@code format=ctr} option is used. It uses AES in CTR mode, which
+     * allows decrypting from any position, and records the digest so that it is available without reading the data:
+     * <ul>
+     * <li>10 bytes: magic number "NUXEOCRYPT"
+     * <li>1 byte: file format version = 2
+     * <li>1 byte: use keystore = 1, use PBKDF2 = 2
+     * <li>if use PBKDF2:
+     * <ul>
+     * <li>4 bytes: salt length = n
+     * <li>n bytes: salt data
+     * </ul>
+     * <li>4 bytes: IV length = p (the AES block size)
+     * <li>p bytes: IV data (initial counter)
+     * <li>4 bytes: digest length = d
+     * <li>d bytes: digest of the clear data
+     * <li>x bytes: encrypted stream, of the same length as the clear data
+     * </ul>
      *
      * @param in the input stream containing the data
      * @param file the file containing the encrypted data
@@ -404,6 +492,20 @@ public class AESBinaryManager extends LocalBinaryManager {
      */
     @Override
     public String storeAndDigest(InputStream in, OutputStream out) throws IOException {
+        if (useCTR) {
+            // the digest is written in the header once known, which needs a seekable file
+            File tmp = File.createTempFile("create_", ".tmp", tmpDir);
+            try {
+                String digest = storeAndDigestCTR(in, tmp);
+                try (InputStream tin = new FileInputStream(tmp)) {
+                    IOUtils.copy(tin, out);
+                }
+                return digest;
+            } finally {
+                tmp.delete();
+            }
+        }
+
         out.write(FILE_MAGIC);
         DataOutputStream data = new DataOutputStream(out);
         data.writeByte(FILE_VERSION_1);
@@ -413,22 +515,7 @@ public class AESBinaryManager extends LocalBinaryManager {
             MessageDigest messageDigest = MessageDigest.getInstance(digestAlgorithm);
 
             // secret key
-            Key secret;
-            if (usePBKDF2) {
-                data.writeByte(USE_PBKDF2);
-                // generate a salt
-                byte[] salt = new byte[16];
-                RANDOM.nextBytes(salt);
-                // generate secret key
-                secret = generateSecretKey(salt);
-                // write salt
-                data.writeInt(salt.length);
-                data.write(salt);
-            } else {
-                data.writeByte(USE_KEYSTORE);
-                // find secret key from keystore
-                secret = getSecretKey();
-            }
+            Key secret = writeSecretKeyInfo(data);
 
             // cipher
             Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5_PADDING);
@@ -451,10 +538,138 @@ public class AESBinaryManager extends LocalBinaryManager {
 
     }
 
+    /**
+     * Encrypts the given input stream into the given file using the format version 2, while also computing the digest
+     * of the input stream. The digest is written in the header at the end, so the data is read only once.
+     *
+     * @return the digest of the input stream
+     * @since 9.2
+     */
+    protected String storeAndDigestCTR(InputStream in, File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(raf.getChannel()));
+            out.write(FILE_MAGIC);
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeByte(FILE_VERSION_2);
+
+            // get digest to use
+            MessageDigest messageDigest = MessageDigest.getInstance(digestAlgorithm);
+
+            // secret key
+            Key secret = writeSecretKeyInfo(data);
+
+            // cipher, with a random initial counter
+            byte[] iv = new byte[AES_BLOCK_SIZE];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(AES_CTR_NO_PADDING);
+            cipher.init(Cipher.ENCRYPT_MODE, secret, new IvParameterSpec(iv));
+            data.writeInt(iv.length);
+            data.write(iv);
+
+            // room for the digest
+            int digestLength = messageDigest.getDigestLength();
+            data.writeInt(digestLength);
+            data.flush();
+            long digestPosition = FILE_MAGIC.length + data.size();
+            data.write(new byte[digestLength]);
+
+            // digest and write the encrypted data
+            CipherAndDigestOutputStream cipherOut = new CipherAndDigestOutputStream(new CloseShieldOutputStream(out),
+                    cipher, messageDigest);
+            IOUtils.copy(in, cipherOut);
+            cipherOut.close();
+            out.flush();
+            byte[] digest = cipherOut.getDigest();
+
+            // fill in the digest
+            raf.seek(digestPosition);
+            raf.write(digest);
+            return toHexString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    /**
+     * Writes how the secret key is found, and returns it.
+     */
+    protected Key writeSecretKeyInfo(DataOutputStream data) throws GeneralSecurityException, IOException {
+        Key secret;
+        if (usePBKDF2) {
+            data.writeByte(USE_PBKDF2);
+            // generate a salt
+            byte[] salt = new byte[16];
+            RANDOM.nextBytes(salt);
+            // generate secret key
+            secret = generateSecretKey(salt);
+            // write salt
+            data.writeInt(salt.length);
+            data.write(salt);
+        } else {
+            data.writeByte(USE_KEYSTORE);
+            // find secret key from keystore
+            secret = getSecretKey();
+        }
+        return secret;
+    }
+
     /**
      * Decrypts the given input stream into the given output stream.
      */
     protected void decrypt(InputStream in, OutputStream out) throws IOException {
+        FileHeader header = readHeader(in);
+        try {
+            // cipher
+            Cipher cipher;
+            if (header.version == FILE_VERSION_1) {
+                cipher = Cipher.getInstance(AES_CBC_PKCS5_PADDING);
+            } else {
+                cipher = Cipher.getInstance(AES_CTR_NO_PADDING);
+            }
+            cipher.init(Cipher.DECRYPT_MODE, header.secret, new IvParameterSpec(header.iv));
+
+            // read the encrypted data
+            try (InputStream cipherIn = new CipherInputStream(in, cipher)) {
+                IOUtils.copy(cipherIn, out);
+            } catch (IOException e) {
+                Throwable cause = e.getCause();
+                if (cause != null && cause instanceof BadPaddingException) {
+                    throw new NuxeoException(cause.getMessage(), e);
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    /**
+     * Header of an encrypted file.
+     *
+     * @since 9.2
+     */
+    protected static class FileHeader {
+
+        protected int version;
+
+        protected Key secret;
+
+        protected byte[] iv;
+
+        /** The digest of the clear data, only for version 2. */
+        protected byte[] digest;
+
+        /** The length of the header, which is the position of the encrypted data. */
+        protected long length;
+    }
+
+    /**
+     * Reads the header of an encrypted file, leaving the stream positioned at the start of the encrypted data.
+     *
+     * @since 9.2
+     */
+    protected FileHeader readHeader(InputStream in) throws IOException {
+        FileHeader header = new FileHeader();
         byte[] magic = new byte[FILE_MAGIC.length];
         IOUtils.read(in, magic);
         if (!Arrays.equals(magic, FILE_MAGIC)) {
@@ -462,9 +677,11 @@ public class AESBinaryManager extends LocalBinaryManager {
         }
         DataInputStream data = new DataInputStream(in);
         byte magicvers = data.readByte();
-        if (magicvers != FILE_VERSION_1) {
+        if (magicvers != FILE_VERSION_1 && magicvers != FILE_VERSION_2) {
             throw new IOException("Invalid file (bad version)");
         }
+        header.version = magicvers;
+        header.length = FILE_MAGIC.length + 2;
 
         byte usepb = data.readByte();
         if (usepb == USE_PBKDF2) {
@@ -481,7 +698,6 @@ public class AESBinaryManager extends LocalBinaryManager {
 
         try {
             // secret key
-            Key secret;
             if (usePBKDF2) {
                 // read salt first
                 int saltLen = data.readInt();
@@ -489,36 +705,258 @@ public class AESBinaryManager extends LocalBinaryManager {
                     throw new NuxeoException("Invalid salt length: " + saltLen);
                 }
                 byte[] salt = new byte[saltLen];
-                data.read(salt, 0, saltLen);
-                secret = generateSecretKey(salt);
+                data.readFully(salt);
+                header.length += 4 + saltLen;
+                header.secret = generateSecretKey(salt);
             } else {
-                secret = getSecretKey();
+                header.secret = getSecretKey();
             }
+        } catch (GeneralSecurityException e) {
+            throw new NuxeoException(e);
+        }
 
-            // read IV
-            int ivLen = data.readInt();
-            if (ivLen <= 0 || ivLen > MAX_IV_LEN) {
-                throw new NuxeoException("Invalid IV length: " + ivLen);
+        // read IV
+        int ivLen = data.readInt();
+        if (ivLen <= 0 || ivLen > MAX_IV_LEN) {
+            throw new NuxeoException("Invalid IV length: " + ivLen);
+        }
+        header.iv = new byte[ivLen];
+        data.readFully(header.iv);
+        header.length += 4 + ivLen;
+
+        if (header.version == FILE_VERSION_2) {
+            // read digest
+            int digestLen = data.readInt();
+            if (digestLen <= 0 || digestLen > MAX_DIGEST_LEN) {
+                throw new NuxeoException("Invalid digest length: " + digestLen);
             }
-            byte[] iv = new byte[ivLen];
-            data.read(iv, 0, ivLen);
+            header.digest = new byte[digestLen];
+            data.readFully(header.digest);
+            header.length += 4 + digestLen;
+        }
+        return header;
+    }
 
-            // cipher
-            Cipher cipher;
-            cipher = Cipher.getInstance(AES_CBC_PKCS5_PADDING);
-            cipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
+    /**
+     * Reads the format version of an encrypted file.
+     *
+     * @since 9.2
+     */
+    protected int readFileVersion(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] magic = new byte[FILE_MAGIC.length];
+            IOUtils.read(in, magic);
+            if (!Arrays.equals(magic, FILE_MAGIC)) {
+                throw new IOException("Invalid file (bad magic)");
+            }
+            return in.read();
+        }
+    }
 
-            // read the encrypted data
-            try (InputStream cipherIn = new CipherInputStream(in, cipher)) {
-                IOUtils.copy(cipherIn, out);
-            } catch (IOException e) {
-                Throwable cause = e.getCause();
-                if (cause != null && cause instanceof BadPaddingException) {
-                    throw new NuxeoException(cause.getMessage(), e);
+    /**
+     * Gets a stream decrypting on the fly the stored binary for a digest, for the format version 2.
+     * <p>
+     * The stream supports efficient {@link InputStream#skip skip}, which only decrypts from the target position.
+     *
+     * @since 9.2
+     */
+    protected InputStream getDecryptingStream(String digest) throws IOException {
+        File file = getFileForDigest(digest, false);
+        if (file == null || !file.exists()) {
+            throw new IOException("Missing file for digest: " + digest);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            // don't buffer, the channel must stay positioned at the end of the header
+            FileHeader header = readHeader(Channels.newInputStream(channel));
+            if (header.version != FILE_VERSION_2) {
+                throw new IOException("Invalid file (not seekable): " + file);
+            }
+            return new CTRDecryptingInputStream(channel, header);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A stream decrypting a file in the format version 2, which can skip to any position without decrypting the
+     * previous data.
+     *
+     * @since 9.2
+     */
+    public static class CTRDecryptingInputStream extends InputStream {
+
+        protected static final int BUFFER_SIZE = 8192;
+
+        protected final FileChannel channel;
+
+        protected final Key secret;
+
+        protected final byte[] iv;
+
+        /** Position of the encrypted data in the file. */
+        protected final long offset;
+
+        /** Length of the clear data. */
+        protected final long length;
+
+        protected final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        protected final byte[] discard = new byte[AES_BLOCK_SIZE];
+
+        protected Cipher cipher;
+
+        /** Position in the clear data. */
+        protected long position;
+
+        public CTRDecryptingInputStream(FileChannel channel, FileHeader header) throws IOException {
+            this.channel = channel;
+            secret = header.secret;
+            iv = header.iv;
+            offset = header.length;
+            length = Math.max(0, channel.size() - offset);
+            seek(0);
+        }
+
+        /**
+         * Positions the stream in the clear data.
+         */
+        protected void seek(long pos) throws IOException {
+            long block = pos / AES_BLOCK_SIZE;
+            int inBlock = (int) (pos % AES_BLOCK_SIZE);
+            try {
+                cipher = Cipher.getInstance(AES_CTR_NO_PADDING);
+                cipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(getCounter(iv, block)));
+                position = block * AES_BLOCK_SIZE;
+                if (inBlock > 0) {
+                    // advance the key stream to the position inside the block
+                    int n = readEncrypted(inBlock);
+                    cipher.update(buffer.array(), 0, n, discard, 0);
+                    position += n;
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Reads encrypted bytes at the current position into the buffer.
+         */
+        protected int readEncrypted(int len) throws IOException {
+            buffer.clear();
+            buffer.limit((int) Math.min(len, Math.min(BUFFER_SIZE, length - position)));
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, offset + position + buffer.position());
+                if (n < 0) {
+                    break;
                 }
             }
-        } catch (GeneralSecurityException e) {
-            throw new NuxeoException(e);
+            return buffer.position();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n <= 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= length) {
+                return -1;
+            }
+            int n = readEncrypted(len);
+            if (n == 0) {
+                return -1; // truncated file
+            }
+            try {
+                cipher.update(buffer.array(), 0, n, b, off);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            long pos = Math.min(position + n, length);
+            long skipped = pos - position;
+            seek(pos);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(length - position, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Computes the counter for a given block, which is the IV incremented by the block number as a 128-bit big-endian
+     * number, like the CTR mode does.
+     *
+     * @since 9.2
+     */
+    protected static byte[] getCounter(byte[] iv, long block) {
+        byte[] counter = iv.clone();
+        long carry = block;
+        for (int i = counter.length - 1; i >= 0 && carry != 0; i--) {
+            long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return counter;
+    }
+
+    /**
+     * A binary stored in the format version 2, decrypted on the fly when read. It has no clear file.
+     *
+     * @since 9.2
+     */
+    public static class DecryptingBinary extends Binary {
+
+        private static final long serialVersionUID = 1L;
+
+        // transient to be Serializable
+        protected transient AESBinaryManager binaryManager;
+
+        public DecryptingBinary(String digest, String blobProviderId, AESBinaryManager binaryManager) {
+            super(digest, blobProviderId);
+            this.binaryManager = binaryManager;
+        }
+
+        // because the class is Serializable, re-acquire the AESBinaryManager
+        protected AESBinaryManager getBinaryManager() {
+            if (binaryManager == null) {
+                BlobManager bm = Framework.getService(BlobManager.class);
+                BlobProvider bp = bm.getBlobProvider(blobProviderId);
+                binaryManager = (AESBinaryManager) bp.getBinaryManager();
+            }
+            return binaryManager;
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            return getBinaryManager().getDecryptingStream(digest);
+        }
+
+        @Override
+        protected File recomputeFile() {
+            return null;
         }
     }
 
@@ -33,6 +33,12 @@ public class BinaryManagerStatus {
 
     public long sizeBinariesGC;
 
+    /** @since 9.2 */
+    public long numShards;
+
+    /** @since 9.2 */
+    public long numShardsSwept;
+
     /**
      * The GC duration, in milliseconds
      */
@@ -68,6 +74,24 @@ public class BinaryManagerStatus {
         return sizeBinariesGC;
     }
 
+    /**
+     * The number of storage shards to sweep, if the GC sweeps the storage by shard.
+     *
+     * @since 9.2
+     */
+    public long getNumShards() {
+        return numShards;
+    }
+
+    /**
+     * The number of storage shards already swept, which is the progress of the sweep during a GC.
+     *
+     * @since 9.2
+     */
+    public long getNumShardsSwept() {
+        return numShardsSwept;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -75,7 +99,9 @@ public class BinaryManagerStatus {
         .append(", numBinaries=").append(numBinaries) //
         .append(", sizeBinaries=").append(sizeBinaries) //
         .append(", numBinariesGC=").append(numBinariesGC) //
-        .append(", sizeBinariesGC=").append(sizeBinariesGC).append("]");
+        .append(", sizeBinariesGC=").append(sizeBinariesGC) //
+        .append(", numShards=").append(numShards) //
+        .append(", numShardsSwept=").append(numShardsSwept).append("]");
         return builder.toString();
     }
 
@@ -25,8 +25,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.file.FileCache;
@@ -34,12 +44,22 @@ import org.nuxeo.common.file.LRUFileCache;
 import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.trackers.files.FileEventTracker;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
 /**
  * Abstract class for a {@link BinaryManager} that uses a cache for its files because fetching them is expensive.
  * <p>
  * Initialization of the {@link BinaryManager} must call {@link #initializeCache} from the {@link #initialize} method.
+ * <p>
+ * Files missing from the cache are fetched by a bounded pool of threads, and concurrent requests for the same file
+ * share a single fetch. Optionally, callers that know that a content will be read, like downloads, can have its file
+ * prefetched with {@link #prefetch}. The cache hits and misses and the fetch times are available as metrics.
  *
  * @since 5.7
  */
@@ -47,18 +67,94 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
 
     private static final Log log = LogFactory.getLog(CachingBinaryManager.class);
 
+    /**
+     * Property for the maximum number of files fetched concurrently from the storage.
+     *
+     * @since 9.2
+     */
+    public static final String PROP_FETCH_THREADS = "cachefetchthreads";
+
+    /**
+     * Property to enable the prefetch of a file through {@link #prefetch}.
+     *
+     * @since 9.2
+     */
+    public static final String PROP_PREFETCH = "cacheprefetch";
+
+    /** @since 9.2 */
+    public static final int DEFAULT_FETCH_THREADS = 16;
+
     protected File cachedir;
 
     public FileCache fileCache;
 
     protected FileStorage fileStorage;
 
+    /** @since 9.2 */
+    protected int fetchThreads;
+
+    /** @since 9.2 */
+    protected boolean prefetch;
+
+    /** @since 9.2 */
+    protected ExecutorService fetchExecutor;
+
+    /**
+     * Fetches in progress, by digest.
+     *
+     * @since 9.2
+     */
+    protected final ConcurrentMap<String, CompletableFuture<File>> fetches = new ConcurrentHashMap<>();
+
+    /** @since 9.2 */
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** @since 9.2 */
+    protected Counter cacheHits;
+
+    /** @since 9.2 */
+    protected Counter cacheMisses;
+
+    /** @since 9.2 */
+    protected Timer fetchTimer;
+
     @Override
     public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
         super.initialize(blobProviderId, properties);
         descriptor = new BinaryManagerRootDescriptor();
         descriptor.digest = getDefaultDigestAlgorithm();
         log.info("Registering binary manager '" + blobProviderId + "' using " + getClass().getSimpleName());
+        String threads = properties.get(PROP_FETCH_THREADS);
+        fetchThreads = StringUtils.isBlank(threads) ? DEFAULT_FETCH_THREADS
+                : Math.max(1, Integer.parseInt(threads.trim()));
+        prefetch = Boolean.parseBoolean(properties.get(PROP_PREFETCH));
+        fetchExecutor = Executors.newFixedThreadPool(fetchThreads,
+                new NamedThreadFactory("Nuxeo-BinaryFetch-" + blobProviderId + "-"));
+        String metricsPrefix = MetricRegistry.name("nuxeo", "binaries", blobProviderId, "cache");
+        cacheHits = registry.counter(MetricRegistry.name(metricsPrefix, "hits"));
+        cacheMisses = registry.counter(MetricRegistry.name(metricsPrefix, "misses"));
+        fetchTimer = registry.timer(MetricRegistry.name(metricsPrefix, "fetches"));
+    }
+
+    /**
+     * Creates daemon threads, fetches must not prevent shutdown.
+     */
+    protected static class NamedThreadFactory implements ThreadFactory {
+
+        protected final AtomicInteger threadNumber = new AtomicInteger();
+
+        protected final String prefix;
+
+        public NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 
     /**
@@ -118,6 +214,13 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
 
     @Override
     public void close() {
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+            // don't leave readers waiting for fetches that won't run
+            for (CompletableFuture<File> future : fetches.values()) {
+                future.completeExceptionally(new NuxeoException("Binary manager closed: " + blobProviderId));
+            }
+        }
         fileCache.clear();
         if (cachedir != null) {
             try {
@@ -163,6 +266,29 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
         return new LazyBinary(digest, blobProviderId, this);
     }
 
+    /**
+     * Starts fetching a file in the background if prefetch is enabled and the file is not in the cache.
+     * <p>
+     * Getting a binary does not fetch its file, as most binaries are resolved without their content being read. This
+     * is meant to be called when the content is about to be read, so that the fetch overlaps the rest of the
+     * processing.
+     * <p>
+     * Prefetches are skipped when all the fetch threads are busy, so that they never delay actual reads.
+     *
+     * @since 9.2
+     */
+    public void prefetch(String digest) {
+        if (!prefetch || fetches.size() >= fetchThreads || fetches.containsKey(digest)
+                || fileCache.getFile(digest) != null) {
+            return;
+        }
+        fetch(digest).whenComplete((file, e) -> {
+            if (e != null) {
+                log.debug("Cannot prefetch: " + digest, e);
+            }
+        });
+    }
+
     /* =============== Methods used by LazyBinary =============== */
 
     /**
@@ -174,14 +300,79 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
         // get file from cache
         File file = fileCache.getFile(digest);
         if (file != null) {
+            cacheHits.inc();
             return file;
         }
-        // fetch file from storage
+        cacheMisses.inc();
+        // fetch file from storage, or wait for the fetch already in progress
+        CompletableFuture<File> future = fetch(digest);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new NuxeoException(cause);
+        }
+    }
+
+    /**
+     * Starts fetching a file from storage in the fetch pool, or returns the fetch already in progress for this digest.
+     *
+     * @return the future of the file, or of {@code null} if it's not in storage
+     * @since 9.2
+     */
+    protected CompletableFuture<File> fetch(String digest) {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> inProgress = fetches.putIfAbsent(digest, future);
+        if (inProgress != null) {
+            return inProgress;
+        }
+        try {
+            fetchExecutor.execute(() -> {
+                try {
+                    // the file may have been fetched since the cache was checked
+                    File file = fileCache.getFile(digest);
+                    if (file == null) {
+                        Timer.Context timerContext = fetchTimer.time();
+                        try {
+                            file = fetchFile(digest);
+                        } finally {
+                            timerContext.stop();
+                        }
+                    }
+                    // removed before completion, a completed fetch is never seen in progress
+                    fetches.remove(digest, future);
+                    future.complete(file);
+                } catch (Exception e) {
+                    fetches.remove(digest, future);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fetches.remove(digest, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Fetches a file from storage and puts it in the cache.
+     *
+     * @return the cached file, or {@code null} if it's not in storage
+     * @since 9.2
+     */
+    protected File fetchFile(String digest) throws IOException {
         File tmp = fileCache.getTempFile();
         if (fileStorage.fetchFile(digest, tmp)) {
             // put file in cache
-            file = fileCache.putFile(digest, tmp);
-            return file;
+            return fileCache.putFile(digest, tmp);
         } else {
             // file not in storage
             tmp.delete();
@@ -0,0 +1,161 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.blob.binary.ChunkingBinaryManager.Manifest;
+
+/**
+ * Garbage collector for a {@link ChunkingBinaryManager}.
+ * <p>
+ * Marking a binary marks its manifest and all the chunks it references. Manifests and chunks are then swept by two
+ * {@link ParallelBinaryGarbageCollector}s, each with its own work directory, so that an interrupted GC can be resumed
+ * as for a {@link LocalBinaryManager}. Chunks are written again or touched when they are reused, so chunks shared with
+ * a binary stored during the GC are kept.
+ * <p>
+ * If a referenced manifest cannot be read, the chunks it references are unknown, so nothing is deleted by this GC.
+ * <p>
+ * In the status, the number of binaries is the number of manifests, and their size is the size of the chunks.
+ *
+ * @since 9.2
+ */
+public class ChunkingBinaryGarbageCollector implements BinaryGarbageCollector {
+
+    private static final Log log = LogFactory.getLog(ChunkingBinaryGarbageCollector.class);
+
+    protected final ChunkingBinaryManager binaryManager;
+
+    protected ParallelBinaryGarbageCollector manifestsGC;
+
+    protected ParallelBinaryGarbageCollector chunksGC;
+
+    protected volatile long startTime;
+
+    protected volatile BinaryManagerStatus status;
+
+    /** Whether a referenced manifest could not be read during this GC. */
+    protected boolean markFailed;
+
+    public ChunkingBinaryGarbageCollector(ChunkingBinaryManager binaryManager) {
+        this.binaryManager = binaryManager;
+    }
+
+    @Override
+    public String getId() {
+        return binaryManager.getStorageDir().toURI().toString();
+    }
+
+    @Override
+    public BinaryManagerStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean isInProgress() {
+        // volatile as this is designed to be called from another thread
+        return startTime != 0;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (startTime != 0) {
+            throw new RuntimeException("Already started");
+        }
+        if (manifestsGC == null) {
+            // created lazily, the chunks directory is not known yet when the binary manager creates its GC
+            File gcDir = binaryManager.gcDir;
+            int parallelism = binaryManager.gcParallelism;
+            manifestsGC = new ParallelBinaryGarbageCollector(binaryManager, binaryManager.getStorageDir(),
+                    new File(gcDir, LocalBinaryManager.DATA), parallelism);
+            chunksGC = new ParallelBinaryGarbageCollector(binaryManager, binaryManager.getChunksDir(),
+                    new File(gcDir, ChunkingBinaryManager.CHUNKS), parallelism);
+        }
+        status = null;
+        markFailed = false;
+        manifestsGC.start();
+        chunksGC.start();
+        startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void mark(String digest) {
+        if (startTime == 0) {
+            throw new RuntimeException("Not started");
+        }
+        File file = binaryManager.getFileForDigest(digest, false);
+        if (file == null || !file.exists()) {
+            log.error("Unknown file digest: " + digest);
+            return;
+        }
+        manifestsGC.mark(digest);
+        Manifest manifest;
+        try {
+            manifest = binaryManager.readManifest(digest);
+        } catch (IOException e) {
+            // its chunks would be deleted if we went on
+            log.error("Cannot read manifest for digest: " + digest + ", no binary will be deleted by this GC", e);
+            markFailed = true;
+            return;
+        }
+        for (String chunkDigest : manifest.getChunkDigests()) {
+            chunksGC.mark(chunkDigest);
+        }
+    }
+
+    @Override
+    public synchronized void stop(boolean delete) {
+        if (startTime == 0) {
+            throw new RuntimeException("Not started");
+        }
+        if (markFailed) {
+            delete = false;
+        }
+        boolean manifestsSwept = false;
+        try {
+            // manifests first, so that a chunk is never deleted while a manifest still references it
+            manifestsGC.stop(delete);
+            manifestsSwept = true;
+        } finally {
+            try {
+                // if the manifests sweep failed, only count the chunks, they'll be collected by the next GC
+                chunksGC.stop(delete && manifestsSwept);
+            } finally {
+                status = getStatus(manifestsGC.getStatus(), chunksGC.getStatus());
+                startTime = 0;
+            }
+        }
+    }
+
+    protected BinaryManagerStatus getStatus(BinaryManagerStatus manifests, BinaryManagerStatus chunks) {
+        BinaryManagerStatus status = new BinaryManagerStatus();
+        status.gcDuration = System.currentTimeMillis() - startTime;
+        status.numBinaries = manifests.numBinaries;
+        status.numBinariesGC = manifests.numBinariesGC;
+        status.sizeBinaries = chunks.sizeBinaries;
+        status.sizeBinariesGC = chunks.sizeBinariesGC;
+        status.numShards = manifests.numShards + chunks.numShards;
+        status.numShardsSwept = manifests.numShardsSwept + chunks.numShardsSwept;
+        return status;
+    }
+
+}
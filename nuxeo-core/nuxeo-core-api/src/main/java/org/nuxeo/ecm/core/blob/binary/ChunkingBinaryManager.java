@@ -0,0 +1,488 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.trackers.files.FileEventTracker;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * A filesystem-based binary manager deduplicating content below the level of whole files.
+ * <p>
+ * The content is split into content-defined chunks (see {@link ContentDefinedChunker}), and each chunk is stored
+ * according to its own digest. A small edit to a large file, or a new version of it, only changes the chunks around
+ * the edit, so only these chunks are stored again.
+ * <p>
+ * The digest of a binary is still the digest of its whole content. The file stored for this digest is a manifest
+ * listing the digests of its chunks in order, and reads stream the chunks back from it.
+ * <p>
+ * The format of the <em>binaries</em> directory is the same as for the {@link LocalBinaryManager}, with the manifests
+ * in <em>data/</em>, and an additional <em>chunks/</em> hierarchy with the actual chunks, laid out in the same way.
+ * <p>
+ * The deduplication ratio of the content stored since startup, that is the ratio of the bytes written by the callers
+ * to the bytes actually stored, is available as a metric.
+ *
+ * @since 9.2
+ */
+public class ChunkingBinaryManager extends LocalBinaryManager {
+
+    private static final Log log = LogFactory.getLog(ChunkingBinaryManager.class);
+
+    public static final String CHUNKS = "chunks";
+
+    /** Property for the minimum size of a chunk. */
+    public static final String PROP_CHUNK_MIN_SIZE = "chunkMinSize";
+
+    /** Property for the average size of a chunk, rounded down to a power of 2. */
+    public static final String PROP_CHUNK_AVG_SIZE = "chunkAvgSize";
+
+    /** Property for the maximum size of a chunk. */
+    public static final String PROP_CHUNK_MAX_SIZE = "chunkMaxSize";
+
+    public static final int DEFAULT_CHUNK_MIN_SIZE = 16 * 1024; // 16 kB
+
+    public static final int DEFAULT_CHUNK_AVG_SIZE = 64 * 1024; // 64 kB
+
+    public static final int DEFAULT_CHUNK_MAX_SIZE = 256 * 1024; // 256 kB
+
+    protected static final byte[] MANIFEST_MAGIC = "NXCHUNKS".getBytes(StandardCharsets.US_ASCII);
+
+    protected static final int MANIFEST_VERSION = 1;
+
+    protected File chunksDir;
+
+    protected int chunkMinSize;
+
+    protected int chunkAvgSize;
+
+    protected int chunkMaxSize;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected String metricsPrefix;
+
+    /** Bytes written by the callers. */
+    protected Counter logicalBytes;
+
+    /** Bytes written to new chunks. */
+    protected Counter storedBytes;
+
+    @Override
+    public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
+        chunkMinSize = getIntProperty(properties, PROP_CHUNK_MIN_SIZE, DEFAULT_CHUNK_MIN_SIZE);
+        chunkAvgSize = Integer.highestOneBit(getIntProperty(properties, PROP_CHUNK_AVG_SIZE, DEFAULT_CHUNK_AVG_SIZE));
+        chunkMaxSize = getIntProperty(properties, PROP_CHUNK_MAX_SIZE, DEFAULT_CHUNK_MAX_SIZE);
+        if (chunkMinSize <= 0 || chunkMinSize > chunkAvgSize || chunkAvgSize > chunkMaxSize) {
+            throw new IllegalArgumentException("Invalid chunk sizes for blob provider: " + blobProviderId + ", min="
+                    + chunkMinSize + ", avg=" + chunkAvgSize + ", max=" + chunkMaxSize);
+        }
+        super.initialize(blobProviderId, properties);
+        chunksDir = new File(storageDir.getParentFile(), CHUNKS);
+        chunksDir.mkdirs();
+        // be sure FileTracker won't steal our files !
+        FileEventTracker.registerProtectedPath(chunksDir.getAbsolutePath());
+
+        metricsPrefix = MetricRegistry.name("nuxeo", "binaries", blobProviderId, "chunking");
+        logicalBytes = registry.counter(MetricRegistry.name(metricsPrefix, "logical-bytes"));
+        storedBytes = registry.counter(MetricRegistry.name(metricsPrefix, "stored-bytes"));
+        String ratioName = MetricRegistry.name(metricsPrefix, "dedup-ratio");
+        registry.remove(ratioName);
+        registry.register(ratioName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(logicalBytes.getCount(), storedBytes.getCount());
+            }
+        });
+    }
+
+    protected static int getIntProperty(Map<String, String> properties, String name, int defaultValue) {
+        String value = properties.get(name);
+        return StringUtils.isBlank(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public void close() {
+        if (metricsPrefix != null) {
+            registry.remove(MetricRegistry.name(metricsPrefix, "dedup-ratio"));
+        }
+        super.close();
+    }
+
+    public File getChunksDir() {
+        return chunksDir;
+    }
+
+    /**
+     * Gets the file storing the chunk with the given digest.
+     *
+     * @param digest the chunk digest
+     * @param createDir {@code true} if the directory containing the file itself must be created
+     * @return the file for this chunk
+     */
+    public File getFileForChunk(String digest, boolean createDir) {
+        return getFileForDigest(chunksDir, digest, createDir);
+    }
+
+    @Override
+    protected void createGarbageCollector() {
+        garbageCollector = new ChunkingBinaryGarbageCollector(this);
+    }
+
+    @Override
+    protected Binary getBinary(InputStream in) throws IOException {
+        String digest = storeAndDigest(in);
+        return new ChunkedBinary(digest, blobProviderId, this);
+    }
+
+    @Override
+    public Binary getBinary(String digest) {
+        File file = getFileForDigest(digest, false);
+        if (file == null) {
+            // invalid digest
+            return null;
+        }
+        if (!file.exists()) {
+            log.warn("cannot fetch content at " + file.getPath() + " (file does not exist), check your configuration");
+            return null;
+        }
+        return new ChunkedBinary(digest, blobProviderId, this);
+    }
+
+    @Override
+    protected String storeAndDigest(InputStream in) throws IOException {
+        MessageDigest digest = getMessageDigest();
+        List<String> chunkDigests = new ArrayList<>();
+        List<Integer> chunkLengths = new ArrayList<>();
+        long length = 0;
+        try {
+            ContentDefinedChunker chunker = new ContentDefinedChunker(in, chunkMinSize, chunkAvgSize, chunkMaxSize);
+            int n;
+            while ((n = chunker.next()) > 0) {
+                byte[] bytes = chunker.getBuffer();
+                digest.update(bytes, 0, n);
+                chunkDigests.add(storeChunk(bytes, n));
+                chunkLengths.add(Integer.valueOf(n));
+                length += n;
+            }
+        } finally {
+            in.close();
+        }
+        logicalBytes.inc(length);
+        String hex = toHexString(digest.digest());
+        File file = getFileForDigest(hex, true);
+        if (file.exists()) {
+            // same content already stored, update date for the GC
+            touch(file);
+            return hex;
+        }
+        File tmp = File.createTempFile("create_", ".tmp", tmpDir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                writeManifest(out, length, chunkDigests, chunkLengths);
+            }
+            atomicMove(tmp, file);
+        } finally {
+            tmp.delete();
+        }
+        return hex;
+    }
+
+    /**
+     * Stores a chunk unless it's already present.
+     *
+     * @return the chunk digest
+     */
+    protected String storeChunk(byte[] bytes, int length) throws IOException {
+        MessageDigest digest = getMessageDigest();
+        digest.update(bytes, 0, length);
+        String hex = toHexString(digest.digest());
+        File file = getFileForChunk(hex, true);
+        if (file.exists()) {
+            // update date for the GC
+            touch(file);
+            return hex;
+        }
+        File tmp = File.createTempFile("chunk_", ".tmp", tmpDir);
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(bytes, 0, length);
+            }
+            atomicMove(tmp, file);
+        } finally {
+            tmp.delete();
+        }
+        storedBytes.inc(length);
+        return hex;
+    }
+
+    protected MessageDigest getMessageDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(getDigestAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    protected void writeManifest(DataOutputStream out, long length, List<String> chunkDigests,
+            List<Integer> chunkLengths) throws IOException {
+        out.write(MANIFEST_MAGIC);
+        out.writeByte(MANIFEST_VERSION);
+        out.writeLong(length);
+        out.writeInt(chunkDigests.size());
+        for (int i = 0; i < chunkDigests.size(); i++) {
+            out.writeUTF(chunkDigests.get(i));
+            out.writeInt(chunkLengths.get(i).intValue());
+        }
+    }
+
+    /**
+     * Reads the manifest of a binary.
+     *
+     * @param digest the binary digest
+     * @return the manifest
+     * @throws IOException if the binary is missing or its manifest is invalid
+     */
+    public Manifest readManifest(String digest) throws IOException {
+        File file = getFileForDigest(digest, false);
+        if (file == null) {
+            throw new IOException("Invalid digest: " + digest);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[MANIFEST_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MANIFEST_MAGIC)) {
+                throw new IOException("Invalid manifest: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != MANIFEST_VERSION) {
+                throw new IOException("Unknown manifest version: " + version + " for: " + file);
+            }
+            long length = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Invalid manifest: " + file);
+            }
+            String[] chunkDigests = new String[count];
+            int[] chunkLengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                chunkDigests[i] = in.readUTF();
+                chunkLengths[i] = in.readInt();
+            }
+            return new Manifest(length, chunkDigests, chunkLengths);
+        }
+    }
+
+    /**
+     * Gets a stream reading the chunks of a binary in order.
+     */
+    public InputStream getChunkedStream(String digest) throws IOException {
+        return new ChunkedInputStream(readManifest(digest));
+    }
+
+    /**
+     * The list of chunks of a binary.
+     */
+    public static class Manifest {
+
+        protected final long length;
+
+        protected final String[] chunkDigests;
+
+        protected final int[] chunkLengths;
+
+        public Manifest(long length, String[] chunkDigests, int[] chunkLengths) {
+            this.length = length;
+            this.chunkDigests = chunkDigests;
+            this.chunkLengths = chunkLengths;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String[] getChunkDigests() {
+            return chunkDigests;
+        }
+
+        public int[] getChunkLengths() {
+            return chunkLengths;
+        }
+    }
+
+    /**
+     * Stream over the chunks of a manifest, opening each chunk only when it's read. Skipping over whole chunks does
+     * not open them.
+     */
+    protected class ChunkedInputStream extends InputStream {
+
+        protected final Manifest manifest;
+
+        /** Index of the current chunk. */
+        protected int index;
+
+        /** Stream on the current chunk, or {@code null} if not open yet. */
+        protected InputStream current;
+
+        public ChunkedInputStream(Manifest manifest) {
+            this.manifest = manifest;
+        }
+
+        protected boolean openChunk() throws IOException {
+            if (current == null) {
+                if (index >= manifest.chunkDigests.length) {
+                    return false;
+                }
+                current = new BufferedInputStream(
+                        new FileInputStream(getFileForChunk(manifest.chunkDigests[index], false)));
+            }
+            return true;
+        }
+
+        protected void nextChunk() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            index++;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (openChunk()) {
+                int b = current.read();
+                if (b != -1) {
+                    return b;
+                }
+                nextChunk();
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (openChunk()) {
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    return n;
+                }
+                nextChunk();
+            }
+            return -1;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            // whole chunks not yet open are skipped without reading them
+            while (current == null && index < manifest.chunkLengths.length
+                    && n - skipped >= manifest.chunkLengths[index]) {
+                skipped += manifest.chunkLengths[index];
+                index++;
+            }
+            while (skipped < n && openChunk()) {
+                long s = current.skip(n - skipped);
+                if (s > 0) {
+                    skipped += s;
+                } else if (current.read() == -1) {
+                    nextChunk();
+                } else {
+                    skipped++;
+                }
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            index = manifest.chunkDigests.length;
+        }
+    }
+
+    /**
+     * A binary stored as chunks, read on the fly. It has no file.
+     */
+    public static class ChunkedBinary extends Binary {
+
+        private static final long serialVersionUID = 1L;
+
+        // transient to be Serializable
+        protected transient ChunkingBinaryManager binaryManager;
+
+        public ChunkedBinary(String digest, String blobProviderId, ChunkingBinaryManager binaryManager) {
+            super(digest, blobProviderId);
+            this.binaryManager = binaryManager;
+        }
+
+        // because the class is Serializable, re-acquire the ChunkingBinaryManager
+        protected ChunkingBinaryManager getBinaryManager() {
+            if (binaryManager == null) {
+                BlobManager bm = Framework.getService(BlobManager.class);
+                BlobProvider bp = bm.getBlobProvider(blobProviderId);
+                binaryManager = (ChunkingBinaryManager) bp.getBinaryManager();
+            }
+            return binaryManager;
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            return getBinaryManager().getChunkedStream(digest);
+        }
+
+        @Override
+        protected File recomputeFile() {
+            return null;
+        }
+    }
+
+}
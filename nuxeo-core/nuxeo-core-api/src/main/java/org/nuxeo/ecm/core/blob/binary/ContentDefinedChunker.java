@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Splits a stream into content-defined chunks using FastCDC.
+ * <p>
+ * Chunk boundaries are found with a gear rolling hash over the content, so that an insertion or a deletion only
+ * changes the chunks around it: the following boundaries are found again at the same content positions. Normalized
+ * chunking is used to keep the chunk sizes close to the average size: a stricter mask is used below the average size,
+ * and a looser one above it.
+ * <p>
+ * The chunks are read one at a time into a reused buffer.
+ *
+ * @since 9.2
+ */
+public class ContentDefinedChunker {
+
+    /** Gear table, fixed so that boundaries are stable across JVMs and restarts. */
+    protected static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x4E5558454FL); // fixed seed
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    protected final InputStream in;
+
+    protected final int minSize;
+
+    protected final int avgSize;
+
+    protected final int maxSize;
+
+    /** Mask used below the average size, with more bits to make boundaries less likely. */
+    protected final long maskSmall;
+
+    /** Mask used above the average size, with less bits to make boundaries more likely. */
+    protected final long maskLarge;
+
+    protected final byte[] buffer;
+
+    /** Start of the unread data in the buffer. */
+    protected int pos;
+
+    /** End of the data in the buffer. */
+    protected int limit;
+
+    protected boolean eof;
+
+    /**
+     * Creates a chunker.
+     *
+     * @param in the stream to split
+     * @param minSize the minimum chunk size, except for the last chunk
+     * @param avgSize the average chunk size, must be a power of 2
+     * @param maxSize the maximum chunk size
+     */
+    public ContentDefinedChunker(InputStream in, int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize || Integer.bitCount(avgSize) != 1) {
+            throw new IllegalArgumentException(
+                    "Invalid chunk sizes: min=" + minSize + ", avg=" + avgSize + ", max=" + maxSize);
+        }
+        this.in = in;
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        maskSmall = highBits(bits + 1);
+        maskLarge = highBits(Math.max(1, bits - 1));
+        buffer = new byte[maxSize];
+    }
+
+    // the gear hash is shifted left, so its high bits depend on the most bytes
+    protected static long highBits(int n) {
+        return -1L << (64 - n);
+    }
+
+    /**
+     * Reads the next chunk. Its bytes are then available at the start of {@link #getBuffer} until the next call.
+     *
+     * @return the length of the chunk, or {@code 0} at the end of the stream
+     */
+    public int next() throws IOException {
+        // move the remaining data to the start of the buffer and fill it
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (!eof && limit < buffer.length) {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        int length = cut(buffer, limit);
+        pos = length;
+        return length;
+    }
+
+    /**
+     * Gets the buffer holding the last chunk read, from position 0.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Finds the length of the chunk starting at the beginning of the given bytes.
+     */
+    protected int cut(byte[] bytes, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int normal = Math.min(avgSize, length);
+        int max = Math.min(maxSize, length);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[bytes[i] & 0xFF];
+            if ((hash & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < max; i++) {
+            hash = (hash << 1) + GEAR[bytes[i] & 0xFF];
+            if ((hash & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return max;
+    }
+
+}
@@ -49,6 +49,7 @@ import org.nuxeo.runtime.trackers.files.FileEventTracker;
  * <ul>
  * <li><em>data/</em> hierarchy with the actual binaries in subdirectories,</li>
  * <li><em>tmp/</em> temporary storage during creation,</li>
+ * <li><em>gc/</em> state of the garbage collector, kept if it is interrupted,</li>
  * <li><em>config.xml</em> a file containing the configuration used.</li>
  * </ul>
  *
@@ -69,10 +70,31 @@ public class LocalBinaryManager extends AbstractBinaryManager {
 
     public static final String CONFIG_FILE = "config.xml";
 
+    /**
+     * Directory holding the state of the garbage collector.
+     *
+     * @since 9.2
+     */
+    public static final String GC = "gc";
+
+    /**
+     * Property for the number of threads sweeping the storage during garbage collection. Defaults to the number of
+     * available processors.
+     *
+     * @since 9.2
+     */
+    public static final String PROP_GC_PARALLELISM = "gcParallelism";
+
     protected File storageDir;
 
     protected File tmpDir;
 
+    /** @since 9.2 */
+    protected File gcDir;
+
+    /** @since 9.2 */
+    protected int gcParallelism;
+
     @Override
     public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
         super.initialize(blobProviderId, properties);
@@ -105,6 +127,10 @@ public class LocalBinaryManager extends AbstractBinaryManager {
                 + "binary store: " + base);
         storageDir = new File(base, DATA);
         tmpDir = new File(base, TMP);
+        gcDir = new File(base, GC);
+        String parallelism = properties.get(PROP_GC_PARALLELISM);
+        gcParallelism = StringUtils.isBlank(parallelism) ? Runtime.getRuntime().availableProcessors()
+                : Integer.parseInt(parallelism.trim());
         storageDir.mkdirs();
         tmpDir.mkdirs();
         descriptor = getDescriptor(new File(base, CONFIG_FILE));
@@ -161,6 +187,19 @@ public class LocalBinaryManager extends AbstractBinaryManager {
      * @return the file for this digest
      */
     public File getFileForDigest(String digest, boolean createDir) {
+        return getFileForDigest(storageDir, digest, createDir);
+    }
+
+    /**
+     * Gets a file representing the storage for a given digest, in a directory laid out like the storage directory.
+     *
+     * @param dir the base directory
+     * @param digest the digest
+     * @param createDir {@code true} if the directory containing the file itself must be created
+     * @return the file for this digest
+     * @since 9.2
+     */
+    protected File getFileForDigest(File dir, String digest, boolean createDir) {
         int depth = descriptor.depth;
         if (digest.length() < 2 * depth) {
             return null;
@@ -172,11 +211,11 @@ public class LocalBinaryManager extends AbstractBinaryManager {
             }
             buf.append(digest.substring(2 * i, 2 * i + 2));
         }
-        File dir = new File(storageDir, buf.toString());
+        File parent = new File(dir, buf.toString());
         if (createDir) {
-            dir.mkdirs();
+            parent.mkdirs();
         }
-        return new File(dir, digest);
+        return new File(parent, digest);
     }
 
     protected String storeAndDigest(InputStream in) throws IOException {
@@ -247,9 +286,14 @@ public class LocalBinaryManager extends AbstractBinaryManager {
     }
 
     protected void createGarbageCollector() {
-        garbageCollector = new DefaultBinaryGarbageCollector(this);
+        garbageCollector = new ParallelBinaryGarbageCollector(this, gcDir, gcParallelism);
     }
 
+    /**
+     * Simple garbage collector keeping marks in the timestamps of the files.
+     * <p>
+     * The default garbage collector is now the {@link ParallelBinaryGarbageCollector}.
+     */
     public static class DefaultBinaryGarbageCollector implements BinaryGarbageCollector {
 
         /**
@@ -0,0 +1,560 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * Garbage collector for a {@link LocalBinaryManager} designed for large numbers of binaries.
+ * <p>
+ * Marked digests are not kept in memory and don't touch the binary files: they are appended to one marks file per
+ * shard (first-level directory of the storage) in a work directory. When the GC is stopped, the shards are swept in
+ * parallel in a fork/join pool; each sweep only loads the marks of its shard, as a sorted array of compact keys (hex
+ * digests are stored as their raw bytes), and looks up each file of the shard in it.
+ * <p>
+ * Binaries that are not marked are deleted only if they are older than the GC start, so that binaries created or
+ * written again during the GC are kept.
+ * <p>
+ * Progress is checkpointed in the work directory after each swept shard. If a GC is interrupted after its marking
+ * phase (crash, or failure during the sweep), the next GC resumes it: it reuses the previous start time and marks
+ * (new marks are added to them), and only sweeps the shards that were not swept yet.
+ *
+ * @since 9.2
+ */
+public class ParallelBinaryGarbageCollector implements BinaryGarbageCollector {
+
+    private static final Log log = LogFactory.getLog(ParallelBinaryGarbageCollector.class);
+
+    protected static final String STATE_FILE = "state";
+
+    protected static final String MARKS_PREFIX = "marks-";
+
+    protected static final String STATE_START = "start";
+
+    protected static final String STATE_MARKED = "marked";
+
+    protected static final String STATE_SWEPT = "swept";
+
+    /** Key type for lowercase hex digests, stored as their raw bytes. */
+    protected static final byte KEY_HEX = 0;
+
+    /** Key type for other digests, stored as UTF-8. */
+    protected static final byte KEY_STRING = 1;
+
+    /** Unsigned lexicographic order of keys. */
+    protected static final Comparator<byte[]> KEY_COMPARATOR = (a, b) -> {
+        int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    };
+
+    protected final LocalBinaryManager binaryManager;
+
+    /** The directory holding the files to collect, laid out like the binary manager's storage. */
+    protected final File storageDir;
+
+    protected final File workDir;
+
+    protected final int parallelism;
+
+    /** Time from which unmarked binaries are kept, which is the start of the resumed GC if any. */
+    protected volatile long startTime;
+
+    /** Actual start time of this GC. */
+    protected long runStartTime;
+
+    protected volatile BinaryManagerStatus status;
+
+    /** Lock for state file writes, which are done from the sweep threads. */
+    protected final Object stateLock = new Object();
+
+    /** Marks files being written, by shard. */
+    protected final Map<String, DataOutputStream> marks = new HashMap<>();
+
+    /** Checkpoint of the GC being resumed, or {@code null}. */
+    protected Checkpoint resumed;
+
+    public ParallelBinaryGarbageCollector(LocalBinaryManager binaryManager, File workDir, int parallelism) {
+        this(binaryManager, binaryManager.getStorageDir(), workDir, parallelism);
+    }
+
+    /**
+     * Creates a garbage collector for files stored in another directory than the storage of the binary manager, with
+     * the same layout.
+     */
+    public ParallelBinaryGarbageCollector(LocalBinaryManager binaryManager, File storageDir, File workDir,
+            int parallelism) {
+        this.binaryManager = binaryManager;
+        this.storageDir = storageDir;
+        this.workDir = workDir;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public String getId() {
+        return storageDir.toURI().toString();
+    }
+
+    @Override
+    public BinaryManagerStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean isInProgress() {
+        // volatile as this is designed to be called from another thread
+        return startTime != 0;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (startTime != 0) {
+            throw new RuntimeException("Already started");
+        }
+        runStartTime = System.currentTimeMillis();
+        status = new BinaryManagerStatus();
+        Checkpoint checkpoint = readCheckpoint();
+        long time;
+        if (checkpoint != null && checkpoint.marked) {
+            log.info("Resuming interrupted binaries GC for: " + workDir + ", started at: " + checkpoint.startTime);
+            resumed = checkpoint;
+            time = checkpoint.startTime;
+        } else {
+            resumed = null;
+            time = runStartTime;
+            try {
+                if (workDir.exists()) {
+                    FileUtils.deleteDirectory(workDir);
+                }
+                workDir.mkdirs();
+                writeState(STATE_START + ' ' + time);
+            } catch (IOException e) {
+                throw new NuxeoException(e);
+            }
+        }
+        startTime = time;
+    }
+
+    @Override
+    public synchronized void mark(String digest) {
+        if (startTime == 0) {
+            throw new RuntimeException("Not started");
+        }
+        String shard = getShard(digest);
+        if (shard == null) {
+            log.error("Invalid digest: " + digest);
+            return;
+        }
+        byte[] key = toKey(digest);
+        if (key.length > 0xFFFF) {
+            log.error("Invalid digest: " + digest);
+            return;
+        }
+        try {
+            DataOutputStream out = marks.get(shard);
+            if (out == null) {
+                File file = new File(workDir, MARKS_PREFIX + shard);
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                marks.put(shard, out);
+            }
+            out.writeShort(key.length);
+            out.write(key);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    @Override
+    public synchronized void stop(boolean delete) {
+        if (startTime == 0) {
+            throw new RuntimeException("Not started");
+        }
+        try {
+            closeMarks();
+            Map<String, BinaryManagerStatus> swept = Collections.emptyMap();
+            if (resumed != null && resumed.delete == delete) {
+                swept = resumed.swept;
+            }
+            writeState(STATE_MARKED + ' ' + delete);
+            // shards already swept may have been deleted when they became empty
+            List<SweepTask> tasks = new ArrayList<>();
+            for (String shard : getShards()) {
+                if (!swept.containsKey(shard)) {
+                    tasks.add(new SweepTask(shard, delete));
+                }
+            }
+            status.numShards = swept.size() + tasks.size();
+            for (BinaryManagerStatus shardStatus : swept.values()) {
+                addStatus(shardStatus);
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (SweepTask task : tasks) {
+                    pool.execute(task);
+                }
+                // wait for all the shards even if one fails, the others are checkpointed for the next GC
+                RuntimeException exc = null;
+                for (SweepTask task : tasks) {
+                    try {
+                        task.join();
+                    } catch (RuntimeException e) {
+                        if (exc == null) {
+                            exc = e;
+                        } else {
+                            exc.addSuppressed(e);
+                        }
+                    }
+                }
+                if (exc != null) {
+                    throw exc;
+                }
+            } finally {
+                pool.shutdown();
+            }
+            // completed, nothing to resume
+            FileUtils.deleteDirectory(workDir);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        } finally {
+            resumed = null;
+            status.gcDuration = System.currentTimeMillis() - runStartTime;
+            startTime = 0;
+        }
+    }
+
+    protected void closeMarks() throws IOException {
+        IOException exc = null;
+        for (DataOutputStream out : marks.values()) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                exc = e;
+            }
+        }
+        marks.clear();
+        if (exc != null) {
+            throw exc;
+        }
+    }
+
+    /**
+     * Gets the shard of a digest, which is the first-level directory where its file is stored, or {@code ""} if
+     * binaries are stored directly in the storage directory.
+     *
+     * @return the shard, or {@code null} for an invalid digest
+     */
+    protected String getShard(String digest) {
+        int depth = binaryManager.descriptor.depth;
+        if (digest.length() < 2 * depth) {
+            return null;
+        }
+        return depth == 0 ? "" : digest.substring(0, 2);
+    }
+
+    protected List<String> getShards() {
+        if (binaryManager.descriptor.depth == 0) {
+            return Collections.singletonList("");
+        }
+        List<String> shards = new ArrayList<>();
+        File[] files = storageDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    shards.add(file.getName());
+                }
+            }
+        }
+        return shards;
+    }
+
+    protected class SweepTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final String shard;
+
+        protected final boolean delete;
+
+        protected SweepTask(String shard, boolean delete) {
+            this.shard = shard;
+            this.delete = delete;
+        }
+
+        @Override
+        protected void compute() {
+            BinaryManagerStatus shardStatus;
+            try {
+                shardStatus = sweepShard(shard, delete);
+                checkpoint(shard, shardStatus);
+            } catch (IOException e) {
+                throw new NuxeoException("Failed to sweep shard: " + shard, e);
+            }
+            addStatus(shardStatus);
+        }
+    }
+
+    /**
+     * Sweeps the files of a shard, deleting those that are not marked.
+     */
+    protected BinaryManagerStatus sweepShard(String shard, boolean delete) throws IOException {
+        byte[][] keys = readMarks(shard);
+        BinaryManagerStatus shardStatus = new BinaryManagerStatus();
+        long minTime = startTime - LocalBinaryManager.DefaultBinaryGarbageCollector.TIME_RESOLUTION;
+        if (shard.isEmpty()) {
+            File[] files = storageDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isFile()) {
+                        sweepFile(file, keys, minTime, delete, shardStatus);
+                    }
+                }
+            }
+        } else {
+            sweepDir(new File(storageDir, shard), keys, minTime, delete, shardStatus);
+        }
+        return shardStatus;
+    }
+
+    protected void sweepDir(File dir, byte[][] keys, long minTime, boolean delete, BinaryManagerStatus shardStatus) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                sweepDir(file, keys, minTime, delete, shardStatus);
+            } else {
+                sweepFile(file, keys, minTime, delete, shardStatus);
+            }
+        }
+        String[] names = dir.list();
+        if (names != null && names.length == 0) {
+            // empty directory
+            dir.delete();
+        }
+    }
+
+    protected void sweepFile(File file, byte[][] keys, long minTime, boolean delete, BinaryManagerStatus shardStatus) {
+        if (!file.isFile() || !file.canWrite()) {
+            return;
+        }
+        long length = file.length();
+        if (Arrays.binarySearch(keys, toKey(file.getName()), KEY_COMPARATOR) >= 0) {
+            shardStatus.sizeBinaries += length;
+            shardStatus.numBinaries++;
+            return;
+        }
+        long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            log.error("Cannot read last modified for file: " + file);
+        } else if (lastModified < minTime) {
+            shardStatus.sizeBinariesGC += length;
+            shardStatus.numBinariesGC++;
+            if (delete && !file.delete()) {
+                log.warn("Cannot gc file: " + file);
+            }
+        } else {
+            shardStatus.sizeBinaries += length;
+            shardStatus.numBinaries++;
+        }
+    }
+
+    /**
+     * Reads the marks of a shard as a sorted array of keys.
+     */
+    protected byte[][] readMarks(String shard) throws IOException {
+        File file = new File(workDir, MARKS_PREFIX + shard);
+        if (!file.exists()) {
+            return new byte[0][];
+        }
+        List<byte[]> keys = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            for (;;) {
+                int length;
+                try {
+                    length = in.readUnsignedShort();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] key = new byte[length];
+                in.readFully(key);
+                keys.add(key);
+            }
+        }
+        byte[][] array = keys.toArray(new byte[keys.size()][]);
+        Arrays.sort(array, KEY_COMPARATOR);
+        return array;
+    }
+
+    /**
+     * Converts a digest into a compact key. Lowercase hex digests are converted to their bytes, other digests are
+     * kept as UTF-8. The first byte of the key is its type, so that distinct digests have distinct keys.
+     */
+    protected static byte[] toKey(String digest) {
+        int len = digest.length();
+        if (len % 2 == 0 && isLowerHex(digest)) {
+            byte[] key = new byte[1 + len / 2];
+            key[0] = KEY_HEX;
+            for (int i = 0; i < len / 2; i++) {
+                key[1 + i] = (byte) ((Character.digit(digest.charAt(2 * i), 16) << 4)
+                        | Character.digit(digest.charAt(2 * i + 1), 16));
+            }
+            return key;
+        }
+        byte[] bytes = digest.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[1 + bytes.length];
+        key[0] = KEY_STRING;
+        System.arraycopy(bytes, 0, key, 1, bytes.length);
+        return key;
+    }
+
+    protected static boolean isLowerHex(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void addStatus(BinaryManagerStatus shardStatus) {
+        synchronized (status) {
+            status.numBinaries += shardStatus.numBinaries;
+            status.sizeBinaries += shardStatus.sizeBinaries;
+            status.numBinariesGC += shardStatus.numBinariesGC;
+            status.sizeBinariesGC += shardStatus.sizeBinariesGC;
+            status.numShardsSwept++;
+        }
+    }
+
+    protected void checkpoint(String shard, BinaryManagerStatus shardStatus) throws IOException {
+        writeState(STATE_SWEPT + ' ' + shard + ' ' + shardStatus.numBinaries + ' ' + shardStatus.sizeBinaries + ' '
+                + shardStatus.numBinariesGC + ' ' + shardStatus.sizeBinariesGC);
+    }
+
+    protected void writeState(String line) throws IOException {
+        synchronized (stateLock) {
+            Files.write(new File(workDir, STATE_FILE).toPath(), Collections.singletonList(line),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                    StandardOpenOption.SYNC);
+        }
+    }
+
+    /**
+     * State of a previous GC, as recorded in the work directory.
+     */
+    protected static class Checkpoint {
+
+        protected long startTime;
+
+        /** Whether the marking phase was completed. */
+        protected boolean marked;
+
+        protected boolean delete;
+
+        /** Status of the swept shards, by shard. */
+        protected final Map<String, BinaryManagerStatus> swept = new HashMap<>();
+    }
+
+    /**
+     * Reads the state of a previous GC, or returns {@code null} if there is none.
+     */
+    protected Checkpoint readCheckpoint() {
+        File file = new File(workDir, STATE_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Cannot read GC state: " + file, e);
+            return null;
+        }
+        Checkpoint checkpoint = new Checkpoint();
+        for (String line : lines) {
+            // the last line may be truncated by a crash, and shards may be empty strings
+            String[] parts = line.split(" ", -1);
+            try {
+                switch (parts[0]) {
+                case STATE_START:
+                    checkpoint.startTime = Long.parseLong(parts[1]);
+                    break;
+                case STATE_MARKED:
+                    boolean delete = Boolean.parseBoolean(parts[1]);
+                    if (checkpoint.marked && checkpoint.delete != delete) {
+                        // shards swept in another mode must be swept again
+                        checkpoint.swept.clear();
+                    }
+                    checkpoint.marked = true;
+                    checkpoint.delete = delete;
+                    break;
+                case STATE_SWEPT:
+                    if (parts.length != 6) {
+                        break;
+                    }
+                    BinaryManagerStatus shardStatus = new BinaryManagerStatus();
+                    shardStatus.numBinaries = Long.parseLong(parts[2]);
+                    shardStatus.sizeBinaries = Long.parseLong(parts[3]);
+                    shardStatus.numBinariesGC = Long.parseLong(parts[4]);
+                    shardStatus.sizeBinariesGC = Long.parseLong(parts[5]);
+                    checkpoint.swept.put(parts[1], shardStatus);
+                    break;
+                default:
+                    break;
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                log.debug("Ignoring invalid GC state line: " + line);
+            }
+        }
+        return checkpoint.startTime == 0 ? null : checkpoint;
+    }
+
+}
@@ -24,6 +24,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
+import static org.nuxeo.ecm.core.blob.binary.AESBinaryManager.FORMAT_CTR;
+import static org.nuxeo.ecm.core.blob.binary.AESBinaryManager.PARAM_FORMAT;
 import static org.nuxeo.ecm.core.blob.binary.AESBinaryManager.PARAM_KEY_ALIAS;
 import static org.nuxeo.ecm.core.blob.binary.AESBinaryManager.PARAM_KEY_PASSWORD;
 import static org.nuxeo.ecm.core.blob.binary.AESBinaryManager.PARAM_KEY_STORE_FILE;
@@ -34,6 +36,7 @@ import static org.nuxeo.ecm.core.blob.binary.AESBinaryManager.PARAM_PASSWORD;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,10 +44,13 @@ import java.io.OutputStream;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 
 import javax.crypto.KeyGenerator;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -183,4 +189,56 @@ public class TestAESBinaryManager extends NXRuntimeTestCase {
         binaryManager.close();
     }
 
+    @Test
+    public void testAESBinaryManagerCTR() throws Exception {
+        AESBinaryManager binaryManager = new AESBinaryManager();
+        String options = String.format("%s=%s", PARAM_PASSWORD, "mypassword");
+        binaryManager.initialize("repo", Collections.singletonMap(BinaryManager.PROP_KEY, options));
+
+        // binary in the CBC format
+        byte[] bytes = CONTENT.getBytes(UTF8);
+        Binary binary = binaryManager.getBinary(new ByteArrayInputStream(bytes));
+        assertEquals(CONTENT_MD5, binary.getDigest());
+
+        // switch to the CTR format
+        binaryManager.initializeOptions(String.format("%s=%s,%s=%s", PARAM_PASSWORD, "mypassword", PARAM_FORMAT,
+                FORMAT_CTR));
+
+        // CBC binary still readable
+        binary = binaryManager.getBinary(CONTENT_MD5);
+        try (InputStream stream = binary.getStream()) {
+            assertEquals(CONTENT, IOUtils.toString(stream, UTF8));
+        }
+
+        // store binary in the CTR format
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        binary = binaryManager.getBinary(new ByteArrayInputStream(data));
+        String digest = binary.getDigest();
+        assertEquals(DigestUtils.md5Hex(data), digest);
+        assertTrue(binary instanceof AESBinaryManager.DecryptingBinary);
+        assertNull(binary.getFile());
+
+        // digest is in the header
+        try (InputStream in = new FileInputStream(binaryManager.getFileForDigest(digest, false))) {
+            assertEquals(digest, AbstractBinaryManager.toHexString(binaryManager.readHeader(in).digest));
+        }
+
+        // read it all
+        binary = binaryManager.getBinary(digest);
+        try (InputStream stream = binary.getStream()) {
+            assertTrue(Arrays.equals(data, IOUtils.toByteArray(stream)));
+        }
+
+        // read a range not aligned on blocks
+        try (InputStream stream = binary.getStream()) {
+            assertEquals(12345, stream.skip(12345));
+            byte[] range = new byte[1000];
+            IOUtils.readFully(stream, range);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, 12345, 13345), range));
+        }
+
+        binaryManager.close();
+    }
+
 }
@@ -0,0 +1,192 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.nuxeo.runtime.test.NXRuntimeTestCase;
+
+public class TestCachingBinaryManager extends NXRuntimeTestCase {
+
+    private static final String CONTENT = "this is a file au caf\u00e9";
+
+    private static final String CONTENT_MD5 = "d25ea4f4642073b7f218024d397dbaef";
+
+    /**
+     * Caching binary manager whose storage is in memory, and whose fetches can be held.
+     */
+    protected static class MemoryCachingBinaryManager extends CachingBinaryManager {
+
+        protected final Map<String, byte[]> storage = new ConcurrentHashMap<>();
+
+        protected final AtomicInteger fetchCount = new AtomicInteger();
+
+        protected volatile CountDownLatch fetchLatch;
+
+        @Override
+        public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
+            super.initialize(blobProviderId, properties);
+            initializeCache("1 MB", new FileStorage() {
+
+                @Override
+                public void storeFile(String key, File file) throws IOException {
+                    storage.put(key, FileUtils.readFileToByteArray(file));
+                }
+
+                @Override
+                public boolean fetchFile(String key, File file) throws IOException {
+                    fetchCount.incrementAndGet();
+                    CountDownLatch latch = fetchLatch;
+                    if (latch != null) {
+                        try {
+                            latch.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException(e);
+                        }
+                    }
+                    byte[] bytes = storage.get(key);
+                    if (bytes == null) {
+                        return false;
+                    }
+                    FileUtils.writeByteArrayToFile(file, bytes);
+                    return true;
+                }
+            });
+        }
+    }
+
+    protected MemoryCachingBinaryManager newBinaryManager(String blobProviderId, boolean prefetch)
+            throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(CachingBinaryManager.PROP_FETCH_THREADS, "2");
+        properties.put(CachingBinaryManager.PROP_PREFETCH, String.valueOf(prefetch));
+        MemoryCachingBinaryManager binaryManager = new MemoryCachingBinaryManager();
+        binaryManager.initialize(blobProviderId, properties);
+        Binary binary = binaryManager.getBinary(new ByteArrayInputStream(CONTENT.getBytes("UTF-8")));
+        assertEquals(CONTENT_MD5, binary.getDigest());
+        return binaryManager;
+    }
+
+    @Test
+    public void testSingleFlightFetch() throws Exception {
+        MemoryCachingBinaryManager binaryManager = newBinaryManager("single", false);
+        // metrics are shared by all the binary managers with the same id
+        long hits = binaryManager.cacheHits.getCount();
+        long misses = binaryManager.cacheMisses.getCount();
+        long fetches = binaryManager.fetchTimer.getCount();
+        try {
+            File cached = binaryManager.getFile(CONTENT_MD5);
+            assertEquals(hits + 1, binaryManager.cacheHits.getCount());
+            assertEquals(0, binaryManager.fetchCount.get());
+
+            // concurrent reads of an evicted file
+            binaryManager.fileCache.clear();
+            binaryManager.fetchLatch = new CountDownLatch(1);
+            int n = 10;
+            ExecutorService executor = Executors.newFixedThreadPool(n);
+            try {
+                List<Future<File>> futures = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    futures.add(executor.submit(() -> binaryManager.getFile(CONTENT_MD5)));
+                }
+                // wait for all the readers to miss the cache before letting the fetch complete
+                long deadline = System.currentTimeMillis() + 10000;
+                while (binaryManager.cacheMisses.getCount() < misses + n && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(misses + n, binaryManager.cacheMisses.getCount());
+                binaryManager.fetchLatch.countDown();
+                for (Future<File> future : futures) {
+                    assertEquals(cached, future.get(10, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(1, binaryManager.fetchCount.get());
+            assertEquals(fetches + 1, binaryManager.fetchTimer.getCount());
+            assertEquals(CONTENT, FileUtils.readFileToString(cached, "UTF-8"));
+
+            // unknown digest
+            assertNull(binaryManager.getFile("0123456789abcdef0123456789abcdef"));
+            assertTrue(binaryManager.fetches.isEmpty());
+        } finally {
+            binaryManager.close();
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        MemoryCachingBinaryManager binaryManager = newBinaryManager("prefetch", true);
+        long hits = binaryManager.cacheHits.getCount();
+        long misses = binaryManager.cacheMisses.getCount();
+        try {
+            binaryManager.fileCache.clear();
+            // getting the binary doesn't fetch its file
+            Binary binary = binaryManager.getBinary(CONTENT_MD5);
+            assertEquals(0, binaryManager.fetchCount.get());
+            // an explicit prefetch does
+            binaryManager.prefetch(CONTENT_MD5);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (binaryManager.fileCache.getFile(CONTENT_MD5) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, binaryManager.fetchCount.get());
+            assertEquals(CONTENT, FileUtils.readFileToString(binary.getFile(), "UTF-8"));
+            assertEquals(1, binaryManager.fetchCount.get());
+            assertEquals(hits + 1, binaryManager.cacheHits.getCount());
+            assertEquals(misses, binaryManager.cacheMisses.getCount());
+        } finally {
+            binaryManager.close();
+        }
+    }
+
+    @Test
+    public void testPrefetchDisabled() throws Exception {
+        MemoryCachingBinaryManager binaryManager = newBinaryManager("noprefetch", false);
+        try {
+            binaryManager.fileCache.clear();
+            binaryManager.prefetch(CONTENT_MD5);
+            assertTrue(binaryManager.fetches.isEmpty());
+            assertEquals(0, binaryManager.fetchCount.get());
+        } finally {
+            binaryManager.close();
+        }
+    }
+
+}
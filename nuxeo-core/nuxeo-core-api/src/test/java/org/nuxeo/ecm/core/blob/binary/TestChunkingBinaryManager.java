@@ -0,0 +1,232 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.runtime.test.NXRuntimeTestCase;
+
+public class TestChunkingBinaryManager extends NXRuntimeTestCase {
+
+    protected ChunkingBinaryManager binaryManager;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ChunkingBinaryManager.PROP_CHUNK_MIN_SIZE, "256");
+        properties.put(ChunkingBinaryManager.PROP_CHUNK_AVG_SIZE, "1024");
+        properties.put(ChunkingBinaryManager.PROP_CHUNK_MAX_SIZE, "4096");
+        binaryManager = new ChunkingBinaryManager();
+        binaryManager.initialize("repo", properties);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        binaryManager.close();
+        super.tearDown();
+    }
+
+    protected static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(1234).nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Inserts a few bytes in the middle of the content. */
+    protected static byte[] edit(byte[] bytes) {
+        byte[] insert = "some inserted text".getBytes();
+        int pos = bytes.length / 2;
+        byte[] edited = Arrays.copyOf(bytes, bytes.length + insert.length);
+        System.arraycopy(insert, 0, edited, pos, insert.length);
+        System.arraycopy(bytes, pos, edited, pos + insert.length, bytes.length - pos);
+        return edited;
+    }
+
+    protected Binary store(byte[] bytes) throws Exception {
+        return binaryManager.getBinary(new ByteArrayInputStream(bytes));
+    }
+
+    protected byte[] read(String digest) throws Exception {
+        Binary binary = binaryManager.getBinary(digest);
+        assertNotNull(binary);
+        try (InputStream in = binary.getStream()) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void testChunkSizes() throws Exception {
+        ContentDefinedChunker chunker = new ContentDefinedChunker(new ByteArrayInputStream(randomBytes(100000)), 256,
+                1024, 4096);
+        long total = 0;
+        int count = 0;
+        int n;
+        while ((n = chunker.next()) > 0) {
+            total += n;
+            count++;
+            assertTrue(String.valueOf(n), n <= 4096);
+            if (total < 100000) {
+                // all chunks but the last have the minimum size
+                assertTrue(String.valueOf(n), n >= 256);
+            }
+        }
+        assertEquals(100000, total);
+        // close to the average size
+        assertTrue(String.valueOf(count), count > 100000 / 4096 && count < 100000 / 256);
+    }
+
+    @Test
+    public void testDeduplication() throws Exception {
+        byte[] bytes = randomBytes(100000);
+        byte[] edited = edit(bytes);
+
+        Binary binary1 = store(bytes);
+        int chunks1 = countFiles(binaryManager.getChunksDir());
+        Binary binary2 = store(edited);
+        int chunks2 = countFiles(binaryManager.getChunksDir()) - chunks1;
+        assertEquals(2, countFiles(binaryManager.getStorageDir()));
+        // only the chunks around the edit are new
+        assertTrue(chunks2 + " new chunks out of " + chunks1, chunks2 > 0 && chunks2 <= 3);
+
+        // storing the same content again doesn't store anything
+        assertEquals(binary1.getDigest(), store(bytes).getDigest());
+        assertEquals(chunks1 + chunks2, countFiles(binaryManager.getChunksDir()));
+
+        assertNull(binary1.getFile());
+        assertArrayEquals(bytes, IOUtils.toByteArray(binary1.getStream()));
+        assertArrayEquals(bytes, read(binary1.getDigest()));
+        assertArrayEquals(edited, read(binary2.getDigest()));
+
+        // the digest is the one of the whole content
+        byte[] md5 = MessageDigest.getInstance("MD5").digest(bytes);
+        assertEquals(AbstractBinaryManager.toHexString(md5), binary1.getDigest());
+        assertNull(binaryManager.getBinary("0123456789abcdef0123456789abcdef"));
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        byte[] bytes = randomBytes(100000);
+        Binary binary = store(bytes);
+        for (int pos : new int[] { 0, 1, 255, 4096, 50000, 99999, 100000 }) {
+            try (InputStream in = binary.getStream()) {
+                assertEquals(pos, in.skip(pos));
+                byte[] rest = IOUtils.toByteArray(in);
+                assertArrayEquals(Arrays.copyOfRange(bytes, pos, bytes.length), rest);
+            }
+        }
+        try (InputStream in = binary.getStream()) {
+            assertEquals(100000, in.skip(200000));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testGC() throws Exception {
+        byte[] bytes = randomBytes(100000);
+        byte[] edited = edit(bytes);
+        Binary binary1 = store(bytes);
+        Binary binary2 = store(edited);
+        int chunks = countFiles(binaryManager.getChunksDir());
+        Set<String> chunks2 = new HashSet<>(
+                Arrays.asList(binaryManager.readManifest(binary2.getDigest()).getChunkDigests()));
+
+        // sleep before GC to pass its time threshold
+        Thread.sleep(3 * 1000);
+
+        // GC in non-delete mode
+        BinaryGarbageCollector gc = binaryManager.getGarbageCollector();
+        gc.start();
+        assertTrue(gc.isInProgress());
+        gc.mark(binary2.getDigest());
+        gc.stop(false);
+        assertFalse(gc.isInProgress());
+        BinaryManagerStatus status = gc.getStatus();
+        assertEquals(1, status.numBinaries);
+        assertEquals(1, status.numBinariesGC);
+        assertEquals(edited.length, status.sizeBinaries);
+        assertEquals(2, countFiles(binaryManager.getStorageDir()));
+        assertEquals(chunks, countFiles(binaryManager.getChunksDir()));
+
+        // real GC, only the chunks of the edited binary are kept
+        gc.start();
+        gc.mark(binary2.getDigest());
+        gc.stop(true);
+        status = gc.getStatus();
+        assertEquals(1, status.numBinaries);
+        assertEquals(1, status.numBinariesGC);
+        assertEquals(1, countFiles(binaryManager.getStorageDir()));
+        assertEquals(chunks2.size(), countFiles(binaryManager.getChunksDir()));
+        assertNull(binaryManager.getBinary(binary1.getDigest()));
+        assertArrayEquals(edited, read(binary2.getDigest()));
+    }
+
+    @Test
+    public void testGCWithUnreadableManifest() throws Exception {
+        Binary binary1 = store(randomBytes(100000));
+        Binary binary2 = store(edit(randomBytes(100000)));
+        int chunks = countFiles(binaryManager.getChunksDir());
+
+        // sleep before GC to pass its time threshold
+        Thread.sleep(3 * 1000);
+
+        // corrupt the manifest of the referenced binary
+        try (FileOutputStream out = new FileOutputStream(binaryManager.getFileForDigest(binary2.getDigest(), false))) {
+            out.write("garbage".getBytes());
+        }
+
+        // its chunks are unknown, so nothing is deleted
+        BinaryGarbageCollector gc = binaryManager.getGarbageCollector();
+        gc.start();
+        gc.mark(binary2.getDigest());
+        gc.stop(true);
+        assertFalse(gc.isInProgress());
+        assertEquals(2, countFiles(binaryManager.getStorageDir()));
+        assertEquals(chunks, countFiles(binaryManager.getChunksDir()));
+        assertArrayEquals(randomBytes(100000), read(binary1.getDigest()));
+    }
+
+    protected static int countFiles(File dir) {
+        return TestDefaultBinaryManager.countFiles(dir);
+    }
+
+}
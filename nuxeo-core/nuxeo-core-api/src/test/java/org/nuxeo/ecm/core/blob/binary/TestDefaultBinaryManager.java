@@ -23,6 +23,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -32,6 +33,7 @@ import java.util.Collections;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.impl.blob.FileBlob;
 import org.nuxeo.runtime.test.NXRuntimeTestCase;
 
@@ -124,6 +126,56 @@ public class TestDefaultBinaryManager extends NXRuntimeTestCase {
         binaryManager.close();
     }
 
+    @Test
+    public void testGCResume() throws Exception {
+        DefaultBinaryManager binaryManager = new DefaultBinaryManager();
+        binaryManager.initialize("repo", Collections.emptyMap());
+        binaryManager.getBinary(Blobs.createBlob(CONTENT)); // shard d2
+        binaryManager.getBinary(Blobs.createBlob("abc")); // shard 90
+        binaryManager.getBinary(Blobs.createBlob("defg")); // shard 02
+        assertEquals(3, countFiles(binaryManager.getStorageDir()));
+
+        // sleep before GC to pass its time threshold
+        Thread.sleep(3 * 1000);
+
+        // GC interrupted while sweeping a shard
+        BinaryGarbageCollector gc = new ParallelBinaryGarbageCollector(binaryManager, binaryManager.gcDir, 2) {
+            @Override
+            protected BinaryManagerStatus sweepShard(String shard, boolean delete) throws IOException {
+                if (shard.equals("90")) {
+                    throw new IOException("interrupted");
+                }
+                return super.sweepShard(shard, delete);
+            }
+        };
+        gc.start();
+        gc.mark(CONTENT_MD5);
+        try {
+            gc.stop(true);
+            fail();
+        } catch (NuxeoException e) {
+            // ok
+        }
+        assertFalse(gc.isInProgress());
+        assertTrue(binaryManager.gcDir.exists());
+
+        // next GC resumes it, reusing its marks
+        gc = binaryManager.getGarbageCollector();
+        gc.start();
+        gc.stop(true);
+        BinaryManagerStatus status = gc.getStatus();
+        assertEquals(1, status.numBinaries);
+        assertEquals(CONTENT.getBytes("UTF-8").length, status.sizeBinaries);
+        assertEquals(2, status.numBinariesGC);
+        assertEquals(3 + 4, status.sizeBinariesGC);
+        assertEquals(3, status.numShards);
+        assertEquals(3, status.numShardsSwept);
+        assertEquals(1, countFiles(binaryManager.getStorageDir()));
+        assertFalse(binaryManager.gcDir.exists());
+
+        binaryManager.close();
+    }
+
     @Test
     public void testTemporaryCopies() throws IOException {
         DefaultBinaryManager binaryManager = new DefaultBinaryManager();
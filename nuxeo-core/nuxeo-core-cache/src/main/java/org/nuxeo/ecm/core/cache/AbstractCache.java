@@ -47,4 +47,12 @@ public abstract class AbstractCache implements Cache {
         return get(key) != null;
     }
 
+    /**
+     * Releases the resources held by this cache, called when the cache service stops.
+     *
+     * @since 9.2
+     */
+    public void stop() {
+    }
+
 }
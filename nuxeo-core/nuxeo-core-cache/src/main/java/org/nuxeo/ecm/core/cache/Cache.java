@@ -20,6 +20,9 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -94,4 +97,46 @@ public interface Cache {
      */
     public long getSize();
 
+    /**
+     * Gets the values of several keys at once. Implementations should fetch them in a single operation.
+     *
+     * @param keys the keys
+     * @return a map of the keys present in the cache to their value
+     * @since 9.2
+     */
+    default Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> values = new HashMap<>();
+        for (String key : keys) {
+            Serializable value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Puts several values at once. Implementations should store them in a single operation.
+     *
+     * @param values the map of keys to values
+     * @since 9.2
+     */
+    default void putAll(Map<String, Serializable> values) {
+        for (Map.Entry<String, Serializable> es : values.entrySet()) {
+            put(es.getKey(), es.getValue());
+        }
+    }
+
+    /**
+     * Invalidates several keys at once. Implementations should remove them in a single operation.
+     *
+     * @param keys the keys
+     * @since 9.2
+     */
+    default void invalidateAll(Collection<String> keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
 }
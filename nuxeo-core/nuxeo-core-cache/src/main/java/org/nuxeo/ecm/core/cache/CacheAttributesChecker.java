@@ -20,7 +20,12 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Class to implement mandatory check attributes before calling implementation of cache This enable to have the same
@@ -80,4 +85,26 @@ public class CacheAttributesChecker extends CacheWrapper {
     public long getSize() {
         return cache.getSize();
     }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        List<String> nonNullKeys = keys.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        return cache.getAll(nonNullKeys);
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        if (values.containsKey(null)) {
+            throw new IllegalArgumentException(String.format("Can't put a null key for the cache '%s'!", cache.getName()));
+        }
+        cache.putAll(values);
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        if (keys.contains(null)) {
+            throw new IllegalArgumentException(String.format("Can't invalidate a null key for the cache '%s'!", cache.getName()));
+        }
+        cache.invalidateAll(keys);
+    }
 }
@@ -17,6 +17,8 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import org.nuxeo.runtime.metrics.MetricsService;
 
@@ -58,6 +60,15 @@ public class CacheMetrics extends CacheWrapper {
 
     protected final String SIZE_NAME = nameOf("size");
 
+    /** @since 9.2 */
+    protected final String READ_HIT_LOCAL_NAME = nameOf("read-hit-local-counter");
+
+    /** @since 9.2 */
+    protected final String READ_HIT_REMOTE_NAME = nameOf("read-hit-remote-counter");
+
+    /** @since 9.2 */
+    protected final String LOCAL_SIZE_NAME = nameOf("local-size");
+
     public CacheMetrics(Cache cache) {
         super(cache);
         registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
@@ -82,6 +93,26 @@ public class CacheMetrics extends CacheWrapper {
             }
 
         });
+        TwoTierCache twoTierCache = unwrapTwoTierCache(cache);
+        if (twoTierCache != null) {
+            // hits of the remote tier are the hits not served by the local tier
+            registry.register(READ_HIT_LOCAL_NAME, (Gauge<Long>) () -> Long.valueOf(twoTierCache.getLocalHitCount()));
+            registry.register(READ_HIT_REMOTE_NAME,
+                    (Gauge<Long>) () -> Long.valueOf(read_hit.getCount() - twoTierCache.getLocalHitCount()));
+            registry.register(LOCAL_SIZE_NAME, (Gauge<Long>) () -> Long.valueOf(twoTierCache.getLocalSize()));
+        }
+    }
+
+    /**
+     * Finds the {@link TwoTierCache} implementation wrapped by the given cache, or {@code null}.
+     *
+     * @since 9.2
+     */
+    protected static TwoTierCache unwrapTwoTierCache(Cache cache) {
+        while (cache instanceof CacheWrapper) {
+            cache = ((CacheWrapper) cache).cache;
+        }
+        return cache instanceof TwoTierCache ? (TwoTierCache) cache : null;
     }
 
     protected String nameOf(String name) {
@@ -97,6 +128,9 @@ public class CacheMetrics extends CacheWrapper {
         registry.remove(WRITE_NAME);
         registry.remove(INVALIDATE_ALL_NAME);
         registry.remove(SIZE_NAME);
+        registry.remove(READ_HIT_LOCAL_NAME);
+        registry.remove(READ_HIT_REMOTE_NAME);
+        registry.remove(LOCAL_SIZE_NAME);
     }
 
     @Override
@@ -120,6 +154,24 @@ public class CacheMetrics extends CacheWrapper {
         }
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> values = cache.getAll(keys);
+        read.inc(keys.size());
+        read_hit.inc(values.size());
+        read_miss.inc(keys.size() - values.size());
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        try {
+            cache.putAll(values);
+        } finally {
+            write.inc(values.size());
+        }
+    }
+
     @Override
     public void invalidate(String key) {
         cache.invalidate(key);
@@ -17,6 +17,8 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -33,6 +35,8 @@ public abstract class CacheWrapper implements Cache {
     public void stop() {
         if (cache instanceof CacheWrapper) {
             ((CacheWrapper) cache).stop();
+        } else if (cache instanceof AbstractCache) {
+            ((AbstractCache) cache).stop();
         }
         onStop();
     }
@@ -75,4 +79,19 @@ public abstract class CacheWrapper implements Cache {
         return cache.hasEntry(key);
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        return cache.getAll(keys);
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        cache.putAll(values);
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        cache.invalidateAll(keys);
+    }
+
 }
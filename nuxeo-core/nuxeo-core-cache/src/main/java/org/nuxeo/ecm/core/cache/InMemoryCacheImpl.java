@@ -20,6 +20,10 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -100,6 +104,26 @@ public class InMemoryCacheImpl extends AbstractCache {
         }
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        if (values.containsValue(null)) {
+            log.warn(String.format("Can't put a null value in the cache '%s'!", name));
+            values = new HashMap<>(values);
+            values.values().removeIf(Objects::isNull);
+        }
+        cache.putAll(values);
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        cache.invalidateAll(keys);
+    }
+
     @Override
     public boolean hasEntry(String key) {
         return cache.asMap().containsKey(key);
@@ -0,0 +1,40 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.cache;
+
+/**
+ * A cache keeping a bounded local tier in memory in front of a shared remote tier.
+ * <p>
+ * {@link CacheMetrics} uses it to report the hits of each tier.
+ *
+ * @since 9.2
+ */
+public interface TwoTierCache extends Cache {
+
+    /**
+     * Gets the number of reads served by the local tier.
+     */
+    long getLocalHitCount();
+
+    /**
+     * Gets the number of entries of the local tier.
+     */
+    long getLocalSize();
+
+}
@@ -23,7 +23,10 @@ package org.nuxeo.ecm.core.cache;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -111,6 +114,25 @@ public class CacheComplianceFixture {
         Assert.assertNull(defaultCache.get("key2"));
     }
 
+    @Test
+    public void bulkOperations() {
+        Map<String, Serializable> values = new HashMap<>();
+        values.put("bulk1", "val1");
+        values.put("bulk2", "val2");
+        values.put("bulk3", "val3");
+        defaultCache.putAll(values);
+        Assert.assertEquals("val2", defaultCache.get("bulk2"));
+
+        Map<String, Serializable> got = defaultCache.getAll(Arrays.asList("bulk1", "bulk2", "bulk3", "bulk4", null));
+        Assert.assertEquals(values, got);
+
+        defaultCache.invalidateAll(Arrays.asList("bulk1", "bulk3"));
+        got = defaultCache.getAll(Arrays.asList("bulk1", "bulk2", "bulk3"));
+        Assert.assertEquals(1, got.size());
+        Assert.assertEquals("val2", got.get("bulk2"));
+        Assert.assertNotNull(defaultCache.get(CacheFeature.KEY));
+    }
+
     @Test
     public void hasMetrics() {
         SharedMetricRegistries.getOrCreate(MetricsService.class.getName()).getNames()
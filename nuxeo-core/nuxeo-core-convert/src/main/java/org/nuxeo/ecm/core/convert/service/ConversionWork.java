@@ -61,6 +61,20 @@ public class ConversionWork extends TransientStoreWork {
         storeInputBlobHolder(blobHolder);
     }
 
+    /**
+     * Constructor used when decoding the work, the input blob holder is already stored.
+     *
+     * @since 9.2
+     */
+    protected ConversionWork(String id, String converterName, String destinationMimeType,
+            Map<String, Serializable> parameters, String inputEntryKey) {
+        super(id);
+        this.converterName = converterName;
+        this.destinationMimeType = destinationMimeType;
+        this.parameters = parameters;
+        this.inputEntryKey = inputEntryKey;
+    }
+
     protected void storeInputBlobHolder(BlobHolder blobHolder) {
         inputEntryKey = entryKey + "_input";
         putBlobHolder(inputEntryKey, blobHolder);
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.convert.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.nuxeo.ecm.core.work.AbstractWorkCodec;
+
+/**
+ * Codec for the {@link ConversionWork}.
+ *
+ * @since 9.2
+ */
+public class ConversionWorkCodec extends AbstractWorkCodec<ConversionWork> {
+
+    public ConversionWorkCodec() {
+        super(ConversionWork.class);
+    }
+
+    @Override
+    protected void writeFields(ConversionWork work, DataOutput out) throws IOException {
+        // the entry keys are derived from the id
+        writeString(out, work.getId());
+        writeString(out, work.converterName);
+        writeString(out, work.destinationMimeType);
+        writeString(out, work.inputEntryKey);
+        writeSerializable(out, new HashMap<>(work.parameters));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected ConversionWork readFields(DataInput in) throws IOException {
+        String id = readString(in);
+        String converterName = readString(in);
+        String destinationMimeType = readString(in);
+        String inputEntryKey = readString(in);
+        Map<String, Serializable> parameters = (Map<String, Serializable>) readSerializable(in);
+        return new ConversionWork(id, converterName, destinationMimeType, parameters, inputEntryKey);
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.convert.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.WorkCodecRegistry;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+
+public class TestConversionWorkCodec {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        WorkCodecRegistry registry = new WorkCodecRegistry();
+        WorkCodecDescriptor descriptor = new WorkCodecDescriptor();
+        descriptor.klass = ConversionWorkCodec.class;
+        registry.addContribution(descriptor);
+
+        Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put("width", Integer.valueOf(100));
+        parameters.put("format", "png");
+        ConversionWork work = new ConversionWork("myid", "myconverter", null, parameters, "myid_result_input");
+        work.setOriginatingUsername("bob");
+
+        ConversionWork decoded = (ConversionWork) registry.deserialize(registry.serialize(work));
+        assertEquals("myid", decoded.getId());
+        assertEquals(work.getEntryKey(), decoded.getEntryKey());
+        assertEquals("myconverter", decoded.converterName);
+        assertNull(decoded.destinationMimeType);
+        assertEquals("myid_result_input", decoded.inputEntryKey);
+        assertEquals(parameters, decoded.parameters);
+        assertEquals("bob", decoded.getOriginatingUsername());
+    }
+
+}
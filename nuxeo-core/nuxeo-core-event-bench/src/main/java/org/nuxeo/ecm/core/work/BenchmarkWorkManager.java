@@ -0,0 +1,67 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.NXRuntimeTestCase;
+
+/**
+ * Starts a Nuxeo runtime with a {@link WorkManager} having a single benchmark queue, for use by the JMH benchmark
+ * states.
+ * <p>
+ * This mirrors the setup of the WorkManager unit tests, without JUnit.
+ *
+ * @since 9.2
+ */
+public class BenchmarkWorkManager extends NXRuntimeTestCase {
+
+    public static final String QUEUE_ID = "bench";
+
+    public WorkManager workManager;
+
+    /**
+     * Starts the runtime with a queue receiving the works of the {@link #QUEUE_ID} category.
+     *
+     * @param executor the queue executor, see {@link WorkQueueDescriptor#executor}
+     * @param maxThreads the queue maximum number of threads
+     */
+    public void open(String executor, int maxThreads) throws Exception {
+        setUp();
+        deployBundle("org.nuxeo.ecm.core.event");
+        WorkQueueDescriptor descriptor = new WorkQueueDescriptor();
+        descriptor.id = QUEUE_ID;
+        descriptor.executor = executor;
+        descriptor.maxThreads = Integer.valueOf(maxThreads);
+        descriptor.categories.add(QUEUE_ID);
+        WorkManagerImpl workManagerImpl = (WorkManagerImpl) Framework.getService(WorkManager.class);
+        workManagerImpl.registerContribution(descriptor, "queues", null);
+        fireFrameworkStarted();
+        workManager = workManagerImpl;
+    }
+
+    /**
+     * Stops the runtime.
+     */
+    public void close() throws Exception {
+        tearDown();
+    }
+
+}
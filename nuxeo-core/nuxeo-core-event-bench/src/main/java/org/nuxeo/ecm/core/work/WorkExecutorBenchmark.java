@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks the throughput of a work queue whose works mostly wait on I/O, run on platform threads or on virtual
+ * threads.
+ * <p>
+ * Each invocation schedules a burst of works and waits for the queue to be drained, so the score is the number of
+ * works completed per second. With I/O-bound works the throughput is bounded by {@code maxThreads / ioMillis}, the
+ * interesting part is what raising {@code maxThreads} costs with each kind of threads.
+ *
+ * @since 9.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class WorkExecutorBenchmark {
+
+    protected static final int WORKS = 2000;
+
+    @Param({ "platform", "virtual" })
+    public String executor;
+
+    @Param({ "16", "256" })
+    public int maxThreads;
+
+    @Param({ "5" })
+    public long ioMillis;
+
+    protected BenchmarkWorkManager harness;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        harness = new BenchmarkWorkManager();
+        harness.open(executor, maxThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORKS)
+    public void schedule() throws InterruptedException {
+        for (int i = 0; i < WORKS; i++) {
+            harness.workManager.schedule(new IOWork(ioMillis));
+        }
+        if (!harness.workManager.awaitCompletion(BenchmarkWorkManager.QUEUE_ID, 1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Works not completed");
+        }
+    }
+
+    /**
+     * A work waiting for a fixed time, like a call to a remote service or blob store would.
+     */
+    public static class IOWork extends AbstractWork {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final long millis;
+
+        public IOWork(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public String getCategory() {
+            return BenchmarkWorkManager.QUEUE_ID;
+        }
+
+        @Override
+        public String getTitle() {
+            return "I/O work";
+        }
+
+        @Override
+        public void work() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+}
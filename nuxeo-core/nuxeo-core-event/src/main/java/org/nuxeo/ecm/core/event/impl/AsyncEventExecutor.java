@@ -193,6 +193,19 @@ public class AsyncEventExecutor {
             }
         }
 
+        /**
+         * Constructor used when decoding the work.
+         *
+         * @since 9.2
+         */
+        protected ListenerWork(String title, ReconnectedEventBundle bundle, String listenerName, int retryCount) {
+            super(null);
+            this.title = title;
+            this.bundle = bundle;
+            this.listenerName = listenerName;
+            this.retryCount = retryCount;
+        }
+
         @Override
         public String getCategory() {
             return listenerName;
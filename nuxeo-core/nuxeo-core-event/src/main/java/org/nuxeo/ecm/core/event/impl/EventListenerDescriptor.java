@@ -29,8 +29,10 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
+import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.event.Event;
 import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.EventContext;
 import org.nuxeo.ecm.core.event.EventListener;
 import org.nuxeo.ecm.core.event.PostCommitEventListener;
 import org.nuxeo.ecm.core.event.PostCommitFilteringEventListener;
@@ -95,6 +97,12 @@ public class EventListenerDescriptor {
 
     protected Set<String> events;
 
+    /** @since 9.2 */
+    protected Set<String> documentTypes;
+
+    /** @since 9.2 */
+    protected Set<String> facets;
+
     protected RuntimeContext rc;
 
     protected EventListener inLineListener;
@@ -130,6 +138,37 @@ public class EventListenerDescriptor {
         this.events = events.isEmpty() ? null : events;
     }
 
+    /**
+     * Gets the document types of the source documents of the events of interest, or {@code null} for all.
+     *
+     * @since 9.2
+     */
+    public Set<String> getDocumentTypes() {
+        return documentTypes;
+    }
+
+    /** @since 9.2 */
+    @XNodeList(value = "documentType", componentType = String.class, type = HashSet.class, nullByDefault = true)
+    public void setDocumentTypes(Set<String> documentTypes) {
+        this.documentTypes = documentTypes.isEmpty() ? null : documentTypes;
+    }
+
+    /**
+     * Gets the facets of the source documents of the events of interest (any of them must match), or {@code null} for
+     * all.
+     *
+     * @since 9.2
+     */
+    public Set<String> getFacets() {
+        return facets;
+    }
+
+    /** @since 9.2 */
+    @XNodeList(value = "facet", componentType = String.class, type = HashSet.class, nullByDefault = true)
+    public void setFacets(Set<String> facets) {
+        this.facets = facets.isEmpty() ? null : facets;
+    }
+
     public void setEnabled(boolean isEnabled) {
         this.isEnabled = isEnabled;
     }
@@ -233,6 +272,14 @@ public class EventListenerDescriptor {
             events = other.events;
         }
 
+        if (other.documentTypes != null) {
+            documentTypes = other.documentTypes;
+        }
+
+        if (other.facets != null) {
+            facets = other.facets;
+        }
+
         if (other.transactionTimeOut != null) {
             transactionTimeOut = other.transactionTimeOut;
         }
@@ -250,6 +297,53 @@ public class EventListenerDescriptor {
         return events == null || events.contains(eventName);
     }
 
+    /**
+     * Checks if the event name and the source document of the event are of interest to this listener.
+     *
+     * @since 9.2
+     */
+    public final boolean acceptEvent(Event event) {
+        return acceptEvent(event.getName()) && acceptDocument(getSourceDocument(event));
+    }
+
+    /**
+     * Checks if a source document matches the document types and facets of interest to this listener.
+     *
+     * @param doc the source document, or {@code null} if the event has none
+     * @since 9.2
+     */
+    public final boolean acceptDocument(DocumentModel doc) {
+        if (documentTypes == null && facets == null) {
+            return true;
+        }
+        if (doc == null) {
+            return false;
+        }
+        if (documentTypes != null && !documentTypes.contains(doc.getType())) {
+            return false;
+        }
+        return facets == null || facets.stream().anyMatch(doc::hasFacet);
+    }
+
+    /**
+     * Checks if this listener filters events on the facets of their source document.
+     *
+     * @since 9.2
+     */
+    public boolean hasFacetFilter() {
+        return facets != null;
+    }
+
+    /**
+     * Gets the source document of an event, or {@code null} if it has none.
+     *
+     * @since 9.2
+     */
+    public static DocumentModel getSourceDocument(Event event) {
+        EventContext context = event.getContext();
+        return context instanceof DocumentEventContext ? ((DocumentEventContext) context).getSourceDocument() : null;
+    }
+
     public void setIsAsync(Boolean isAsync) {
         this.isAsync = isAsync;
     }
@@ -271,7 +365,7 @@ public class EventListenerDescriptor {
         EventBundle filtered = new EventBundleImpl();
 
         for (Event event : bundle) {
-            if (!acceptEvent(event.getName())) {
+            if (!acceptEvent(event)) {
                 continue;
             }
             PostCommitEventListener pcl = asPostCommitListener();
@@ -291,7 +385,7 @@ public class EventListenerDescriptor {
      */
     public boolean acceptBundle(EventBundle bundle) {
         for (Event event : bundle) {
-            if (!acceptEvent(event.getName())) {
+            if (!acceptEvent(event)) {
                 continue;
             }
             PostCommitEventListener pcl = asPostCommitListener();
@@ -0,0 +1,181 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+
+/**
+ * Index of enabled listeners by event name and source document type, so that dispatching an event only visits the
+ * listeners interested in it.
+ * <p>
+ * The lists per event name are computed when the index is built. The lists per event name and document type are
+ * computed lazily, as document types are only known when events are fired. Facets depend on each document so they
+ * are checked on the indexed listeners only.
+ * <p>
+ * An index is immutable once built: the {@link EventListenerList} builds a new one whenever listeners are registered,
+ * unregistered, enabled or disabled.
+ *
+ * @since 9.2
+ */
+public class EventListenerIndex {
+
+    /** Max number of cached lists per event name and document type. */
+    protected static final int MAX_CACHE_SIZE = 10_000;
+
+    protected static final String NO_TYPE = "";
+
+    /** All the listeners, in priority order. */
+    protected final List<EventListenerDescriptor> listeners;
+
+    /** Listeners accepting all events. */
+    protected final List<EventListenerDescriptor> anyEvent;
+
+    /** Listeners by event name, including those accepting all events. */
+    protected final Map<String, List<EventListenerDescriptor>> byEvent;
+
+    /** Listeners by event name and document type. */
+    protected final Map<String, Map<String, List<EventListenerDescriptor>>> byEventAndType = new ConcurrentHashMap<>();
+
+    /** Listeners accepting all events, by document type. */
+    protected final Map<String, List<EventListenerDescriptor>> anyEventByType = new ConcurrentHashMap<>();
+
+    public EventListenerIndex(List<EventListenerDescriptor> listeners) {
+        this.listeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+        List<EventListenerDescriptor> any = new ArrayList<>();
+        Set<String> eventNames = new LinkedHashSet<>();
+        for (EventListenerDescriptor desc : listeners) {
+            if (desc.getEvents() == null) {
+                any.add(desc);
+            } else {
+                eventNames.addAll(desc.getEvents());
+            }
+        }
+        anyEvent = Collections.unmodifiableList(any);
+        byEvent = new HashMap<>();
+        for (String eventName : eventNames) {
+            List<EventListenerDescriptor> list = new ArrayList<>();
+            for (EventListenerDescriptor desc : listeners) {
+                if (desc.acceptEvent(eventName)) {
+                    list.add(desc);
+                }
+            }
+            byEvent.put(eventName, Collections.unmodifiableList(list));
+        }
+    }
+
+    /**
+     * Gets all the listeners of this index, in priority order.
+     */
+    public List<EventListenerDescriptor> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Gets the listeners interested in an event name, in priority order, without checking the source document.
+     */
+    public List<EventListenerDescriptor> getListeners(String eventName) {
+        List<EventListenerDescriptor> list = eventName == null ? null : byEvent.get(eventName);
+        return list == null ? anyEvent : list;
+    }
+
+    /**
+     * Gets the listeners interested in an event, in priority order.
+     */
+    public List<EventListenerDescriptor> getListeners(Event event) {
+        DocumentModel doc = EventListenerDescriptor.getSourceDocument(event);
+        List<EventListenerDescriptor> list = getListeners(event.getName(), doc == null ? null : doc.getType());
+        if (doc == null || list.stream().noneMatch(EventListenerDescriptor::hasFacetFilter)) {
+            return list;
+        }
+        List<EventListenerDescriptor> filtered = new ArrayList<>(list.size());
+        for (EventListenerDescriptor desc : list) {
+            if (desc.acceptDocument(doc)) {
+                filtered.add(desc);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Gets the listeners interested in an event name and a document type, in priority order, without checking facets.
+     *
+     * @param docType the source document type, or {@code null} if there is no source document
+     */
+    protected List<EventListenerDescriptor> getListeners(String eventName, String docType) {
+        List<EventListenerDescriptor> forEvent = getListeners(eventName);
+        if (forEvent.isEmpty()) {
+            return forEvent;
+        }
+        Map<String, List<EventListenerDescriptor>> byType = byEvent.containsKey(eventName)
+                ? byEventAndType.computeIfAbsent(eventName, k -> new ConcurrentHashMap<>()) : anyEventByType;
+        String typeKey = docType == null ? NO_TYPE : docType;
+        List<EventListenerDescriptor> list = byType.get(typeKey);
+        if (list == null) {
+            list = new ArrayList<>(forEvent.size());
+            for (EventListenerDescriptor desc : forEvent) {
+                Set<String> types = desc.getDocumentTypes();
+                if (types == null ? docType != null || !desc.hasFacetFilter() : types.contains(docType)) {
+                    list.add(desc);
+                }
+            }
+            list = Collections.unmodifiableList(list);
+            if (byType.size() < MAX_CACHE_SIZE) {
+                byType.put(typeKey, list);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Gets the listeners interested in at least one event of a bundle, in priority order. The returned list is a new
+     * list.
+     */
+    public List<EventListenerDescriptor> getListeners(EventBundle bundle) {
+        if (listeners.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<EventListenerDescriptor> interested = new HashSet<>();
+        for (Event event : bundle) {
+            interested.addAll(getListeners(event));
+            if (interested.size() == listeners.size()) {
+                break;
+            }
+        }
+        List<EventListenerDescriptor> list = new ArrayList<>(interested.size());
+        for (EventListenerDescriptor desc : listeners) {
+            if (interested.contains(desc)) {
+                list.add(desc);
+            }
+        }
+        return list;
+    }
+
+}
@@ -49,12 +49,24 @@ public class EventListenerList {
 
     protected volatile List<EventListenerDescriptor> enabledAsyncPostCommitListenersDescriptors = null;
 
+    /** @since 9.2 */
+    protected volatile EventListenerIndex enabledInlineListenersIndex = null;
+
+    /** @since 9.2 */
+    protected volatile EventListenerIndex enabledSyncPostCommitListenersIndex = null;
+
+    /** @since 9.2 */
+    protected volatile EventListenerIndex enabledAsyncPostCommitListenersIndex = null;
+
     protected final Map<String, EventListenerDescriptor> descriptors = new HashMap<String, EventListenerDescriptor>();
 
     protected synchronized void flushCache() {
         enabledAsyncPostCommitListenersDescriptors = null;
         enabledInlineListenersDescriptors = null;
         enabledSyncPostCommitListenersDescriptors = null;
+        enabledInlineListenersIndex = null;
+        enabledSyncPostCommitListenersIndex = null;
+        enabledAsyncPostCommitListenersIndex = null;
     }
 
     public void add(EventListenerDescriptor descriptor) {
@@ -167,6 +179,9 @@ public class EventListenerList {
                 enabledInlineListenersDescriptors.add(desc);
             }
         }
+        enabledAsyncPostCommitListenersIndex = new EventListenerIndex(enabledAsyncPostCommitListenersDescriptors);
+        enabledSyncPostCommitListenersIndex = new EventListenerIndex(enabledSyncPostCommitListenersDescriptors);
+        enabledInlineListenersIndex = new EventListenerIndex(enabledInlineListenersDescriptors);
     }
 
     public List<EventListenerDescriptor> getEnabledInlineListenersDescriptors() {
@@ -190,6 +205,48 @@ public class EventListenerList {
         return new ArrayList<EventListenerDescriptor>(enabledAsyncPostCommitListenersDescriptors);
     }
 
+    /**
+     * Gets the index of the enabled inline listeners.
+     *
+     * @since 9.2
+     */
+    public EventListenerIndex getEnabledInlineListenersIndex() {
+        EventListenerIndex index = enabledInlineListenersIndex;
+        while (index == null) {
+            recomputeEnabledListeners();
+            index = enabledInlineListenersIndex;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the index of the enabled synchronous post-commit listeners.
+     *
+     * @since 9.2
+     */
+    public EventListenerIndex getEnabledSyncPostCommitListenersIndex() {
+        EventListenerIndex index = enabledSyncPostCommitListenersIndex;
+        while (index == null) {
+            recomputeEnabledListeners();
+            index = enabledSyncPostCommitListenersIndex;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the index of the enabled asynchronous post-commit listeners.
+     *
+     * @since 9.2
+     */
+    public EventListenerIndex getEnabledAsyncPostCommitListenersIndex() {
+        EventListenerIndex index = enabledAsyncPostCommitListenersIndex;
+        while (index == null) {
+            recomputeEnabledListeners();
+            index = enabledAsyncPostCommitListenersIndex;
+        }
+        return index;
+    }
+
     public List<String> getListenerNames() {
         return new ArrayList<String>(descriptors.keySet());
     }
@@ -24,6 +24,7 @@ package org.nuxeo.ecm.core.event.impl;
 import java.rmi.dgc.VMID;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -68,6 +69,14 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
 
     private static final Log log = LogFactory.getLog(EventServiceImpl.class);
 
+    /**
+     * Number of events of a transaction kept in memory, above which they are spilled to a local log and consumed in
+     * chunks of that size. 0 (the default) disables spilling.
+     *
+     * @since 9.2
+     */
+    public static final String BUNDLE_SPILL_THRESHOLD_PROP = "org.nuxeo.ecm.core.event.bundle.spillThreshold";
+
     protected static final ThreadLocal<CompositeEventBundle> threadBundles = new ThreadLocal<CompositeEventBundle>() {
         @Override
         protected CompositeEventBundle initialValue() {
@@ -84,11 +93,21 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
         void push(Event event) {
             String repositoryName = event.getContext().getRepositoryName();
             if (!byRepository.containsKey(repositoryName)) {
-                byRepository.put(repositoryName, new EventBundleImpl());
+                int spillThreshold = Integer.parseInt(Framework.getProperty(BUNDLE_SPILL_THRESHOLD_PROP, "0"));
+                byRepository.put(repositoryName, spillThreshold > 0 ? new SpillableEventBundle(spillThreshold)
+                        : new EventBundleImpl());
             }
             byRepository.get(repositoryName).push(event);
         }
 
+        void close() {
+            for (EventBundle bundle : byRepository.values()) {
+                if (bundle instanceof SpillableEventBundle) {
+                    ((SpillableEventBundle) bundle).close();
+                }
+            }
+        }
+
     }
 
     protected final EventListenerList listenerDescriptors;
@@ -230,12 +249,9 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
     @Override
     public void fireEvent(Event event) {
 
-        String ename = event.getName();
         EventStats stats = Framework.getService(EventStats.class);
-        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledInlineListenersDescriptors()) {
-            if (!desc.acceptEvent(ename)) {
-                continue;
-            }
+        // only visit the listeners interested in this event
+        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledInlineListenersIndex().getListeners(event)) {
             try {
                 long t0 = System.currentTimeMillis();
                 SequenceTracer.start("Fire sync event " + event.getName());
@@ -304,6 +320,13 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
 
     @Override
     public void fireEventBundle(EventBundle event) {
+        if (event instanceof SpillableEventBundle && ((SpillableEventBundle) event).isSpilled()) {
+            // stream the spilled events: each chunk goes through the listeners, or the pipes, as a separate bundle
+            for (Iterator<EventBundle> chunks = ((SpillableEventBundle) event).chunks(); chunks.hasNext();) {
+                fireEventBundle(chunks.next());
+            }
+            return;
+        }
         boolean comesFromJMS = false;
 
         if (event instanceof ReconnectedEventBundle) {
@@ -312,8 +335,17 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
             }
         }
 
-        List<EventListenerDescriptor> postCommitSync = listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors();
-        List<EventListenerDescriptor> postCommitAsync = listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors();
+        List<EventListenerDescriptor> postCommitSync;
+        List<EventListenerDescriptor> postCommitAsync;
+        if (event instanceof ReconnectedEventBundle) {
+            // events must be reconnected before being looked at
+            postCommitSync = listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors();
+            postCommitAsync = listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors();
+        } else {
+            // only keep the listeners interested in at least one event
+            postCommitSync = listenerDescriptors.getEnabledSyncPostCommitListenersIndex().getListeners(event);
+            postCommitAsync = listenerDescriptors.getEnabledAsyncPostCommitListenersIndex().getListeners(event);
+        }
 
         if (bulkModeEnabled) {
             // run all listeners synchronously in one transaction
@@ -514,6 +546,7 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
     }
 
     protected void handleTxRollbacked() {
+        threadBundles.get().close();
         threadBundles.remove();
     }
 
@@ -522,12 +555,16 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
         threadBundles.remove();
 
         // notify post commit event listeners
-        for (EventBundle bundle : b.byRepository.values()) {
-            try {
-                fireEventBundle(bundle);
-            } catch (NuxeoException e) {
-                log.error("Error while processing " + bundle, e);
+        try {
+            for (EventBundle bundle : b.byRepository.values()) {
+                try {
+                    fireEventBundle(bundle);
+                } catch (NuxeoException e) {
+                    log.error("Error while processing " + bundle, e);
+                }
             }
+        } finally {
+            b.close();
         }
     }
 
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readCount;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.writeVarint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.nuxeo.ecm.core.event.ReconnectedEventBundle;
+import org.nuxeo.ecm.core.event.impl.AsyncEventExecutor.ListenerWork;
+import org.nuxeo.ecm.core.work.AbstractWorkCodec;
+
+/**
+ * Codec for the works executing asynchronous and post-commit listeners.
+ * <p>
+ * The event bundle has no fixed structure and is still written using Java serialization.
+ *
+ * @since 9.2
+ */
+public class ListenerWorkCodec extends AbstractWorkCodec<ListenerWork> {
+
+    public ListenerWorkCodec() {
+        super(ListenerWork.class);
+    }
+
+    @Override
+    protected void writeFields(ListenerWork work, DataOutput out) throws IOException {
+        writeString(out, work.title);
+        writeString(out, work.listenerName);
+        writeVarint(out, work.retryCount);
+        writeSerializable(out, work.bundle);
+    }
+
+    @Override
+    protected ListenerWork readFields(DataInput in) throws IOException {
+        String title = readString(in);
+        String listenerName = readString(in);
+        int retryCount = readCount(in);
+        ReconnectedEventBundle bundle = (ReconnectedEventBundle) readSerializable(in);
+        return new ListenerWork(title, bundle, listenerName, retryCount);
+    }
+
+}
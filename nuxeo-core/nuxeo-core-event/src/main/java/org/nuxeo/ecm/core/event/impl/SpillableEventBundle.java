@@ -0,0 +1,259 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.work.AbstractWorkCodec;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Event bundle keeping at most a fixed number of events in memory.
+ * <p>
+ * When the threshold is reached, the events in memory are appended as one chunk to a local log file and the memory is
+ * cleared. Each chunk is a length-prefixed Java serialization of its events, so that class descriptors are written
+ * once per chunk. The bundle is then consumed chunk by chunk through {@link #chunks}, which only holds one chunk in
+ * memory at a time.
+ * <p>
+ * If a chunk cannot be serialized, spilling stops for this bundle and the following events stay in memory.
+ * <p>
+ * {@link #close} must be called when done with the bundle, to delete the log file.
+ *
+ * @since 9.2
+ */
+public class SpillableEventBundle extends EventBundleImpl implements AutoCloseable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Log log = LogFactory.getLog(SpillableEventBundle.class);
+
+    protected final int threshold;
+
+    protected Event first;
+
+    protected int size;
+
+    protected int spilledChunks;
+
+    protected boolean spillDisabled;
+
+    protected transient File file;
+
+    protected transient DataOutputStream out;
+
+    public SpillableEventBundle(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void push(Event event) {
+        if (first == null) {
+            first = event;
+        }
+        super.push(event);
+        size++;
+        if (events.size() >= threshold && !spillDisabled) {
+            spill();
+        }
+    }
+
+    protected void spill() {
+        try {
+            if (out == null) {
+                file = Framework.createTempFile("nxevents-", ".log");
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            }
+            AbstractWorkCodec.writeSerializable(out, new ArrayList<>(events));
+        } catch (NotSerializableException e) {
+            log.warn("Cannot spill events, keeping them in memory: " + e.getMessage());
+            spillDisabled = true;
+            return;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        spilledChunks++;
+        events.clear();
+    }
+
+    /**
+     * Checks if some events have been spilled to the log file.
+     */
+    public boolean isSpilled() {
+        return spilledChunks > 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Event peek() {
+        if (first == null) {
+            throw new IndexOutOfBoundsException();
+        }
+        return first;
+    }
+
+    @Override
+    public String getName() {
+        return first == null ? null : first.getContext().getRepositoryName();
+    }
+
+    @Override
+    public Iterator<Event> iterator() {
+        if (!isSpilled()) {
+            return super.iterator();
+        }
+        Iterator<EventBundle> chunks = chunks();
+        return new Iterator<Event>() {
+
+            protected Iterator<Event> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && chunks.hasNext()) {
+                    current = chunks.next().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Iterates on the events as consecutive bundles of at most {@link #threshold} events (or more if spilling was
+     * disabled), reading the spilled chunks from the log file one at a time.
+     */
+    public Iterator<EventBundle> chunks() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new Iterator<EventBundle>() {
+
+            protected int chunk;
+
+            protected DataInputStream in;
+
+            @Override
+            public boolean hasNext() {
+                return chunk < spilledChunks || (chunk == spilledChunks && !events.isEmpty());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public EventBundle next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<Event> list;
+                if (chunk < spilledChunks) {
+                    try {
+                        if (in == null) {
+                            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                        }
+                        list = (List<Event>) AbstractWorkCodec.readSerializable(in);
+                        if (chunk == spilledChunks - 1) {
+                            in.close();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                } else {
+                    list = events;
+                }
+                chunk++;
+                EventBundleImpl bundle = new EventBundleImpl(vmid);
+                list.forEach(bundle::push);
+                return bundle;
+            }
+        };
+    }
+
+    /**
+     * Serializes the bundle with all its events, as the log file is local.
+     */
+    protected Object writeReplace() {
+        if (!isSpilled()) {
+            return this;
+        }
+        EventBundleImpl bundle = new EventBundleImpl(vmid);
+        forEach(bundle::push);
+        return bundle;
+    }
+
+    /**
+     * Deletes the log file.
+     */
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Cannot close " + file, e);
+            }
+            out = null;
+        }
+        if (file != null) {
+            if (!file.delete()) {
+                log.warn("Cannot delete " + file);
+            }
+            file = null;
+        }
+    }
+
+}
@@ -22,8 +22,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.event.EventBundle;
 import org.nuxeo.ecm.core.event.EventServiceAdmin;
+import org.nuxeo.ecm.core.event.ReconnectedEventBundle;
 import org.nuxeo.ecm.core.event.impl.AsyncEventExecutor;
 import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.ecm.core.event.impl.EventListenerIndex;
 import org.nuxeo.ecm.core.event.impl.EventListenerList;
 import org.nuxeo.runtime.api.Framework;
 
@@ -62,10 +64,12 @@ public abstract class AbstractListenerPipeConsumer<T> extends AbstractPipeConsum
     protected boolean processEventBundles(List<EventBundle> bundles) {
             EventServiceAdmin eventService = Framework.getService(EventServiceAdmin.class);//
             EventListenerList listeners = eventService.getListenerList();
-            List<EventListenerDescriptor> postCommitAsync = listeners.getEnabledAsyncPostCommitListenersDescriptors();
+            EventListenerIndex index = listeners.getEnabledAsyncPostCommitListenersIndex();
 
             // could introduce bulk mode for EventListeners
             for (EventBundle eventBundle : bundles) {
+                List<EventListenerDescriptor> postCommitAsync = eventBundle instanceof ReconnectedEventBundle
+                        ? index.getListeners() : index.getListeners(eventBundle);
                 asyncExec.run(postCommitAsync, eventBundle);
             }
             return true;
@@ -23,10 +23,23 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
 
 /**
  * Encapsulates invalidations management through the {@link PubSubService}.
@@ -35,6 +48,14 @@ import org.nuxeo.runtime.api.Framework;
  * <p>
  * The discriminator is used to distinguish nodes between one another, and to avoid that a node receives the
  * invalidations it send itself.
+ * <p>
+ * When the {@value #COALESCING_WINDOW_PROP} property is set, invalidations sent during that many milliseconds are
+ * merged and published as a single message. Received messages are only deserialized when invalidations are
+ * requested.
+ * <p>
+ * Invalidations are published in a compact binary format that previous versions cannot read. During a rolling
+ * upgrade, the {@value #LEGACY_FORMAT_PROP} property must be set on the upgraded nodes until all the nodes are
+ * upgraded. Both formats are always read.
  *
  * @since 9.1
  */
@@ -50,6 +71,52 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
 
     protected volatile T bufferedInvalidations;
 
+    /**
+     * Framework property for the delay in milliseconds during which sent invalidations are merged before being
+     * published. Default is 0, to publish immediately.
+     *
+     * @since 9.2
+     */
+    public static final String COALESCING_WINDOW_PROP = "nuxeo.pubsub.invalidations.coalescing.window";
+
+    /**
+     * Framework property to publish invalidations in the format of previous versions. Default is false.
+     *
+     * @since 9.2
+     */
+    public static final String LEGACY_FORMAT_PROP = "nuxeo.pubsub.invalidations.legacy.format";
+
+    /**
+     * Maximum number of received messages kept before deserializing them.
+     *
+     * @since 9.2
+     */
+    protected static final int MAX_BUFFERED_MESSAGES = 1000;
+
+    /** Received messages not yet deserialized, guarded by {@code this}. */
+    protected List<ByteBuffer> bufferedMessages = new ArrayList<>();
+
+    protected long coalescingWindow;
+
+    protected boolean legacyFormat;
+
+    /** Invalidations waiting for the end of the coalescing window, guarded by {@code this}. */
+    protected T pendingInvalidations;
+
+    protected ScheduledFuture<?> pendingFuture;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected String metricsPrefix;
+
+    /** Number of invalidations sent by this node. */
+    protected Counter sentCount;
+
+    /** Number of messages actually published. */
+    protected Counter publishedCount;
+
+    protected Counter publishedBytes;
+
     /** Constructs new empty invalidations, of type {@link T}. */
     public abstract T newInvalidations();
 
@@ -76,18 +143,41 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
             }
         }
         bufferedInvalidations = newInvalidations();
+        coalescingWindow = Long.parseLong(Framework.getProperty(COALESCING_WINDOW_PROP, "0"));
+        legacyFormat = Framework.isBooleanPropertyTrue(LEGACY_FORMAT_PROP);
+        initializeMetrics();
         PubSubService pubSubService = Framework.getService(PubSubService.class);
         pubSubService.registerSubscriber(topic, this::subscriber);
     }
 
+    protected void initializeMetrics() {
+        metricsPrefix = MetricRegistry.name("nuxeo", "pubsub", "invalidations", topic);
+        sentCount = registry.counter(MetricRegistry.name(metricsPrefix, "sent"));
+        publishedCount = registry.counter(MetricRegistry.name(metricsPrefix, "published"));
+        publishedBytes = registry.counter(MetricRegistry.name(metricsPrefix, "bytes"));
+        String ratioName = MetricRegistry.name(metricsPrefix, "coalescing-ratio");
+        registry.remove(ratioName);
+        registry.register(ratioName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(sentCount.getCount(), publishedCount.getCount());
+            }
+        });
+    }
+
     /**
      * Closes this invalidator and releases resources.
      */
     public void close() {
         PubSubService pubSubService = Framework.getService(PubSubService.class);
         pubSubService.unregisterSubscriber(topic, this::subscriber);
+        flushPendingInvalidations();
+        registry.remove(MetricRegistry.name(metricsPrefix, "coalescing-ratio"));
         // not null to avoid crashing subscriber thread still in flight
-        bufferedInvalidations = newInvalidations();
+        synchronized (this) {
+            bufferedInvalidations = newInvalidations();
+            bufferedMessages = new ArrayList<>();
+        }
     }
 
     protected static final byte DISCRIMINATOR_SEP = ':';
@@ -96,6 +186,47 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
      * Sends invalidations to other nodes.
      */
     public void sendInvalidations(T invalidations) {
+        sentCount.inc();
+        if (coalescingWindow <= 0) {
+            publish(invalidations);
+            return;
+        }
+        synchronized (this) {
+            if (pendingInvalidations == null) {
+                pendingInvalidations = newInvalidations();
+                pendingFuture = Scheduler.EXECUTOR.schedule(this::flushPendingInvalidations, coalescingWindow,
+                        TimeUnit.MILLISECONDS);
+            }
+            pendingInvalidations.add(invalidations);
+        }
+    }
+
+    /**
+     * Publishes the invalidations accumulated during the coalescing window.
+     *
+     * @since 9.2
+     */
+    protected void flushPendingInvalidations() {
+        T invalidations;
+        synchronized (this) {
+            invalidations = pendingInvalidations;
+            pendingInvalidations = null;
+            if (pendingFuture != null) {
+                pendingFuture.cancel(false);
+                pendingFuture = null;
+            }
+        }
+        if (invalidations != null && !invalidations.isEmpty()) {
+            publish(invalidations);
+        }
+    }
+
+    /**
+     * Publishes invalidations through the {@link PubSubService}.
+     *
+     * @since 9.2
+     */
+    protected void publish(T invalidations) {
         if (log.isTraceEnabled()) {
             log.trace("Sending invalidations: " + invalidations);
         }
@@ -108,7 +239,11 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
         }
         baout.write(DISCRIMINATOR_SEP);
         try {
-            invalidations.serialize(baout);
+            if (legacyFormat) {
+                invalidations.serializeLegacy(baout);
+            } else {
+                invalidations.serialize(baout);
+            }
         } catch (IOException e) {
             log.error("Failed to serialize invalidations", e);
             // don't crash for this
@@ -117,6 +252,8 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
         byte[] message = baout.toByteArray();
         PubSubService pubSubService = Framework.getService(PubSubService.class);
         pubSubService.publish(topic, message);
+        publishedCount.inc();
+        publishedBytes.inc(message.length);
     }
 
     /**
@@ -128,23 +265,48 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
             // same discriminator or invalid message
             return;
         }
-        InputStream bain = new ByteArrayInputStream(message, start, message.length - start);
-        T invalidations;
-        try {
-            invalidations = deserialize(bain);
-        } catch (IOException e) {
-            log.error("Failed to deserialize invalidations", e);
-            // don't crash for this
-            return;
-        }
-        if (invalidations == null || invalidations.isEmpty()) {
-            return;
+        // deserialization is deferred until invalidations are actually requested
+        List<ByteBuffer> messages = null;
+        synchronized (this) {
+            bufferedMessages.add(ByteBuffer.wrap(message, start, message.length - start));
+            if (bufferedMessages.size() >= MAX_BUFFERED_MESSAGES) {
+                // nobody is asking for invalidations, merge them to bound memory
+                messages = bufferedMessages;
+                bufferedMessages = new ArrayList<>();
+            }
         }
-        if (log.isTraceEnabled()) {
-            log.trace("Receiving invalidations: " + invalidations);
+        if (messages != null) {
+            T invalidations = newInvalidations();
+            addMessages(invalidations, messages);
+            synchronized (this) {
+                bufferedInvalidations.add(invalidations);
+            }
         }
-        synchronized (this) {
-            bufferedInvalidations.add(invalidations);
+    }
+
+    /**
+     * Deserializes received messages and adds them to the given invalidations.
+     *
+     * @since 9.2
+     */
+    protected void addMessages(T invalidations, List<ByteBuffer> messages) {
+        for (ByteBuffer message : messages) {
+            InputStream bain = new ByteArrayInputStream(message.array(), message.position(), message.remaining());
+            T invals;
+            try {
+                invals = deserialize(bain);
+            } catch (IOException e) {
+                log.error("Failed to deserialize invalidations", e);
+                // don't crash for this
+                continue;
+            }
+            if (invals == null || invals.isEmpty()) {
+                continue;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("Receiving invalidations: " + invals);
+            }
+            invalidations.add(invals);
         }
     }
 
@@ -189,14 +351,30 @@ public abstract class AbstractPubSubInvalidator<T extends SerializableInvalidati
     public T receiveInvalidations() {
         T newInvalidations = newInvalidations();
         T invalidations;
+        List<ByteBuffer> messages;
         synchronized (this) {
             invalidations = bufferedInvalidations;
             bufferedInvalidations = newInvalidations;
+            messages = bufferedMessages;
+            bufferedMessages = new ArrayList<>();
         }
+        addMessages(invalidations, messages);
         if (log.isTraceEnabled()) {
             log.trace("Received invalidations: " + invalidations);
         }
         return invalidations;
     }
 
+    /**
+     * Holder for the executor publishing coalesced invalidations, shared by all invalidators.
+     */
+    protected static class Scheduler {
+
+        protected static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Nuxeo-PubSub-Invalidations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.pubsub;
+
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readCount;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readVarint;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.toUUID;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.writeVarint;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.nuxeo.common.utils.BinaryEncodingUtils;
+
+/**
+ * Helpers for the compact binary serialization of invalidations.
+ * <p>
+ * Numbers are written as unsigned varints, see {@link BinaryEncodingUtils}. Ids that are canonical UUIDs are
+ * written as their 16 raw bytes, {@link Long} ids as varints, and other strings as their length-prefixed UTF-8 bytes.
+ *
+ * @since 9.2
+ */
+public class BinaryInvalidationsHelper {
+
+    /** Marker for invalidations in binary format. */
+    public static final int BINARY = 'B';
+
+    protected static final int ID_UUID = 0;
+
+    protected static final int ID_LONG = 1;
+
+    protected static final int ID_STRING = 2;
+
+    private BinaryInvalidationsHelper() {
+        // utility class
+    }
+
+    public static void writeString(OutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(InputStream in) throws IOException {
+        int length = readCount(in);
+        if (length > in.available()) {
+            // messages are read from memory, don't allocate for a truncated or corrupted one
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        readFully(in, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if an id can be written by {@link #writeId}.
+     */
+    public static boolean isSupportedId(Serializable id) {
+        return id instanceof String || (id instanceof Long && ((Long) id).longValue() >= 0);
+    }
+
+    /**
+     * Writes an id, which must be a {@link String} or a non-negative {@link Long}.
+     */
+    public static void writeId(OutputStream out, Serializable id) throws IOException {
+        if (id instanceof Long) {
+            out.write(ID_LONG);
+            writeVarint(out, ((Long) id).longValue());
+            return;
+        }
+        String string = (String) id;
+        UUID uuid = toUUID(string);
+        if (uuid == null) {
+            out.write(ID_STRING);
+            writeString(out, string);
+        } else {
+            out.write(ID_UUID);
+            writeLong(out, uuid.getMostSignificantBits());
+            writeLong(out, uuid.getLeastSignificantBits());
+        }
+    }
+
+    public static Serializable readId(InputStream in) throws IOException {
+        int type = read(in);
+        switch (type) {
+        case ID_UUID:
+            long msb = readLong(in);
+            long lsb = readLong(in);
+            return new UUID(msb, lsb).toString();
+        case ID_LONG:
+            return Long.valueOf(readVarint(in));
+        case ID_STRING:
+            return readString(in);
+        default:
+            throw new IOException("Invalid id type: " + type);
+        }
+    }
+
+    protected static void writeLong(OutputStream out, long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    protected static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | read(in);
+        }
+        return value;
+    }
+
+    protected static int read(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    protected static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int off = 0;
+        while (off < bytes.length) {
+            int n = in.read(bytes, off, bytes.length - off);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            off += n;
+        }
+    }
+
+}
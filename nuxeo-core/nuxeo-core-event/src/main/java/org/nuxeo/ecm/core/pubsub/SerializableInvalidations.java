@@ -41,4 +41,14 @@ public interface SerializableInvalidations extends Serializable {
      */
     void serialize(OutputStream out) throws IOException;
 
+    /**
+     * Serializes this to an output stream in the format of previous versions, which nodes that are not upgraded yet
+     * can read. By default the same as {@link #serialize}.
+     *
+     * @since 9.2
+     */
+    default void serializeLegacy(OutputStream out) throws IOException {
+        serialize(out);
+    }
+
 }
@@ -0,0 +1,272 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readCount;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readVarint;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.toUUID;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.writeVarint;
+import static org.nuxeo.ecm.core.work.api.Work.Progress.CURRENT_INDETERMINATE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.nuxeo.common.utils.BinaryEncodingUtils;
+import org.nuxeo.ecm.core.work.api.Work.Progress;
+import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkCodec;
+
+/**
+ * Base {@link WorkCodec} for {@link AbstractWork} subclasses.
+ * <p>
+ * Subclasses write the fields specific to their work class and create the instance from them, the fields common to
+ * all works are then written and restored by this class. The schedule path, only used for debugging, is not kept.
+ * <p>
+ * Numbers are written as varints using {@link BinaryEncodingUtils}, and enums by name.
+ *
+ * @since 9.2
+ */
+public abstract class AbstractWorkCodec<T extends AbstractWork> implements WorkCodec<T> {
+
+    protected static final int PROGRESS_NONE = 0;
+
+    protected static final int PROGRESS_PERCENT = 1;
+
+    protected static final int PROGRESS_COUNT = 2;
+
+    protected final Class<T> workClass;
+
+    protected AbstractWorkCodec(Class<T> workClass) {
+        this.workClass = workClass;
+    }
+
+    @Override
+    public Class<T> getWorkClass() {
+        return workClass;
+    }
+
+    /**
+     * Writes the fields specific to the work class.
+     */
+    protected abstract void writeFields(T work, DataOutput out) throws IOException;
+
+    /**
+     * Reads the fields written by {@link #writeFields} and creates the work from them.
+     */
+    protected abstract T readFields(DataInput in) throws IOException;
+
+    @Override
+    public void write(T work, DataOutput out) throws IOException {
+        writeFields(work, out);
+        writeString(out, work.id);
+        writeString(out, work.state == null ? null : work.state.name());
+        Progress progress = work.progress;
+        if (progress == null) {
+            out.writeByte(PROGRESS_NONE);
+        } else if (progress.getCurrent() == CURRENT_INDETERMINATE && progress.getTotal() == 0) {
+            out.writeByte(PROGRESS_PERCENT);
+            out.writeFloat(progress.getPercent());
+        } else {
+            out.writeByte(PROGRESS_COUNT);
+            // current may be indeterminate (-1)
+            writeVarint(out, progress.getCurrent() + 1);
+            writeVarint(out, progress.getTotal());
+        }
+        writeString(out, work.repositoryName);
+        writeDocId(out, work.docId);
+        if (work.docIds == null) {
+            writeVarint(out, 0);
+        } else {
+            writeVarint(out, work.docIds.size() + 1);
+            for (String docId : work.docIds) {
+                writeDocId(out, docId);
+            }
+        }
+        out.writeBoolean(work.isTree);
+        writeString(out, work.originatingUsername);
+        writeString(out, work.status);
+        writeVarint(out, work.schedulingTime);
+        writeVarint(out, work.startTime);
+        writeVarint(out, work.completionTime);
+        writeString(out, work.callerThread);
+    }
+
+    @Override
+    public T read(DataInput in) throws IOException {
+        T work = readFields(in);
+        work.id = readString(in);
+        String state = readString(in);
+        work.state = state == null ? null : State.valueOf(state);
+        int progress = in.readByte();
+        switch (progress) {
+        case PROGRESS_NONE:
+            work.progress = null;
+            break;
+        case PROGRESS_PERCENT:
+            work.progress = new Progress(in.readFloat());
+            break;
+        case PROGRESS_COUNT:
+            long current = readVarint(in) - 1;
+            work.progress = new Progress(current, readVarint(in));
+            break;
+        default:
+            throw new IOException("Invalid progress type: " + progress);
+        }
+        work.repositoryName = readString(in);
+        work.docId = readDocId(in);
+        int size = readCount(in);
+        if (size == 0) {
+            work.docIds = null;
+        } else {
+            work.docIds = new ArrayList<>(Math.min(size - 1, 1000));
+            for (int i = 1; i < size; i++) {
+                work.docIds.add(readDocId(in));
+            }
+        }
+        work.isTree = in.readBoolean();
+        work.originatingUsername = readString(in);
+        work.status = readString(in);
+        work.schedulingTime = readVarint(in);
+        work.startTime = readVarint(in);
+        work.completionTime = readVarint(in);
+        work.callerThread = readString(in);
+        return work;
+    }
+
+    /**
+     * Writes a string, which may be {@code null} and is not limited in length.
+     */
+    public static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a list of strings, which may be {@code null}.
+     */
+    public static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+        if (strings == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        writeVarint(out, strings.size() + 1L);
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    public static List<String> readStrings(DataInput in) throws IOException {
+        int size = readCount(in);
+        if (size == 0) {
+            return null;
+        }
+        List<String> strings = new ArrayList<>(Math.min(size - 1, 1000));
+        for (int i = 1; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    /**
+     * Writes a document id, as its 16 raw bytes if it is a canonical UUID.
+     */
+    public static void writeDocId(DataOutput out, String docId) throws IOException {
+        UUID uuid = docId == null ? null : toUUID(docId);
+        if (uuid == null) {
+            out.writeBoolean(false);
+            writeString(out, docId);
+        } else {
+            out.writeBoolean(true);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    public static String readDocId(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return readString(in);
+        }
+        long msb = in.readLong();
+        long lsb = in.readLong();
+        return new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * Writes a value using Java serialization, for the fields that have no explicit encoding.
+     */
+    public static void writeSerializable(DataOutput out, Serializable value) throws IOException {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baout)) {
+            oos.writeObject(value);
+        }
+        byte[] bytes = baout.toByteArray();
+        writeVarint(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    public static Serializable readSerializable(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        if (bytes == null) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Serializable) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Reads bytes written with a length prefix, {@code null} for a zero prefix.
+     */
+    protected static byte[] readBytes(DataInput in) throws IOException {
+        int length = readCount(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+}
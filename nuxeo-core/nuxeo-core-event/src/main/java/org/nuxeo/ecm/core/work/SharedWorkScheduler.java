@@ -0,0 +1,229 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
+/**
+ * A global budget of running work instances shared by all the queues.
+ * <p>
+ * Each queue keeps its own threads, but a thread must acquire a permit from this scheduler before executing a work
+ * instance. When the budget is exhausted, freed permits are granted first to the waiting work instances of highest
+ * {@link Work#getPriority priority}, then to the queue running the fewest work instances relative to its
+ * {@link WorkQueueDescriptor#getWeight weight}, then in arrival order. The permits left unused by idle queues are
+ * available to the busy ones, up to their own max threads.
+ *
+ * @since 9.2
+ */
+public class SharedWorkScheduler {
+
+    protected final int maxThreads;
+
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    // @GuardedBy("lock")
+    protected final Map<String, QueueShare> shares = new HashMap<>();
+
+    // @GuardedBy("lock")
+    protected final List<Waiter> waiters = new ArrayList<>();
+
+    // @GuardedBy("lock")
+    protected int running;
+
+    // @GuardedBy("lock")
+    protected long sequence;
+
+    protected static class QueueShare {
+
+        protected final int weight;
+
+        protected final Timer waitTimer;
+
+        protected int running;
+
+        protected QueueShare(String queueId, int weight) {
+            this.weight = Math.max(1, weight);
+            MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            waitTimer = registry.timer(MetricRegistry.name("nuxeo", "works", queueId, "scheduler", "wait"));
+        }
+    }
+
+    protected static class Waiter {
+
+        protected final QueueShare share;
+
+        protected final int priority;
+
+        protected final long sequence;
+
+        protected final Condition granted;
+
+        protected boolean isGranted;
+
+        protected Waiter(QueueShare share, int priority, long sequence, Condition granted) {
+            this.share = share;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.granted = granted;
+        }
+    }
+
+    public SharedWorkScheduler(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Registers a queue and its weight.
+     */
+    public void register(String queueId, int weight) {
+        lock.lock();
+        try {
+            shares.put(queueId, new QueueShare(queueId, weight));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires a permit to execute a work instance of the given queue, waiting for one if needed.
+     */
+    public void acquire(String queueId, int priority) throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            QueueShare share = getShare(queueId);
+            if (running < maxThreads && waiters.isEmpty()) {
+                grant(share);
+                return;
+            }
+            Waiter waiter = new Waiter(share, priority, sequence++, lock.newCondition());
+            waiters.add(waiter);
+            try {
+                while (!waiter.isGranted) {
+                    waiter.granted.await();
+                }
+            } catch (InterruptedException e) {
+                if (waiter.isGranted) {
+                    // give the permit back
+                    ungrant(share);
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw e;
+            }
+            share.waitTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit acquired by {@link #acquire}.
+     */
+    public void release(String queueId) {
+        lock.lock();
+        try {
+            ungrant(getShare(queueId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of work instances waiting for a permit.
+     */
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected QueueShare getShare(String queueId) {
+        QueueShare share = shares.get(queueId);
+        if (share == null) {
+            throw new IllegalArgumentException("No such work queue: " + queueId);
+        }
+        return share;
+    }
+
+    protected void grant(QueueShare share) {
+        share.running++;
+        running++;
+    }
+
+    protected void ungrant(QueueShare share) {
+        share.running--;
+        running--;
+        while (running < maxThreads && !waiters.isEmpty()) {
+            Waiter next = selectWaiter();
+            waiters.remove(next);
+            grant(next.share);
+            next.isGranted = true;
+            next.granted.signal();
+        }
+    }
+
+    /**
+     * Selects the waiter to grant a permit to: highest priority, then lowest running/weight ratio, then oldest.
+     */
+    protected Waiter selectWaiter() {
+        Waiter best = null;
+        for (Waiter waiter : waiters) {
+            if (best == null || compare(waiter, best) < 0) {
+                best = waiter;
+            }
+        }
+        return best;
+    }
+
+    protected static int compare(Waiter a, Waiter b) {
+        if (a.priority != b.priority) {
+            return a.priority > b.priority ? -1 : 1;
+        }
+        // compare a.running / a.weight and b.running / b.weight without division
+        long ra = (long) a.share.running * b.share.weight;
+        long rb = (long) b.share.running * a.share.weight;
+        if (ra != rb) {
+            return ra < rb ? -1 : 1;
+        }
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates virtual threads when the JVM supports them (Java 21 and later), through reflection as the code is compiled
+ * for earlier versions.
+ * <p>
+ * A work instance runs on a single thread from start to completion, so the transaction and login context bound to the
+ * thread by {@link AbstractWork} behave the same on virtual threads. Blocking inside {@code synchronized} blocks (some
+ * JDBC drivers) pins the carrier thread, so queues doing mostly database work gain little from them.
+ *
+ * @since 9.2
+ */
+public class VirtualThreads {
+
+    private static final Log log = LogFactory.getLog(VirtualThreads.class);
+
+    protected static final Method OF_VIRTUAL;
+
+    protected static final Method NAME;
+
+    protected static final Method UNCAUGHT_EXCEPTION_HANDLER;
+
+    protected static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method uncaughtExceptionHandler = null;
+        Method factory = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            uncaughtExceptionHandler = builderClass.getMethod("uncaughtExceptionHandler",
+                    UncaughtExceptionHandler.class);
+            factory = builderClass.getMethod("factory");
+        } catch (ReflectiveOperationException e) {
+            // not supported by this JVM
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNCAUGHT_EXCEPTION_HANDLER = uncaughtExceptionHandler;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+        // utility class
+    }
+
+    /**
+     * Checks whether the JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory of virtual threads named with the given prefix and a counter starting at 1.
+     *
+     * @return the thread factory, or {@code null} if the JVM doesn't support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String prefix, UncaughtExceptionHandler handler) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = NAME.invoke(builder, prefix, 1L);
+            builder = UNCAUGHT_EXCEPTION_HANDLER.invoke(builder, handler);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Cannot create virtual thread factory", e);
+            return null;
+        }
+    }
+
+}
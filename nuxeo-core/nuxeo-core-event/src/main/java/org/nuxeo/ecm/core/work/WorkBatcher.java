@@ -0,0 +1,203 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
+/**
+ * Merges the work instances scheduled in a queue that have the same batch key.
+ * <p>
+ * The first work instance with a given batch key starts a batch, which is scheduled as a single work instance when it
+ * reaches the max size of the queue, or when its linger time expires. The pending batches are only kept in memory,
+ * they are scheduled right away when the work manager shuts down.
+ *
+ * @since 9.2
+ */
+public class WorkBatcher {
+
+    private static final Log log = LogFactory.getLog(WorkBatcher.class);
+
+    protected final String queueId;
+
+    protected final int maxSize;
+
+    protected final long lingerMillis;
+
+    protected final ScheduledExecutorService timer;
+
+    protected final Consumer<Work> scheduler;
+
+    protected final Histogram batchSize;
+
+    protected final Timer batchLinger;
+
+    // @GuardedBy("this")
+    protected final Map<String, Batch> batches = new HashMap<>();
+
+    /** Number of work instances in batches not yet scheduled. */
+    // @GuardedBy("this")
+    protected int pending;
+
+    protected static class Batch {
+
+        protected final String key;
+
+        protected final long startNanos = System.nanoTime();
+
+        protected final List<Work> works = new ArrayList<>();
+
+        protected Batch(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * @param config the queue configuration
+     * @param timer the executor used to schedule the batches whose linger time expired
+     * @param scheduler the callback scheduling a merged work instance in the queue
+     */
+    public WorkBatcher(WorkQueueDescriptor config, ScheduledExecutorService timer, Consumer<Work> scheduler) {
+        queueId = config.id;
+        maxSize = config.getBatchMaxSize();
+        lingerMillis = config.getBatchLingerMillis();
+        this.timer = timer;
+        this.scheduler = scheduler;
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        batchSize = registry.histogram(MetricRegistry.name("nuxeo", "works", queueId, "batch", "size"));
+        batchLinger = registry.timer(MetricRegistry.name("nuxeo", "works", queueId, "batch", "linger"));
+    }
+
+    /**
+     * Adds a work instance to the batch of its batch key.
+     *
+     * @return {@code false} if the work instance cannot be batched and must be scheduled directly
+     */
+    public boolean add(Work work) {
+        String key = work.getBatchKey();
+        if (key == null) {
+            return false;
+        }
+        Batch full = null;
+        synchronized (this) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                Batch newBatch = batch = new Batch(key);
+                try {
+                    timer.schedule(() -> flush(newBatch), lingerMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    return false;
+                }
+                batches.put(key, batch);
+            }
+            batch.works.add(work);
+            pending++;
+            if (batch.works.size() >= maxSize) {
+                batches.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            schedule(full);
+        }
+        return true;
+    }
+
+    /**
+     * Schedules the given batch if it's still pending.
+     */
+    protected void flush(Batch batch) {
+        synchronized (this) {
+            if (batches.get(batch.key) != batch) {
+                // already scheduled because full
+                return;
+            }
+            batches.remove(batch.key);
+        }
+        schedule(batch);
+    }
+
+    /**
+     * Schedules all the pending batches.
+     */
+    public void flush() {
+        List<Batch> list;
+        synchronized (this) {
+            list = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        list.forEach(this::schedule);
+    }
+
+    protected void schedule(Batch batch) {
+        List<Work> works = batch.works;
+        batchSize.update(works.size());
+        batchLinger.update(System.nanoTime() - batch.startNanos, TimeUnit.NANOSECONDS);
+        try {
+            Work work;
+            try {
+                work = works.size() == 1 ? works.get(0) : works.get(0).mergeBatch(works);
+            } catch (RuntimeException e) {
+                log.error("Cannot merge batch " + batch.key + " of queue " + queueId + ", scheduling "
+                        + works.size() + " works separately", e);
+                works.forEach(this::scheduleWork);
+                return;
+            }
+            scheduleWork(work);
+        } finally {
+            synchronized (this) {
+                pending -= works.size();
+            }
+        }
+    }
+
+    protected void scheduleWork(Work work) {
+        try {
+            scheduler.accept(work);
+        } catch (RuntimeException e) {
+            log.error("Cannot schedule work " + work + " in queue " + queueId, e);
+        }
+    }
+
+    /**
+     * Gets the number of work instances waiting in a batch, or being scheduled.
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+}
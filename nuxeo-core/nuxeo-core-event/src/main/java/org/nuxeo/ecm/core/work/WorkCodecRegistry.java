@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkCodec;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+import org.nuxeo.runtime.model.ContributionFragmentRegistry;
+
+/**
+ * Registry of the {@link WorkCodec}s, and serialization of works using them.
+ * <p>
+ * A work having a codec is written as a marker byte, its class name and the codec payload. Other works are written
+ * using Java serialization, whose stream header never starts with the marker byte, so both formats can be read.
+ *
+ * @since 9.2
+ */
+public class WorkCodecRegistry extends ContributionFragmentRegistry<WorkCodecDescriptor> {
+
+    /** Marker for a work written by a codec. */
+    protected static final int CODEC_MARKER = 'W';
+
+    /** Codecs by work class name. */
+    protected final Map<String, WorkCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    @Override
+    public String getContributionId(WorkCodecDescriptor contrib) {
+        return contrib.klass.getName();
+    }
+
+    @Override
+    public void contributionUpdated(String id, WorkCodecDescriptor contrib, WorkCodecDescriptor newOrigContrib) {
+        WorkCodec<?> codec = newCodec(contrib);
+        if (contrib.enabled) {
+            codecs.put(codec.getWorkClass().getName(), codec);
+        } else {
+            codecs.remove(codec.getWorkClass().getName());
+        }
+    }
+
+    @Override
+    public void contributionRemoved(String id, WorkCodecDescriptor origContrib) {
+        codecs.remove(newCodec(origContrib).getWorkClass().getName());
+    }
+
+    @Override
+    public WorkCodecDescriptor clone(WorkCodecDescriptor orig) {
+        WorkCodecDescriptor other = new WorkCodecDescriptor();
+        other.klass = orig.klass;
+        other.enabled = orig.enabled;
+        return other;
+    }
+
+    @Override
+    public void merge(WorkCodecDescriptor src, WorkCodecDescriptor dst) {
+        dst.enabled = src.enabled;
+    }
+
+    protected WorkCodec<?> newCodec(WorkCodecDescriptor descriptor) {
+        try {
+            return descriptor.klass.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Cannot instantiate work codec: " + descriptor.klass.getName(), e);
+        }
+    }
+
+    /**
+     * Gets the codec for the given work class, or {@code null} if there is none.
+     */
+    public WorkCodec<?> getCodec(Class<? extends Work> klass) {
+        return codecs.get(klass.getName());
+    }
+
+    /**
+     * Serializes a work, using its codec if there is one, or Java serialization.
+     */
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Work work) throws IOException {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        WorkCodec<Work> codec = (WorkCodec<Work>) getCodec(work.getClass());
+        if (codec == null) {
+            try (ObjectOutputStream out = new ObjectOutputStream(baout)) {
+                out.writeObject(work);
+            }
+        } else {
+            try (DataOutputStream out = new DataOutputStream(baout)) {
+                out.writeByte(CODEC_MARKER);
+                out.writeUTF(work.getClass().getName());
+                codec.write(work, out);
+            }
+        }
+        return baout.toByteArray();
+    }
+
+    /**
+     * Deserializes a work written by {@link #serialize}.
+     */
+    public Work deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ByteArrayInputStream bain = new ByteArrayInputStream(bytes);
+        if (bytes.length == 0 || bytes[0] != CODEC_MARKER) {
+            try (ObjectInputStream in = new ObjectInputStream(bain)) {
+                return (Work) in.readObject();
+            }
+        }
+        try (DataInputStream in = new DataInputStream(bain)) {
+            in.readByte();
+            String className = in.readUTF();
+            WorkCodec<?> codec = codecs.get(className);
+            if (codec == null) {
+                throw new ClassNotFoundException("No work codec for: " + className);
+            }
+            return codec.read(in);
+        }
+    }
+
+}
@@ -25,8 +25,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -50,6 +53,7 @@ import org.nuxeo.ecm.core.event.EventServiceComponent;
 import org.nuxeo.ecm.core.work.WorkQueuing.Listener;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
@@ -86,6 +90,8 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected static final String IMPL_EP = "implementation";
 
+    protected static final String CODECS_EP = "codecs";
+
     public static final String DEFAULT_QUEUE_ID = "default";
 
     public static final String DEFAULT_CATEGORY = "default";
@@ -99,11 +105,24 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected final WorkQueuingRegistry workQueuingConfig = new WorkQueuingRegistry();
 
+    protected final WorkCodecRegistry workCodecConfig = new WorkCodecRegistry();
+
     // used synchronized
     protected final Map<String, WorkThreadPoolExecutor> executors = new HashMap<>();
 
     protected WorkQueuing queuing;
 
+    /** Global thread budget shared by the queues, or 0 if each queue only uses its own threads. */
+    protected int sharedMaxThreads;
+
+    protected SharedWorkScheduler sharedScheduler;
+
+    /** Batchers of the queues configured for batching. */
+    protected final Map<String, WorkBatcher> batchers = new ConcurrentHashMap<>();
+
+    /** Schedules the batches whose linger time expired. */
+    protected ScheduledExecutorService batchTimer;
+
     /**
      * Simple synchronizer to wake up when an in-JVM work is completed. Does not wake up on work completion from another
      * node in cluster mode.
@@ -141,6 +160,8 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             registerWorkQueueDescriptor((WorkQueueDescriptor) contribution);
         } else if (IMPL_EP.equals(extensionPoint)) {
             registerWorkQueuingDescriptor((WorkQueuingDescriptor) contribution);
+        } else if (CODECS_EP.equals(extensionPoint)) {
+            workCodecConfig.addContribution((WorkCodecDescriptor) contribution);
         } else {
             throw new RuntimeException("Unknown extension point: " + extensionPoint);
         }
@@ -152,6 +173,8 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             unregisterWorkQueueDescriptor((WorkQueueDescriptor) contribution);
         } else if (IMPL_EP.equals(extensionPoint)) {
             unregisterWorkQueuingDescriptor((WorkQueuingDescriptor) contribution);
+        } else if (CODECS_EP.equals(extensionPoint)) {
+            workCodecConfig.removeContribution((WorkCodecDescriptor) contribution);
         } else {
             throw new RuntimeException("Unknown extension point: " + extensionPoint);
         }
@@ -161,9 +184,17 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         String queueId = workQueueDescriptor.id;
         if (WorkQueueDescriptor.ALL_QUEUES.equals(queueId)) {
             Boolean processing = workQueueDescriptor.processing;
-            if (processing == null) {
+            Integer maxThreads = workQueueDescriptor.maxThreads;
+            if (processing == null && maxThreads == null) {
                 log.error("Ignoring work queue descriptor " + WorkQueueDescriptor.ALL_QUEUES
-                        + " with no processing/queuing");
+                        + " with no processing/queuing/maxThreads");
+                return;
+            }
+            if (maxThreads != null) {
+                sharedMaxThreads = maxThreads.intValue();
+                log.info("Setting global thread budget of work queues: " + sharedMaxThreads);
+            }
+            if (processing == null) {
                 return;
             }
             String what = " processing=" + processing;
@@ -188,6 +219,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
     void unregisterWorkQueueDescriptor(WorkQueueDescriptor workQueueDescriptor) {
         String id = workQueueDescriptor.id;
         if (WorkQueueDescriptor.ALL_QUEUES.equals(id)) {
+            if (workQueueDescriptor.maxThreads != null) {
+                sharedMaxThreads = 0;
+            }
             return;
         }
         workQueueConfig.removeContribution(workQueueDescriptor);
@@ -205,7 +239,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             throw new IllegalStateException("work queue " + config.id + " already have an executor");
         }
         NuxeoBlockingQueue queue = queuing.init(config);
-        ThreadFactory threadFactory = new NamedThreadFactory(THREAD_PREFIX + config.id + "-");
+        ThreadFactory threadFactory = newThreadFactory(config);
         int maxPoolSize = config.getMaxThreads();
         WorkThreadPoolExecutor executor = new WorkThreadPoolExecutor(maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS,
                 queue, threadFactory);
@@ -213,6 +247,20 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         // (from another Nuxeo instance) can be seen
         executor.prestartAllCoreThreads();
         executors.put(config.id, executor);
+        if (sharedScheduler != null) {
+            sharedScheduler.register(config.id, config.getWeight());
+        }
+        if (config.isBatchingEnabled()) {
+            if (batchTimer == null) {
+                batchTimer = Executors.newSingleThreadScheduledExecutor(
+                        new NamedThreadFactory(THREAD_PREFIX + "Batch-"));
+            }
+            String queueId = config.id;
+            batchers.put(queueId, new WorkBatcher(config, batchTimer, work -> {
+                work.setWorkInstanceState(State.SCHEDULED);
+                queuing.workSchedule(queueId, work);
+            }));
+        }
         log.info("Initialized work queue " + config.id + " " + config.toEffectiveString());
     }
 
@@ -262,6 +310,15 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         workQueuingConfig.removeContribution(descr);
     }
 
+    /**
+     * Gets the registry of the work codecs, used by the queuing implementations storing works outside of the JVM.
+     *
+     * @since 9.2
+     */
+    public WorkCodecRegistry getWorkCodecRegistry() {
+        return workCodecConfig;
+    }
+
     protected WorkQueuing newWorkQueuing(Class<? extends WorkQueuing> klass) {
         try {
             return klass.getDeclaredConstructor(Listener.class).newInstance(Listener.lookupListener());
@@ -365,6 +422,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             }
             queuing = newWorkQueuing(workQueuingConfig.klass);
             completionSynchronizer = new WorkCompletionSynchronizer();
+            sharedScheduler = sharedMaxThreads > 0 ? new SharedWorkScheduler(sharedMaxThreads) : null;
             started = true;
             workQueueConfig.index();
             for (String id : workQueueConfig.getQueueIds()) {
@@ -459,6 +517,13 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         }
         try {
             shutdownInProgress = true;
+            // schedule the pending batches so that they're executed or suspended with the others
+            if (batchTimer != null) {
+                batchTimer.shutdownNow();
+                batchTimer = null;
+            }
+            batchers.values().forEach(WorkBatcher::flush);
+            batchers.clear();
             try {
                 return executors.isEmpty() || shutdownExecutors(new ArrayList<>(executors.values()), timeout, unit);
             } finally {
@@ -500,6 +565,26 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         }
     }
 
+    /**
+     * Creates the factory of the threads processing a queue. Both kinds of threads are named after the queue, which
+     * the reentrancy check of {@link MemoryBlockingQueue} relies on.
+     *
+     * @since 9.2
+     */
+    protected ThreadFactory newThreadFactory(WorkQueueDescriptor config) {
+        String prefix = THREAD_PREFIX + config.id + "-";
+        if (config.isVirtualThreads()) {
+            ThreadFactory threadFactory = VirtualThreads.newThreadFactory(prefix,
+                    (t, e) -> log.error("Uncaught error on thread " + t.getName(), e));
+            if (threadFactory != null) {
+                return threadFactory;
+            }
+            log.warn("Virtual threads are not supported by this JVM, using platform threads for work queue "
+                    + config.id);
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
     /**
      * Creates non-daemon threads at normal priority.
      */
@@ -561,6 +646,15 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
         protected final Timer workTimer;
 
+        /** The global thread budget, or {@code null} if not used. */
+        protected final SharedWorkScheduler scheduler;
+
+        /**
+         * Number of work instances taken from the queue but still waiting for a permit of the {@link #scheduler}.
+         * They are not running yet, but must not be seen as completed.
+         */
+        protected final AtomicInteger awaitingPermitCount = new AtomicInteger();
+
         protected WorkThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                 NuxeoBlockingQueue queue, ThreadFactory threadFactory) {
             super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, threadFactory);
@@ -571,6 +665,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             runningCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "running"));
             completedCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "completed"));
             workTimer = registry.timer(MetricRegistry.name("nuxeo", "works", queueId, "total"));
+            scheduler = sharedScheduler;
         }
 
         public int getScheduledOrRunningSize() {
@@ -608,6 +703,34 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         @Override
         protected void beforeExecute(Thread t, Runnable r) {
             Work work = WorkHolder.getWork(r);
+            if (scheduler == null) {
+                startWork(work);
+                return;
+            }
+            // counted until the work is running, so that awaitCompletion doesn't see an empty queue meanwhile
+            awaitingPermitCount.incrementAndGet();
+            try {
+                try {
+                    scheduler.acquire(queueId, work.getPriority());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    work.setWorkInstanceState(State.SCHEDULED);
+                    queuing.workReschedule(queueId, work);
+                    throw new RejectedExecutionException(queueId + " was interrupted, rescheduled " + work);
+                }
+                try {
+                    startWork(work);
+                } catch (RuntimeException | Error e) {
+                    // afterExecute is not called when beforeExecute fails, give back the permit here
+                    scheduler.release(queueId);
+                    throw e;
+                }
+            } finally {
+                awaitingPermitCount.decrementAndGet();
+            }
+        }
+
+        protected void startWork(Work work) {
             if (isShutdown()) {
                 work.setWorkInstanceState(State.SCHEDULED);
                 queuing.workReschedule(queueId, work);
@@ -636,6 +759,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
                 work.setWorkInstanceState(State.UNKNOWN);
                 queuing.workCompleted(queueId, work);
             } finally {
+                if (scheduler != null) {
+                    scheduler.release(queueId);
+                }
                 running.remove(work);
                 runningCount.dec();
                 completedCount.inc();
@@ -721,6 +847,12 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             break;
 
         }
+        if (scheduling == Scheduling.ENQUEUE) {
+            WorkBatcher batcher = batchers.get(queueId);
+            if (batcher != null && batcher.add(work)) {
+                return;
+            }
+        }
         queuing.workSchedule(queueId, work);
     }
 
@@ -874,8 +1006,16 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             }
             return true;
         }
+        WorkThreadPoolExecutor executor = getExecutor(queueId);
+        if (executor.awaitingPermitCount.get() > 0) {
+            return false;
+        }
         if (!isProcessingEnabled(queueId)) {
-            return getExecutor(queueId).runningCount.getCount() == 0L;
+            return executor.runningCount.getCount() == 0L;
+        }
+        WorkBatcher batcher = batchers.get(queueId);
+        if (batcher != null && batcher.getPendingCount() > 0) {
+            return false;
         }
         if (getQueueSize(queueId, null) > 0) {
             if (log.isTraceEnabled()) {
@@ -265,6 +265,47 @@ public interface Work extends Serializable {
      */
     String getCategory();
 
+    /**
+     * Gets the priority of this work instance.
+     * <p>
+     * When the work manager runs with a global thread budget, the waiting work instances of higher priority are
+     * executed first when threads become available.
+     *
+     * @return the priority, {@code 0} by default
+     * @since 9.2
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * Gets the batch key for this work instance.
+     * <p>
+     * In a queue configured for batching, the pending work instances having the same batch key are merged using
+     * {@link #mergeBatch} and executed as a single work instance.
+     *
+     * @return the batch key, or {@code null} if this work instance can't be batched
+     * @since 9.2
+     * @see WorkQueueDescriptor#getBatchMaxSize
+     */
+    default String getBatchKey() {
+        return null;
+    }
+
+    /**
+     * Merges work instances having the same batch key as this one into a single work instance.
+     * <p>
+     * This is called on the first work instance of the batch, and the list contains all the work instances of the
+     * batch including this one, in scheduling order.
+     *
+     * @param works the work instances to merge
+     * @return the merged work instance
+     * @since 9.2
+     */
+    default Work mergeBatch(List<Work> works) {
+        throw new UnsupportedOperationException("Work cannot be batched: " + this);
+    }
+
     /**
      * Gets a human-readable name for this work instance.
      *
@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work.api;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the instances of a given {@link Work} class, for queuing implementations that store works
+ * outside of the JVM.
+ * <p>
+ * A codec writes the fields of the work explicitly, which is much more compact than Java serialization. Codecs are
+ * registered on the {@link WorkManager} {@code codecs} extension point, works without a codec are still stored using
+ * Java serialization.
+ *
+ * @since 9.2
+ */
+public interface WorkCodec<T extends Work> {
+
+    /**
+     * Gets the class of the works handled by this codec. Instances of subclasses are not handled.
+     */
+    Class<T> getWorkClass();
+
+    /**
+     * Writes the given work.
+     */
+    void write(T work, DataOutput out) throws IOException;
+
+    /**
+     * Reads a work written by {@link #write}.
+     */
+    T read(DataInput in) throws IOException;
+
+}
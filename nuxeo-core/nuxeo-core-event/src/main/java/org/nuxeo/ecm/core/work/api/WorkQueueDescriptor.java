@@ -42,6 +42,21 @@ public class WorkQueueDescriptor {
 
     public static final int DEFAULT_CAPACITY = -1;
 
+    /** @since 9.2 */
+    public static final int DEFAULT_WEIGHT = 1;
+
+    /** @since 9.2 */
+    public static final int DEFAULT_BATCH_MAX_SIZE = 1;
+
+    /** @since 9.2 */
+    public static final long DEFAULT_BATCH_LINGER_MILLIS = 500;
+
+    /** @since 9.2 */
+    public static final String EXECUTOR_PLATFORM = "platform";
+
+    /** @since 9.2 */
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
     @XNode("@id")
     public String id;
 
@@ -65,6 +80,25 @@ public class WorkQueueDescriptor {
         return !Boolean.FALSE.equals(processing);
     }
 
+    /**
+     * The kind of threads running the work instances of this queue, {@value #EXECUTOR_PLATFORM} (the default) or
+     * {@value #EXECUTOR_VIRTUAL}. Virtual threads are cheap, so I/O-bound queues can use a high {@code maxThreads},
+     * which still bounds the number of work instances running concurrently.
+     *
+     * @since 9.2
+     */
+    @XNode("@executor")
+    public String executor;
+
+    /**
+     * Whether the work instances of this queue run on virtual threads.
+     *
+     * @since 9.2
+     */
+    public boolean isVirtualThreads() {
+        return EXECUTOR_VIRTUAL.equals(executor);
+    }
+
     @XNode("name")
     public String name;
 
@@ -75,6 +109,20 @@ public class WorkQueueDescriptor {
         return maxThreads == null ? DEFAULT_MAX_THREADS : maxThreads.intValue();
     }
 
+    /**
+     * The share of the global thread budget given to this queue when queues compete for it, relative to the weights of
+     * the other queues. The global thread budget is configured by the {@code maxThreads} of the {@link #ALL_QUEUES}
+     * descriptor.
+     *
+     * @since 9.2
+     */
+    @XNode("weight")
+    public Integer weight;
+
+    public int getWeight() {
+        return weight == null ? DEFAULT_WEIGHT : weight.intValue();
+    }
+
     @XNodeList(value = "category", type = HashSet.class, componentType = String.class)
     public Set<String> categories = Collections.emptySet();
 
@@ -91,15 +139,54 @@ public class WorkQueueDescriptor {
         return capacity == null ? DEFAULT_CAPACITY : capacity.intValue();
     }
 
+    /**
+     * When greater than 1, the pending work instances of this queue having the same batch key are merged into a single
+     * work instance of at most this number of works.
+     *
+     * @since 9.2
+     * @see Work#getBatchKey
+     */
+    @XNode("batchMaxSize")
+    public Integer batchMaxSize;
+
+    public int getBatchMaxSize() {
+        return batchMaxSize == null ? DEFAULT_BATCH_MAX_SIZE : batchMaxSize.intValue();
+    }
+
+    /**
+     * Whether the work instances of this queue are batched.
+     *
+     * @since 9.2
+     */
+    public boolean isBatchingEnabled() {
+        return getBatchMaxSize() > 1;
+    }
+
+    /**
+     * The maximum time a work instance waits for other work instances to be batched with it.
+     *
+     * @since 9.2
+     */
+    @XNode("batchLingerMillis")
+    public Long batchLingerMillis;
+
+    public long getBatchLingerMillis() {
+        return batchLingerMillis == null ? DEFAULT_BATCH_LINGER_MILLIS : batchLingerMillis.longValue();
+    }
+
     @Override
     public WorkQueueDescriptor clone() {
         WorkQueueDescriptor o = new WorkQueueDescriptor();
         o.id = id;
         o.queuing = queuing;
         o.processing = processing;
+        o.executor = executor;
         o.name = name;
         o.maxThreads = maxThreads;
+        o.weight = weight;
         o.capacity = capacity;
+        o.batchMaxSize = batchMaxSize;
+        o.batchLingerMillis = batchLingerMillis;
         o.categories = new HashSet<String>(categories);
         return o;
     }
@@ -111,15 +198,27 @@ public class WorkQueueDescriptor {
         if (other.processing != null) {
             processing = other.processing;
         }
+        if (other.executor != null) {
+            executor = other.executor;
+        }
         if (other.name != null) {
             name = other.name;
         }
         if (other.maxThreads != null) {
             maxThreads = other.maxThreads;
         }
+        if (other.weight != null) {
+            weight = other.weight;
+        }
         if (other.capacity != null) {
             capacity = other.capacity;
         }
+        if (other.batchMaxSize != null) {
+            batchMaxSize = other.batchMaxSize;
+        }
+        if (other.batchLingerMillis != null) {
+            batchLingerMillis = other.batchLingerMillis;
+        }
         categories.addAll(other.categories);
     }
 
@@ -138,14 +237,30 @@ public class WorkQueueDescriptor {
             buf.append(" processing=");
             buf.append(processing);
         }
+        if (executor != null) {
+            buf.append(" executor=");
+            buf.append(executor);
+        }
         if (maxThreads != null) {
             buf.append(" maxThreads=");
             buf.append(maxThreads);
         }
+        if (weight != null) {
+            buf.append(" weight=");
+            buf.append(weight);
+        }
         if (capacity != null) {
             buf.append(" capacity=");
             buf.append(capacity);
         }
+        if (batchMaxSize != null) {
+            buf.append(" batchMaxSize=");
+            buf.append(batchMaxSize);
+        }
+        if (batchLingerMillis != null) {
+            buf.append(" batchLingerMillis=");
+            buf.append(batchLingerMillis);
+        }
         buf.append("]");
         return buf.toString();
     }
@@ -160,10 +275,18 @@ public class WorkQueueDescriptor {
         buf.append(isQueuingEnabled());
         buf.append(" processing=");
         buf.append(isProcessingEnabled());
+        buf.append(" executor=");
+        buf.append(isVirtualThreads() ? EXECUTOR_VIRTUAL : EXECUTOR_PLATFORM);
         buf.append(" maxThreads=");
         buf.append(getMaxThreads());
+        buf.append(" weight=");
+        buf.append(getWeight());
         buf.append(" capacity=");
         buf.append(getCapacity());
+        buf.append(" batchMaxSize=");
+        buf.append(getBatchMaxSize());
+        buf.append(" batchLingerMillis=");
+        buf.append(getBatchLingerMillis());
         buf.append(" clearCompletedAfterSeconds=");
         buf.append(")");
         return buf.toString();
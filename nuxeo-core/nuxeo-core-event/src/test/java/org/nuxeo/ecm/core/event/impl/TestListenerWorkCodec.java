@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.rmi.dgc.VMID;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.event.impl.AsyncEventExecutor.ListenerWork;
+import org.nuxeo.ecm.core.work.WorkCodecRegistry;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+
+public class TestListenerWorkCodec {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        WorkCodecRegistry registry = new WorkCodecRegistry();
+        WorkCodecDescriptor descriptor = new WorkCodecDescriptor();
+        descriptor.klass = ListenerWorkCodec.class;
+        registry.addContribution(descriptor);
+
+        EventBundleImpl events = new EventBundleImpl(new VMID());
+        events.push(new EventImpl("documentCreated", new EventContextImpl("foo")));
+        events.push(new EventImpl("documentModified", new EventContextImpl("bar")));
+        ListenerWork work = new ListenerWork("Listener mylistener [documentCreated, documentModified]",
+                new ReconnectedEventBundleImpl(events, "mylistener"), "mylistener", 3);
+        work.setOriginatingUsername("bob");
+
+        byte[] bytes = registry.serialize(work);
+        assertEquals('W', bytes[0]);
+        ListenerWork decoded = (ListenerWork) registry.deserialize(bytes);
+        assertEquals(work.getId(), decoded.getId());
+        assertEquals(work.getTitle(), decoded.getTitle());
+        assertEquals("mylistener", decoded.getCategory());
+        assertEquals(3, decoded.retryCount);
+        assertEquals("bob", decoded.getOriginatingUsername());
+        assertTrue(decoded.bundle instanceof ReconnectedEventBundleImpl);
+        assertEquals(Arrays.asList("documentCreated", "documentModified"),
+                ((ReconnectedEventBundleImpl) decoded.bundle).getEventNames());
+    }
+
+}
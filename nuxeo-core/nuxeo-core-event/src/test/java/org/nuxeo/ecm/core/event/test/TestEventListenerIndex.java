@@ -0,0 +1,124 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
+import org.nuxeo.ecm.core.event.impl.EventBundleImpl;
+import org.nuxeo.ecm.core.event.impl.EventContextImpl;
+import org.nuxeo.ecm.core.event.impl.EventImpl;
+import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.ecm.core.event.impl.EventListenerIndex;
+
+public class TestEventListenerIndex {
+
+    protected static EventListenerDescriptor newDescriptor(String events, String types, String facets) {
+        EventListenerDescriptor desc = new EventListenerDescriptor();
+        desc.setEvents(toSet(events));
+        desc.setDocumentTypes(toSet(types));
+        desc.setFacets(toSet(facets));
+        return desc;
+    }
+
+    protected static HashSet<String> toSet(String values) {
+        return values == null ? new HashSet<>() : new HashSet<>(Arrays.asList(values.split(",")));
+    }
+
+    protected static DocumentModel newDocument(String type, String... facets) {
+        List<String> facetList = Arrays.asList(facets);
+        return (DocumentModel) Proxy.newProxyInstance(DocumentModel.class.getClassLoader(),
+                new Class<?>[] { DocumentModel.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getType":
+                        return type;
+                    case "hasFacet":
+                        return Boolean.valueOf(facetList.contains(args[0]));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    protected static Event newEvent(String name, DocumentModel doc) {
+        if (doc == null) {
+            return new EventImpl(name, new EventContextImpl());
+        }
+        return new EventImpl(name, new DocumentEventContext(null, null, doc));
+    }
+
+    @Test
+    public void testIndex() {
+        EventListenerDescriptor all = newDescriptor(null, null, null);
+        EventListenerDescriptor created = newDescriptor("created", null, null);
+        EventListenerDescriptor createdOrModified = newDescriptor("created,modified", null, null);
+        EventListenerDescriptor modifiedFile = newDescriptor("modified", "File,Note", null);
+        EventListenerDescriptor modifiedVersionable = newDescriptor("modified", null, "Versionable");
+        EventListenerIndex index = new EventListenerIndex(
+                Arrays.asList(all, created, createdOrModified, modifiedFile, modifiedVersionable));
+
+        assertEquals(Arrays.asList(all), index.getListeners(newEvent("other", null)));
+        assertEquals(Arrays.asList(all, created, createdOrModified), index.getListeners(newEvent("created", null)));
+        assertEquals(Arrays.asList(all, createdOrModified), index.getListeners(newEvent("modified", null)));
+        DocumentModel folder = newDocument("Folder");
+        assertEquals(Arrays.asList(all, createdOrModified), index.getListeners(newEvent("modified", folder)));
+        DocumentModel file = newDocument("File");
+        assertEquals(Arrays.asList(all, createdOrModified, modifiedFile),
+                index.getListeners(newEvent("modified", file)));
+        // from the cache
+        assertEquals(Arrays.asList(all, createdOrModified, modifiedFile),
+                index.getListeners(newEvent("modified", file)));
+        DocumentModel versionableFile = newDocument("File", "Versionable");
+        assertEquals(Arrays.asList(all, createdOrModified, modifiedFile, modifiedVersionable),
+                index.getListeners(newEvent("modified", versionableFile)));
+        DocumentModel versionableNote = newDocument("Note", "Versionable");
+        assertEquals(Arrays.asList(all, createdOrModified, modifiedFile, modifiedVersionable),
+                index.getListeners(newEvent("modified", versionableNote)));
+
+        // consistent with the descriptors
+        for (EventListenerDescriptor desc : index.getListeners(newEvent("modified", versionableFile))) {
+            assertTrue(desc.acceptEvent(newEvent("modified", versionableFile)));
+        }
+    }
+
+    @Test
+    public void testBundle() {
+        EventListenerDescriptor created = newDescriptor("created", null, null);
+        EventListenerDescriptor modified = newDescriptor("modified", null, null);
+        EventListenerDescriptor removedFile = newDescriptor("removed", "File", null);
+        EventListenerIndex index = new EventListenerIndex(Arrays.asList(created, modified, removedFile));
+
+        EventBundleImpl bundle = new EventBundleImpl();
+        bundle.push(newEvent("removed", newDocument("Folder")));
+        bundle.push(newEvent("created", null));
+        assertEquals(Arrays.asList(created), index.getListeners(bundle));
+        bundle.push(newEvent("removed", newDocument("File")));
+        assertEquals(Arrays.asList(created, removedFile), index.getListeners(bundle));
+    }
+
+}
@@ -231,6 +231,28 @@ public class TestEventServiceComponent extends NXRuntimeTestCase {
         }
     }
 
+    @Test
+    public void testSyncPostCommitSpilled() throws Exception {
+        URL url = getClass().getClassLoader().getResource("test-sync-postcommit-listeners.xml");
+        deployTestContrib("org.nuxeo.ecm.core.event", url);
+        EventService service = Framework.getService(EventService.class);
+        Framework.getProperties().setProperty(EventServiceImpl.BUNDLE_SPILL_THRESHOLD_PROP, "2");
+        try {
+            for (int i = 0; i < 5; i++) {
+                service.fireEvent(new EventImpl("testsyncpostcommit", new EventContextImpl()));
+            }
+            Event commit = new EventImpl("testnotmached", new EventContextImpl());
+            commit.setIsCommitEvent(true);
+            service.fireEvent(commit);
+            service.waitForAsyncCompletion();
+        } finally {
+            Framework.getProperties().remove(EventServiceImpl.BUNDLE_SPILL_THRESHOLD_PROP);
+        }
+        // the 6 events are consumed in 3 chunks of at most 2 events, each passed to the 2 listeners
+        assertEquals(6, DummyPostCommitEventListener.handledCount());
+        assertEquals(10, DummyPostCommitEventListener.eventCount());
+    }
+
     /**
      * Test that when the event service component is deactivated, the threads of the async event executor are shut down.
      */
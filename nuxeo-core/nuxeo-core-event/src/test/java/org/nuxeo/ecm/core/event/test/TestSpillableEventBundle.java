@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.impl.EventContextImpl;
+import org.nuxeo.ecm.core.event.impl.EventImpl;
+import org.nuxeo.ecm.core.event.impl.SpillableEventBundle;
+
+public class TestSpillableEventBundle {
+
+    protected static class TestBundle extends SpillableEventBundle {
+
+        private static final long serialVersionUID = 1L;
+
+        public TestBundle(int threshold) {
+            super(threshold);
+        }
+
+        public File getFile() {
+            return file;
+        }
+    }
+
+    protected static Event newEvent(int i) {
+        EventContextImpl context = new EventContextImpl();
+        context.setProperty("i", Integer.valueOf(i));
+        return new EventImpl("event" + i, context);
+    }
+
+    protected static int getIndex(Event event) {
+        return ((Integer) event.getContext().getProperty("i")).intValue();
+    }
+
+    @Test
+    public void testNotSpilled() {
+        try (TestBundle bundle = new TestBundle(10)) {
+            assertTrue(bundle.isEmpty());
+            bundle.push(newEvent(0));
+            bundle.push(newEvent(1));
+            assertFalse(bundle.isSpilled());
+            assertNull(bundle.getFile());
+            assertEquals(2, bundle.size());
+            Iterator<EventBundle> chunks = bundle.chunks();
+            assertEquals(2, chunks.next().size());
+            assertFalse(chunks.hasNext());
+        }
+    }
+
+    @Test
+    public void testSpilled() {
+        File file;
+        try (TestBundle bundle = new TestBundle(3)) {
+            for (int i = 0; i < 8; i++) {
+                bundle.push(newEvent(i));
+            }
+            assertTrue(bundle.isSpilled());
+            file = bundle.getFile();
+            assertTrue(file.exists());
+            assertEquals(8, bundle.size());
+            assertEquals(0, getIndex(bundle.peek()));
+            assertTrue(bundle.containsEventName("event5"));
+
+            // events are read back in order
+            List<Integer> indexes = new ArrayList<>();
+            for (Event event : bundle) {
+                indexes.add(Integer.valueOf(getIndex(event)));
+            }
+            assertEquals("[0, 1, 2, 3, 4, 5, 6, 7]", indexes.toString());
+
+            // chunks have at most the threshold size
+            List<Integer> sizes = new ArrayList<>();
+            bundle.chunks().forEachRemaining(chunk -> sizes.add(Integer.valueOf(chunk.size())));
+            assertEquals("[3, 3, 2]", sizes.toString());
+        }
+        assertFalse(file.exists());
+    }
+
+}
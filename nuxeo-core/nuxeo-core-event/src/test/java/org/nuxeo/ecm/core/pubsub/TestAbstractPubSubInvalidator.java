@@ -23,7 +23,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -35,6 +39,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.mockito.MockitoFeature;
 import org.nuxeo.runtime.mockito.RuntimeService;
 import org.nuxeo.runtime.test.runner.Features;
@@ -181,4 +186,41 @@ public class TestAbstractPubSubInvalidator {
         assertTrue(invals.isEmpty());
     }
 
+    @Test
+    public void testCoalescing() throws Exception {
+        Framework.getProperties().setProperty(AbstractPubSubInvalidator.COALESCING_WINDOW_PROP, "600000");
+        DummyInvalidator invalidator = new DummyInvalidator();
+        try {
+            invalidator.initialize("coalesced", "d");
+        } finally {
+            Framework.getProperties().remove(AbstractPubSubInvalidator.COALESCING_WINDOW_PROP);
+        }
+        DummyInvalidations invals = new DummyInvalidations();
+        invals.inval();
+        invalidator.sendInvalidations(invals);
+        invalidator.sendInvalidations(invals);
+        invalidator.sendInvalidations(invals);
+        verify(pubSubService, never()).publish(eq("coalesced"), any());
+
+        // closing flushes the pending invalidations as a single message
+        invalidator.close();
+        verify(pubSubService, times(1)).publish(eq("coalesced"), any());
+        assertEquals(3, invalidator.sentCount.getCount());
+        assertEquals(1, invalidator.publishedCount.getCount());
+        assertEquals("d:Y".length(), invalidator.publishedBytes.getCount());
+    }
+
+    @Test
+    public void testLazyDeserialization() throws Exception {
+        DummyInvalidator invalidator = new DummyInvalidator();
+        invalidator.initialize("topic", "d");
+        invalidator.subscriber("topic", "z:".getBytes());
+        invalidator.subscriber("topic", "z:foo".getBytes());
+        assertEquals(2, invalidator.bufferedMessages.size());
+        DummyInvalidations invals = invalidator.receiveInvalidations();
+        assertFalse(invals.isEmpty());
+        assertTrue(invalidator.bufferedMessages.isEmpty());
+        assertTrue(invalidator.receiveInvalidations().isEmpty());
+    }
+
 }
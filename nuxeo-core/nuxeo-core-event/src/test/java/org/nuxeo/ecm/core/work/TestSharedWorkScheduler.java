@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestSharedWorkScheduler {
+
+    protected SharedWorkScheduler scheduler;
+
+    protected final List<String> granted = Collections.synchronizedList(new ArrayList<>());
+
+    protected Thread acquireLater(String queueId, int priority) throws InterruptedException {
+        int waiting = scheduler.getWaitingCount();
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.acquire(queueId, priority);
+                granted.add(queueId + priority);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        // wait until the thread waits for a permit
+        for (int i = 0; i < 500 && scheduler.getWaitingCount() == waiting; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(waiting + 1, scheduler.getWaitingCount());
+        return thread;
+    }
+
+    protected void releaseAndJoin(String queueId, Thread thread) throws InterruptedException {
+        scheduler.release(queueId);
+        thread.join(5000);
+        assertTrue(!thread.isAlive());
+    }
+
+    @Test
+    public void testWeightedFairness() throws Exception {
+        scheduler = new SharedWorkScheduler(3);
+        scheduler.register("bulk", 1);
+        scheduler.register("interactive", 2);
+        scheduler.acquire("bulk", 0);
+        scheduler.acquire("bulk", 0);
+        scheduler.acquire("interactive", 0);
+        // budget exhausted
+        Thread bulk = acquireLater("bulk", 0);
+        Thread interactive = acquireLater("interactive", 0);
+        // interactive runs 1/2, bulk runs 1/1 once the permit is released
+        releaseAndJoin("bulk", interactive);
+        assertEquals(Arrays.asList("interactive0"), granted);
+        releaseAndJoin("interactive", bulk);
+        assertEquals(Arrays.asList("interactive0", "bulk0"), granted);
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        scheduler = new SharedWorkScheduler(1);
+        scheduler.register("default", 1);
+        scheduler.register("other", 1);
+        scheduler.acquire("other", 0);
+        Thread low = acquireLater("default", 0);
+        Thread high = acquireLater("default", 5);
+        releaseAndJoin("other", high);
+        releaseAndJoin("default", low);
+        assertEquals(Arrays.asList("default5", "default0"), granted);
+    }
+
+    @Test
+    public void testIdleQueueLeavesBudget() throws Exception {
+        scheduler = new SharedWorkScheduler(2);
+        scheduler.register("bulk", 1);
+        scheduler.register("interactive", 10);
+        // the interactive queue is idle, so the bulk queue can use the whole budget
+        scheduler.acquire("bulk", 0);
+        scheduler.acquire("bulk", 0);
+        assertEquals(0, scheduler.getWaitingCount());
+        Thread interactive = acquireLater("interactive", 0);
+        interactive.interrupt();
+        interactive.join(5000);
+        assertEquals(0, scheduler.getWaitingCount());
+        assertEquals(Collections.emptyList(), granted);
+    }
+
+}
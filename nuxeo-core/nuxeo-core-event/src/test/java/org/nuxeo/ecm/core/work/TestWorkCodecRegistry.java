@@ -0,0 +1,133 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.Progress;
+import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+
+public class TestWorkCodecRegistry {
+
+    public static class SleepWorkCodec extends AbstractWorkCodec<SleepWork> {
+
+        public SleepWorkCodec() {
+            super(SleepWork.class);
+        }
+
+        @Override
+        protected void writeFields(SleepWork work, DataOutput out) throws IOException {
+            out.writeLong(work.durationMillis);
+            writeString(out, work.category);
+        }
+
+        @Override
+        protected SleepWork readFields(DataInput in) throws IOException {
+            long durationMillis = in.readLong();
+            return new SleepWork(durationMillis, readString(in), false, null);
+        }
+    }
+
+    protected WorkCodecRegistry registry;
+
+    protected WorkCodecDescriptor descriptor;
+
+    @Before
+    public void setUp() {
+        registry = new WorkCodecRegistry();
+        descriptor = new WorkCodecDescriptor();
+        descriptor.klass = SleepWorkCodec.class;
+        registry.addContribution(descriptor);
+    }
+
+    protected SleepWork newWork() {
+        SleepWork work = new SleepWork(123, "mycategory", false);
+        work.setDocuments("myrepo",
+                Arrays.asList("0a1b2c3d-4e5f-6789-abcd-ef0123456789", "1a1b2c3d-4e5f-6789-abcd-ef0123456789"));
+        work.setOriginatingUsername("bob");
+        work.setStatus("Sleeping");
+        work.setProgress(new Progress(12, 345));
+        work.setWorkInstanceState(State.SCHEDULED);
+        return work;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        SleepWork work = newWork();
+        byte[] bytes = registry.serialize(work);
+        assertEquals('W', bytes[0]);
+        SleepWork decoded = (SleepWork) registry.deserialize(bytes);
+        assertEquals(work.getId(), decoded.getId());
+        assertEquals(123, decoded.durationMillis);
+        assertEquals("mycategory", decoded.getCategory());
+        assertEquals("myrepo", decoded.repositoryName);
+        assertEquals(work.docIds, decoded.docIds);
+        assertNull(decoded.docId);
+        assertEquals("bob", decoded.getOriginatingUsername());
+        assertEquals("Sleeping", decoded.getStatus());
+        assertEquals(12, decoded.getProgress().getCurrent());
+        assertEquals(345, decoded.getProgress().getTotal());
+        assertEquals(State.SCHEDULED, decoded.getWorkInstanceState());
+        assertEquals(work.getSchedulingTime(), decoded.getSchedulingTime());
+
+        // percent progress and no state
+        work.setProgress(new Progress(26.2F));
+        work.setWorkInstanceState(null);
+        decoded = (SleepWork) registry.deserialize(registry.serialize(work));
+        assertEquals(26.2F, decoded.getProgress().getPercent(), 0F);
+        assertEquals(Progress.CURRENT_INDETERMINATE, decoded.getProgress().getCurrent());
+        assertNull(decoded.getWorkInstanceState());
+    }
+
+    @Test
+    public void testCompactness() throws Exception {
+        SleepWork work = newWork();
+        int codecLength = registry.serialize(work).length;
+        int javaLength = SerializationUtils.serialize(work).length;
+        assertTrue(codecLength + " vs " + javaLength, codecLength * 5 <= javaLength);
+    }
+
+    @Test
+    public void testJavaSerializationFallback() throws Exception {
+        SleepWork work = newWork();
+        byte[] javaBytes = SerializationUtils.serialize(work);
+        // works written before the codec was registered can still be read
+        assertEquals(work.getId(), registry.deserialize(javaBytes).getId());
+
+        descriptor.enabled = false;
+        registry.addContribution(descriptor);
+        byte[] bytes = registry.serialize(work);
+        assertEquals((byte) 0xAC, bytes[0]);
+        Work decoded = registry.deserialize(bytes);
+        assertEquals(work.getId(), decoded.getId());
+    }
+
+}
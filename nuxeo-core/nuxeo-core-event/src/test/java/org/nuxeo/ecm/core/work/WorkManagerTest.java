@@ -29,11 +29,13 @@ import static org.nuxeo.ecm.core.work.api.Work.State.UNKNOWN;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -41,17 +43,23 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.nuxeo.common.logging.SequenceTracer;
+import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkManager.Scheduling;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.test.NXRuntimeTestCase;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.FileEventsTrackingFeature;
 import org.nuxeo.runtime.trackers.files.FileEvent;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
 @Features(FileEventsTrackingFeature.class)
 public class WorkManagerTest extends NXRuntimeTestCase {
 
@@ -90,6 +98,71 @@ public class WorkManagerTest extends NXRuntimeTestCase {
         }
     }
 
+    protected static class BatchedWork extends AbstractWork {
+        private static final long serialVersionUID = 1L;
+
+        protected static final AtomicInteger executions = new AtomicInteger();
+
+        protected static final AtomicInteger executed = new AtomicInteger();
+
+        protected final List<String> keys;
+
+        protected BatchedWork(List<String> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public String getCategory() {
+            return "BatchedWork";
+        }
+
+        @Override
+        public String getTitle() {
+            return "Batched " + keys;
+        }
+
+        @Override
+        public String getBatchKey() {
+            return "batch";
+        }
+
+        @Override
+        public Work mergeBatch(List<Work> works) {
+            List<String> all = new ArrayList<>();
+            for (Work work : works) {
+                all.addAll(((BatchedWork) work).keys);
+            }
+            return new BatchedWork(all);
+        }
+
+        @Override
+        public void work() {
+            executions.incrementAndGet();
+            executed.addAndGet(keys.size());
+        }
+    }
+
+    protected static class ThreadNameWork extends AbstractWork {
+        private static final long serialVersionUID = 1L;
+
+        protected static volatile String threadName;
+
+        @Override
+        public String getCategory() {
+            return "VirtualWork";
+        }
+
+        @Override
+        public String getTitle() {
+            return "Thread name";
+        }
+
+        @Override
+        public void work() {
+            threadName = Thread.currentThread().getName();
+        }
+    }
+
     protected static final String CATEGORY = "SleepWork";
 
     protected static final String QUEUE = "SleepWork";
@@ -455,4 +528,67 @@ public class WorkManagerTest extends NXRuntimeTestCase {
         assertMetrics(0, 0, 3, 0);
     }
 
+    @Test
+    public void testWorkBatching() throws Exception {
+        deployAndStart();
+        Histogram batchSize = SharedMetricRegistries.getOrCreate(MetricsService.class.getName()).histogram(
+                MetricRegistry.name("nuxeo", "works", "BatchedWork", "batch", "size"));
+        long batches = batchSize.getCount();
+        BatchedWork.executions.set(0);
+        BatchedWork.executed.set(0);
+
+        for (int i = 0; i < 25; i++) {
+            service.schedule(new BatchedWork(Collections.singletonList("w" + i)));
+        }
+        // the last 5 works wait for the linger time
+        assertTrue(service.awaitCompletion("BatchedWork", 10, TimeUnit.SECONDS));
+        assertEquals(25, BatchedWork.executed.get());
+        assertEquals(3, BatchedWork.executions.get());
+        assertEquals(batches + 3, batchSize.getCount());
+    }
+
+    @Test
+    public void testAwaitCompletionWhileWaitingForThreadBudget() throws Exception {
+        doDeploy();
+        deployContrib("org.nuxeo.ecm.core.event.test", "test-workmanager-budget.xml");
+        fireFrameworkStarted();
+        SharedWorkScheduler scheduler = service.sharedScheduler;
+        assertEquals(1, scheduler.getMaxThreads());
+
+        // a work of another queue takes the whole budget
+        int duration = 2000; // 2s
+        service.schedule(new SleepWork(duration, "PrioritizedSleepWork", false, "budget"));
+        for (int i = 0; i < 500 && service.getWorkState("budget") != RUNNING; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(RUNNING, service.getWorkState("budget"));
+
+        // this one leaves its queue but waits for a thread of the budget
+        service.schedule(new SleepWork(10, false, "waiting"));
+        for (int i = 0; i < 500 && scheduler.getWaitingCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, scheduler.getWaitingCount());
+        assertEquals(1, service.getQueueSize(QUEUE, null));
+        assertFalse(service.awaitCompletion(QUEUE, 200, TimeUnit.MILLISECONDS));
+        // also when processing is disabled, as the work will still be executed
+        service.enableProcessing(QUEUE, false);
+        assertFalse(service.awaitCompletion(QUEUE, 200, TimeUnit.MILLISECONDS));
+
+        assertTrue(service.awaitCompletion(duration * 5, TimeUnit.MILLISECONDS));
+        assertEquals(0, scheduler.getWaitingCount());
+        assertEquals(1, service.getMetrics(QUEUE).completed.intValue());
+    }
+
+    @Test
+    public void testVirtualThreadsExecutor() throws Exception {
+        deployAndStart();
+        assertTrue(service.getWorkQueueDescriptor("VirtualWork").isVirtualThreads());
+        ThreadNameWork.threadName = null;
+        service.schedule(new ThreadNameWork());
+        assertTrue(service.awaitCompletion("VirtualWork", 10, TimeUnit.SECONDS));
+        // virtual threads or platform threads depending on the JVM, named after the queue in both cases
+        assertTrue(ThreadNameWork.threadName, ThreadNameWork.threadName.startsWith("Nuxeo-Work-VirtualWork-"));
+    }
+
 }
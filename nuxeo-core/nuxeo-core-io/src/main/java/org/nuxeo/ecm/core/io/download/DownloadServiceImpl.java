@@ -19,6 +19,7 @@
  */
 package org.nuxeo.ecm.core.io.download;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -26,6 +27,9 @@ import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -34,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -66,7 +72,12 @@ import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.api.event.CoreEventConstants;
 import org.nuxeo.ecm.core.api.local.ClientLoginModule;
 import org.nuxeo.ecm.core.api.model.PropertyNotFoundException;
+import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.blob.BlobManager.UsageHint;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.blob.binary.BinaryManager;
+import org.nuxeo.ecm.core.blob.binary.CachingBinaryManager;
 import org.nuxeo.ecm.core.event.Event;
 import org.nuxeo.ecm.core.event.EventContext;
 import org.nuxeo.ecm.core.event.EventService;
@@ -91,6 +102,21 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     protected static final int DOWNLOAD_BUFFER_SIZE = 1024 * 512;
 
+    /**
+     * Max number of idle download buffers kept for reuse.
+     *
+     * @since 9.2
+     */
+    protected static final int DOWNLOAD_BUFFERS_POOL_SIZE = 16;
+
+    /**
+     * Buffers for file downloads, reused to avoid allocating a large buffer for each download.
+     *
+     * @since 9.2
+     */
+    protected static final BlockingQueue<ByteBuffer> DOWNLOAD_BUFFERS = new ArrayBlockingQueue<>(
+            DOWNLOAD_BUFFERS_POOL_SIZE);
+
     private static final String NUXEO_VIRTUAL_HOST = "nuxeo-virtual-host";
 
     private static final String VH_PARAM = "nuxeo.virtual.host";
@@ -492,6 +518,9 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
             // regular processing
 
+            // the content will be read, start fetching it while the headers are computed and the download logged
+            prefetch(blob);
+
             if (StringUtils.isBlank(filename)) {
                 filename = StringUtils.defaultIfBlank(blob.getFilename(), "file");
             }
@@ -534,6 +563,29 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * Starts fetching the content of a blob into the cache of its binary manager, if it is a caching one with
+     * prefetch enabled.
+     *
+     * @since 9.2
+     */
+    protected void prefetch(Blob blob) {
+        if (!(blob instanceof ManagedBlob)) {
+            return;
+        }
+        BlobProvider blobProvider = Framework.getService(BlobManager.class).getBlobProvider(blob);
+        BinaryManager binaryManager = blobProvider == null ? null : blobProvider.getBinaryManager();
+        if (binaryManager instanceof CachingBinaryManager) {
+            String key = ((ManagedBlob) blob).getKey();
+            int colon = key.indexOf(':');
+            if (colon > 0) {
+                // if the key is in the "providerId:digest" format, keep only the real digest
+                key = key.substring(colon + 1);
+            }
+            ((CachingBinaryManager) binaryManager).prefetch(key);
+        }
+    }
+
     protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletResponse response)
             throws UncheckedIOException {
         transferBlobWithByteRange(blob, byteRange, () -> {
@@ -553,6 +605,12 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
     @Override
     public void transferBlobWithByteRange(Blob blob, ByteRange byteRange, Supplier<OutputStream> outputStreamSupplier)
             throws UncheckedIOException {
+        File file = blob.getFile();
+        if (file != null && file.isFile()) {
+            // local binaries, caching binary managers and file blobs: read only the requested bytes from the file
+            transferFileWithByteRange(file, byteRange, outputStreamSupplier);
+            return;
+        }
         try (InputStream in = blob.getStream()) {
             @SuppressWarnings("resource")
             OutputStream out = outputStreamSupplier.get(); // not ours to close
@@ -560,7 +618,68 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
             if (byteRange == null) {
                 IOUtils.copy(in, out);
             } else {
-                IOUtils.copyLarge(in, out, byteRange.getStart(), byteRange.getLength());
+                skip(in, byteRange.getStart());
+                IOUtils.copyLarge(in, out, 0, byteRange.getLength());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Skips bytes using the stream's own {@link InputStream#skip skip}, which seeks for file and seekable decrypting
+     * streams, then by reading if the stream stops skipping early.
+     *
+     * @since 9.2
+     */
+    protected static void skip(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                break;
+            }
+            n -= skipped;
+        }
+        if (n > 0) {
+            IOUtils.skipFully(in, n);
+        }
+    }
+
+    /**
+     * Copies the given byte range of a file into the supplied {@link OutputStream}.
+     * <p>
+     * The bytes are read with positional reads into pooled buffers, so that a range does not need the file to be read
+     * from its start.
+     *
+     * @since 9.2
+     */
+    protected void transferFileWithByteRange(File file, ByteRange byteRange,
+            Supplier<OutputStream> outputStreamSupplier) throws UncheckedIOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            @SuppressWarnings("resource")
+            OutputStream out = outputStreamSupplier.get(); // not ours to close
+            BufferingServletOutputStream.stopBuffering(out);
+            long size = channel.size();
+            long position = byteRange == null ? 0 : Math.min(byteRange.getStart(), size);
+            long count = byteRange == null ? size : Math.min(byteRange.getLength(), size - position);
+            ByteBuffer buffer = acquireBuffer();
+            try {
+                while (count > 0) {
+                    buffer.clear();
+                    if (count < buffer.capacity()) {
+                        buffer.limit((int) count);
+                    }
+                    int n = channel.read(buffer, position);
+                    if (n <= 0) {
+                        break; // truncated file
+                    }
+                    out.write(buffer.array(), 0, n);
+                    position += n;
+                    count -= n;
+                }
+            } finally {
+                releaseBuffer(buffer);
             }
             out.flush();
         } catch (IOException e) {
@@ -568,6 +687,15 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    protected static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = DOWNLOAD_BUFFERS.poll();
+        return buffer == null ? ByteBuffer.allocate(DOWNLOAD_BUFFER_SIZE) : buffer;
+    }
+
+    protected static void releaseBuffer(ByteBuffer buffer) {
+        DOWNLOAD_BUFFERS.offer(buffer);
+    }
+
     protected String fixXPath(String xpath) {
         // Hack for Flash Url wich doesn't support ':' char
         return xpath == null ? null : xpath.replace(';', ':');
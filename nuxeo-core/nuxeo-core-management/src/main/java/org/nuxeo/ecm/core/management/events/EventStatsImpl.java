@@ -18,22 +18,44 @@
  */
 package org.nuxeo.ecm.core.management.events;
 
+import java.util.concurrent.TimeUnit;
+
 import org.nuxeo.ecm.core.event.EventStats;
 import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 
 /**
+ * Event stats, also published as a timer per listener in the metrics registry:
+ * {@code nuxeo.events.listeners.<listener>.inline}, {@code .postcommit} or {@code .async}, so that slow listeners can
+ * be found in production.
+ *
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
  */
 public class EventStatsImpl implements EventStats {
 
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
     @Override
     public void logAsyncExec(EventListenerDescriptor desc, long delta) {
         EventStatsHolder.logAsyncExec(desc, delta);
+        updateTimer(desc, desc.getIsAsync() ? "async" : "postcommit", delta);
     }
 
     @Override
     public void logSyncExec(EventListenerDescriptor desc, long delta) {
         EventStatsHolder.logSyncExec(desc, delta);
+        updateTimer(desc, "inline", delta);
+    }
+
+    /**
+     * @since 9.2
+     */
+    protected void updateTimer(EventListenerDescriptor desc, String kind, long delta) {
+        registry.timer(MetricRegistry.name("nuxeo", "events", "listeners", desc.getName(), kind))
+                .update(delta, TimeUnit.MILLISECONDS);
     }
 
 }
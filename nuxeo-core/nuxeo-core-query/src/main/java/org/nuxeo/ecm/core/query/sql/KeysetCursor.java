@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.nuxeo.ecm.core.query.QueryParseException;
+
+/**
+ * Opaque cursor for keyset pagination, holding the ORDER BY values of the last document of a page.
+ * <p>
+ * The values are encoded in a compact typed binary form, then in URL-safe Base64, so that the cursor can be passed
+ * around by clients. Only strings, numbers, booleans and calendars are allowed, and decoding never instantiates
+ * arbitrary classes.
+ *
+ * @since 9.2
+ */
+public class KeysetCursor {
+
+    protected static final byte T_STRING = 1;
+
+    protected static final byte T_LONG = 2;
+
+    protected static final byte T_DOUBLE = 3;
+
+    protected static final byte T_BOOLEAN = 4;
+
+    protected static final byte T_CALENDAR = 5;
+
+    private KeysetCursor() {
+        // utility class
+    }
+
+    /**
+     * Encodes the ORDER BY values of a document into a cursor.
+     *
+     * @throws QueryParseException if a value is {@code null} or of an unsupported type
+     */
+    public static String encode(List<Serializable> values) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(values.size());
+            for (Serializable value : values) {
+                if (value instanceof String) {
+                    out.writeByte(T_STRING);
+                    out.writeUTF((String) value);
+                } else if (value instanceof Long || value instanceof Integer) {
+                    out.writeByte(T_LONG);
+                    out.writeLong(((Number) value).longValue());
+                } else if (value instanceof Double || value instanceof Float) {
+                    out.writeByte(T_DOUBLE);
+                    out.writeDouble(((Number) value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    out.writeByte(T_BOOLEAN);
+                    out.writeBoolean(((Boolean) value).booleanValue());
+                } else if (value instanceof Calendar) {
+                    Calendar cal = (Calendar) value;
+                    out.writeByte(T_CALENDAR);
+                    out.writeLong(cal.getTimeInMillis());
+                    out.writeUTF(cal.getTimeZone().getID());
+                } else if (value == null) {
+                    throw new QueryParseException("Cannot use keyset pagination on a null value");
+                } else {
+                    throw new QueryParseException(
+                            "Cannot use keyset pagination on a value of type: " + value.getClass().getName());
+                }
+            }
+        } catch (IOException e) {
+            throw new QueryParseException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(baos.toByteArray());
+    }
+
+    /**
+     * Decodes a cursor into the ORDER BY values it holds.
+     *
+     * @throws QueryParseException if the cursor is invalid
+     */
+    public static List<Serializable> decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new QueryParseException("Invalid cursor: " + cursor, e);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int size = in.readInt();
+            if (size <= 0 || size > bytes.length) {
+                throw new QueryParseException("Invalid cursor: " + cursor);
+            }
+            List<Serializable> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte tag = in.readByte();
+                switch (tag) {
+                case T_STRING:
+                    values.add(in.readUTF());
+                    break;
+                case T_LONG:
+                    values.add(Long.valueOf(in.readLong()));
+                    break;
+                case T_DOUBLE:
+                    values.add(Double.valueOf(in.readDouble()));
+                    break;
+                case T_BOOLEAN:
+                    values.add(Boolean.valueOf(in.readBoolean()));
+                    break;
+                case T_CALENDAR:
+                    long millis = in.readLong();
+                    Calendar cal = new GregorianCalendar(TimeZone.getTimeZone(in.readUTF()));
+                    cal.setTimeInMillis(millis);
+                    values.add(cal);
+                    break;
+                default:
+                    throw new QueryParseException("Invalid cursor: " + cursor);
+                }
+            }
+            if (in.available() != 0) {
+                throw new QueryParseException("Invalid cursor: " + cursor);
+            }
+            return values;
+        } catch (IOException e) {
+            throw new QueryParseException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.sql.model.DoubleLiteral;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
+import org.nuxeo.ecm.core.query.sql.model.OrderByList;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery.Transformer;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.core.query.sql.model.WhereClause;
+
+/**
+ * Transformer implementing keyset (seek) pagination.
+ * <p>
+ * The ORDER BY of the query is completed with {@code ecm:uuid} to make it total, and if the ORDER BY values of the
+ * last document of the previous page are known, a predicate is added to only match the documents that follow it. For
+ * {@code ORDER BY a, b} this is:
+ *
+ * <pre>
+ * a &gt;= :a AND (a &gt; :a OR (a = :a AND (b &gt; :b OR (b = :b AND ecm:uuid &gt; :uuid))))
+ * </pre>
+ *
+ * which, unlike a row value comparison, works for all backends and for mixed ASC/DESC orders, while the leading range
+ * still allows the use of an index on the first column. No OFFSET is needed, so the cost of fetching a page does not
+ * depend on its position.
+ *
+ * @since 9.2
+ */
+public class KeysetTransformer implements Transformer {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final List<Serializable> values;
+
+    /**
+     * Constructs a transformer for the page following the given ORDER BY values.
+     *
+     * @param values the ORDER BY values of the last document of the previous page (as returned by
+     *            {@link KeysetCursor#decode}), or {@code null} for the first page
+     */
+    public KeysetTransformer(List<Serializable> values) {
+        this.values = values;
+    }
+
+    /**
+     * Gets the ORDER BY list used for keyset pagination of a query, which is the one of the query completed with
+     * {@code ecm:uuid} if needed.
+     */
+    public static OrderByList getKeysetOrderBy(SQLQuery query) {
+        OrderByList orderBy = null;
+        boolean hasId = false;
+        if (query.orderBy != null) {
+            for (OrderByExpr expr : query.orderBy.elements) {
+                if (orderBy == null) {
+                    orderBy = new OrderByList(expr);
+                } else {
+                    orderBy.add(expr);
+                }
+                if (NXQL.ECM_UUID.equals(expr.reference.name)) {
+                    hasId = true;
+                    // following columns can never change the order
+                    break;
+                }
+            }
+        }
+        if (!hasId) {
+            OrderByExpr idExpr = new OrderByExpr(new Reference(NXQL.ECM_UUID), false);
+            if (orderBy == null) {
+                orderBy = new OrderByList(idExpr);
+            } else {
+                orderBy.add(idExpr);
+            }
+        }
+        return orderBy;
+    }
+
+    @Override
+    public SQLQuery transform(Principal principal, SQLQuery query) {
+        OrderByList orderBy = getKeysetOrderBy(query);
+        WhereClause where = query.where;
+        if (values != null) {
+            if (values.size() != orderBy.size()) {
+                throw new QueryParseException("Cursor does not match the ORDER BY clause: " + orderBy);
+            }
+            Predicate seek = getSeekPredicate(orderBy);
+            Predicate predicate;
+            if (where == null || where.predicate == null) {
+                predicate = seek;
+            } else {
+                predicate = new Predicate(where.predicate, Operator.AND, seek);
+            }
+            where = new WhereClause(predicate);
+        }
+        return new SQLQuery(query.select, query.from, where, query.groupBy, query.having, new OrderByClause(orderBy),
+                query.limit, query.offset);
+    }
+
+    protected Predicate getSeekPredicate(OrderByList orderBy) {
+        List<Literal> literals = new ArrayList<>(values.size());
+        for (Serializable value : values) {
+            literals.add(toLiteral(value));
+        }
+        // built from the last column up
+        Predicate predicate = null;
+        for (int i = orderBy.size() - 1; i >= 0; i--) {
+            OrderByExpr expr = orderBy.get(i);
+            Predicate after = new Predicate(expr.reference, expr.isDescending ? Operator.LT : Operator.GT,
+                    literals.get(i));
+            if (predicate == null) {
+                predicate = after;
+            } else {
+                Predicate same = new Predicate(expr.reference, Operator.EQ, literals.get(i));
+                predicate = new Predicate(after, Operator.OR, new Predicate(same, Operator.AND, predicate));
+            }
+        }
+        if (orderBy.size() > 1) {
+            // redundant range on the first column, to help the use of an index
+            OrderByExpr first = orderBy.get(0);
+            Predicate range = new Predicate(first.reference, first.isDescending ? Operator.LTEQ : Operator.GTEQ,
+                    literals.get(0));
+            predicate = new Predicate(range, Operator.AND, predicate);
+        }
+        return predicate;
+    }
+
+    protected static Literal toLiteral(Serializable value) {
+        if (value instanceof String) {
+            return new StringLiteral((String) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            return new IntegerLiteral(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            return new DoubleLiteral(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            // NXQL booleans are compared as 0/1
+            return new IntegerLiteral(((Boolean) value).booleanValue() ? 1L : 0L);
+        } else if (value instanceof Calendar) {
+            String date = DateLiteral.dateTimeFormatter.print(new DateTime(value));
+            return new DateLiteral(date, false);
+        } else if (value == null) {
+            throw new QueryParseException("Cannot use keyset pagination on a null value");
+        } else {
+            throw new QueryParseException(
+                    "Cannot use keyset pagination on a value of type: " + value.getClass().getName());
+        }
+    }
+
+}
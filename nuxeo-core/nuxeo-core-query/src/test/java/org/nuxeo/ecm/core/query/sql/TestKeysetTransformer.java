@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+public class TestKeysetTransformer {
+
+    @Test
+    public void testCursorRoundTrip() {
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        cal.setTimeInMillis(1234567890000L);
+        List<Serializable> values = Arrays.asList("foo", Long.valueOf(3), Double.valueOf(1.5), Boolean.TRUE, cal,
+                "id1");
+        List<Serializable> decoded = KeysetCursor.decode(KeysetCursor.encode(values));
+        assertEquals(values.subList(0, 4), decoded.subList(0, 4));
+        assertEquals(cal.getTimeInMillis(), ((Calendar) decoded.get(4)).getTimeInMillis());
+        assertEquals("id1", decoded.get(5));
+    }
+
+    @Test
+    public void testInvalidCursor() {
+        try {
+            KeysetCursor.decode("not a cursor!");
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+        try {
+            KeysetCursor.encode(Arrays.asList("foo", null));
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testFirstPage() {
+        SQLQuery query = SQLQueryParser.parse("SELECT * FROM Document ORDER BY dc:title DESC");
+        SQLQuery transformed = new KeysetTransformer(null).transform(null, query);
+        assertNull(transformed.where);
+        assertEquals("dc:title DESC, ecm:uuid", transformed.orderBy.elements.toString());
+    }
+
+    @Test
+    public void testNextPage() {
+        SQLQuery query = SQLQueryParser.parse("SELECT * FROM Document WHERE ecm:isProxy = 0 ORDER BY dc:title DESC");
+        List<Serializable> values = Arrays.asList("foo", "id1");
+        SQLQuery transformed = new KeysetTransformer(values).transform(null, query);
+        assertEquals("dc:title DESC, ecm:uuid", transformed.orderBy.elements.toString());
+        Expression where = transformed.where.predicate;
+        assertEquals(Operator.AND, where.operator);
+        assertEquals("ecm:isProxy = 0", where.lvalue.toString());
+        // dc:title <= 'foo' AND (dc:title < 'foo' OR (dc:title = 'foo' AND ecm:uuid > 'id1'))
+        Expression seek = (Expression) where.rvalue;
+        assertEquals(Operator.AND, seek.operator);
+        assertEquals("dc:title <= 'foo'", seek.lvalue.toString());
+        Expression or = (Expression) seek.rvalue;
+        assertEquals(Operator.OR, or.operator);
+        assertEquals("dc:title < 'foo'", or.lvalue.toString());
+        Expression and = (Expression) or.rvalue;
+        assertEquals(Operator.AND, and.operator);
+        assertEquals("dc:title = 'foo'", and.lvalue.toString());
+        assertEquals("ecm:uuid > 'id1'", and.rvalue.toString());
+    }
+
+    @Test
+    public void testCursorNotMatchingOrderBy() {
+        SQLQuery query = SQLQueryParser.parse("SELECT * FROM Document ORDER BY dc:title");
+        try {
+            new KeysetTransformer(Arrays.asList("id1")).transform(null, query);
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+    }
+
+}
@@ -23,6 +23,7 @@ import java.net.ConnectException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -41,6 +42,9 @@ import redis.clients.jedis.exceptions.JedisConnectionException;
  * Redis-based {@link BlockingQueue}.
  * <p>
  * It has unlimited capacity, so never blocks on {@link #put} and {@link #offer} always returns {@code true}.
+ * <p>
+ * When push is enabled on the {@link RedisWorkQueuing}, idle workers don't poll Redis periodically: they are woken up
+ * by its {@link RedisWorkDispatcher} for each work scheduled in the cluster.
  *
  * @since 5.8
  */
@@ -59,11 +63,23 @@ public class RedisBlockingQueue extends NuxeoBlockingQueue {
 
     private static final int REMOTE_POLL_INTERVAL_STDEV_MS = 200;
 
+    /**
+     * Poll interval in push mode, only needed to recover from a lost wake-up.
+     */
+    private static final int PUSH_POLL_INTERVAL_MS = 30 * 1000;
+
     protected final RedisWorkQueuing queuing;
 
     protected final Lock lock = new ReentrantLock();
     protected final Condition notEmpty = lock.newCondition();
 
+    /** Number of workers waiting for work, in push mode. */
+    protected final AtomicInteger waiting = new AtomicInteger();
+
+    /** Number of signals sent to {@link #notEmpty}, to detect the ones sent before a worker starts waiting. */
+    // @GuardedBy("lock")
+    protected long signalCount;
+
     public RedisBlockingQueue(String queueId, RedisWorkQueuing queuing) {
         super(queueId, queuing);
         this.queuing = queuing;
@@ -105,14 +121,47 @@ public class RedisBlockingQueue extends NuxeoBlockingQueue {
             if (timeUntil(end) == 0) {
                 return null;
             }
+            if (queuing.isPushEnabled()) {
+                awaitWakeUp(end);
+            } else {
+                lock.lock();
+                try {
+                    // wake up if our instance has submitted a new job or wait
+                    notEmpty.await(getRemotePollInterval(), TimeUnit.MILLISECONDS);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits to be woken up by the dispatcher or by our instance submitting a new job, in push mode.
+     * <p>
+     * The dispatcher is told about the waiting worker outside the lock, as this may need a round-trip to Redis, so
+     * the signals sent meanwhile are checked before waiting.
+     */
+    protected void awaitWakeUp(long end) throws InterruptedException {
+        long signals;
+        lock.lock();
+        try {
+            waiting.incrementAndGet();
+            signals = signalCount;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            queuing.workerWaiting(queueId);
             lock.lock();
             try {
-                // wake up if our instance has submitted a new job or wait
-                notEmpty.await(getRemotePollInterval(), TimeUnit.MILLISECONDS);
+                if (signalCount == signals) {
+                    notEmpty.await(Math.min(PUSH_POLL_INTERVAL_MS, timeUntil(end)), TimeUnit.MILLISECONDS);
+                }
             } finally {
                 lock.unlock();
             }
-
+        } finally {
+            waiting.decrementAndGet();
         }
     }
 
@@ -122,12 +171,37 @@ public class RedisBlockingQueue extends NuxeoBlockingQueue {
                 REMOTE_POLL_INTERVAL_STDEV_MS);
     }
 
+    /**
+     * Checks if some workers are waiting for work, in push mode.
+     *
+     * @since 9.2
+     */
+    protected boolean hasWaitingWorkers() {
+        return waiting.get() > 0;
+    }
+
+    /**
+     * Wakes up one of the workers waiting for work, in push mode.
+     *
+     * @since 9.2
+     */
+    protected void wakeUpWorker() {
+        lock.lock();
+        try {
+            signalCount++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public void putElement(Runnable r) {
         Work work = WorkHolder.getWork(r);
         lock.lock();
         try {
             queuing.workSetScheduled(queueId, work);
+            signalCount++;
             notEmpty.signal();
         } catch (IOException e) {
             log.error("Failed to add Work: " + work, e);
@@ -26,40 +26,153 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.cache.AbstractCache;
 import org.nuxeo.ecm.core.cache.CacheDescriptor;
+import org.nuxeo.ecm.core.cache.TwoTierCache;
+import org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper;
+import org.nuxeo.ecm.core.pubsub.PubSubService;
 import org.nuxeo.ecm.core.redis.RedisAdmin;
 import org.nuxeo.ecm.core.redis.RedisCallable;
 import org.nuxeo.ecm.core.redis.RedisExecutor;
 import org.nuxeo.runtime.api.Framework;
 
+import com.google.common.cache.CacheBuilder;
+
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 
 /**
  * Cache implementation on top of Redis
+ * <p>
+ * When the {@value #NEAR_CACHE_MAX_SIZE_OPTION} option is set, the deserialized values read from Redis are also kept
+ * in a bounded local tier, so that reads don't need a network round-trip. Writes and invalidations evict the entry
+ * from the local tier of all nodes through the {@link PubSubService}, and the local entries expire after
+ * {@value #NEAR_CACHE_TTL_OPTION} seconds whatever happens. As with the in-memory cache, values read from the local
+ * tier are shared between callers and must not be modified.
  *
  * @since 6.0
  */
-public class RedisCache extends AbstractCache {
+public class RedisCache extends AbstractCache implements TwoTierCache {
 
     protected static final String UTF_8 = "UTF-8";
 
     protected static final Log log = LogFactory.getLog(RedisCache.class);
 
+    /**
+     * Option for the maximum number of entries of the local tier. The local tier is disabled when 0, the default.
+     *
+     * @since 9.2
+     */
+    public static final String NEAR_CACHE_MAX_SIZE_OPTION = "nearCacheMaxSize";
+
+    /**
+     * Option for the time to live in seconds of the entries of the local tier, bounded by the cache ttl.
+     *
+     * @since 9.2
+     */
+    public static final String NEAR_CACHE_TTL_OPTION = "nearCacheTTL";
+
+    /** @since 9.2 */
+    public static final long DEFAULT_NEAR_CACHE_TTL = 60;
+
+    /** @since 9.2 */
+    protected static final String TOPIC_PREFIX = "cache:";
+
+    /** @since 9.2 */
+    protected static final byte DISCRIMINATOR_SEP = ':';
+
+    /** Invalidation message type for a list of keys. @since 9.2 */
+    protected static final byte INVALIDATE_KEYS = 'K';
+
+    /** Invalidation message type for all keys. @since 9.2 */
+    protected static final byte INVALIDATE_ALL = 'A';
+
     protected final RedisExecutor executor;
 
     protected final String namespace;
 
+    /** The local tier, or {@code null} if disabled. @since 9.2 */
+    protected final com.google.common.cache.Cache<String, Serializable> nearCache;
+
+    /**
+     * Incremented on each invalidation of the local tier, so that a value read from Redis concurrently with an
+     * invalidation is not kept.
+     *
+     * @since 9.2
+     */
+    protected final AtomicLong nearCacheGeneration = new AtomicLong();
+
+    /** @since 9.2 */
+    protected final LongAdder nearCacheHits = new LongAdder();
+
+    /** @since 9.2 */
+    protected String topic;
+
+    /** Distinguishes the messages sent by this instance. @since 9.2 */
+    protected byte[] discriminator;
+
+    /** @since 9.2 */
+    protected BiConsumer<String, byte[]> subscriber;
+
     public RedisCache(CacheDescriptor desc) {
         super(desc);
         executor = Framework.getService(RedisExecutor.class);
         namespace = Framework.getService(RedisAdmin.class).namespace("cache", name);
+        nearCache = newNearCache(desc);
+        if (nearCache != null) {
+            topic = TOPIC_PREFIX + name;
+            discriminator = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+            subscriber = this::subscriber;
+            Framework.getService(PubSubService.class).registerSubscriber(topic, subscriber);
+        }
+    }
+
+    /**
+     * Creates the local tier, or returns {@code null} if it is disabled.
+     *
+     * @since 9.2
+     */
+    protected com.google.common.cache.Cache<String, Serializable> newNearCache(CacheDescriptor desc) {
+        String maxSize = desc.options.get(NEAR_CACHE_MAX_SIZE_OPTION);
+        if (maxSize == null || Long.parseLong(maxSize) <= 0) {
+            return null;
+        }
+        String ttlOption = desc.options.get(NEAR_CACHE_TTL_OPTION);
+        long nearTTL = ttlOption == null ? DEFAULT_NEAR_CACHE_TTL : Long.parseLong(ttlOption);
+        // entries never outlive the Redis ones
+        nearTTL = Math.min(nearTTL, ttl * 60L);
+        return CacheBuilder.newBuilder()
+                           .maximumSize(Long.parseLong(maxSize))
+                           .expireAfterWrite(nearTTL, TimeUnit.SECONDS)
+                           .build();
+    }
+
+    @Override
+    public void stop() {
+        if (subscriber != null) {
+            Framework.getService(PubSubService.class).unregisterSubscriber(topic, subscriber);
+            subscriber = null;
+        }
     }
 
     protected String formatKey(String key) {
@@ -91,6 +204,32 @@ public class RedisCache extends AbstractCache {
 
     @Override
     public Serializable get(final String key) {
+        if (nearCache == null) {
+            return getRemote(key);
+        }
+        Serializable value = nearCache.getIfPresent(key);
+        if (value != null) {
+            nearCacheHits.increment();
+            return value;
+        }
+        long generation = nearCacheGeneration.get();
+        value = getRemote(key);
+        if (value != null && nearCacheGeneration.get() == generation) {
+            nearCache.put(key, value);
+            if (nearCacheGeneration.get() != generation) {
+                // invalidated while we were adding it
+                nearCache.invalidate(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Gets a value from Redis.
+     *
+     * @since 9.2
+     */
+    protected Serializable getRemote(final String key) {
         return executor.execute(new RedisCallable<Serializable>() {
             @Override
             public Serializable call(Jedis jedis) {
@@ -105,16 +244,82 @@ public class RedisCache extends AbstractCache {
 
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (nearCache == null) {
+            return getAllRemote(keys);
+        }
+        Map<String, Serializable> values = new HashMap<>(nearCache.getAllPresent(keys));
+        nearCacheHits.add(values.size());
+        if (values.size() == keys.size()) {
+            return values;
+        }
+        List<String> missing = new ArrayList<>(keys.size() - values.size());
+        for (String key : keys) {
+            if (!values.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        long generation = nearCacheGeneration.get();
+        Map<String, Serializable> remoteValues = getAllRemote(missing);
+        if (!remoteValues.isEmpty() && nearCacheGeneration.get() == generation) {
+            nearCache.putAll(remoteValues);
+            if (nearCacheGeneration.get() != generation) {
+                // invalidated while we were adding them
+                nearCache.invalidateAll(remoteValues.keySet());
+            }
+        }
+        values.putAll(remoteValues);
+        return values;
+    }
+
+    /**
+     * Gets several values from Redis in a single MGET.
+     *
+     * @since 9.2
+     */
+    protected Map<String, Serializable> getAllRemote(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        byte[][] bkeys = new byte[keyList.size()][];
+        for (int i = 0; i < bkeys.length; i++) {
+            bkeys[i] = bytes(formatKey(keyList.get(i)));
+        }
+        List<byte[]> bvalues = executor.execute(jedis -> jedis.mget(bkeys));
+        Map<String, Serializable> values = new HashMap<>();
+        for (int i = 0; i < bkeys.length; i++) {
+            try {
+                Serializable value = deserializeValue(bvalues.get(i));
+                if (value != null) {
+                    values.put(keyList.get(i), value);
+                }
+            } catch (IOException e) {
+                log.error(e);
+            }
+        }
+        return values;
+    }
+
     @Override
     public Set<String> keySet() {
         return executor.execute(new RedisCallable<Set<String>>() {
             @Override
             public Set<String> call(Jedis jedis) {
+                // SCAN instead of KEYS, which blocks the server while it walks the whole keyspace
                 int offset = namespace.length();
-                return jedis.keys(formatKey("*"))
-                            .stream()
-                            .map(key -> key.substring(offset))
-                            .collect(Collectors.toSet());
+                Set<String> keys = new HashSet<>();
+                ScanParams params = new ScanParams().match(formatKey("*")).count(1000);
+                String cursor = ScanParams.SCAN_POINTER_START;
+                do {
+                    ScanResult<String> result = jedis.scan(cursor, params);
+                    for (String key : result.getResult()) {
+                        keys.add(key.substring(offset));
+                    }
+                    cursor = result.getStringCursor();
+                } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+                return keys;
             }
         });
     }
@@ -137,11 +342,23 @@ public class RedisCache extends AbstractCache {
                 return null;
             }
         });
+        invalidateNearCache(Collections.singleton(key));
     }
 
     @Override
     public void invalidateAll() {
         Framework.getService(RedisAdmin.class).clear(formatKey("*"));
+        invalidateNearCache(null);
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        String[] rkeys = keys.stream().map(this::formatKey).toArray(String[]::new);
+        executor.execute(jedis -> jedis.del(rkeys));
+        invalidateNearCache(keys);
     }
 
     @Override
@@ -161,10 +378,38 @@ public class RedisCache extends AbstractCache {
                 }
             }
         });
+        // the new value is read back from Redis on next get, so that the caller keeps its own instance
+        invalidateNearCache(Collections.singleton(key));
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        executor.execute(new RedisCallable<Void>() {
+            @Override
+            public Void call(Jedis jedis) {
+                try {
+                    Pipeline pipeline = jedis.pipelined();
+                    for (Map.Entry<String, Serializable> es : values.entrySet()) {
+                        pipeline.setex(bytes(formatKey(es.getKey())), ttl * 60, serializeValue(es.getValue()));
+                    }
+                    pipeline.sync();
+                    return null;
+                } catch (IOException e) {
+                    throw new NuxeoException(e);
+                }
+            }
+        });
+        invalidateNearCache(values.keySet());
     }
 
     @Override
     public boolean hasEntry(final String key) {
+        if (nearCache != null && nearCache.getIfPresent(key) != null) {
+            return true;
+        }
         return executor.<Boolean>execute(new RedisCallable<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
@@ -181,4 +426,111 @@ public class RedisCache extends AbstractCache {
     public long getSize() {
         return -1L;
     }
+
+    @Override
+    public long getLocalHitCount() {
+        return nearCacheHits.sum();
+    }
+
+    @Override
+    public long getLocalSize() {
+        return nearCache == null ? 0 : nearCache.size();
+    }
+
+    /**
+     * Invalidates keys, or all keys if {@code null}, from the local tier of this node and of the other nodes.
+     *
+     * @since 9.2
+     */
+    protected void invalidateNearCache(Collection<String> keys) {
+        if (nearCache == null) {
+            return;
+        }
+        invalidateLocal(keys);
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        try {
+            baout.write(discriminator);
+            baout.write(DISCRIMINATOR_SEP);
+            if (keys == null) {
+                baout.write(INVALIDATE_ALL);
+            } else {
+                baout.write(INVALIDATE_KEYS);
+                for (String key : keys) {
+                    BinaryInvalidationsHelper.writeString(baout, key);
+                }
+            }
+        } catch (IOException e) {
+            // cannot happen, ByteArrayOutputStream.write doesn't throw
+            throw new NuxeoException(e);
+        }
+        Framework.getService(PubSubService.class).publish(topic, baout.toByteArray());
+    }
+
+    /**
+     * Invalidates keys, or all keys if {@code null}, from the local tier of this node.
+     *
+     * @since 9.2
+     */
+    protected void invalidateLocal(Collection<String> keys) {
+        nearCacheGeneration.incrementAndGet();
+        if (keys == null) {
+            nearCache.invalidateAll();
+        } else {
+            nearCache.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * PubSubService subscriber, called from a separate thread.
+     *
+     * @since 9.2
+     */
+    protected void subscriber(String topic, byte[] message) {
+        int sep = indexOf(message, DISCRIMINATOR_SEP);
+        if (sep < 0 || sep + 2 > message.length) {
+            log.error("Invalid cache invalidation message on topic: " + topic);
+            return;
+        }
+        if (sep == discriminator.length && startsWith(message, discriminator)) {
+            // sent by this instance, already invalidated locally
+            return;
+        }
+        byte type = message[sep + 1];
+        if (type == INVALIDATE_ALL) {
+            invalidateLocal(null);
+        } else if (type == INVALIDATE_KEYS) {
+            InputStream in = new ByteArrayInputStream(message, sep + 2, message.length - sep - 2);
+            List<String> keys = new ArrayList<>();
+            try {
+                while (in.available() > 0) {
+                    keys.add(BinaryInvalidationsHelper.readString(in));
+                }
+            } catch (IOException e) {
+                log.error("Invalid cache invalidation message on topic: " + topic, e);
+                // still invalidate what could be read
+            }
+            invalidateLocal(keys);
+        } else {
+            log.error("Invalid cache invalidation message type: " + type + " on topic: " + topic);
+        }
+    }
+
+    protected static int indexOf(byte[] bytes, byte b) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected static boolean startsWith(byte[] bytes, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
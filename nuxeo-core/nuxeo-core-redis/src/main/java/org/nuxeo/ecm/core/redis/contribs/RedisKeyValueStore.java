@@ -22,9 +22,12 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,6 +37,8 @@ import org.nuxeo.ecm.core.redis.RedisExecutor;
 import org.nuxeo.ecm.core.storage.kv.KeyValueStoreProvider;
 import org.nuxeo.runtime.api.Framework;
 
+import redis.clients.jedis.exceptions.JedisDataException;
+
 /**
  * Redis implementation of a Key/Value Store Provider.
  * <p>
@@ -42,6 +47,8 @@ import org.nuxeo.runtime.api.Framework;
  * <li>namespace: the Redis namespace to use for keys (in addition to the global Redis namespace configured in the Redis
  * service).
  * </ul>
+ * <p>
+ * TTLs, batch reads and counters map directly to the Redis SETEX/PEXPIRE, MGET and INCRBY commands.
  *
  * @since 9.1
  */
@@ -93,24 +100,76 @@ public class RedisKeyValueStore implements KeyValueStoreProvider {
 
     @Override
     public void put(String key, byte[] value) {
+        put(key, value, 0);
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttl) {
+        checkTTL(ttl);
         RedisExecutor redisExecutor = Framework.getService(RedisExecutor.class);
         redisExecutor.execute(jedis -> {
             byte[] keyb = getBytes(namespace + key);
             if (value == null) {
                 jedis.del(keyb);
-            } else {
+            } else if (ttl == 0) {
                 jedis.set(keyb, value);
+            } else {
+                jedis.setex(keyb, (int) ttl, value);
             }
             return null;
         });
     }
 
+    @Override
+    public boolean setTTL(String key, long ttl) {
+        checkTTL(ttl);
+        RedisExecutor redisExecutor = Framework.getService(RedisExecutor.class);
+        return redisExecutor.execute(jedis -> {
+            byte[] keyb = getBytes(namespace + key);
+            if (ttl == 0) {
+                // PERSIST returns 0 both for a missing key and for a key without TTL
+                jedis.persist(keyb);
+                return jedis.exists(keyb);
+            } else {
+                return Boolean.valueOf(ONE.equals(jedis.pexpire(keyb, TimeUnit.SECONDS.toMillis(ttl))));
+            }
+        }).booleanValue();
+    }
+
+    protected static void checkTTL(long ttl) {
+        if (ttl < 0 || ttl > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid TTL: " + ttl);
+        }
+    }
+
     @Override
     public byte[] get(String key) {
         RedisExecutor redisExecutor = Framework.getService(RedisExecutor.class);
         return redisExecutor.execute(jedis -> jedis.get(getBytes(namespace + key)));
     }
 
+    @Override
+    public Map<String, byte[]> get(Collection<String> keys) {
+        Map<String, byte[]> values = new HashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        String[] keyArray = keys.toArray(new String[keys.size()]);
+        byte[][] keybs = new byte[keyArray.length][];
+        for (int i = 0; i < keyArray.length; i++) {
+            keybs[i] = getBytes(namespace + keyArray[i]);
+        }
+        RedisExecutor redisExecutor = Framework.getService(RedisExecutor.class);
+        List<byte[]> result = redisExecutor.execute(jedis -> jedis.mget(keybs));
+        for (int i = 0; i < keyArray.length; i++) {
+            byte[] value = result.get(i);
+            if (value != null) {
+                values.put(keyArray[i], value);
+            }
+        }
+        return values;
+    }
+
     @Override
     public boolean compareAndSet(String key, byte[] expected, byte[] value) {
         if (expected == null && value == null) {
@@ -135,4 +194,15 @@ public class RedisKeyValueStore implements KeyValueStoreProvider {
         }
     }
 
+    @Override
+    public long addAndGet(String key, long delta) throws NumberFormatException {
+        RedisExecutor redisExecutor = Framework.getService(RedisExecutor.class);
+        try {
+            return redisExecutor.execute(jedis -> jedis.incrBy(getBytes(namespace + key), delta)).longValue();
+        } catch (JedisDataException e) {
+            // value is not an integer or out of range
+            throw new NumberFormatException(e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,251 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.redis.contribs;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.redis.RedisAdmin;
+import org.nuxeo.ecm.core.redis.RedisExecutor;
+import org.nuxeo.ecm.core.redis.RedisPoolDescriptor;
+import org.nuxeo.runtime.api.Framework;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Dispatcher of the scheduled Work instances to the idle workers of a {@link RedisWorkQueuing}, used when push is
+ * enabled.
+ * <p>
+ * A single thread blocks in a multi-key BLPOP on the wake-up lists of the queues having idle workers, and wakes up one
+ * worker of the queue for each wake-up token popped. The blocking pop is done on a dedicated connection, so that it
+ * doesn't hold one of the pooled connections. The work itself is still popped atomically by the usual script.
+ * <p>
+ * The thread stops when no worker has been idle for a while, and is started again by the next idle worker.
+ *
+ * @since 9.2
+ */
+public class RedisWorkDispatcher {
+
+    private static final Log log = LogFactory.getLog(RedisWorkDispatcher.class);
+
+    private static AtomicLong LAST_EXCEPTION = new AtomicLong(0);
+
+    /** Timeout of the blocking pop. */
+    protected static final int BLOCK_TIMEOUT_S = 10;
+
+    /** Idle delay after which the dispatcher thread stops, until workers need it again. */
+    protected static final long IDLE_TIMEOUT_MS = 60 * 1000;
+
+    /** Delay before retrying after a Redis error. */
+    protected static final long ERROR_DELAY_MS = 1000;
+
+    protected final RedisWorkQueuing queuing;
+
+    /**
+     * Private wake-up list of this dispatcher, used to interrupt the blocking pop when a queue not yet listened to gets
+     * idle workers.
+     */
+    protected final byte[] interruptKey;
+
+    protected final Lock lock = new ReentrantLock();
+
+    /** Signaled when a worker starts waiting for work. */
+    protected final Condition idle = lock.newCondition();
+
+    /** Dispatcher thread, guarded by {@link #lock}. */
+    protected Thread thread;
+
+    /** Ids of the queues listened to by the current blocking pop, guarded by {@link #lock}. */
+    protected List<String> listened;
+
+    /** Dedicated connection, only used by the dispatcher thread. */
+    protected Jedis jedis;
+
+    public RedisWorkDispatcher(RedisWorkQueuing queuing) {
+        this.queuing = queuing;
+        interruptKey = queuing.wakeupKey(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Called by a worker of the given queue when it starts waiting for work.
+     * <p>
+     * Starts the dispatcher thread if needed, and makes sure that the queue is listened to.
+     *
+     * @param queueId the queue id
+     */
+    public void workerWaiting(String queueId) {
+        boolean interrupt;
+        lock.lock();
+        try {
+            if (thread == null) {
+                thread = new Thread(this::run, "Nuxeo-Work-Dispatcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            idle.signal();
+            interrupt = listened != null && !listened.contains(queueId);
+        } finally {
+            lock.unlock();
+        }
+        if (interrupt) {
+            try {
+                Framework.getService(RedisExecutor.class).execute(
+                        jedis -> jedis.lpush(interruptKey, RedisWorkQueuing.WAKEUP));
+            } catch (JedisException e) {
+                // the queue will be listened to at the next blocking pop
+                log.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    protected void run() {
+        try {
+            List<String> queueIds;
+            while ((queueIds = awaitWaitingQueues()) != null) {
+                try {
+                    dispatch(queueIds);
+                } catch (JedisException e) {
+                    if (RedisBlockingQueue.delayExpired(LAST_EXCEPTION)) {
+                        log.error(e.getMessage(), e);
+                    }
+                    disconnect();
+                    Thread.sleep(ERROR_DELAY_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            disconnect();
+            lock.lock();
+            try {
+                if (thread == Thread.currentThread()) {
+                    thread = null;
+                    listened = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until some queues have idle workers.
+     *
+     * @return the ids of the queues having idle workers, or {@code null} if no worker was idle for a while and the
+     *         dispatcher should stop
+     */
+    protected List<String> awaitWaitingQueues() throws InterruptedException {
+        lock.lock();
+        try {
+            // don't consume wake-ups that other nodes could use if nobody is waiting here
+            long idleEnd = System.currentTimeMillis() + IDLE_TIMEOUT_MS;
+            for (;;) {
+                List<String> queueIds = queuing.getWaitingQueueIds();
+                if (!queueIds.isEmpty()) {
+                    listened = queueIds;
+                    return queueIds;
+                }
+                long delay = idleEnd - System.currentTimeMillis();
+                if (delay <= 0) {
+                    // under the lock, so that a new idle worker will start a new dispatcher
+                    thread = null;
+                    listened = null;
+                    return null;
+                }
+                idle.await(delay, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a wake-up token is popped from one of the queues, and wakes up one of its workers.
+     */
+    protected void dispatch(List<String> queueIds) {
+        if (jedis == null) {
+            jedis = connect();
+        }
+        byte[][] keys = new byte[queueIds.size() + 1][];
+        for (int i = 0; i < queueIds.size(); i++) {
+            keys[i] = queuing.wakeupKey(queueIds.get(i));
+        }
+        keys[queueIds.size()] = interruptKey;
+        List<byte[]> result = jedis.blpop(BLOCK_TIMEOUT_S, keys);
+        if (result == null || result.isEmpty()) {
+            return;
+        }
+        byte[] key = result.get(0);
+        for (int i = 0; i < queueIds.size(); i++) {
+            if (Arrays.equals(keys[i], key)) {
+                queuing.wakeUpWorker(queueIds.get(i));
+                return;
+            }
+        }
+        // interrupted, listen to the new queues
+    }
+
+    /**
+     * Opens a dedicated connection to the server currently used by the pool.
+     */
+    protected Jedis connect() {
+        // ask the pool, so that a sentinel failover is followed
+        HostAndPort server = Framework.getService(RedisExecutor.class).execute(
+                jedis -> new HostAndPort(jedis.getClient().getHost(), jedis.getClient().getPort()));
+        RedisPoolDescriptor config = Framework.getService(RedisAdmin.class).getConfig();
+        Jedis connection = new Jedis(server.getHost(), server.getPort(), config.timeout);
+        try {
+            if (config.password != null) {
+                connection.auth(config.password);
+            }
+            if (config.database != Protocol.DEFAULT_DATABASE) {
+                connection.select(config.database);
+            }
+        } catch (JedisException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    protected void disconnect() {
+        if (jedis == null) {
+            return;
+        }
+        try {
+            jedis.close();
+        } catch (JedisException e) {
+            log.debug(e.getMessage(), e);
+        } finally {
+            jedis = null;
+        }
+    }
+
+}
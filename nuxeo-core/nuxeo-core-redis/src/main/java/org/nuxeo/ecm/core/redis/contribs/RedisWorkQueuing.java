@@ -18,23 +18,20 @@
  */
 package org.nuxeo.ecm.core.redis.contribs;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.NuxeoException;
@@ -42,10 +39,13 @@ import org.nuxeo.ecm.core.redis.RedisAdmin;
 import org.nuxeo.ecm.core.redis.RedisCallable;
 import org.nuxeo.ecm.core.redis.RedisExecutor;
 import org.nuxeo.ecm.core.work.NuxeoBlockingQueue;
+import org.nuxeo.ecm.core.work.WorkCodecRegistry;
 import org.nuxeo.ecm.core.work.WorkHolder;
+import org.nuxeo.ecm.core.work.WorkManagerImpl;
 import org.nuxeo.ecm.core.work.WorkQueuing;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
 import org.nuxeo.runtime.api.Framework;
@@ -120,6 +120,34 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected static final String KEY_COUNT_PREFIX = "count";
 
+    /**
+     * Per-queue bounded list of wake-up tokens, one pushed for each Work instance id added to the scheduled queue.
+     *
+     * @since 9.2
+     */
+    protected static final String KEY_WAKEUP_PREFIX = "wake";
+
+    /**
+     * Framework property enabling the push-based dispatch of scheduled Work instances: idle workers are woken up by a
+     * blocking pop on the wake-up list instead of polling Redis periodically.
+     * <p>
+     * Wake-up tokens are only sent by nodes having push enabled, so it should be enabled on all the nodes of a cluster.
+     *
+     * @since 9.2
+     */
+    public static final String PUSH_ENABLED_PROP = "nuxeo.work.redis.push.enabled";
+
+    /**
+     * Framework property to store the works using Java serialization only, which previous versions can read, instead
+     * of their {@link org.nuxeo.ecm.core.work.api.WorkCodec WorkCodec}. Default is false.
+     * <p>
+     * During a rolling upgrade, it must be set on the upgraded nodes until all the nodes of the cluster are upgraded,
+     * as the queues are shared. Both formats are always read.
+     *
+     * @since 9.2
+     */
+    public static final String LEGACY_FORMAT_PROP = "nuxeo.work.redis.legacy.format";
+
     protected static final byte STATE_SCHEDULED_B = 'Q';
 
     protected static final byte STATE_RUNNING_B = 'R';
@@ -132,12 +160,25 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected static final byte[] STATE_UNKNOWN = new byte[0];
 
+    protected static final byte[] WAKEUP = new byte[] { '1' };
+
+    /** Maximum size of the wake-up lists, also enforced by the Lua scripts. */
+    protected static final int MAX_WAKEUPS = 1000;
+
     protected Listener listener;
 
-    protected final Map<String, NuxeoBlockingQueue> allQueued = new HashMap<>();
+    protected final Map<String, NuxeoBlockingQueue> allQueued = new ConcurrentHashMap<>();
 
     protected String redisNamespace;
 
+    protected boolean pushEnabled;
+
+    protected boolean legacyFormat;
+
+    protected RedisWorkDispatcher dispatcher;
+
+    protected WorkCodecRegistry workCodecRegistry;
+
     // lua scripts
     protected byte[] initWorkQueueSha;
 
@@ -163,6 +204,11 @@ public class RedisWorkQueuing implements WorkQueuing {
     void loadConfig() {
         RedisAdmin admin = Framework.getService(RedisAdmin.class);
         redisNamespace = admin.namespace("work");
+        pushEnabled = Framework.isBooleanPropertyTrue(PUSH_ENABLED_PROP);
+        legacyFormat = Framework.isBooleanPropertyTrue(LEGACY_FORMAT_PROP);
+        if (pushEnabled) {
+            dispatcher = new RedisWorkDispatcher(this);
+        }
         try {
             initWorkQueueSha = admin.load("org.nuxeo.ecm.core.redis", "init-work-queue")
                     .getBytes();
@@ -437,6 +483,10 @@ public class RedisWorkQueuing implements WorkQueuing {
         return keyBytes(key(KEY_CANCELED_PREFIX, queueId));
     }
 
+    protected byte[] wakeupKey(String queueId) {
+        return keyBytes(key(KEY_WAKEUP_PREFIX, queueId));
+    }
+
     protected byte[] stateKey() {
         return keyBytes(KEY_STATE);
     }
@@ -445,22 +495,37 @@ public class RedisWorkQueuing implements WorkQueuing {
         return keyBytes(KEY_DATA);
     }
 
+    /**
+     * Gets the registry of the work codecs, used to serialize the works stored in Redis.
+     *
+     * @since 9.2
+     */
+    protected WorkCodecRegistry getWorkCodecRegistry() {
+        if (workCodecRegistry == null) {
+            WorkManager workManager = Framework.getService(WorkManager.class);
+            workCodecRegistry = workManager instanceof WorkManagerImpl
+                    ? ((WorkManagerImpl) workManager).getWorkCodecRegistry() : new WorkCodecRegistry();
+        }
+        return workCodecRegistry;
+    }
+
     protected byte[] serializeWork(Work work) throws IOException {
-        ByteArrayOutputStream baout = new ByteArrayOutputStream();
-        ObjectOutputStream out = new ObjectOutputStream(baout);
-        out.writeObject(work);
-        out.flush();
-        out.close();
-        return baout.toByteArray();
+        if (legacyFormat) {
+            ByteArrayOutputStream baout = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(baout)) {
+                out.writeObject(work);
+            }
+            return baout.toByteArray();
+        }
+        return getWorkCodecRegistry().serialize(work);
     }
 
     protected Work deserializeWork(byte[] workBytes) {
         if (workBytes == null) {
             return null;
         }
-        InputStream bain = new ByteArrayInputStream(workBytes);
-        try (ObjectInputStream in = new ObjectInputStream(bain)) {
-            return (Work) in.readObject();
+        try {
+            return getWorkCodecRegistry().deserialize(workBytes);
         } catch (RuntimeException cause) {
             throw cause;
         } catch (IOException | ClassNotFoundException cause) {
@@ -527,6 +592,12 @@ public class RedisWorkQueuing implements WorkQueuing {
                 for (int n = 0;; n++) {
                     byte[] workIdBytes = jedis.rpoplpush(suspendedKey(queueId), queuedKey(queueId));
                     if (workIdBytes == null) {
+                        if (n > 0 && pushEnabled) {
+                            byte[][] wakeups = new byte[Math.min(n, MAX_WAKEUPS)][];
+                            Arrays.fill(wakeups, WAKEUP);
+                            jedis.lpush(wakeupKey(queueId), wakeups);
+                            jedis.ltrim(wakeupKey(queueId), 0, MAX_WAKEUPS - 1);
+                        }
                         return Integer.valueOf(n);
                     }
                 }
@@ -611,14 +682,19 @@ public class RedisWorkQueuing implements WorkQueuing {
     }
 
     protected List<byte[]> keys(String queueid) {
-        return Arrays.asList(dataKey(),
+        List<byte[]> keys = new ArrayList<>(Arrays.asList(dataKey(),
                 stateKey(),
                 countKey(queueid),
                 scheduledKey(queueid),
                 queuedKey(queueid),
                 runningKey(queueid),
                 completedKey(queueid),
-                canceledKey(queueid));
+                canceledKey(queueid)));
+        if (pushEnabled) {
+            // the scripts only push wake-up tokens when given the key
+            keys.add(wakeupKey(queueid));
+        }
+        return keys;
     }
 
     protected List<byte[]> args(String workId) throws IOException {
@@ -785,6 +861,48 @@ public class RedisWorkQueuing implements WorkQueuing {
         return work;
     }
 
+    /**
+     * Checks if scheduled work instances are pushed to blocked dispatchers.
+     *
+     * @since 9.2
+     */
+    public boolean isPushEnabled() {
+        return pushEnabled;
+    }
+
+    /**
+     * Called by a worker of the given queue when it starts waiting for work, in push mode.
+     *
+     * @since 9.2
+     */
+    protected void workerWaiting(String queueId) {
+        dispatcher.workerWaiting(queueId);
+    }
+
+    /**
+     * Gets the ids of the queues having workers waiting for work, in push mode.
+     *
+     * @since 9.2
+     */
+    protected List<String> getWaitingQueueIds() {
+        List<String> queueIds = new ArrayList<>();
+        for (Map.Entry<String, NuxeoBlockingQueue> es : allQueued.entrySet()) {
+            if (((RedisBlockingQueue) es.getValue()).hasWaitingWorkers()) {
+                queueIds.add(es.getKey());
+            }
+        }
+        return queueIds;
+    }
+
+    /**
+     * Wakes up one of the workers waiting for work in the given queue, in push mode.
+     *
+     * @since 9.2
+     */
+    protected void wakeUpWorker(String queueId) {
+        ((RedisBlockingQueue) allQueued.get(queueId)).wakeUpWorker();
+    }
+
     /**
      * Removes a given work from queue, move the work from scheduled to completed set.
      *
@@ -6,6 +6,7 @@ local queuedKey = KEYS[5]
 local runningKey = KEYS[6]
 local completedKey = KEYS[7]
 local canceledKey = KEYS[8]
+local wakeupKey = KEYS[9]
 
 
 local id = ARGV[1]
@@ -25,6 +26,11 @@ redis.call('SADD', scheduledKey, id)
 redis.call('HSET', stateKey, id, state)
 redis.call('HSET', dataKey, id, data)
 redis.call('LPUSH', queuedKey, id)
+-- wake up a blocked dispatcher when push is enabled, the list is bounded as nobody may be listening
+if wakeupKey then
+    redis.call('LPUSH', wakeupKey, 1)
+    redis.call('LTRIM', wakeupKey, 0, 999)
+end
 
 return { 
     redis.call('HINCRBY', countKey, scheduledKey, 1), 
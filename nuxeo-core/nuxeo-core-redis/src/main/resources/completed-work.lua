@@ -11,6 +11,7 @@ local queuedKey = KEYS[5]
 local runningKey = KEYS[6]
 local completedKey = KEYS[7]
 local canceledKey = KEYS[8]
+local wakeupKey = KEYS[9]
 
 
 local workId = ARGV[1]
@@ -24,6 +25,10 @@ local isscheduled = redis.call('SISMEMBER', scheduledKey, workId)
 if not isscheduled or isscheduled == 0 then
     redis.call('HDEL', stateKey, workId)
     redis.call('HDEL', dataKey, workId)
+elseif wakeupKey then
+    -- rescheduled while running, it could not be popped until now
+    redis.call('LPUSH', wakeupKey, 1)
+    redis.call('LTRIM', wakeupKey, 0, 999)
 end
 
 return { 
@@ -9,6 +9,7 @@ local queuedKey = KEYS[5]
 local runningKey = KEYS[6]
 local completedKey = KEYS[7]
 local canceledKey = KEYS[8]
+local wakeupKey = KEYS[9]
 
 
 local id = ARGV[1]
@@ -31,6 +32,11 @@ if not isrunning or isrunning == 0 then
 end
 
 redis.call('LPUSH', queuedKey, id)
+-- wake up a blocked dispatcher when push is enabled, the list is bounded as nobody may be listening
+if wakeupKey then
+    redis.call('LPUSH', wakeupKey, 1)
+    redis.call('LTRIM', wakeupKey, 0, 999)
+end
 
 return { 
     redis.call('HINCRBY', countKey, scheduledKey, 1), 
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.cache.CacheDescriptor;
+import org.nuxeo.ecm.core.cache.CacheMetrics;
+import org.nuxeo.ecm.core.redis.contribs.RedisCache;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Checks the local tier of {@link RedisCache}, with two instances of the same cache standing for two nodes.
+ *
+ * @since 9.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RedisFeature.class)
+public class TestRedisNearCache {
+
+    protected static final String NAME = "near-test-cache";
+
+    protected RedisCache cache1;
+
+    protected RedisCache cache2;
+
+    protected CacheMetrics metrics;
+
+    @Before
+    public void setUp() {
+        CacheDescriptor desc = new CacheDescriptor();
+        desc.name = NAME;
+        desc.options.put(RedisCache.NEAR_CACHE_MAX_SIZE_OPTION, "100");
+        cache1 = new RedisCache(desc);
+        cache2 = new RedisCache(desc);
+        metrics = new CacheMetrics(cache2);
+        cache1.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        metrics.stop();
+        cache1.stop();
+    }
+
+    @Test
+    public void testLocalTier() {
+        cache1.put("key", "val1");
+        assertEquals("val1", metrics.get("key"));
+        assertEquals(0, cache2.getLocalHitCount());
+        assertEquals(1, cache2.getLocalSize());
+        assertEquals("val1", metrics.get("key"));
+        assertEquals(1, cache2.getLocalHitCount());
+        assertTrue(metrics.hasEntry("key"));
+
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        String prefix = MetricRegistry.name("nuxeo", "cache", NAME);
+        assertEquals(Long.valueOf(1),
+                registry.getGauges().get(MetricRegistry.name(prefix, "read-hit-local-counter")).getValue());
+        assertEquals(Long.valueOf(1),
+                registry.getGauges().get(MetricRegistry.name(prefix, "read-hit-remote-counter")).getValue());
+    }
+
+    @Test
+    public void testInvalidationFromOtherNode() {
+        cache1.put("key", "val1");
+        cache1.put("other", "val");
+        assertEquals("val1", cache2.get("key"));
+        assertEquals("val", cache2.get("other"));
+        assertEquals(2, cache2.getLocalSize());
+
+        // update on the other node
+        cache1.put("key", "val2");
+        assertEquals(1, cache2.getLocalSize());
+        assertEquals("val2", cache2.get("key"));
+
+        // invalidation on the other node
+        cache1.invalidate("key");
+        assertNull(cache2.get("key"));
+        assertEquals("val", cache2.get("other"));
+
+        cache1.invalidateAll();
+        assertEquals(0, cache2.getLocalSize());
+        assertNull(cache2.get("other"));
+    }
+
+    @Test
+    public void testBulk() {
+        Map<String, Serializable> values = new HashMap<>();
+        values.put("key1", "val1");
+        values.put("key2", "val2");
+        cache1.putAll(values);
+        assertEquals(values, cache2.getAll(Arrays.asList("key1", "key2", "key3")));
+        assertEquals(0, cache2.getLocalHitCount());
+        assertEquals(values, cache2.getAll(Arrays.asList("key1", "key2", "key3")));
+        assertEquals(2, cache2.getLocalHitCount());
+
+        cache1.invalidateAll(Arrays.asList("key1"));
+        assertEquals(1, cache2.getLocalSize());
+        assertNull(cache2.get("key1"));
+    }
+
+    @Test
+    public void testLocalWrite() {
+        cache2.put("key", "val1");
+        assertEquals("val1", cache2.get("key"));
+        cache2.put("key", "val2");
+        assertEquals("val2", cache2.get("key"));
+        cache2.invalidate("key");
+        assertNull(cache2.get("key"));
+    }
+
+}
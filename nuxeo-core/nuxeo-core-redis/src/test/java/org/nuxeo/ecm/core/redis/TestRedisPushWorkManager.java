@@ -0,0 +1,63 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.redis.contribs.RedisWorkQueuing;
+import org.nuxeo.ecm.core.work.SleepWork;
+import org.nuxeo.ecm.core.work.WorkQueuing.Listener;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Test of the WorkManager using Redis with push-based dispatch of scheduled work.
+ *
+ * @since 9.2
+ */
+public class TestRedisPushWorkManager extends TestRedisWorkManager {
+
+    @Override
+    protected void doDeploy() throws Exception {
+        Framework.getProperties().setProperty(RedisWorkQueuing.PUSH_ENABLED_PROP, "true");
+        super.doDeploy();
+    }
+
+    @Test
+    public void testWakeUpOnRemoteScheduling() throws Exception {
+        deployAndStart();
+        // let the workers become idle and the dispatcher block
+        Thread.sleep(1000);
+
+        // schedule through another queuing instance, as another node would, so that no local worker is signaled
+        RedisWorkQueuing remote = new RedisWorkQueuing(Listener.lookupListener());
+        remote.workSetScheduled(QUEUE, new SleepWork(0, false, "remote"));
+
+        // much sooner than the poll done to recover from a lost wake-up
+        long end = System.currentTimeMillis() + 5000;
+        while (service.getMetrics(QUEUE).getCompleted().longValue() == 0) {
+            assertTrue("Idle worker not woken up", System.currentTimeMillis() < end);
+            Thread.sleep(100);
+        }
+        // the wake-up token was consumed
+        assertEquals(0, getWakeupCount(QUEUE));
+    }
+
+}
@@ -18,8 +18,16 @@
  */
 package org.nuxeo.ecm.core.redis;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Ignore;
 import org.junit.Test;
+import org.nuxeo.ecm.core.redis.contribs.RedisWorkQueuing;
+import org.nuxeo.ecm.core.work.SleepWork;
 import org.nuxeo.ecm.core.work.WorkManagerTest;
 import org.nuxeo.runtime.api.Framework;
 
@@ -56,6 +64,26 @@ public class TestRedisWorkManager extends WorkManagerTest {
         super.testWorkManagerWork();
     }
 
+    @Test
+    public void testNoWakeupWithoutPush() throws Exception {
+        deployAndStart();
+        assumeFalse(Framework.isBooleanPropertyTrue(RedisWorkQueuing.PUSH_ENABLED_PROP));
+
+        service.schedule(new SleepWork(0, false, "1"));
+        service.schedule(new SleepWork(0, false, "2"));
+        assertTrue(service.awaitCompletion(5, TimeUnit.SECONDS));
+        // nobody would consume the wake-up tokens
+        assertEquals(0, getWakeupCount(QUEUE));
+    }
+
+    /**
+     * Gets the number of wake-up tokens waiting to be consumed by the dispatchers of a queue.
+     */
+    protected long getWakeupCount(String queueId) {
+        String key = Framework.getService(RedisAdmin.class).namespace("work") + "wake:" + queueId;
+        return Framework.getService(RedisExecutor.class).execute(jedis -> jedis.llen(key)).longValue();
+    }
+
     private void stopMonitorRedis() {
         monitorRedis = false;
         if (redisExecutor != null) {
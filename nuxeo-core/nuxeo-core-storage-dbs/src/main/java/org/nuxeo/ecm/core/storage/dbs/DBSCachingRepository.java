@@ -219,6 +219,12 @@ public class DBSCachingRepository implements DBSRepository {
         invalidate(id);
     }
 
+    @Override
+    public void updateStates(Map<String, StateDiff> diffs, Map<String, ChangeTokenUpdater> changeTokenUpdaters) {
+        repository.updateStates(diffs, changeTokenUpdaters);
+        invalidateAll(diffs.keySet());
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         repository.deleteStates(ids);
@@ -18,10 +18,17 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readCount;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.writeVarint;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.BINARY;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.readId;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.writeId;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -134,6 +141,22 @@ public class DBSInvalidations implements SerializableInvalidations {
 
     @Override
     public void serialize(OutputStream out) throws IOException {
+        if (all) {
+            out.write(ALL_IDS);
+        } else if (ids != null) {
+            out.write(BINARY);
+            writeVarint(out, ids.size());
+            for (String id : ids) {
+                writeId(out, id);
+            }
+        }
+    }
+
+    /**
+     * Serializes this in the text format of previous versions, each id preceded by a comma.
+     */
+    @Override
+    public void serializeLegacy(OutputStream out) throws IOException {
         if (all) {
             out.write(ALL_IDS);
         } else if (ids != null) {
@@ -153,10 +176,22 @@ public class DBSInvalidations implements SerializableInvalidations {
         DBSInvalidations invalidations = new DBSInvalidations();
         if (first == ALL_IDS) {
             invalidations.setAll();
+        } else if (first == BINARY) {
+            int n = readCount(in);
+            invalidations.ids = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                Serializable id = readId(in);
+                if (!(id instanceof String)) {
+                    throw new IOException("Invalid id: " + id);
+                }
+                invalidations.ids.add((String) id);
+            }
+            invalidations.checkMaxSize();
         } else if (first != ID_SEP) {
             // invalid message
             return null;
         } else {
+            // text format from previous versions
             ByteArrayOutputStream baout = new ByteArrayOutputStream(36); // typical uuid size
             for (;;) {
                 int b = in.read(); // we read from a ByteArrayInputStream so one at a time is ok
@@ -129,6 +129,22 @@ public interface DBSRepository extends Repository, LockManager {
      */
     void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater);
 
+    /**
+     * Updates a set of documents.
+     * <p>
+     * The updates are applied in the iteration order of the map. Implementations should send them to the database in
+     * as few round-trips as possible.
+     *
+     * @param diffs the diffs to apply, keyed by document id
+     * @param changeTokenUpdaters how to get and update the change token of each document (may be {@code null}, or
+     *            have no entry for a given document)
+     * @since 9.2
+     */
+    default void updateStates(Map<String, StateDiff> diffs, Map<String, ChangeTokenUpdater> changeTokenUpdaters) {
+        diffs.forEach((id, diff) -> updateState(id, diff,
+                changeTokenUpdaters == null ? null : changeTokenUpdaters.get(id)));
+    }
+
     /**
      * Deletes a set of document.
      *
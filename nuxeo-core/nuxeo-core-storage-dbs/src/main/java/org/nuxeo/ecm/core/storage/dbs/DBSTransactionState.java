@@ -53,6 +53,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -100,6 +101,13 @@ public class DBSTransactionState {
 
     private static final String KEY_UNDOLOG_CREATE = "__UNDOLOG_CREATE__\0\0";
 
+    /**
+     * Maximum number of document updates sent to the repository at once on save.
+     *
+     * @since 9.2
+     */
+    protected static final int BULK_UPDATE_BATCH_SIZE = 1000;
+
     protected final DBSRepository repository;
 
     protected final DBSSession session;
@@ -387,9 +395,8 @@ public class DBSTransactionState {
         int nadd = ancestorIds.length;
         Set<String> ids = getSubTree(id, null, null);
         ids.add(id);
-        for (String cid : ids) {
-            // XXX TODO oneShot update, don't pollute transient space
-            DBSDocumentState docState = getStateForUpdate(cid);
+        // XXX TODO oneShot update, don't pollute transient space
+        for (DBSDocumentState docState : getStatesForUpdate(new ArrayList<>(ids))) {
             Object[] ancestors = (Object[]) docState.get(KEY_ANCESTOR_IDS);
             Object[] newAncestors;
             if (ancestors == null) {
@@ -410,6 +417,8 @@ public class DBSTransactionState {
         // versions too XXX TODO
         Set<String> ids = getSubTree(id, null, null);
         ids.add(id);
+        // fetch the whole tree at once, parents are then found in the transient space when computing read acls
+        getStatesForUpdate(new ArrayList<>(ids));
         ids.forEach(this::updateDocumentReadAcls);
     }
 
@@ -584,6 +593,10 @@ public class DBSTransactionState {
         if (!statesToCreate.isEmpty()) {
             repository.createStates(statesToCreate);
         }
+        // updates are sent in bulk, a subtree move or copy touches many documents
+        Map<String, StateDiff> diffs = new LinkedHashMap<>();
+        Map<String, ChangeTokenUpdater> changeTokenUpdaters = session.changeTokenEnabled ? new HashMap<>() : null;
+        List<DBSDocumentState> updated = new ArrayList<>();
         for (DBSDocumentState docState : transientStates.values()) {
             String id = docState.getId();
             if (transientCreated.contains(id)) {
@@ -597,20 +610,38 @@ public class DBSTransactionState {
                     }
                     // else there's already a create or an update in the undo log so original info is enough
                 }
-                ChangeTokenUpdater changeTokenUpdater;
-                if (session.changeTokenEnabled) {
-                    changeTokenUpdater = new ChangeTokenUpdater(docState);
-                } else {
-                    changeTokenUpdater = null;
+                if (changeTokenUpdaters != null) {
+                    changeTokenUpdaters.put(id, new ChangeTokenUpdater(docState));
                 }
-                repository.updateState(id, diff, changeTokenUpdater);
+                diffs.put(id, diff);
+            }
+            updated.add(docState);
+            if (diffs.size() >= BULK_UPDATE_BATCH_SIZE) {
+                updateStates(diffs, changeTokenUpdaters, updated);
             }
-            docState.setNotDirty();
         }
+        updateStates(diffs, changeTokenUpdaters, updated);
         transientCreated.clear();
         scheduleWork(works);
     }
 
+    /**
+     * Sends a batch of updates to the repository, then marks the updated states as not dirty.
+     */
+    protected void updateStates(Map<String, StateDiff> diffs, Map<String, ChangeTokenUpdater> changeTokenUpdaters,
+            List<DBSDocumentState> updated) {
+        if (!diffs.isEmpty()) {
+            repository.updateStates(diffs, changeTokenUpdaters);
+        }
+        // state must be marked not dirty only after the change token updates have been done
+        updated.forEach(DBSDocumentState::setNotDirty);
+        diffs.clear();
+        if (changeTokenUpdaters != null) {
+            changeTokenUpdaters.clear();
+        }
+        updated.clear();
+    }
+
     /**
      * Logic to get the conditions to use to match and update a change token.
      * <p>
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.storage.dbs;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -38,32 +39,68 @@ public class TestDBSInvalidations {
         DBSInvalidations invals;
         @SuppressWarnings("resource")
         ByteArrayOutputStream baout = new ByteArrayOutputStream();
-        String ser;
 
         invals = new DBSInvalidations();
         invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertEquals("", ser);
+        assertEquals(0, baout.size());
 
         invals = new DBSInvalidations();
         invals.add("foo");
         baout.reset();
         invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertEquals(",foo", ser);
+        assertEquals(Collections.singleton("foo"), roundTrip(invals).ids);
 
         invals.add("bar");
+        assertEquals(new HashSet<>(Arrays.asList("foo", "bar")), roundTrip(invals).ids);
+
+        // uuids are written as 16 bytes
+        String uuid = "0d8a3a5e-5f5b-4d3c-9a0e-7c1b2f8e9d10";
+        invals = new DBSInvalidations();
+        invals.add(uuid);
         baout.reset();
         invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertTrue(ser, Arrays.asList(",foo,bar", ",bar,foo").contains(ser)); // non-deterministic order
+        assertEquals(1 + 1 + 1 + 16, baout.size());
+        assertEquals(Collections.singleton(uuid), roundTrip(invals).ids);
+
+        // non-canonical uuids are kept as is
+        String upperUuid = uuid.toUpperCase();
+        invals = new DBSInvalidations();
+        invals.add(upperUuid);
+        assertEquals(Collections.singleton(upperUuid), roundTrip(invals).ids);
 
         invals = new DBSInvalidations();
         invals.setAll();
         baout.reset();
         invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertEquals("A", ser);
+        assertEquals("A", new String(baout.toByteArray()));
+    }
+
+    @Test
+    public void testSerializationLegacy() throws IOException {
+        // text format readable by previous versions
+        DBSInvalidations invals = new DBSInvalidations();
+        invals.add("0d8a3a5e-5f5b-4d3c-9a0e-7c1b2f8e9d10");
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serializeLegacy(baout);
+        assertEquals(",0d8a3a5e-5f5b-4d3c-9a0e-7c1b2f8e9d10", new String(baout.toByteArray()));
+        invals.add("foo");
+        baout.reset();
+        invals.serializeLegacy(baout);
+        assertEquals(invals.ids, DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray())).ids);
+
+        invals = new DBSInvalidations();
+        invals.setAll();
+        baout.reset();
+        invals.serializeLegacy(baout);
+        assertEquals("A", new String(baout.toByteArray()));
+    }
+
+    protected DBSInvalidations roundTrip(DBSInvalidations invals) throws IOException {
+        try (ByteArrayOutputStream baout = new ByteArrayOutputStream()) {
+            invals.serialize(baout);
+            return DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        }
     }
 
     @Test
@@ -90,6 +127,15 @@ public class TestDBSInvalidations {
         bain = new ByteArrayInputStream(",foo,bar".getBytes());
         invals = DBSInvalidations.deserialize(bain);
         assertEquals(new HashSet<>(Arrays.asList("foo", "bar")), invals.ids);
+
+        // truncated binary message
+        bain = new ByteArrayInputStream(new byte[] { 'B', 1, 2, 5, 'f', 'o' });
+        try {
+            DBSInvalidations.deserialize(bain);
+            fail();
+        } catch (IOException e) {
+            // ok
+        }
     }
 
 }
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.storage.mem;
 import static java.lang.Boolean.TRUE;
 import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_UUID;
 import static org.nuxeo.ecm.core.storage.State.NOP;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_BLOB_DATA;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_IS_PROXY;
@@ -30,13 +31,17 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PROXY_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PROXY_TARGET_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PROXY_VERSION_SERIES_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_VERSION_SERIES_ID;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -81,6 +86,9 @@ import org.nuxeo.runtime.api.Framework;
  * <p>
  * A document object is a JSON-like document stored as a Map recursively containing the data, see {@link DBSDocument}
  * for the description of the document.
+ * <p>
+ * Secondary indexes are maintained for the keys used by child, ancestor, proxy and version lookups, so that these
+ * don't have to scan all the documents.
  *
  * @since 5.9.4
  */
@@ -90,6 +98,21 @@ public class MemRepository extends DBSRepositoryBase {
 
     protected static final String NOSCROLL_ID = "noscroll";
 
+    /**
+     * Keys for which an index of value -> document ids is maintained.
+     *
+     * @since 9.2
+     */
+    protected static final List<String> INDEXED_KEYS = Arrays.asList(KEY_PARENT_ID, KEY_PROXY_TARGET_ID,
+            KEY_VERSION_SERIES_ID, KEY_PROXY_VERSION_SERIES_ID);
+
+    /**
+     * Array keys for which an index of array element -> document ids is maintained.
+     *
+     * @since 9.2
+     */
+    protected static final List<String> INDEXED_ARRAY_KEYS = Collections.singletonList(KEY_ANCESTOR_IDS);
+
     // for debug
     private final AtomicLong temporaryIdCounter = new AtomicLong(0);
 
@@ -98,6 +121,21 @@ public class MemRepository extends DBSRepositoryBase {
      */
     protected Map<String, State> states;
 
+    /**
+     * The secondary indexes, a map of key -> value -> document ids, for {@link #INDEXED_KEYS} and
+     * {@link #INDEXED_ARRAY_KEYS}.
+     *
+     * @since 9.2
+     */
+    protected Map<String, Map<Object, Set<String>>> indexes;
+
+    /**
+     * The children index, a map of (parent id, name) -> document ids.
+     *
+     * @since 9.2
+     */
+    protected Map<Object, Set<String>> childIndex;
+
     public MemRepository(ConnectionManager cm, MemRepositoryDescriptor descriptor) {
         super(cm, descriptor.name, descriptor);
         initRepository();
@@ -112,10 +150,20 @@ public class MemRepository extends DBSRepositoryBase {
     public void shutdown() {
         super.shutdown();
         states = null;
+        indexes = null;
+        childIndex = null;
     }
 
     protected void initRepository() {
         states = new ConcurrentHashMap<>();
+        indexes = new HashMap<>(); // not modified after init
+        for (String key : INDEXED_KEYS) {
+            indexes.put(key, new ConcurrentHashMap<>());
+        }
+        for (String key : INDEXED_ARRAY_KEYS) {
+            indexes.put(key, new ConcurrentHashMap<>());
+        }
+        childIndex = new ConcurrentHashMap<>();
         initRoot();
     }
 
@@ -160,6 +208,7 @@ public class MemRepository extends DBSRepositoryBase {
         state = StateHelper.deepCopy(state, true); // thread-safe
         StateHelper.resetDeltas(state);
         states.put(id, state);
+        index(id, state);
     }
 
     @Override
@@ -183,7 +232,11 @@ public class MemRepository extends DBSRepositoryBase {
                     applyDiff(state, en.getKey(), en.getValue());
                 }
             }
+            Map<String, Serializable> oldIndexed = getIndexedValues(state, diff);
             applyDiff(state, diff);
+            if (oldIndexed != null) {
+                reindex(id, state, oldIndexed);
+            }
         }
     }
 
@@ -193,23 +246,181 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: REMOVE " + ids);
         }
         for (String id : ids) {
-            if (states.remove(id) == null) {
+            State state = states.remove(id);
+            if (state == null) {
                 log.debug("Missing on remove: " + id);
+            } else {
+                unindex(id, state);
+            }
+        }
+    }
+
+    /**
+     * Adds a newly created document to the secondary indexes.
+     *
+     * @since 9.2
+     */
+    protected void index(String id, State state) {
+        for (String key : INDEXED_KEYS) {
+            indexAdd(indexes.get(key), state.get(key), id);
+        }
+        for (String key : INDEXED_ARRAY_KEYS) {
+            Map<Object, Set<String>> index = indexes.get(key);
+            Object[] array = (Object[]) state.get(key);
+            if (array != null) {
+                for (Object value : array) {
+                    indexAdd(index, value, id);
+                }
+            }
+        }
+        indexAdd(childIndex, getChildKey(state), id);
+    }
+
+    /**
+     * Removes a deleted document from the secondary indexes.
+     *
+     * @since 9.2
+     */
+    protected void unindex(String id, State state) {
+        for (String key : INDEXED_KEYS) {
+            indexRemove(indexes.get(key), state.get(key), id);
+        }
+        for (String key : INDEXED_ARRAY_KEYS) {
+            Map<Object, Set<String>> index = indexes.get(key);
+            Object[] array = (Object[]) state.get(key);
+            if (array != null) {
+                for (Object value : array) {
+                    indexRemove(index, value, id);
+                }
+            }
+        }
+        indexRemove(childIndex, getChildKey(state), id);
+    }
+
+    /**
+     * Gets the current values of the indexed keys of a document, if the diff about to be applied changes some of them.
+     *
+     * @return the old values, or {@code null} if the diff doesn't touch indexed keys
+     * @since 9.2
+     */
+    protected Map<String, Serializable> getIndexedValues(State state, StateDiff diff) {
+        Map<String, Serializable> old = null;
+        for (String key : diff.keySet()) {
+            if (KEY_NAME.equals(key) || INDEXED_KEYS.contains(key) || INDEXED_ARRAY_KEYS.contains(key)) {
+                if (old == null) {
+                    old = new HashMap<>();
+                    // the child index depends on both the parent id and the name
+                    old.put(KEY_PARENT_ID, state.get(KEY_PARENT_ID));
+                    old.put(KEY_NAME, state.get(KEY_NAME));
+                }
+                old.put(key, state.get(key));
+            }
+        }
+        return old;
+    }
+
+    /**
+     * Updates the secondary indexes of a document after a diff has changed some of its indexed keys.
+     *
+     * @since 9.2
+     */
+    protected void reindex(String id, State state, Map<String, Serializable> oldIndexed) {
+        for (Entry<String, Serializable> en : oldIndexed.entrySet()) {
+            String key = en.getKey();
+            Serializable oldValue = en.getValue();
+            Serializable newValue = state.get(key);
+            if (INDEXED_KEYS.contains(key)) {
+                if (!Objects.equals(oldValue, newValue)) {
+                    Map<Object, Set<String>> index = indexes.get(key);
+                    // add before remove so that concurrent readers always find the document
+                    indexAdd(index, newValue, id);
+                    indexRemove(index, oldValue, id);
+                }
+            } else if (INDEXED_ARRAY_KEYS.contains(key)) {
+                Map<Object, Set<String>> index = indexes.get(key);
+                List<Object> oldValues = asList((Object[]) oldValue);
+                List<Object> newValues = asList((Object[]) newValue);
+                for (Object value : newValues) {
+                    if (!oldValues.contains(value)) {
+                        indexAdd(index, value, id);
+                    }
+                }
+                for (Object value : oldValues) {
+                    if (!newValues.contains(value)) {
+                        indexRemove(index, value, id);
+                    }
+                }
+            }
+        }
+        Object oldChildKey = getChildKey(oldIndexed.get(KEY_PARENT_ID), oldIndexed.get(KEY_NAME));
+        Object newChildKey = getChildKey(state);
+        if (!Objects.equals(oldChildKey, newChildKey)) {
+            indexAdd(childIndex, newChildKey, id);
+            indexRemove(childIndex, oldChildKey, id);
+        }
+    }
+
+    protected static List<Object> asList(Object[] array) {
+        return array == null ? Collections.emptyList() : Arrays.asList(array);
+    }
+
+    protected static Object getChildKey(State state) {
+        return getChildKey(state.get(KEY_PARENT_ID), state.get(KEY_NAME));
+    }
+
+    protected static Object getChildKey(Object parentId, Object name) {
+        if (parentId == null || name == null) {
+            return null;
+        }
+        return Arrays.asList(parentId, name);
+    }
+
+    protected static void indexAdd(Map<Object, Set<String>> index, Object value, String id) {
+        if (value == null) {
+            return;
+        }
+        index.compute(value, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
             }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    protected static void indexRemove(Map<Object, Set<String>> index, Object value, String id) {
+        if (value == null) {
+            return;
         }
+        index.computeIfPresent(value, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Gets the ids of the documents having the given value for an indexed key.
+     *
+     * @since 9.2
+     */
+    protected Collection<String> getIndexedIds(String key, Object value) {
+        Set<String> ids = indexes.get(key).get(value);
+        return ids == null ? Collections.emptySet() : ids;
     }
 
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
-        // TODO optimize by maintaining a parent/child index
-        for (State state : states.values()) {
-            if (ignored.contains(state.get(KEY_ID))) {
-                continue;
-            }
-            if (!parentId.equals(state.get(KEY_PARENT_ID))) {
+        Set<String> ids = childIndex.get(getChildKey(parentId, name));
+        if (ids == null) {
+            return null;
+        }
+        for (String id : ids) {
+            if (ignored.contains(id)) {
                 continue;
             }
-            if (!name.equals(state.get(KEY_NAME))) {
+            State state = states.get(id);
+            // recheck, the document may be concurrently updated
+            if (state == null || !parentId.equals(state.get(KEY_PARENT_ID)) || !name.equals(state.get(KEY_NAME))) {
                 continue;
             }
             return state;
@@ -222,13 +433,37 @@ public class MemRepository extends DBSRepositoryBase {
         return readChildState(parentId, name, ignored) != null;
     }
 
+    /**
+     * Gets the documents that may have the given value for a key, using an index if there is one for the key. The
+     * caller must still check the value on each returned document.
+     *
+     * @since 9.2
+     */
+    protected Collection<State> getCandidates(String key, Object value) {
+        if (INDEXED_KEYS.contains(key)) {
+            return getStates(getIndexedIds(key, value));
+        }
+        return states.values();
+    }
+
+    protected List<State> getStates(Collection<String> ids) {
+        List<State> list = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            State state = states.get(id);
+            if (state != null) {
+                list.add(state);
+            }
+        }
+        return list;
+    }
+
     @Override
     public List<State> queryKeyValue(String key, Object value, Set<String> ignored) {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -250,7 +485,9 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: QUERY " + key1 + " = " + value1 + " AND " + key2 + " = " + value2);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        Collection<State> candidates = INDEXED_KEYS.contains(key1) ? getCandidates(key1, value1)
+                : getCandidates(key2, value2);
+        for (State state : candidates) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -272,7 +509,13 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
-        STATE: for (State state : states.values()) {
+        Collection<State> candidates;
+        if (INDEXED_ARRAY_KEYS.contains(key)) {
+            candidates = getStates(getIndexedIds(key, value));
+        } else {
+            candidates = states.values();
+        }
+        STATE: for (State state : candidates) {
             Object[] array = (Object[]) state.get(key);
             String id = (String) state.get(KEY_ID);
             if (array != null) {
@@ -304,7 +547,7 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
-        for (State state : states.values()) {
+        for (State state : getCandidates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -48,8 +48,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -81,6 +84,8 @@ import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
 import org.nuxeo.runtime.api.Framework;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -107,6 +112,13 @@ public class MongoDBRepository extends DBSRepositoryBase {
 
     public static final Long MINUS_ONE = Long.valueOf(-1);
 
+    /**
+     * Maximum number of updates sent in a single bulk write.
+     *
+     * @since 9.2
+     */
+    public static final int BULK_WRITE_BATCH_SIZE = 1000;
+
     public static final String DB_DEFAULT = "nuxeo";
 
     public static final String MONGODB_ID = "_id";
@@ -370,28 +382,7 @@ public class MongoDBRepository extends DBSRepositoryBase {
     public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
         List<DBObject> updates = converter.diffToBson(diff);
         for (DBObject update : updates) {
-            DBObject query = new BasicDBObject(idKey, id);
-            if (changeTokenUpdater == null) {
-                if (log.isTraceEnabled()) {
-                    log.trace("MongoDB: UPDATE " + id + ": " + update);
-                }
-            } else {
-                // assume bson is identical to dbs internals
-                // condition works even if value is null
-                Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
-                Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
-                if (update.containsField(MONGODB_SET)) {
-                    ((DBObject) update.get(MONGODB_SET)).putAll(tokenUpdates);
-                } else {
-                    DBObject set = new BasicDBObject();
-                    set.putAll(tokenUpdates);
-                    update.put(MONGODB_SET, set);
-                }
-                if (log.isTraceEnabled()) {
-                    log.trace("MongoDB: UPDATE " + id + ": IF " + conditions + " THEN " + update);
-                }
-                query.putAll(conditions);
-            }
+            DBObject query = getUpdateQuery(id, update, changeTokenUpdater);
             WriteResult w = coll.update(query, update);
             if (w.getN() != 1) {
                 log.trace("MongoDB:    -> CONCURRENT UPDATE: " + id);
@@ -402,6 +393,124 @@ public class MongoDBRepository extends DBSRepositoryBase {
         }
     }
 
+    @Override
+    public void updateStates(Map<String, StateDiff> diffs, Map<String, ChangeTokenUpdater> changeTokenUpdaters) {
+        if (changeTokenUpdaters != null && !changeTokenUpdaters.isEmpty()) {
+            // an ordered bulk goes on after an unmatched update, so fail before applying anything
+            checkChangeTokens(changeTokenUpdaters);
+        }
+        // ordered, as a diff may need several updates to be applied in sequence
+        BulkWriteOperation bulk = null;
+        int n = 0;
+        Set<String> ids = new LinkedHashSet<>();
+        for (Entry<String, StateDiff> en : diffs.entrySet()) {
+            String id = en.getKey();
+            ChangeTokenUpdater changeTokenUpdater = changeTokenUpdaters == null ? null : changeTokenUpdaters.get(id);
+            for (DBObject update : converter.diffToBson(en.getValue())) {
+                if (bulk == null) {
+                    bulk = coll.initializeOrderedBulkOperation();
+                }
+                bulk.find(getUpdateQuery(id, update, changeTokenUpdater)).updateOne(update);
+                ids.add(id);
+                if (++n >= BULK_WRITE_BATCH_SIZE) {
+                    executeBulkUpdate(bulk, n, ids);
+                    bulk = null;
+                    n = 0;
+                    ids.clear();
+                }
+            }
+        }
+        if (bulk != null) {
+            executeBulkUpdate(bulk, n, ids);
+        }
+    }
+
+    /**
+     * Checks that the documents to update still match the conditions of their change token.
+     *
+     * @throws ConcurrentUpdateException for the first document that doesn't match
+     * @since 9.2
+     */
+    protected void checkChangeTokens(Map<String, ChangeTokenUpdater> changeTokenUpdaters) {
+        DBObject query = new BasicDBObject(idKey,
+                new BasicDBObject(QueryOperators.IN, new ArrayList<>(changeTokenUpdaters.keySet())));
+        DBObject fields = new BasicDBObject();
+        if (useCustomId) {
+            fields.put(MONGODB_ID, ZERO);
+        }
+        fields.put(idKey, ONE);
+        for (ChangeTokenUpdater changeTokenUpdater : changeTokenUpdaters.values()) {
+            for (String key : changeTokenUpdater.getConditions().keySet()) {
+                fields.put(key, ONE);
+            }
+        }
+        if (log.isTraceEnabled()) {
+            logQuery(query, fields);
+        }
+        Set<String> found = new HashSet<>();
+        try (DBCursor cursor = coll.find(query, fields)) {
+            for (DBObject ob : cursor) {
+                String id = (String) ob.get(idKey);
+                found.add(id);
+                for (Entry<String, Serializable> en : changeTokenUpdaters.get(id).getConditions().entrySet()) {
+                    if (!Objects.equals(en.getValue(), converter.bsonToValue(ob.get(en.getKey())))) {
+                        log.trace("MongoDB:    -> CONCURRENT UPDATE: " + id);
+                        throw new ConcurrentUpdateException(id);
+                    }
+                }
+            }
+        }
+        for (String id : changeTokenUpdaters.keySet()) {
+            if (!found.contains(id)) {
+                log.trace("MongoDB:    -> CONCURRENT UPDATE: " + id);
+                throw new ConcurrentUpdateException(id);
+            }
+        }
+    }
+
+    protected void executeBulkUpdate(BulkWriteOperation bulk, int n, Set<String> ids) {
+        if (log.isTraceEnabled()) {
+            log.trace("MongoDB: BULK UPDATE " + n + " updates for " + ids);
+        }
+        BulkWriteResult w = bulk.execute();
+        if (w.getMatchedCount() != n) {
+            // changed concurrently since the change tokens were checked, we can't know which document failed
+            log.trace("MongoDB:    -> CONCURRENT UPDATE: " + (n - w.getMatchedCount()) + " updates unmatched");
+            throw new ConcurrentUpdateException(ids.toString());
+        }
+    }
+
+    /**
+     * Gets the query matching the document to update, taking into account its change token.
+     * <p>
+     * When there is a change token, the update is also modified to write the new change token.
+     */
+    protected DBObject getUpdateQuery(String id, DBObject update, ChangeTokenUpdater changeTokenUpdater) {
+        DBObject query = new BasicDBObject(idKey, id);
+        if (changeTokenUpdater == null) {
+            if (log.isTraceEnabled()) {
+                log.trace("MongoDB: UPDATE " + id + ": " + update);
+            }
+        } else {
+            // assume bson is identical to dbs internals
+            // condition works even if value is null
+            Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
+            Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
+            if (update.containsField(MONGODB_SET)) {
+                ((DBObject) update.get(MONGODB_SET)).putAll(tokenUpdates);
+            } else {
+                DBObject set = new BasicDBObject();
+                set.putAll(tokenUpdates);
+                update.put(MONGODB_SET, set);
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("MongoDB: UPDATE " + id + ": IF " + conditions + " THEN " + update);
+            }
+            query.putAll(conditions);
+        }
+        return query;
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         DBObject query = new BasicDBObject(idKey, new BasicDBObject(QueryOperators.IN, ids));
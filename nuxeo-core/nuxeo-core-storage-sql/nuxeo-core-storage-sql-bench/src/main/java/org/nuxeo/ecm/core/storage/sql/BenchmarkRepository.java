@@ -0,0 +1,138 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobManagerComponent;
+import org.nuxeo.ecm.core.blob.BlobProviderDescriptor;
+import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
+import org.nuxeo.ecm.core.storage.sql.coremodel.SQLRepositoryService;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.NXRuntimeTestCase;
+
+/**
+ * Starts a Nuxeo runtime with a VCS repository on the test database (H2 by default, see {@link DatabaseHelper}) and
+ * fills it with documents, for use by the JMH benchmark states.
+ * <p>
+ * This mirrors the setup of the SQL backend unit tests, without JUnit.
+ *
+ * @since 9.2
+ */
+public class BenchmarkRepository extends NXRuntimeTestCase {
+
+    public static final String BUNDLE = "org.nuxeo.ecm.core.storage.sql.bench";
+
+    public static final String REPOSITORY_NAME = "bench";
+
+    public static final String DOC_TYPE = "BenchDoc";
+
+    public static final String FOLDER_TYPE = "BenchFolder";
+
+    protected BlobProviderDescriptor blobProviderDescriptor;
+
+    public RepositoryImpl repository;
+
+    /**
+     * Starts the runtime and the repository.
+     */
+    public void open() throws Exception {
+        setUp();
+        deployBundle("org.nuxeo.runtime.jtajca");
+        deployBundle("org.nuxeo.runtime.datasource");
+        deployBundle("org.nuxeo.ecm.core.api");
+        deployBundle("org.nuxeo.ecm.core");
+        deployBundle("org.nuxeo.ecm.core.schema");
+        deployBundle("org.nuxeo.ecm.core.event");
+        deployBundle("org.nuxeo.ecm.core.storage");
+        deployBundle("org.nuxeo.ecm.core.storage.sql");
+        deployBundle("org.nuxeo.ecm.platform.el");
+        deployBundle(BUNDLE);
+        DatabaseHelper.DATABASE.setUp();
+        deployContrib(BUNDLE, "OSGI-INF/bench-repo-ds.xml");
+        deployContrib(BUNDLE, "OSGI-INF/bench-core-types-contrib.xml");
+        fireFrameworkStarted();
+
+        RepositoryDescriptor descriptor = DatabaseHelper.DATABASE.getRepositoryDescriptor();
+        descriptor.name = REPOSITORY_NAME;
+        descriptor.setClusteringEnabled(false);
+        // no fulltext workers, we only measure storage
+        descriptor.setFulltextDisabled(true);
+        repository = new RepositoryImpl(descriptor);
+        Framework.getService(SQLRepositoryService.class).registerTestRepository(repository);
+
+        blobProviderDescriptor = new BlobProviderDescriptor();
+        blobProviderDescriptor.name = REPOSITORY_NAME;
+        blobProviderDescriptor.klass = DefaultBinaryManager.class;
+        ((BlobManagerComponent) Framework.getService(BlobManager.class)).registerBlobProvider(blobProviderDescriptor);
+    }
+
+    /**
+     * Closes the repository and stops the runtime.
+     */
+    public void close() throws Exception {
+        try {
+            if (blobProviderDescriptor != null) {
+                BlobManagerComponent blobManager = (BlobManagerComponent) Framework.getService(BlobManager.class);
+                blobManager.unregisterBlobProvider(blobProviderDescriptor);
+                blobProviderDescriptor = null;
+            }
+            if (repository != null) {
+                repository.close();
+                repository = null;
+            }
+        } finally {
+            tearDown();
+        }
+    }
+
+    /**
+     * Creates a folder under the root holding the given number of documents, and returns the ids of the documents.
+     */
+    public static List<Serializable> createFolder(SessionImpl session, String name, int size) {
+        Node root = session.getRootNode();
+        Node folder = session.addChildNode(root, name, null, FOLDER_TYPE, false);
+        List<Serializable> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Node node = session.addChildNode(folder, "doc" + i, null, DOC_TYPE, false);
+            fill(node, i);
+            ids.add(node.getId());
+        }
+        session.save();
+        return ids;
+    }
+
+    /**
+     * Sets values for all the properties of the benchmark schemas.
+     */
+    public static void fill(Node node, int i) {
+        node.setSimpleProperty("bnc:title", "doc" + i);
+        node.setSimpleProperty("bnc:description", "Description of document number " + i);
+        node.setSimpleProperty("bnc:count", Long.valueOf(i));
+        node.setSimpleProperty("bnc:modified", new GregorianCalendar());
+        node.setCollectionProperty("bnc:subjects", new String[] { "foo", "bar", "subject" + (i % 10) });
+        node.setSimpleProperty("bnc2:owner", "user" + (i % 20));
+        node.setSimpleProperty("bnc2:status", i % 2 == 0 ? "draft" : "published");
+    }
+
+}
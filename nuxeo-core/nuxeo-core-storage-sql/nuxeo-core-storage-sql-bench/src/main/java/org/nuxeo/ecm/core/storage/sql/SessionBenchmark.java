@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks {@link SessionImpl#getNodesByIds} and {@link PersistenceContext#getFromMapper}, the path used to load
+ * the documents of a folder listing.
+ * <p>
+ * Three cache situations are measured:
+ * <ul>
+ * <li>cold: all caches cleared, everything comes from the database,</li>
+ * <li>mapper: the session context is cleared but the caching mapper (for instance {@link SoftRefCachingRowMapper} or
+ * {@link UnifiedCachingRowMapper}) is kept,</li>
+ * <li>warm: everything is in the session context.</li>
+ * </ul>
+ *
+ * @since 9.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class SessionBenchmark {
+
+    @Param({ "20", "200" })
+    public int size;
+
+    @Param({ "true", "false" })
+    public boolean prefetch;
+
+    protected BenchmarkRepository harness;
+
+    protected SessionImpl session;
+
+    protected List<Serializable> ids;
+
+    protected List<RowId> rowIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        harness = new BenchmarkRepository();
+        harness.open();
+        session = harness.repository.getConnection();
+        ids = BenchmarkRepository.createFolder(session, "folder", size);
+        // the rows that getNodesByIds with prefetch would fetch
+        rowIds = new ArrayList<>();
+        for (Serializable id : ids) {
+            rowIds.add(new RowId(Model.HIER_TABLE_NAME, id));
+            for (String tableName : session.getModel().getTypePrefetchedFragments(BenchmarkRepository.DOC_TYPE)) {
+                rowIds.add(new RowId(tableName, id));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            session.close();
+        } finally {
+            harness.close();
+        }
+    }
+
+    @Benchmark
+    public List<Node> getNodesByIdsCold() {
+        session.clearCaches();
+        return session.getNodesByIds(ids, prefetch);
+    }
+
+    @Benchmark
+    public List<Node> getNodesByIdsMapper() {
+        session.getContext().clearLocalCaches();
+        return session.getNodesByIds(ids, prefetch);
+    }
+
+    @Benchmark
+    public List<Node> getNodesByIdsWarm() {
+        return session.getNodesByIds(ids, prefetch);
+    }
+
+    @Benchmark
+    public List<Fragment> getFromMapperCold() {
+        PersistenceContext context = session.getContext();
+        context.clearCaches();
+        return context.getFromMapper(rowIds, true, false);
+    }
+
+    @Benchmark
+    public List<Fragment> getFromMapperMapper() {
+        PersistenceContext context = session.getContext();
+        context.clearLocalCaches();
+        return context.getFromMapper(rowIds, true, false);
+    }
+
+}
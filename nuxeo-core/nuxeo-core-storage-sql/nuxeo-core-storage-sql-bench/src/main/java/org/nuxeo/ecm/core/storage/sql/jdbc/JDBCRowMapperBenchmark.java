@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.jdbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.sql.BenchmarkRepository;
+import org.nuxeo.ecm.core.storage.sql.Mapper;
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.ModelProperty;
+import org.nuxeo.ecm.core.storage.sql.Row;
+import org.nuxeo.ecm.core.storage.sql.RowId;
+import org.nuxeo.ecm.core.storage.sql.RowMapper.RowBatch;
+import org.nuxeo.ecm.core.storage.sql.SessionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks {@link JDBCRowMapper#read} and {@link JDBCRowMapper#write} without any caching mapper in front, as seen
+ * by a session on a cache miss and on save.
+ *
+ * @since 9.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class JDBCRowMapperBenchmark {
+
+    @Param({ "20", "200" })
+    public int size;
+
+    protected BenchmarkRepository harness;
+
+    protected Mapper mapper;
+
+    protected Model model;
+
+    protected List<RowId> rowIds;
+
+    protected Serializable parentId;
+
+    protected ModelProperty titleInfo;
+
+    protected ModelProperty countInfo;
+
+    protected ModelProperty modifiedInfo;
+
+    protected ModelProperty ownerInfo;
+
+    protected long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        harness = new BenchmarkRepository();
+        harness.open();
+        SessionImpl session = harness.repository.getConnection();
+        try {
+            List<Serializable> ids = BenchmarkRepository.createFolder(session, "folder", size);
+            parentId = session.getNodeByPath("/folder", null).getId();
+            model = session.getModel();
+            rowIds = new ArrayList<>();
+            for (Serializable id : ids) {
+                rowIds.add(new RowId(Model.HIER_TABLE_NAME, id));
+                for (String tableName : model.getTypePrefetchedFragments(BenchmarkRepository.DOC_TYPE)) {
+                    rowIds.add(new RowId(tableName, id));
+                }
+            }
+        } finally {
+            session.close();
+        }
+        titleInfo = model.getPropertyInfo("bnc:title");
+        countInfo = model.getPropertyInfo("bnc:count");
+        modifiedInfo = model.getPropertyInfo("bnc:modified");
+        ownerInfo = model.getPropertyInfo("bnc2:owner");
+        // a mapper not wrapped in a caching mapper, not participating in invalidations
+        mapper = harness.repository.newMapper(null, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            mapper.close();
+        } finally {
+            harness.close();
+        }
+    }
+
+    @Benchmark
+    public List<? extends RowId> read() {
+        return mapper.read(rowIds, false);
+    }
+
+    @Benchmark
+    public RowBatch writeCreates() {
+        RowBatch batch = new RowBatch();
+        for (int i = 0; i < size; i++) {
+            Serializable id = mapper.generateNewId();
+            Row hierRow = new Row(Model.HIER_TABLE_NAME, id);
+            hierRow.putNew(Model.HIER_PARENT_KEY, parentId);
+            hierRow.putNew(Model.HIER_CHILD_NAME_KEY, "new" + counter++);
+            hierRow.putNew(Model.HIER_CHILD_POS_KEY, null);
+            hierRow.putNew(Model.MAIN_PRIMARY_TYPE_KEY, BenchmarkRepository.DOC_TYPE);
+            hierRow.putNew(Model.HIER_CHILD_ISPROPERTY_KEY, Boolean.FALSE);
+            batch.creates.add(hierRow);
+            Row row = new Row(titleInfo.fragmentName, id);
+            row.putNew(titleInfo.fragmentKey, "doc" + i);
+            row.putNew(countInfo.fragmentKey, Long.valueOf(i));
+            row.putNew(modifiedInfo.fragmentKey, new GregorianCalendar());
+            batch.creates.add(row);
+            Row row2 = new Row(ownerInfo.fragmentName, id);
+            row2.putNew(ownerInfo.fragmentKey, "user" + i);
+            batch.creates.add(row2);
+        }
+        mapper.write(batch);
+        return batch;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.query.QueryFilter;
+import org.nuxeo.ecm.core.storage.sql.BenchmarkRepository;
+import org.nuxeo.ecm.core.storage.sql.Mapper;
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.SessionImpl;
+import org.nuxeo.ecm.core.storage.sql.jdbc.QueryMaker.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks the translation of NXQL to SQL by {@link NXQLQueryMaker#buildQuery} for the H2 dialect.
+ *
+ * @since 9.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class NXQLQueryMakerBenchmark {
+
+    protected static final Map<String, String> QUERIES = new HashMap<>();
+
+    static {
+        QUERIES.put("simple", "SELECT * FROM BenchDoc WHERE bnc:title = 'doc1'");
+        QUERIES.put("children", "SELECT * FROM BenchDoc WHERE ecm:parentId = '00000000-0000-0000-0000-000000000000'"
+                + " AND ecm:isProxy = 0 AND ecm:isVersion = 0 ORDER BY bnc:title");
+        QUERIES.put("complex", "SELECT * FROM BenchDoc WHERE bnc:subjects/* = 'foo' AND bnc2:status = 'draft'"
+                + " AND ecm:mixinType <> 'HiddenInNavigation' AND bnc:count BETWEEN 3 AND 100"
+                + " AND (bnc:title LIKE 'doc%' OR bnc:description ILIKE '%number%')"
+                + " ORDER BY bnc:modified DESC, bnc:title");
+    }
+
+    @Param({ "simple", "children", "complex" })
+    public String query;
+
+    protected BenchmarkRepository harness;
+
+    protected SQLInfo sqlInfo;
+
+    protected Model model;
+
+    protected String nxql;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        harness = new BenchmarkRepository();
+        harness.open();
+        // opening a session initializes the model and the SQL info
+        SessionImpl session = harness.repository.getConnection();
+        try {
+            model = session.getModel();
+        } finally {
+            session.close();
+        }
+        Mapper mapper = harness.repository.newMapper(null, false);
+        try {
+            sqlInfo = ((JDBCMapper) JDBCMapperConnector.unwrap(mapper)).sqlInfo;
+        } finally {
+            mapper.close();
+        }
+        nxql = QUERIES.get(query);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+    }
+
+    @Benchmark
+    public Query buildQuery() {
+        return new NXQLQueryMaker().buildQuery(sqlInfo, model, null, nxql, QueryFilter.EMPTY);
+    }
+
+}
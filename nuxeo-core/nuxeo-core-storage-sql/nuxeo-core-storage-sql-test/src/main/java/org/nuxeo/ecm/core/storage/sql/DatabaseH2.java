@@ -135,4 +135,9 @@ public class DatabaseH2 extends DatabaseHelper {
         return true;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
 }
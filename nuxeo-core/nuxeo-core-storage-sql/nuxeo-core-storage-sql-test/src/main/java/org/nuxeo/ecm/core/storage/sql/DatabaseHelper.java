@@ -284,4 +284,31 @@ public abstract class DatabaseHelper {
         return false;
     }
 
+    /**
+     * Whether this database supports multi-row {@code INSERT} statements for bulk inserts.
+     *
+     * @since 9.2
+     */
+    public boolean supportsMultiRowInsert() {
+        return false;
+    }
+
+    /**
+     * Whether this database supports the {@code COPY} protocol for bulk inserts.
+     *
+     * @since 9.2
+     */
+    public boolean supportsCopy() {
+        return false;
+    }
+
+    /**
+     * Whether this database can return several result sets from a single multi-statement {@code SELECT} query.
+     *
+     * @since 9.2
+     */
+    public boolean supportsMultiStatementSelect() {
+        return false;
+    }
+
 }
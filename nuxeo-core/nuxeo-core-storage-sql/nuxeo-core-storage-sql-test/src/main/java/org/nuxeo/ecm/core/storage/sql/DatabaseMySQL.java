@@ -96,4 +96,9 @@ public class DatabaseMySQL extends DatabaseHelper {
         return true;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
 }
@@ -114,4 +114,19 @@ public class DatabasePostgreSQL extends DatabaseHelper {
         return true;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsCopy() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsMultiStatementSelect() {
+        return true;
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.query.QueryFilter;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Tests of the asynchronous propagation of read acls.
+ */
+public class TestSQLBackendAsyncReadAcls extends SQLBackendTestCase {
+
+    /**
+     * Only PostgreSQL implements the incremental update of read acls.
+     */
+    @BeforeClass
+    public static void assumePostgreSQL() {
+        assumeTrue(DatabaseHelper.DATABASE instanceof DatabasePostgreSQL);
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        deployContrib("org.nuxeo.ecm.core.storage.sql.test.tests", "OSGI-INF/test-backend-core-types-contrib.xml");
+    }
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        descriptor.setAclOptimizationsEnabled(true);
+        descriptor.setAclOptimizationsAsync(true);
+        return descriptor;
+    }
+
+    protected static ACLRow[] grant(String... users) {
+        ACLRow[] acls = new ACLRow[users.length];
+        for (int i = 0; i < users.length; i++) {
+            acls[i] = new ACLRow(i, "test", true, "Read", users[i], null);
+        }
+        return acls;
+    }
+
+    protected static long countReadable(Session session, String user) {
+        QueryFilter qf = new QueryFilter(null, new String[] { user }, new String[] { "Read" }, null,
+                Collections.<SQLQuery.Transformer> emptyList(), 0, 0);
+        PartialList<Serializable> res = session.query("SELECT * FROM TestDoc", qf, false);
+        return res.list.size();
+    }
+
+    @Test
+    public void testGrantIsAsyncAndRevocationIsSync() throws Exception {
+        WorkManager workManager = Framework.getService(WorkManager.class);
+        String queueId = workManager.getCategoryQueueId(ReadAclsUpdateWork.CATEGORY);
+
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        root.getCollectionProperty(Model.ACL_PROP).setValue(new ACLRow[0]);
+        Node folder = session.addChildNode(root, "folder", null, "TestDoc", false);
+        folder.getCollectionProperty(Model.ACL_PROP).setValue(grant("bob"));
+        Node sub = session.addChildNode(folder, "sub", null, "TestDoc", false);
+        session.addChildNode(sub, "doc", null, "TestDoc", false);
+        session.save();
+        assertTrue(workManager.awaitCompletion(10, TimeUnit.SECONDS));
+        // new documents are always computed synchronously
+        assertEquals(3, countReadable(session, "bob"));
+        assertEquals(0, countReadable(session, "alice"));
+
+        workManager.enableProcessing(queueId, false);
+        try {
+            // a grant is propagated after save
+            folder.getCollectionProperty(Model.ACL_PROP).setValue(grant("bob", "alice"));
+            session.save();
+            assertEquals(0, countReadable(session, "alice"));
+            assertEquals(3, countReadable(session, "bob"));
+
+            // a revocation is applied to the whole subtree at save time
+            folder.getCollectionProperty(Model.ACL_PROP).setValue(grant("alice"));
+            session.save();
+            assertEquals(0, countReadable(session, "bob"));
+
+            // so is a move to a place with less access
+            Node other = session.addChildNode(root, "other", null, "TestDoc", false);
+            other.getCollectionProperty(Model.ACL_PROP).setValue(grant("carol"));
+            Node carolDoc = session.addChildNode(other, "caroldoc", null, "TestDoc", false);
+            session.save();
+            assertEquals(2, countReadable(session, "carol"));
+            session.move(carolDoc, folder, "caroldoc");
+            session.save();
+            assertEquals(1, countReadable(session, "carol"));
+        } finally {
+            workManager.enableProcessing(queueId, true);
+        }
+        assertTrue(workManager.awaitCompletion(10, TimeUnit.SECONDS));
+        // alice got access to the folder, its subtree and the moved document
+        assertEquals(4, countReadable(session, "alice"));
+        assertEquals(0, countReadable(session, "bob"));
+        session.close();
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCConnection;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCMapperConnector;
+
+/**
+ * All the tests of TestSQLBackend with batched prefetch activated, plus additional tests.
+ */
+public class TestSQLBackendBatchedPrefetch extends TestSQLBackend {
+
+    /**
+     * Only run for databases that can return several result sets from a single query.
+     */
+    @BeforeClass
+    public static void assumeMultiStatementSelectSupported() {
+        assumeTrue(DatabaseHelper.DATABASE.supportsMultiStatementSelect());
+    }
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        descriptor.setPrefetchBatchEnabled(true);
+        return descriptor;
+    }
+
+    @Test
+    public void testBatchedPrefetch() throws Exception {
+        int n = 10;
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        List<Serializable> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", "title" + i);
+            node.setCollectionProperty("tst:subjects", new String[] { "a" + i, "b" + i });
+            node.setCollectionProperty("tst:tags", new String[] { "tag" + i });
+            CollectionProperty aclProp = node.getCollectionProperty(Model.ACL_PROP);
+            aclProp.setValue(new ACLRow[] { new ACLRow(0, "test", true, "Read", "user" + i, null) });
+            ids.add(node.getId());
+        }
+        session.save();
+        session.close();
+
+        session = repository.getConnection();
+        Model model = ((SessionImpl) session).getModel();
+        // tables prefetched besides the hierarchy, which is read first
+        Set<String> tables = new HashSet<>(model.getTypePrefetchedFragments("TestDoc"));
+        tables.remove(Model.HIER_TABLE_NAME);
+        tables.remove(Model.VERSION_TABLE_NAME);
+        assertTrue(tables.toString(), tables.size() > 2);
+
+        ((SessionImpl) session).getMapper().clearCache();
+        // parent path known
+        session.getRootNode();
+        JDBCConnection jdbc = (JDBCConnection) JDBCMapperConnector.unwrap(
+                ((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper);
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        List<Node> nodes = session.getNodesByIds(ids);
+        int count = jdbc.executeCount;
+        // one query per prefetched table when not batched
+        assertTrue("executes: " + count, count < tables.size());
+
+        assertEquals(n, nodes.size());
+        for (Node node : nodes) {
+            int i = Integer.parseInt(node.getName().substring("doc".length()));
+            assertEquals("title" + i, node.getSimpleProperty("tst:title").getString());
+            assertEquals(Arrays.asList("a" + i, "b" + i),
+                    Arrays.asList(node.getCollectionProperty("tst:subjects").getStrings()));
+            assertEquals(Arrays.asList("tag" + i), Arrays.asList(node.getCollectionProperty("tst:tags").getStrings()));
+            ACLRow[] acls = (ACLRow[]) node.getCollectionProperty(Model.ACL_PROP).getValue();
+            assertEquals(1, acls.length);
+            assertEquals("user" + i, acls[0].user);
+        }
+        // everything was prefetched, reading the properties didn't hit the database
+        assertEquals(count, jdbc.executeCount);
+        jdbc.countExecutes = false;
+        session.close();
+    }
+
+}
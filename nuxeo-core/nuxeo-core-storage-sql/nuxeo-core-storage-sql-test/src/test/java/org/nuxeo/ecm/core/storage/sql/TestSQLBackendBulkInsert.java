@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * All the tests of TestSQLBackend with bulk inserts activated, plus additional tests.
+ */
+public class TestSQLBackendBulkInsert extends TestSQLBackend {
+
+    /**
+     * Only run for databases that support multi-row inserts.
+     */
+    @BeforeClass
+    public static void assumeMultiRowInsertSupported() {
+        assumeTrue(DatabaseHelper.DATABASE.supportsMultiRowInsert());
+    }
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        descriptor.setBulkInsertEnabled(true);
+        descriptor.setBulkInsertCopyEnabled(useCopy());
+        // small batches so that inserts are split in several statements
+        descriptor.setInsertBatchSize(7);
+        return descriptor;
+    }
+
+    protected boolean useCopy() {
+        return false;
+    }
+
+    @Test
+    public void testBulkInsert() throws Exception {
+        Meter insertedRows = SharedMetricRegistries.getOrCreate(MetricsService.class.getName()).meter(
+                MetricRegistry.name("nuxeo", "repositories", repository.getName(), "inserts", "rows"));
+        long count = insertedRows.getCount();
+        Calendar cal = new GregorianCalendar(2008, Calendar.JULY, 14, 12, 34, 56);
+        String title = "\n\\N caf\u00e9 'quoted'";
+        int n = 20;
+
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node folder = session.addChildNode(root, "folder", null, "TestDoc", false);
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(folder, "doc" + i, null, "TestDoc", false);
+            if (i % 3 != 0) {
+                // characters that must be escaped by COPY, and nulls for the others
+                node.setSimpleProperty("tst:title", "title\t" + i + title);
+            }
+            node.setSimpleProperty("tst:count", Long.valueOf(i));
+            node.setSimpleProperty("tst:rate", Double.valueOf(i + 0.5));
+            node.setSimpleProperty("tst:created", cal);
+        }
+        session.save();
+        session.close();
+        // at least the hierarchy and tst rows of each document
+        assertTrue(insertedRows.getCount() - count >= 2 * n);
+
+        // read back from the database
+        session = repository.getConnection();
+        ((SessionImpl) session).getMapper().clearCache();
+        folder = session.getNodeByPath("/folder", null);
+        List<Node> children = session.getChildren(folder, null, false);
+        assertEquals(n, children.size());
+        for (Node node : children) {
+            int i = Integer.parseInt(node.getName().substring("doc".length()));
+            if (i % 3 != 0) {
+                assertEquals("title\t" + i + title, node.getSimpleProperty("tst:title").getString());
+            } else {
+                assertNull(node.getSimpleProperty("tst:title").getValue());
+            }
+            assertEquals(Long.valueOf(i), node.getSimpleProperty("tst:count").getValue());
+            assertEquals(Double.valueOf(i + 0.5), node.getSimpleProperty("tst:rate").getValue());
+            assertEquals(cal.getTimeInMillis(),
+                    ((Calendar) node.getSimpleProperty("tst:created").getValue()).getTimeInMillis());
+        }
+        session.close();
+    }
+
+}
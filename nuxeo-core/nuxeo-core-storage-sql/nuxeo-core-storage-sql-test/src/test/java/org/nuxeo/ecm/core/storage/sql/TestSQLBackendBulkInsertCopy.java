@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * All the tests of TestSQLBackend with bulk inserts done through {@code COPY}.
+ */
+public class TestSQLBackendBulkInsertCopy extends TestSQLBackendBulkInsert {
+
+    /**
+     * Only run for databases that support {@code COPY}.
+     */
+    @BeforeClass
+    public static void assumeCopySupported() {
+        assumeTrue(DatabaseHelper.DATABASE.supportsCopy());
+    }
+
+    protected boolean fulltextEnabled;
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        if (fulltextEnabled) {
+            descriptor.setFulltextDisabled(false);
+            // no fulltext works, the stored fulltext is set directly
+            descriptor.setFulltextSearchDisabled(true);
+        }
+        return descriptor;
+    }
+
+    @Override
+    protected boolean useCopy() {
+        return true;
+    }
+
+    protected static Connection getJdbcConnection() throws Exception {
+        return DriverManager.getConnection(Framework.getProperty(DatabaseHelper.URL_PROPERTY),
+                Framework.getProperty(DatabaseHelper.USER_PROPERTY),
+                Framework.getProperty(DatabaseHelper.PASSWORD_PROPERTY));
+    }
+
+    @Test
+    public void testBulkInsertCompatibilityFulltextTable() throws Exception {
+        assumeTrue(DatabaseHelper.DEF_ID_TYPE.equals(Framework.getProperty(DatabaseHelper.ID_TYPE_PROPERTY)));
+        repository.close();
+        try (Connection connection = getJdbcConnection(); Statement st = connection.createStatement()) {
+            DatabaseHelper.doOnAllTables(connection, null, "public", "DROP TABLE \"%s\" CASCADE");
+            // fulltext table in compatibility mode, with tsvector columns
+            st.execute("CREATE TABLE fulltext (id VARCHAR(36) NOT NULL PRIMARY KEY, jobid VARCHAR(250),"
+                    + " fulltext TSVECTOR, simpletext TSVECTOR, binarytext TSVECTOR)");
+        }
+        fulltextEnabled = true;
+        repository = newRepository(-1);
+
+        int n = 20;
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty(Model.FULLTEXT_SIMPLETEXT_PROP, "Caf\u00e9s au lait " + i);
+        }
+        session.save();
+        session.close();
+
+        // the stored tsvectors are the ones computed by the database, not the raw text
+        String sql = "SELECT COUNT(*) FROM fulltext f JOIN hierarchy h ON h.id = f.id WHERE h.name LIKE 'doc%'"
+                + " AND f.simpletext = NX_TO_TSVECTOR('Caf\u00e9s au lait ' || SUBSTRING(h.name, 4))";
+        try (Connection connection = getJdbcConnection(); PreparedStatement ps = connection.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            assertEquals(n, rs.getInt(1));
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.IterableQueryResult;
+import org.nuxeo.ecm.core.query.QueryFilter;
+
+/**
+ * Tests of {@code queryAndFetch} with streaming queries activated.
+ */
+public class TestSQLBackendStreamingQuery extends SQLBackendTestCase {
+
+    protected static final int FETCH_SIZE = 3;
+
+    protected static final String QUERY = "SELECT ecm:uuid, tst:title FROM TestDoc ORDER BY tst:title";
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        deployContrib("org.nuxeo.ecm.core.storage.sql.test.tests", "OSGI-INF/test-backend-core-types-contrib.xml");
+    }
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        descriptor.setStreamingQueryEnabled(true);
+        // several fetches for the documents of the tests
+        descriptor.setStreamingFetchSize(FETCH_SIZE);
+        return descriptor;
+    }
+
+    protected Session createDocuments(int n) {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", String.format("title%03d", i));
+        }
+        session.save();
+        return session;
+    }
+
+    @Test
+    public void testStreamingQueryAndFetch() throws Exception {
+        int n = 10 * FETCH_SIZE + 1;
+        Session session = createDocuments(n);
+
+        IterableQueryResult it = session.queryAndFetch(QUERY, "NXQL", QueryFilter.EMPTY);
+        try {
+            // unknown without reading the whole result
+            assertEquals(-1, it.size());
+            List<String> titles = new ArrayList<>();
+            for (Map<String, Serializable> map : it) {
+                titles.add((String) map.get("tst:title"));
+            }
+            assertEquals(n, titles.size());
+            for (int i = 0; i < n; i++) {
+                assertEquals(String.format("title%03d", i), titles.get(i));
+            }
+        } finally {
+            it.close();
+        }
+        session.close();
+    }
+
+    @Test
+    public void testStreamingSkipForward() throws Exception {
+        int n = 4 * FETCH_SIZE;
+        Session session = createDocuments(n);
+
+        IterableQueryResult it = session.queryAndFetch(QUERY, "NXQL", QueryFilter.EMPTY);
+        try {
+            Iterator<Map<String, Serializable>> iter = it.iterator();
+            assertEquals("title000", iter.next().get("tst:title"));
+            it.skipTo(2 * FETCH_SIZE);
+            assertEquals(2 * FETCH_SIZE, it.pos());
+            assertEquals(String.format("title%03d", 2 * FETCH_SIZE), iter.next().get("tst:title"));
+            try {
+                it.skipTo(1);
+                fail("Should not skip backward");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("Cannot skip backward"));
+            }
+            it.skipTo(n);
+            assertFalse(iter.hasNext());
+        } finally {
+            it.close();
+        }
+        session.close();
+    }
+
+    @Test
+    public void testStreamingPartialReadThenClose() throws Exception {
+        int n = 4 * FETCH_SIZE;
+        Session session = createDocuments(n);
+
+        // close results before reading them fully, their resources must be released
+        for (int k = 0; k < 3; k++) {
+            IterableQueryResult it = session.queryAndFetch(QUERY, "NXQL", QueryFilter.EMPTY);
+            try {
+                assertEquals("title000", it.iterator().next().get("tst:title"));
+            } finally {
+                it.close();
+            }
+        }
+        // the session is still usable
+        Node node = session.addChildNode(session.getRootNode(), "other", null, "TestDoc", false);
+        node.setSimpleProperty("tst:title", "other");
+        session.save();
+        IterableQueryResult it = session.queryAndFetch(QUERY, "NXQL", QueryFilter.EMPTY);
+        try {
+            int count = 0;
+            for (Iterator<Map<String, Serializable>> iter = it.iterator(); iter.hasNext(); iter.next()) {
+                count++;
+            }
+            assertEquals(n + 1, count);
+        } finally {
+            it.close();
+        }
+        session.close();
+    }
+
+}
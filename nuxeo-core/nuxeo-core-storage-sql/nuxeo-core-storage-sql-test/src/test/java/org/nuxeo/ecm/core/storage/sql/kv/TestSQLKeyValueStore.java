@@ -0,0 +1,67 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.kv;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.storage.kv.AbstractKeyValueStoreTest;
+import org.nuxeo.ecm.core.storage.kv.KeyValueStore;
+import org.nuxeo.ecm.core.storage.sql.DatabaseHelper;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * Uses the test database through the connection parameters fallback of the datasource helper.
+ *
+ * @since 9.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+public class TestSQLKeyValueStore extends AbstractKeyValueStoreTest {
+
+    protected SQLKeyValueStore store;
+
+    @Before
+    public void setUp() throws SQLException {
+        DatabaseHelper.DATABASE.setUp();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (store != null) {
+            store.clear();
+            store.close();
+            store = null;
+        }
+        DatabaseHelper.DATABASE.tearDown();
+    }
+
+    @Override
+    protected KeyValueStore newKeyValueStore() {
+        store = new SQLKeyValueStore();
+        store.initialize(Collections.singletonMap(SQLKeyValueStore.DATASOURCE_PROP, "jdbc/keyvaluestore_test"));
+        return store;
+    }
+
+}
@@ -18,13 +18,26 @@
  */
 package org.nuxeo.ecm.core.storage.sql;
 
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readCount;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.writeVarint;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.BINARY;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.isSupportedId;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.readId;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.readString;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.writeId;
+import static org.nuxeo.ecm.core.pubsub.BinaryInvalidationsHelper.writeString;
+
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.nuxeo.ecm.core.pubsub.SerializableInvalidations;
@@ -177,21 +190,129 @@ public class Invalidations implements SerializableInvalidations {
         checkMaxSize();
     }
 
-    // TODO do a more fine-grained serialization than using ObjectOutputStream
+    private static final int ALL = 'A';
+
+    /** First byte of a Java serialization stream, used by previous versions. */
+    private static final int JAVA_SERIALIZATION = 0xAC;
 
+    /**
+     * Serializes this in a compact binary format.
+     * <p>
+     * The table names are written once in a dictionary, then each row id is written as its table index and its id.
+     */
     @Override
     public void serialize(OutputStream out) throws IOException {
+        if (all || !isSupported(modified) || !isSupported(deleted)) {
+            // ids of unknown type are not expected, but invalidating everything is always correct
+            out.write(ALL);
+            return;
+        }
+        Map<String, Integer> tables = new LinkedHashMap<>();
+        addTables(modified, tables);
+        addTables(deleted, tables);
+        out.write(BINARY);
+        writeVarint(out, tables.size());
+        for (String tableName : tables.keySet()) {
+            writeString(out, tableName);
+        }
+        writeRowIds(out, modified, tables);
+        writeRowIds(out, deleted, tables);
+    }
+
+    /**
+     * Serializes this using Java serialization, the format of previous versions.
+     */
+    @Override
+    public void serializeLegacy(OutputStream out) throws IOException {
         try (ObjectOutputStream oout = new ObjectOutputStream(out)) {
             oout.writeObject(this);
         }
     }
 
+    protected static boolean isSupported(Set<RowId> rowIds) {
+        if (rowIds != null) {
+            for (RowId rowId : rowIds) {
+                if (!isSupportedId(rowId.id)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    protected static void addTables(Set<RowId> rowIds, Map<String, Integer> tables) {
+        if (rowIds != null) {
+            for (RowId rowId : rowIds) {
+                tables.computeIfAbsent(rowId.tableName, k -> Integer.valueOf(tables.size()));
+            }
+        }
+    }
+
+    protected static void writeRowIds(OutputStream out, Set<RowId> rowIds, Map<String, Integer> tables)
+            throws IOException {
+        if (rowIds == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        writeVarint(out, rowIds.size());
+        for (RowId rowId : rowIds) {
+            writeVarint(out, tables.get(rowId.tableName).intValue());
+            writeId(out, rowId.id);
+        }
+    }
+
     public static Invalidations deserialize(InputStream in) throws IOException {
-        try (ObjectInputStream oin = new ObjectInputStream(in)) {
-            return (Invalidations) oin.readObject();
-        } catch (ClassNotFoundException | ClassCastException e) {
-            throw new IOException(e);
+        int first = in.read();
+        if (first == -1) {
+            // empty message
+            return null;
+        }
+        if (first == ALL) {
+            return new Invalidations(true);
+        }
+        if (first == JAVA_SERIALIZATION) {
+            // format from previous versions
+            PushbackInputStream pin = new PushbackInputStream(in);
+            pin.unread(first);
+            try (ObjectInputStream oin = new ObjectInputStream(pin)) {
+                return (Invalidations) oin.readObject();
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException(e);
+            }
+        }
+        if (first != BINARY) {
+            throw new IOException("Invalid invalidations format: " + first);
+        }
+        int ntables = readCount(in);
+        if (ntables > in.available()) {
+            // each table name takes at least one byte, don't allocate for a truncated or corrupted message
+            throw new EOFException();
+        }
+        String[] tables = new String[ntables];
+        for (int i = 0; i < ntables; i++) {
+            tables[i] = readString(in);
+        }
+        Invalidations invalidations = new Invalidations();
+        invalidations.modified = readRowIds(in, tables);
+        invalidations.deleted = readRowIds(in, tables);
+        invalidations.checkMaxSize();
+        return invalidations;
+    }
+
+    protected static Set<RowId> readRowIds(InputStream in, String[] tables) throws IOException {
+        int n = readCount(in);
+        if (n == 0) {
+            return null;
+        }
+        Set<RowId> rowIds = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            int t = readCount(in);
+            if (t >= tables.length) {
+                throw new IOException("Invalid table index: " + t);
+            }
+            rowIds.add(new RowId(tables[t], readId(in)));
         }
+        return rowIds;
     }
 
     @Override
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.storage.sql;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -205,6 +206,29 @@ public interface Mapper extends RowMapper, XAResource {
 
     void rebuildReadAcls();
 
+    /**
+     * Updates the read acls of new documents, and of the subtrees where a change may remove access to someone, leaving
+     * the propagation of the other read acl changes, which only give more access, to
+     * {@link #updateReadAcls(List, boolean)}.
+     * <p>
+     * If the database does not support incremental updates, all the read acls are updated as with
+     * {@link #updateReadAcls()} and an empty list is returned.
+     *
+     * @return the ids of the documents whose read acl must be recomputed along with their descendants
+     * @since 9.2
+     */
+    List<Serializable> updateNewReadAcls();
+
+    /**
+     * Recomputes the read acls of some documents, or of their children.
+     *
+     * @param ids the document ids
+     * @param children whether to recompute the read acls of the children of the documents instead
+     * @return the ids of the documents whose read acl has changed
+     * @since 9.2
+     */
+    List<Serializable> updateReadAcls(List<Serializable> ids, boolean children);
+
     /*
      * ----- Clustering -----
      */
@@ -0,0 +1,474 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+
+/**
+ * A {@link RowMapper} that uses an {@link OffHeapRowCache} shared by all the sessions of the repository.
+ * <p>
+ * The cache only holds committed {@link Row}s: rows written by a session are never put in the cache, and they are
+ * removed from it when the session sends its invalidations after commit. Invalidations received from other cluster
+ * nodes are also applied to the cache.
+ * <p>
+ * Configuration properties: {@code maxSize} (default {@value #DEFAULT_MAX_SIZE}) and {@code slabSize} (default
+ * {@value #DEFAULT_SLAB_SIZE}).
+ *
+ * @since 9.2
+ */
+public class OffHeapCachingRowMapper implements RowMapper {
+
+    public static final String MAX_SIZE_PROP = "maxSize";
+
+    public static final String DEFAULT_MAX_SIZE = "128MB";
+
+    public static final String SLAB_SIZE_PROP = "slabSize";
+
+    public static final String DEFAULT_SLAB_SIZE = "4MB";
+
+    protected OffHeapRowCache cache;
+
+    protected Model model;
+
+    /**
+     * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
+     */
+    protected RowMapper rowMapper;
+
+    /**
+     * The local invalidations due to writes through this mapper that should be propagated to other sessions and
+     * removed from the cache at post-commit time.
+     */
+    protected final Invalidations localInvalidations;
+
+    /**
+     * The queue of invalidations received from other session or from the cluster invalidator, to process at
+     * pre-transaction time.
+     */
+    protected final InvalidationsQueue invalidationsQueue;
+
+    /**
+     * The propagator of invalidations to other mappers.
+     */
+    protected InvalidationsPropagator invalidationsPropagator;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Counter cacheHitCount;
+
+    protected Timer cacheGetTimer;
+
+    // sor means system of record (database access)
+    protected Counter sorRows;
+
+    protected Timer sorGetTimer;
+
+    public OffHeapCachingRowMapper() {
+        localInvalidations = new Invalidations();
+        invalidationsQueue = new InvalidationsQueue("mapper-" + this);
+    }
+
+    public void initialize(String repositoryName, Model model, RowMapper rowMapper,
+            InvalidationsPropagator invalidationsPropagator, Map<String, String> properties) {
+        this.model = model;
+        this.rowMapper = rowMapper;
+        this.invalidationsPropagator = invalidationsPropagator;
+        invalidationsPropagator.addQueue(invalidationsQueue);
+        long maxSize = SizeUtils.parseSizeInBytes(properties.getOrDefault(MAX_SIZE_PROP, DEFAULT_MAX_SIZE));
+        long slabSize = SizeUtils.parseSizeInBytes(properties.getOrDefault(SLAB_SIZE_PROP, DEFAULT_SLAB_SIZE));
+        cache = OffHeapRowCache.getCache(repositoryName, maxSize, (int) slabSize);
+        setMetrics(repositoryName);
+    }
+
+    protected void setMetrics(String repositoryName) {
+        cacheHitCount = registry.counter(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap", "hits"));
+        cacheGetTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap", "get"));
+        sorRows = registry.counter(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap", "sor", "rows"));
+        sorGetTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap", "sor", "get"));
+        String gaugeName = getCacheSizeGaugeName(repositoryName);
+        if (!registry.getGauges().containsKey(gaugeName)) {
+            OffHeapRowCache c = cache;
+            registry.register(gaugeName, (Gauge<Integer>) c::size);
+        }
+    }
+
+    protected static String getCacheSizeGaugeName(String repositoryName) {
+        return MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap", "cache-size");
+    }
+
+    /**
+     * Releases the off-heap cache of a repository and its gauge. Called when the repository is shut down.
+     *
+     * @param repositoryName the repository name
+     */
+    public static void closeCache(String repositoryName) {
+        if (OffHeapRowCache.closeCache(repositoryName)) {
+            MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            registry.remove(getCacheSizeGaugeName(repositoryName));
+        }
+    }
+
+    public void close() {
+        invalidationsPropagator.removeQueue(invalidationsQueue);
+    }
+
+    @Override
+    public Serializable generateNewId() {
+        return rowMapper.generateNewId();
+    }
+
+    /*
+     * ----- Cache -----
+     */
+
+    protected static boolean isAbsent(RowId rowId) {
+        return !(rowId instanceof Row);
+    }
+
+    /**
+     * Checks if a row was written by this mapper in the current transaction, in which case what the database returns
+     * is not committed yet and must not be shared with other sessions.
+     */
+    protected boolean isLocallyModified(RowId rowId) {
+        if (localInvalidations.all) {
+            return true;
+        }
+        return localInvalidations.modified != null && localInvalidations.modified.contains(rowId)
+                || localInvalidations.deleted != null && localInvalidations.deleted.contains(rowId);
+    }
+
+    protected void cachePut(RowId rowId, long gen) {
+        if (isLocallyModified(rowId)) {
+            return;
+        }
+        if (rowId instanceof Row) {
+            Row row = (Row) rowId;
+            // for ACL collections, make sure the order is correct
+            // (without the cache, the query to get a list of collection does an
+            // ORDER BY pos, so users of the cache must get the same behavior)
+            if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
+                row = row.clone();
+                ACLRow[] acls = ((ACLRow[]) row.values).clone();
+                Arrays.sort(acls, ACLRowPositionComparator.INSTANCE);
+                row.values = acls;
+            }
+            cache.put(row, gen);
+        } else {
+            cache.put(new RowId(rowId), gen);
+        }
+    }
+
+    protected RowId cacheGet(RowId rowId) {
+        if (isLocallyModified(rowId)) {
+            return null;
+        }
+        final Context context = cacheGetTimer.time();
+        try {
+            RowId cached = cache.get(rowId);
+            if (cached != null) {
+                cacheHitCount.inc();
+            }
+            return cached;
+        } finally {
+            context.stop();
+        }
+    }
+
+    protected void cacheRemove(Invalidations invalidations) {
+        if (invalidations.all) {
+            cache.clear();
+            return;
+        }
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                cache.remove(rowId);
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                cache.remove(rowId);
+            }
+        }
+    }
+
+    /*
+     * ----- Invalidations / Cache Management -----
+     */
+
+    @Override
+    public Invalidations receiveInvalidations() {
+        // invalidations from the underlying mapper (cluster)
+        // already propagated to our invalidations queue
+        Invalidations remoteInvals = rowMapper.receiveInvalidations();
+        if (remoteInvals != null) {
+            cacheRemove(remoteInvals);
+        }
+        // invalidations from other local sessions have already been applied to the shared cache
+        Invalidations ret = invalidationsQueue.getInvalidations();
+        return ret.isEmpty() ? null : ret;
+    }
+
+    // propagate invalidations
+    @Override
+    public void sendInvalidations(Invalidations invalidations) {
+        // add local invalidations
+        if (!localInvalidations.isEmpty()) {
+            if (invalidations == null) {
+                invalidations = new Invalidations();
+            }
+            invalidations.add(localInvalidations);
+            localInvalidations.clear();
+        }
+
+        if (invalidations != null && !invalidations.isEmpty()) {
+            // now that our writes are committed, drop the previous values from the shared cache
+            cacheRemove(invalidations);
+
+            // send to underlying mapper
+            rowMapper.sendInvalidations(invalidations);
+
+            // queue to other mappers' caches
+            invalidationsPropagator.propagateInvalidations(invalidations, invalidationsQueue);
+        }
+    }
+
+    @Override
+    public void clearCache() {
+        // the shared cache only holds committed rows, it doesn't depend on this session's state
+        localInvalidations.clear();
+        rowMapper.clearCache();
+    }
+
+    @Override
+    public void rollback(Xid xid) throws XAException {
+        try {
+            rowMapper.rollback(xid);
+        } finally {
+            localInvalidations.clear();
+        }
+    }
+
+    /*
+     * ----- Batch -----
+     */
+
+    /*
+     * Use those from the cache if available, read from the mapper for the rest.
+     */
+    @Override
+    public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+        List<RowId> res = new ArrayList<>(rowIds.size());
+        // find which are in cache, and which not
+        List<RowId> todo = new LinkedList<>();
+        for (RowId rowId : rowIds) {
+            RowId cached = cacheGet(rowId);
+            if (cached == null) {
+                if (cacheOnly) {
+                    res.add(new RowId(rowId));
+                } else {
+                    todo.add(rowId);
+                }
+            } else {
+                res.add(cached);
+            }
+        }
+        if (!todo.isEmpty()) {
+            final Context context = sorGetTimer.time();
+            try {
+                long gen = cache.getGeneration();
+                // ask missing ones to underlying row mapper
+                List<? extends RowId> fetched = rowMapper.read(todo, cacheOnly);
+                // add them to the cache
+                for (RowId rowId : fetched) {
+                    cachePut(rowId, gen);
+                }
+                // merge results
+                res.addAll(fetched);
+                sorRows.inc(fetched.size());
+            } finally {
+                context.stop();
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Pass all the writes to the mapper, the cache is updated at post-commit time.
+     */
+    @Override
+    public void write(RowBatch batch) {
+        // we avoid gathering invalidations for a write-only table: fulltext
+        for (Row row : batch.creates) {
+            if (!Model.FULLTEXT_TABLE_NAME.equals(row.tableName)) {
+                // we need to send modified invalidations for created
+                // fragments because other session's ABSENT fragments have
+                // to be invalidated
+                localInvalidations.addModified(new RowId(row));
+            }
+        }
+        for (RowUpdate rowu : batch.updates) {
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowu.row.tableName)) {
+                localInvalidations.addModified(new RowId(rowu.row));
+            }
+        }
+        for (RowId rowId : batch.deletes) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        for (RowId rowId : batch.deletesDependent) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+
+        // propagate to underlying mapper
+        rowMapper.write(batch);
+    }
+
+    /*
+     * ----- Read -----
+     */
+
+    @Override
+    public Row readSimpleRow(RowId rowId) {
+        RowId cached = cacheGet(rowId);
+        if (cached == null) {
+            long gen = cache.getGeneration();
+            Row row = rowMapper.readSimpleRow(rowId);
+            cachePut(row == null ? rowId : row, gen);
+            return row;
+        } else if (isAbsent(cached)) {
+            return null;
+        } else {
+            return (Row) cached;
+        }
+    }
+
+    @Override
+    public Map<String, String> getBinaryFulltext(RowId rowId) {
+        return rowMapper.getBinaryFulltext(rowId);
+    }
+
+    @Override
+    public Serializable[] readCollectionRowArray(RowId rowId) {
+        RowId cached = cacheGet(rowId);
+        if (cached == null) {
+            long gen = cache.getGeneration();
+            Serializable[] array = rowMapper.readCollectionRowArray(rowId);
+            assert array != null;
+            cachePut(new Row(rowId.tableName, rowId.id, array), gen);
+            return array;
+        } else if (isAbsent(cached)) {
+            return null;
+        } else {
+            return ((Row) cached).values;
+        }
+    }
+
+    @Override
+    public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+            Serializable criterion, boolean limitToOne) {
+        long gen = cache.getGeneration();
+        List<Row> rows = rowMapper.readSelectionRows(selType, selId, filter, criterion, limitToOne);
+        for (Row row : rows) {
+            cachePut(row, gen);
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+        return rowMapper.readSelectionsIds(selType, values);
+    }
+
+    /*
+     * ----- Copy -----
+     */
+
+    @Override
+    public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow) {
+        CopyResult result = rowMapper.copy(source, destParentId, destName, overwriteRow);
+        Invalidations invalidations = result.invalidations;
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                localInvalidations.addModified(new RowId(rowId));
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+        return rowMapper.getDescendantsInfo(rootId);
+    }
+
+    @Override
+    public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+        rowMapper.remove(rootId, nodeInfos);
+        for (NodeInfo info : nodeInfos) {
+            for (String fragmentName : model.getTypeFragments(new IdWithTypes(info.id, info.primaryType, null))) {
+                localInvalidations.addDeleted(new RowId(fragmentName, info.id));
+            }
+        }
+    }
+
+    @Override
+    public long getCacheSize() {
+        // the cache is shared by all the sessions of the repository, it's reported by the cache-size gauge
+        return 0;
+    }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A size-bounded cache of {@link Row}s stored outside of the Java heap, shared by all the sessions of a repository.
+ * <p>
+ * Rows are encoded with {@link RowCodec} and appended to fixed-size direct {@link ByteBuffer} slabs used as a ring.
+ * When no space is left, the oldest slab is recycled and all the rows it holds are evicted. A row read from a slab
+ * other than the current one is copied to the current slab, so that rows in use survive the recycling of their slab,
+ * which gives an LRU behavior at the slab granularity.
+ * <p>
+ * Only the index (a {@link RowId} and a location per row) lives on the heap.
+ *
+ * @since 9.2
+ */
+public class OffHeapRowCache {
+
+    private static final Map<String, OffHeapRowCache> CACHES = new ConcurrentHashMap<>();
+
+    protected static class Location {
+
+        protected final int slab;
+
+        protected final int offset;
+
+        protected final int length;
+
+        protected Location(int slab, int offset, int length) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    protected final int slabSize;
+
+    protected final ByteBuffer[] slabs;
+
+    /** The keys stored in each slab, to evict them when the slab is recycled. */
+    protected final List<List<RowId>> slabKeys;
+
+    protected final Map<RowId, Location> index = new HashMap<>();
+
+    protected int currentSlab;
+
+    protected int position;
+
+    /** Incremented at each invalidation, to detect puts of rows read before an invalidation. */
+    protected long generation;
+
+    protected boolean closed;
+
+    /**
+     * Gets the cache for a repository, creating it if needed.
+     *
+     * @param repositoryName the repository name
+     * @param maxSize the maximum size of the off-heap memory used by the cache, in bytes
+     * @param slabSize the size of a slab, in bytes
+     */
+    public static OffHeapRowCache getCache(String repositoryName, long maxSize, int slabSize) {
+        return CACHES.computeIfAbsent(repositoryName, k -> new OffHeapRowCache(maxSize, slabSize));
+    }
+
+    /**
+     * Closes and forgets the cache of a repository, if any. Called when the repository is shut down, so that a
+     * restarted repository starts with an empty cache using its new configuration.
+     *
+     * @param repositoryName the repository name
+     * @return {@code true} if there was a cache for the repository
+     */
+    public static boolean closeCache(String repositoryName) {
+        OffHeapRowCache cache = CACHES.remove(repositoryName);
+        if (cache == null) {
+            return false;
+        }
+        cache.close();
+        return true;
+    }
+
+    public OffHeapRowCache(long maxSize, int slabSize) {
+        if (slabSize <= 0 || maxSize < slabSize) {
+            throw new IllegalArgumentException("Invalid sizes: maxSize=" + maxSize + " slabSize=" + slabSize);
+        }
+        int nslabs = (int) Math.max(2, maxSize / slabSize);
+        this.slabSize = slabSize;
+        slabs = new ByteBuffer[nslabs];
+        slabKeys = new ArrayList<>(nslabs);
+        for (int i = 0; i < nslabs; i++) {
+            slabKeys.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Gets the current generation, to be passed to {@link #put(RowId, long)} for rows read from the database after
+     * this call.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets a row from the cache.
+     *
+     * @return a new {@link Row}, or a {@link RowId} if the row is known to be absent, or {@code null} if the row is
+     *         not in the cache
+     */
+    public RowId get(RowId rowId) {
+        byte[] bytes = getBytes(rowId);
+        return bytes == null ? null : RowCodec.decode(bytes);
+    }
+
+    protected synchronized byte[] getBytes(RowId rowId) {
+        if (closed) {
+            return null;
+        }
+        Location location = index.get(rowId);
+        if (location == null) {
+            return null;
+        }
+        byte[] bytes = new byte[location.length];
+        ByteBuffer slab = slabs[location.slab];
+        slab.position(location.offset);
+        slab.get(bytes);
+        if (location.slab != currentSlab) {
+            // promote to the current slab
+            append(new RowId(rowId), bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Puts a row in the cache, or an absent row marker if the {@link RowId} is not a {@link Row}.
+     * <p>
+     * Nothing is stored if an invalidation happened since the given generation was obtained, as the row may be stale.
+     *
+     * @param rowId the row or the absent row id
+     * @param gen the generation obtained before reading the row
+     */
+    public void put(RowId rowId, long gen) {
+        byte[] bytes = RowCodec.encode(rowId);
+        if (bytes.length > slabSize) {
+            return;
+        }
+        synchronized (this) {
+            if (closed || generation != gen) {
+                return;
+            }
+            // never keep a Row as key, its values would stay on the heap
+            append(new RowId(rowId), bytes);
+        }
+    }
+
+    protected void append(RowId key, byte[] bytes) {
+        if (position + bytes.length > slabSize) {
+            recycleNextSlab();
+        }
+        ByteBuffer slab = slabs[currentSlab];
+        if (slab == null) {
+            slab = slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        }
+        slab.position(position);
+        slab.put(bytes);
+        index.put(key, new Location(currentSlab, position, bytes.length));
+        slabKeys.get(currentSlab).add(key);
+        position += bytes.length;
+    }
+
+    protected void recycleNextSlab() {
+        currentSlab = (currentSlab + 1) % slabs.length;
+        position = 0;
+        List<RowId> keys = slabKeys.get(currentSlab);
+        for (RowId key : keys) {
+            Location location = index.get(key);
+            if (location != null && location.slab == currentSlab) {
+                index.remove(key);
+            }
+        }
+        keys.clear();
+    }
+
+    /**
+     * Removes a row from the cache.
+     */
+    public synchronized void remove(RowId rowId) {
+        index.remove(rowId);
+        generation++;
+    }
+
+    /**
+     * Removes all the rows from the cache. The off-heap memory is kept for reuse.
+     */
+    public synchronized void clear() {
+        index.clear();
+        for (List<RowId> keys : slabKeys) {
+            keys.clear();
+        }
+        currentSlab = 0;
+        position = 0;
+        generation++;
+    }
+
+    /**
+     * Closes the cache: all the rows are removed and the off-heap memory is released. Later puts are ignored and
+     * later gets miss.
+     */
+    public synchronized void close() {
+        clear();
+        Arrays.fill(slabs, null);
+        closed = true;
+    }
+
+    /**
+     * Gets the number of rows in the cache.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Gets the number of bytes of off-heap memory allocated by the cache.
+     */
+    public synchronized long getAllocatedBytes() {
+        long n = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                n += slab.capacity();
+            }
+        }
+        return n;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.resource.ResourceException;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.sql.coremodel.SQLRepositoryService;
+import org.nuxeo.ecm.core.work.AbstractWork;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Work propagating read acl changes to the subtrees of the documents whose ACLs or parent changed.
+ * <p>
+ * Only changes that give more access are propagated this way, revocations are applied synchronously at save time so
+ * that a removed permission never stays effective.
+ * <p>
+ * The subtrees are walked depth-first, one batch of documents at a time, each batch in its own transaction. The
+ * children of a batch are recomputed, and only the children whose read acl actually changed are walked further, so
+ * that an ACL change only costs in proportion to the documents it affects. Readers always see a valid read acl for
+ * each document: the previous one until the document is reached, then the new one.
+ * <p>
+ * The pending batches are kept by the work instance, so that a retry resumes where the previous attempt failed.
+ *
+ * @since 9.2
+ */
+public class ReadAclsUpdateWork extends AbstractWork {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CATEGORY = "updateReadAcls";
+
+    protected final List<Serializable> ids;
+
+    protected final int batchSize;
+
+    /** Batches of documents whose children must be recomputed. */
+    protected final Deque<List<Serializable>> todo = new ArrayDeque<>();
+
+    protected boolean rootsDone;
+
+    protected long done;
+
+    protected long pending;
+
+    public ReadAclsUpdateWork(String repositoryName, List<Serializable> ids, int batchSize) {
+        this.repositoryName = repositoryName;
+        this.ids = new ArrayList<>(ids);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public String getCategory() {
+        return CATEGORY;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Read ACLs update: " + repositoryName + " " + ids.size() + " roots";
+    }
+
+    @Override
+    public int getRetryCount() {
+        // concurrent updates are possible, and each retry resumes the propagation
+        return 10;
+    }
+
+    @Override
+    public void work() {
+        setStatus("Updating read ACLs");
+        RepositoryImpl repository = Framework.getService(SQLRepositoryService.class).getRepositoryImpl(repositoryName);
+        if (!rootsDone) {
+            // the roots are always walked, even if their own read acl did not change
+            for (List<Serializable> batch : split(ids)) {
+                updateReadAcls(repository, batch, false);
+                push(batch);
+            }
+            commitOrRollbackTransaction();
+            startTransaction();
+            rootsDone = true;
+        }
+        while (!todo.isEmpty()) {
+            List<Serializable> batch = todo.peek();
+            List<Serializable> changed = updateReadAcls(repository, batch, true);
+            commitOrRollbackTransaction();
+            startTransaction();
+            // the batch is only removed once its changes are committed
+            todo.pop();
+            pending -= batch.size();
+            done += batch.size();
+            for (List<Serializable> b : split(changed)) {
+                push(b);
+            }
+            setProgress(new Progress(done, done + pending));
+        }
+        setStatus("Done");
+    }
+
+    protected List<Serializable> updateReadAcls(RepositoryImpl repository, List<Serializable> batch,
+            boolean children) {
+        SessionImpl session = repository.getConnection();
+        try {
+            return session.updateReadAcls(batch, children);
+        } finally {
+            try {
+                session.close();
+            } catch (ResourceException e) {
+                throw new NuxeoException(e);
+            }
+        }
+    }
+
+    protected void push(List<Serializable> batch) {
+        todo.push(batch);
+        pending += batch.size();
+    }
+
+    protected List<List<Serializable>> split(List<Serializable> list) {
+        List<List<Serializable>> batches = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += batchSize) {
+            batches.add(new ArrayList<>(list.subList(i, Math.min(i + batchSize, list.size()))));
+        }
+        return batches;
+    }
+
+}
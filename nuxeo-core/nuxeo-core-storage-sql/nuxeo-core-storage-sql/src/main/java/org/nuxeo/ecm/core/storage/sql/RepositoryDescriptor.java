@@ -48,6 +48,15 @@ public class RepositoryDescriptor {
 
     public static final int DEFAULT_PATH_OPTIM_VERSION = 2;
 
+    /** @since 9.2 */
+    public static final int DEFAULT_INSERT_BATCH_SIZE = 100;
+
+    /** @since 9.2 */
+    public static final int DEFAULT_STREAMING_FETCH_SIZE = 1000;
+
+    /** @since 9.2 */
+    public static final int DEFAULT_READ_ACL_BATCH_SIZE = 500;
+
     /** At startup, DDL changes are not detected. */
     public static final String DDL_MODE_IGNORE = "ignore";
 
@@ -387,6 +396,39 @@ public class RepositoryDescriptor {
         return readAclMaxSize == null ? DEFAULT_READ_ACL_MAX_SIZE : readAclMaxSize.intValue();
     }
 
+    /** @since 9.2 */
+    @XNode("aclOptimizations@async")
+    private Boolean aclOptimizationsAsync;
+
+    /**
+     * Whether read acl changes are propagated to subtrees incrementally by a {@link ReadAclsUpdateWork} after commit,
+     * instead of synchronously at save time. The read acls of new documents, and the changes that may remove access to
+     * someone, are always computed synchronously.
+     *
+     * @since 9.2
+     */
+    public boolean getAclOptimizationsAsync() {
+        return defaultFalse(aclOptimizationsAsync);
+    }
+
+    /** @since 9.2 */
+    public void setAclOptimizationsAsync(boolean async) {
+        aclOptimizationsAsync = Boolean.valueOf(async);
+    }
+
+    /** @since 9.2 */
+    @XNode("aclOptimizations@batchSize")
+    private Integer readAclBatchSize;
+
+    /**
+     * The number of documents whose children are processed in each transaction of an asynchronous read acl update.
+     *
+     * @since 9.2
+     */
+    public int getReadAclBatchSize() {
+        return readAclBatchSize == null ? DEFAULT_READ_ACL_BATCH_SIZE : readAclBatchSize.intValue();
+    }
+
     @XNode("usersSeparator@key")
     public String usersSeparatorKey;
 
@@ -404,6 +446,117 @@ public class RepositoryDescriptor {
         this.changeTokenEnabled = Boolean.valueOf(enabled);
     }
 
+    /** @since 9.2 */
+    @XNode("bulkInsert@enabled")
+    private Boolean bulkInsertEnabled;
+
+    /**
+     * Whether several rows of the same table are inserted with a single statement (multi-row {@code INSERT}, or
+     * {@code COPY} if enabled) instead of JDBC batches of single-row statements.
+     *
+     * @since 9.2
+     */
+    public boolean getBulkInsertEnabled() {
+        return defaultFalse(bulkInsertEnabled);
+    }
+
+    /** @since 9.2 */
+    public void setBulkInsertEnabled(boolean enabled) {
+        bulkInsertEnabled = Boolean.valueOf(enabled);
+    }
+
+    /** @since 9.2 */
+    @XNode("bulkInsert@copy")
+    private Boolean bulkInsertCopyEnabled;
+
+    /**
+     * Whether bulk inserts use the database {@code COPY} protocol when the dialect supports it.
+     *
+     * @since 9.2
+     */
+    public boolean getBulkInsertCopyEnabled() {
+        return defaultFalse(bulkInsertCopyEnabled);
+    }
+
+    /** @since 9.2 */
+    public void setBulkInsertCopyEnabled(boolean enabled) {
+        bulkInsertCopyEnabled = Boolean.valueOf(enabled);
+    }
+
+    /** @since 9.2 */
+    @XNode("bulkInsert@batchSize")
+    private Integer insertBatchSize;
+
+    /**
+     * The maximum number of rows sent in one batch, or in one statement for bulk inserts.
+     *
+     * @since 9.2
+     */
+    public int getInsertBatchSize() {
+        return insertBatchSize == null ? DEFAULT_INSERT_BATCH_SIZE : insertBatchSize.intValue();
+    }
+
+    /** @since 9.2 */
+    public void setInsertBatchSize(int size) {
+        insertBatchSize = Integer.valueOf(size);
+    }
+
+    /** @since 9.2 */
+    @XNode("prefetch@batched")
+    private Boolean prefetchBatchEnabled;
+
+    /**
+     * Whether rows from several tables are prefetched in a single round-trip using a multi-statement query, when the
+     * dialect supports it.
+     *
+     * @since 9.2
+     */
+    public boolean getPrefetchBatchEnabled() {
+        return defaultFalse(prefetchBatchEnabled);
+    }
+
+    /** @since 9.2 */
+    public void setPrefetchBatchEnabled(boolean enabled) {
+        prefetchBatchEnabled = Boolean.valueOf(enabled);
+    }
+
+    /** @since 9.2 */
+    @XNode("streamingQuery@enabled")
+    private Boolean streamingQueryEnabled;
+
+    /**
+     * Whether {@code queryAndFetch} results are streamed from the database using a forward-only cursor, instead of
+     * being fully loaded by the driver before iteration starts.
+     *
+     * @since 9.2
+     */
+    public boolean getStreamingQueryEnabled() {
+        return defaultFalse(streamingQueryEnabled);
+    }
+
+    /** @since 9.2 */
+    public void setStreamingQueryEnabled(boolean enabled) {
+        streamingQueryEnabled = Boolean.valueOf(enabled);
+    }
+
+    /** @since 9.2 */
+    @XNode("streamingQuery@fetchSize")
+    private Integer streamingFetchSize;
+
+    /**
+     * The number of rows fetched from the database at a time by streamed {@code queryAndFetch} results.
+     *
+     * @since 9.2
+     */
+    public int getStreamingFetchSize() {
+        return streamingFetchSize == null ? DEFAULT_STREAMING_FETCH_SIZE : streamingFetchSize.intValue();
+    }
+
+    /** @since 9.2 */
+    public void setStreamingFetchSize(int size) {
+        streamingFetchSize = Integer.valueOf(size);
+    }
+
     public RepositoryDescriptor() {
     }
 
@@ -437,8 +590,16 @@ public class RepositoryDescriptor {
         pathOptimizationsVersion = other.pathOptimizationsVersion;
         aclOptimizationsEnabled = other.aclOptimizationsEnabled;
         readAclMaxSize = other.readAclMaxSize;
+        aclOptimizationsAsync = other.aclOptimizationsAsync;
+        readAclBatchSize = other.readAclBatchSize;
         usersSeparatorKey = other.usersSeparatorKey;
         changeTokenEnabled = other.changeTokenEnabled;
+        bulkInsertEnabled = other.bulkInsertEnabled;
+        bulkInsertCopyEnabled = other.bulkInsertCopyEnabled;
+        insertBatchSize = other.insertBatchSize;
+        prefetchBatchEnabled = other.prefetchBatchEnabled;
+        streamingQueryEnabled = other.streamingQueryEnabled;
+        streamingFetchSize = other.streamingFetchSize;
     }
 
     public void merge(RepositoryDescriptor other) {
@@ -532,12 +693,36 @@ public class RepositoryDescriptor {
         if (other.readAclMaxSize != null) {
             readAclMaxSize = other.readAclMaxSize;
         }
+        if (other.aclOptimizationsAsync != null) {
+            aclOptimizationsAsync = other.aclOptimizationsAsync;
+        }
+        if (other.readAclBatchSize != null) {
+            readAclBatchSize = other.readAclBatchSize;
+        }
         if (other.usersSeparatorKey != null) {
             usersSeparatorKey = other.usersSeparatorKey;
         }
         if (other.changeTokenEnabled != null) {
             changeTokenEnabled = other.changeTokenEnabled;
         }
+        if (other.bulkInsertEnabled != null) {
+            bulkInsertEnabled = other.bulkInsertEnabled;
+        }
+        if (other.bulkInsertCopyEnabled != null) {
+            bulkInsertCopyEnabled = other.bulkInsertCopyEnabled;
+        }
+        if (other.insertBatchSize != null) {
+            insertBatchSize = other.insertBatchSize;
+        }
+        if (other.prefetchBatchEnabled != null) {
+            prefetchBatchEnabled = other.prefetchBatchEnabled;
+        }
+        if (other.streamingQueryEnabled != null) {
+            streamingQueryEnabled = other.streamingQueryEnabled;
+        }
+        if (other.streamingFetchSize != null) {
+            streamingFetchSize = other.streamingFetchSize;
+        }
     }
 
 }
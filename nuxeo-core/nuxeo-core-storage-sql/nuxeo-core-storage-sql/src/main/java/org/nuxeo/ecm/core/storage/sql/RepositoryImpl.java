@@ -407,6 +407,8 @@ public class RepositoryImpl implements Repository {
         registry.remove(MetricRegistry.name(RepositoryImpl.class, getName(), "cache-size"));
         registry.remove(MetricRegistry.name(PersistenceContext.class, getName(), "cache-size"));
         registry.remove(MetricRegistry.name(SelectionContext.class, getName(), "cache-size"));
+        // the off-heap row cache is shared by the sessions, release it with the repository
+        OffHeapCachingRowMapper.closeCache(getName());
 
         if (selfRegisteredLockManager) {
             LockManagerService lms = Framework.getService(LockManagerService.class);
@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * Compact binary encoding of {@link Row}s, used to store them outside of the Java heap.
+ * <p>
+ * The value types produced by the database mappers (strings, numbers, booleans, calendars, arrays of those, and
+ * {@link ACLRow}s) have a dedicated encoding. Any other {@link Serializable} falls back to Java serialization.
+ *
+ * @since 9.2
+ */
+public class RowCodec {
+
+    protected static final byte FLAG_SIMPLE = 0;
+
+    protected static final byte FLAG_COLLECTION = 1;
+
+    protected static final byte FLAG_ABSENT = 2;
+
+    protected static final byte T_NULL = 0;
+
+    protected static final byte T_STRING = 1;
+
+    protected static final byte T_LONG = 2;
+
+    protected static final byte T_BOOLEAN = 3;
+
+    protected static final byte T_DOUBLE = 4;
+
+    protected static final byte T_CALENDAR = 5;
+
+    protected static final byte T_INTEGER = 6;
+
+    protected static final byte T_ACLROW = 7;
+
+    protected static final byte T_OPAQUE = 8;
+
+    protected static final byte T_ARRAY = 9;
+
+    protected static final byte T_SERIALIZED = 10;
+
+    private RowCodec() {
+        // utility class
+    }
+
+    /**
+     * Encodes a row, or an absent row if the {@link RowId} is not a {@link Row}.
+     */
+    public static byte[] encode(RowId rowId) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            if (rowId instanceof Row) {
+                Row row = (Row) rowId;
+                if (row.isCollection()) {
+                    out.writeByte(FLAG_COLLECTION);
+                    writeString(out, row.tableName);
+                    writeValue(out, row.id);
+                    // written as a whole to keep the array component type
+                    writeValue(out, row.values);
+                } else {
+                    out.writeByte(FLAG_SIMPLE);
+                    writeString(out, row.tableName);
+                    writeValue(out, row.id);
+                    out.writeInt(row.size);
+                    for (int i = 0; i < row.size; i++) {
+                        writeNullableString(out, row.keys[i]);
+                        writeValue(out, row.values[i]);
+                    }
+                }
+            } else {
+                out.writeByte(FLAG_ABSENT);
+                writeString(out, rowId.tableName);
+                writeValue(out, rowId.id);
+            }
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot encode: " + rowId, e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decodes a row. The result is a {@link RowId} (and not a {@link Row}) if the row was encoded as absent.
+     */
+    public static RowId decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte flag = in.readByte();
+            String tableName = readString(in);
+            Serializable id = readValue(in);
+            switch (flag) {
+            case FLAG_ABSENT:
+                return new RowId(tableName, id);
+            case FLAG_COLLECTION:
+                // array is cloned by the constructor, but this is cheap compared to decoding
+                return new Row(tableName, id, (Serializable[]) readValue(in));
+            case FLAG_SIMPLE: {
+                Row row = new Row(tableName, id);
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    String key = readNullableString(in);
+                    row.putNew(key, readValue(in));
+                }
+                return row;
+            }
+            default:
+                throw new NuxeoException("Invalid row flag: " + flag);
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new NuxeoException("Cannot decode row", e);
+        }
+    }
+
+    protected static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected static void writeNullableString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            writeString(out, string);
+        }
+    }
+
+    protected static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    protected static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(T_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(T_LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value instanceof Double) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Integer) {
+            out.writeByte(T_INTEGER);
+            out.writeInt(((Integer) value).intValue());
+        } else if (value instanceof GregorianCalendar) {
+            out.writeByte(T_CALENDAR);
+            writeCalendar(out, (Calendar) value);
+        } else if (value instanceof ACLRow) {
+            out.writeByte(T_ACLROW);
+            writeACLRow(out, (ACLRow) value);
+        } else if (value == Row.OPAQUE) {
+            out.writeByte(T_OPAQUE);
+        } else if (value instanceof Object[] && getComponentTag(value.getClass().getComponentType()) != T_SERIALIZED) {
+            Object[] array = (Object[]) value;
+            out.writeByte(T_ARRAY);
+            out.writeByte(getComponentTag(value.getClass().getComponentType()));
+            out.writeInt(array.length);
+            for (Object v : array) {
+                writeValue(out, v);
+            }
+        } else {
+            out.writeByte(T_SERIALIZED);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                oos.writeObject(value);
+            }
+            byte[] bytes = baos.toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    protected static Serializable readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        switch (tag) {
+        case T_NULL:
+            return null;
+        case T_STRING:
+            return readString(in);
+        case T_LONG:
+            return Long.valueOf(in.readLong());
+        case T_BOOLEAN:
+            return Boolean.valueOf(in.readBoolean());
+        case T_DOUBLE:
+            return Double.valueOf(in.readDouble());
+        case T_INTEGER:
+            return Integer.valueOf(in.readInt());
+        case T_CALENDAR:
+            return readCalendar(in);
+        case T_ACLROW:
+            return readACLRow(in);
+        case T_OPAQUE:
+            return Row.OPAQUE;
+        case T_ARRAY: {
+            byte componentTag = in.readByte();
+            Serializable[] array = newArray(componentTag, in.readInt());
+            for (int i = 0; i < array.length; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        }
+        case T_SERIALIZED: {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Serializable) ois.readObject();
+            }
+        }
+        default:
+            throw new IOException("Invalid value tag: " + tag);
+        }
+    }
+
+    protected static byte getComponentTag(Class<?> klass) {
+        if (klass == Serializable.class) {
+            return T_NULL;
+        } else if (klass == String.class) {
+            return T_STRING;
+        } else if (klass == Long.class) {
+            return T_LONG;
+        } else if (klass == Boolean.class) {
+            return T_BOOLEAN;
+        } else if (klass == Double.class) {
+            return T_DOUBLE;
+        } else if (klass == Integer.class) {
+            return T_INTEGER;
+        } else if (klass == Calendar.class) {
+            return T_CALENDAR;
+        } else if (klass == ACLRow.class) {
+            return T_ACLROW;
+        } else {
+            return T_SERIALIZED;
+        }
+    }
+
+    protected static Serializable[] newArray(byte componentTag, int length) throws IOException {
+        switch (componentTag) {
+        case T_NULL:
+            return new Serializable[length];
+        case T_STRING:
+            return new String[length];
+        case T_LONG:
+            return new Long[length];
+        case T_BOOLEAN:
+            return new Boolean[length];
+        case T_DOUBLE:
+            return new Double[length];
+        case T_INTEGER:
+            return new Integer[length];
+        case T_CALENDAR:
+            return new Calendar[length];
+        case T_ACLROW:
+            return new ACLRow[length];
+        default:
+            throw new IOException("Invalid array component tag: " + componentTag);
+        }
+    }
+
+    protected static void writeCalendar(DataOutputStream out, Calendar calendar) throws IOException {
+        out.writeLong(calendar.getTimeInMillis());
+        writeString(out, calendar.getTimeZone().getID());
+    }
+
+    protected static Calendar readCalendar(DataInputStream in) throws IOException {
+        long millis = in.readLong();
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    protected static void writeACLRow(DataOutputStream out, ACLRow acl) throws IOException {
+        out.writeInt(acl.pos);
+        writeNullableString(out, acl.name);
+        out.writeBoolean(acl.grant);
+        writeNullableString(out, acl.permission);
+        writeNullableString(out, acl.user);
+        writeNullableString(out, acl.group);
+        writeNullableString(out, acl.creator);
+        writeValue(out, acl.begin);
+        writeValue(out, acl.end);
+        writeValue(out, acl.status);
+    }
+
+    protected static ACLRow readACLRow(DataInputStream in) throws IOException, ClassNotFoundException {
+        int pos = in.readInt();
+        String name = readNullableString(in);
+        boolean grant = in.readBoolean();
+        String permission = readNullableString(in);
+        String user = readNullableString(in);
+        String group = readNullableString(in);
+        String creator = readNullableString(in);
+        Calendar begin = (Calendar) readValue(in);
+        Calendar end = (Calendar) readValue(in);
+        Long status = (Long) readValue(in);
+        return new ACLRow(pos, name, grant, permission, user, group, creator, begin, end, status);
+    }
+
+}
@@ -341,7 +341,11 @@ public class SessionImpl implements Session, XAResource {
         }
         doFlush();
         if (readAclsChanged) {
-            updateReadAcls();
+            if (isReadAclsUpdateAsync()) {
+                updateNewReadAcls();
+            } else {
+                updateReadAcls();
+            }
         }
         scheduleWork(works);
         checkInvalidationsConflict();
@@ -1360,6 +1364,45 @@ public class SessionImpl implements Session, XAResource {
         readAclsChanged = false;
     }
 
+    protected boolean isReadAclsUpdateAsync() {
+        return repository.getRepositoryDescriptor().getAclOptimizationsAsync()
+                && Framework.getLocalService(WorkManager.class) != null;
+    }
+
+    /**
+     * Updates the read acls of new documents and the changes that may remove access, and schedules the propagation of
+     * the other read acl changes, which only give more access, after commit. Until the propagation is done, the
+     * affected documents keep their previous read acl.
+     *
+     * @since 9.2
+     */
+    protected void updateNewReadAcls() {
+        List<Serializable> ids;
+        final Timer.Context timerContext = aclrUpdateTimer.time();
+        try {
+            ids = mapper.updateNewReadAcls();
+            readAclsChanged = false;
+        } finally {
+            timerContext.stop();
+        }
+        if (!ids.isEmpty()) {
+            int batchSize = repository.getRepositoryDescriptor().getReadAclBatchSize();
+            Work work = new ReadAclsUpdateWork(repository.getName(), ids, batchSize);
+            Framework.getLocalService(WorkManager.class).schedule(work, true);
+        }
+    }
+
+    /**
+     * Recomputes the read acls of some documents, or of their children.
+     *
+     * @return the ids of the documents whose read acl has changed
+     * @since 9.2
+     */
+    public List<Serializable> updateReadAcls(List<Serializable> ids, boolean children) {
+        checkLive();
+        return mapper.updateReadAcls(ids, children);
+    }
+
     private void computeRootNode() {
         String repositoryId = repository.getName();
         Serializable rootId = mapper.getRootId(repositoryId);
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.storage.sql;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -131,6 +132,16 @@ public class SoftRefCachingMapper extends SoftRefCachingRowMapper implements Cac
         mapper.rebuildReadAcls();
     }
 
+    @Override
+    public List<Serializable> updateNewReadAcls() {
+        return mapper.updateNewReadAcls();
+    }
+
+    @Override
+    public List<Serializable> updateReadAcls(List<Serializable> ids, boolean children) {
+        return mapper.updateReadAcls(ids, children);
+    }
+
     @Override
     public int getClusterNodeIdType() {
         return mapper.getClusterNodeIdType();
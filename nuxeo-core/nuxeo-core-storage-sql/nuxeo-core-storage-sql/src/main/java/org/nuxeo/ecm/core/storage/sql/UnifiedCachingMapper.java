@@ -22,6 +22,7 @@ package org.nuxeo.ecm.core.storage.sql;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -132,6 +133,16 @@ public class UnifiedCachingMapper extends UnifiedCachingRowMapper implements Cac
         mapper.rebuildReadAcls();
     }
 
+    @Override
+    public List<Serializable> updateNewReadAcls() {
+        return mapper.updateNewReadAcls();
+    }
+
+    @Override
+    public List<Serializable> updateReadAcls(List<Serializable> ids, boolean children) {
+        return mapper.updateReadAcls(ids, children);
+    }
+
     @Override
     public int getClusterNodeIdType() {
         return mapper.getClusterNodeIdType();
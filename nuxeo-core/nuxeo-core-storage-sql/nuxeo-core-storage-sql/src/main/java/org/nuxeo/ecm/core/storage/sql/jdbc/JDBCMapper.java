@@ -122,6 +122,9 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
 
     protected boolean clusteringEnabled;
 
+    /** Fetch size for streamed {@code queryAndFetch} results, or {@code 0} if they are not streamed. */
+    protected final int streamingFetchSize;
+
     protected static final String NOSCROLL_ID = "noscroll";
 
     /**
@@ -139,6 +142,9 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         this.pathResolver = pathResolver;
         this.repository = repository;
         clusteringEnabled = clusterInvalidator != null;
+        RepositoryDescriptor repositoryDescriptor = model.getRepositoryDescriptor();
+        streamingFetchSize = repositoryDescriptor.getStreamingQueryEnabled()
+                ? Math.max(1, repositoryDescriptor.getStreamingFetchSize()) : 0;
         queryMakerService = Framework.getService(QueryMakerService.class);
 
         tableUpgrader = new TableUpgrader(this);
@@ -723,7 +729,8 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         }
         query = computeDistinctDocuments(query, distinctDocuments);
         try {
-            return new ResultSetQueryResult(queryMaker, query, queryFilter, pathResolver, this, params);
+            return new ResultSetQueryResult(queryMaker, query, queryFilter, pathResolver, this, streamingFetchSize,
+                    params);
         } catch (SQLException e) {
             throw new NuxeoException("Invalid query: " + queryType + ": " + query, e);
         }
@@ -1205,6 +1212,62 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         log.debug("rebuildReadAcls: done.");
     }
 
+    @Override
+    public List<Serializable> updateNewReadAcls() {
+        if (!dialect.supportsIncrementalReadAcls()) {
+            updateReadAcls();
+            return Collections.emptyList();
+        }
+        String sql = dialect.getUpdateNewReadAclsSql();
+        if (logger.isLogEnabled()) {
+            logger.log(sql);
+        }
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            countExecute();
+            return getReadAclsIds(rs);
+        } catch (SQLException e) {
+            checkConcurrentUpdate(e);
+            throw new NuxeoException("Failed to update new read acls", e);
+        }
+    }
+
+    @Override
+    public List<Serializable> updateReadAcls(List<Serializable> ids, boolean children) {
+        if (!dialect.supportsIncrementalReadAcls() || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String sql = dialect.getUpdateReadAclsSql(ids.size(), children);
+        if (logger.isLogEnabled()) {
+            logger.logSQL(sql, ids);
+        }
+        Column column = sqlInfo.getDatabase().getTable(Model.HIER_TABLE_NAME).getColumn(Model.MAIN_KEY);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int i = 1;
+            for (Serializable id : ids) {
+                column.setToPreparedStatement(ps, i++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                countExecute();
+                return getReadAclsIds(rs);
+            }
+        } catch (SQLException e) {
+            checkConcurrentUpdate(e);
+            throw new NuxeoException("Failed to update read acls", e);
+        }
+    }
+
+    protected List<Serializable> getReadAclsIds(ResultSet rs) throws SQLException {
+        Column column = sqlInfo.getDatabase().getTable(Model.HIER_TABLE_NAME).getColumn(Model.MAIN_KEY);
+        List<Serializable> ids = new ArrayList<>();
+        while (rs.next()) {
+            ids.add(column.getFromResultSet(rs, 1));
+        }
+        if (logger.isLogEnabled()) {
+            logger.logIds(ids, false, 0);
+        }
+        return ids;
+    }
+
     /*
      * ----- Locking -----
      */
@@ -56,6 +56,7 @@ import org.nuxeo.ecm.core.storage.sql.Invalidations;
 import org.nuxeo.ecm.core.storage.sql.InvalidationsPropagator;
 import org.nuxeo.ecm.core.storage.sql.Model;
 import org.nuxeo.ecm.core.storage.sql.PropertyType;
+import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
 import org.nuxeo.ecm.core.storage.sql.Row;
 import org.nuxeo.ecm.core.storage.sql.RowId;
 import org.nuxeo.ecm.core.storage.sql.RowMapper;
@@ -67,8 +68,13 @@ import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Update;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
 /**
  * A {@link JDBCRowMapper} maps {@link Row}s to and from a JDBC database.
  */
@@ -95,6 +101,18 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     private final CollectionIO scalarCollectionIO;
 
+    private final boolean bulkInsertEnabled;
+
+    private final boolean bulkInsertCopyEnabled;
+
+    private final int insertBatchSize;
+
+    private final boolean prefetchBatchEnabled;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final Meter insertedRows;
+
     public JDBCRowMapper(Model model, SQLInfo sqlInfo, ClusterInvalidator clusterInvalidator,
             InvalidationsPropagator invalidationsPropagator) {
         super(model, sqlInfo);
@@ -104,6 +122,13 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         collectionDeleteBeforeAppend = configurationService.isBooleanPropertyTrue(COLLECTION_DELETE_BEFORE_APPEND_PROP);
         aclCollectionIO = new ACLCollectionIO(collectionDeleteBeforeAppend);
         scalarCollectionIO = new ScalarCollectionIO(collectionDeleteBeforeAppend);
+        RepositoryDescriptor repositoryDescriptor = model.getRepositoryDescriptor();
+        bulkInsertEnabled = repositoryDescriptor.getBulkInsertEnabled();
+        bulkInsertCopyEnabled = repositoryDescriptor.getBulkInsertCopyEnabled();
+        insertBatchSize = Math.max(1, repositoryDescriptor.getInsertBatchSize());
+        prefetchBatchEnabled = repositoryDescriptor.getPrefetchBatchEnabled();
+        insertedRows = registry.meter(
+                MetricRegistry.name("nuxeo", "repositories", getRepositoryName(), "inserts", "rows"));
     }
 
     @Override
@@ -184,6 +209,10 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
             }
             ids.add(rowId.id);
         }
+        if (prefetchBatchEnabled && tableIds.size() > 1 && dialect.supportsMultiStatementSelect()) {
+            // read as many tables as possible in a single round-trip
+            readMultiTables(tableIds, res);
+        }
         // read on each table
         for (Entry<String, Set<Serializable>> en : tableIds.entrySet()) {
             String tableName = en.getKey();
@@ -230,6 +259,138 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         return res;
     }
 
+    /**
+     * Reads rows from several tables using multi-statement queries, each one returning several result sets.
+     * <p>
+     * The tables that were read are removed from the map, the remaining ones have to be read separately.
+     *
+     * @since 9.2
+     */
+    protected void readMultiTables(Map<String, Set<Serializable>> tableIds, List<RowId> res) {
+        int chunkSize = sqlInfo.getMaximumArgsForIn();
+        int maxParams = dialect.getMaximumParameters();
+        // group eligible tables so that each query stays under the parameter limit
+        List<Map<String, SQLInfoSelect>> groups = new ArrayList<>();
+        Map<String, SQLInfoSelect> group = new LinkedHashMap<>();
+        int nparams = 0;
+        for (Entry<String, Set<Serializable>> en : tableIds.entrySet()) {
+            String tableName = en.getKey();
+            int size = en.getValue().size();
+            if (size > chunkSize) {
+                continue;
+            }
+            SQLInfoSelect select = getSelectFragmentsByIds(tableName, size);
+            if (select.whatColumns.isEmpty()) {
+                // all opaque, no need for a query
+                continue;
+            }
+            if (nparams + size > maxParams) {
+                groups.add(group);
+                group = new LinkedHashMap<>();
+                nparams = 0;
+            }
+            group.put(tableName, select);
+            nparams += size;
+        }
+        groups.add(group);
+        for (Map<String, SQLInfoSelect> selects : groups) {
+            if (selects.size() < 2) {
+                continue;
+            }
+            readMultiTables(selects, tableIds, res);
+            tableIds.keySet().removeAll(selects.keySet());
+        }
+    }
+
+    /**
+     * Gets the select by ids for a table, ordered by position for collection fragments.
+     *
+     * @since 9.2
+     */
+    protected SQLInfoSelect getSelectFragmentsByIds(String tableName, int nids) {
+        if (model.isCollectionFragment(tableName)) {
+            String[] orderBys = { Model.MAIN_KEY, Model.COLL_TABLE_POS_KEY }; // clusters results
+            Set<String> skipColumns = Collections.singleton(Model.COLL_TABLE_POS_KEY);
+            return sqlInfo.getSelectFragmentsByIds(tableName, nids, orderBys, skipColumns);
+        } else {
+            return sqlInfo.getSelectFragmentsByIds(tableName, nids);
+        }
+    }
+
+    protected void readMultiTables(Map<String, SQLInfoSelect> selects, Map<String, Set<Serializable>> tableIds,
+            List<RowId> res) {
+        String sql = selects.values().stream().map(select -> select.sql).collect(Collectors.joining("; "));
+        List<Serializable> allIds = new ArrayList<>();
+        for (String tableName : selects.keySet()) {
+            allIds.addAll(tableIds.get(tableName));
+        }
+        if (logger.isLogEnabled()) {
+            logger.logSQL(sql, allIds);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int i = 1;
+            for (Serializable id : allIds) {
+                dialect.setId(ps, i++, id);
+            }
+            boolean hasResultSet = ps.execute();
+            countExecute();
+            for (Entry<String, SQLInfoSelect> en : selects.entrySet()) {
+                String tableName = en.getKey();
+                SQLInfoSelect select = en.getValue();
+                Set<Serializable> ids = tableIds.get(tableName);
+                if (!hasResultSet) {
+                    throw new NuxeoException("Missing result set for table: " + tableName);
+                }
+                List<Row> rows;
+                try (ResultSet rs = ps.getResultSet()) {
+                    if (model.isCollectionFragment(tableName)) {
+                        rows = getCollectionArrays(tableName, select, ids, rs);
+                    } else {
+                        rows = getSimpleRows(tableName, select, rs);
+                    }
+                }
+                Set<Serializable> missingIds = new HashSet<>(ids);
+                for (Row row : rows) {
+                    res.add(row);
+                    missingIds.remove(row.id);
+                }
+                // for the missing ids record an empty RowId
+                for (Serializable id : missingIds) {
+                    res.add(new RowId(tableName, id));
+                }
+                hasResultSet = ps.getMoreResults();
+            }
+        } catch (SQLException e) {
+            throw new NuxeoException("Could not select: " + sql, e);
+        }
+    }
+
+    /**
+     * Gets the rows for {@link SimpleFragment}s from a result set.
+     *
+     * @since 9.2
+     */
+    protected List<Row> getSimpleRows(String tableName, SQLInfoSelect select, ResultSet rs) throws SQLException {
+        List<Row> list = new LinkedList<>();
+        while (rs.next()) {
+            Row row = new Row(tableName, (Serializable) null);
+            int i = 1;
+            for (Column column : select.whatColumns) {
+                row.put(column.getKey(), column.getFromResultSet(rs, i++));
+            }
+            if (select.opaqueColumns != null) {
+                for (Column column : select.opaqueColumns) {
+                    row.putNew(column.getKey(), Row.OPAQUE);
+                }
+            }
+            if (logger.isLogEnabled()) {
+                logger.logResultSet(rs, select.whatColumns);
+            }
+            list.add(row);
+        }
+        return list;
+    }
+
     /**
      * Gets a list of rows for {@link SimpleFragment}s from the database, given the table name and the ids.
      *
@@ -256,10 +417,7 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         if (ids.isEmpty()) {
             return Collections.emptyList();
         }
-        String[] orderBys = { Model.MAIN_KEY, Model.COLL_TABLE_POS_KEY }; // clusters
-                                                                          // results
-        Set<String> skipColumns = new HashSet<String>(Arrays.asList(Model.COLL_TABLE_POS_KEY));
-        SQLInfoSelect select = sqlInfo.getSelectFragmentsByIds(tableName, ids.size(), orderBys, skipColumns);
+        SQLInfoSelect select = getSelectFragmentsByIds(tableName, ids.size());
 
         String sql = select.sql;
         if (logger.isLogEnabled()) {
@@ -272,55 +430,64 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
             }
             try (ResultSet rs = ps.executeQuery()) {
                 countExecute();
+                return getCollectionArrays(tableName, select, ids, rs);
+            }
+        } catch (SQLException e) {
+            throw new NuxeoException("Could not select: " + sql, e);
+        }
+    }
 
-                // get all values from result set, separate by ids
-                // the result set is ordered by id, pos
-                CollectionIO io = getCollectionIO(tableName);
-                PropertyType ftype = model.getCollectionFragmentType(tableName);
-                PropertyType type = ftype.getArrayBaseType();
-                Serializable curId = null;
-                List<Serializable> list = null;
-                Serializable[] returnId = new Serializable[1];
-                int[] returnPos = { -1 };
-                List<Row> res = new LinkedList<Row>();
-                Set<Serializable> remainingIds = new HashSet<Serializable>(ids);
-                while (rs.next()) {
-                    Serializable value = io.getCurrentFromResultSet(rs, select.whatColumns, model, returnId, returnPos);
-                    Serializable newId = returnId[0];
-                    if (newId != null && !newId.equals(curId)) {
-                        // flush old list
-                        if (list != null) {
-                            res.add(new Row(tableName, curId, type.collectionToArray(list)));
-                            remainingIds.remove(curId);
-                        }
-                        curId = newId;
-                        list = new ArrayList<Serializable>();
-                    }
-                    list.add(value);
-                }
-                if (curId != null && list != null) {
-                    // flush last list
+    /**
+     * Gets the collection rows from a result set, filling empty ones for the missing ids.
+     *
+     * @since 9.2
+     */
+    protected List<Row> getCollectionArrays(String tableName, SQLInfoSelect select, Collection<Serializable> ids,
+            ResultSet rs) throws SQLException {
+        // get all values from result set, separate by ids
+        // the result set is ordered by id, pos
+        CollectionIO io = getCollectionIO(tableName);
+        PropertyType ftype = model.getCollectionFragmentType(tableName);
+        PropertyType type = ftype.getArrayBaseType();
+        Serializable curId = null;
+        List<Serializable> list = null;
+        Serializable[] returnId = new Serializable[1];
+        int[] returnPos = { -1 };
+        List<Row> res = new LinkedList<Row>();
+        Set<Serializable> remainingIds = new HashSet<Serializable>(ids);
+        while (rs.next()) {
+            Serializable value = io.getCurrentFromResultSet(rs, select.whatColumns, model, returnId, returnPos);
+            Serializable newId = returnId[0];
+            if (newId != null && !newId.equals(curId)) {
+                // flush old list
+                if (list != null) {
                     res.add(new Row(tableName, curId, type.collectionToArray(list)));
                     remainingIds.remove(curId);
                 }
+                curId = newId;
+                list = new ArrayList<Serializable>();
+            }
+            list.add(value);
+        }
+        if (curId != null && list != null) {
+            // flush last list
+            res.add(new Row(tableName, curId, type.collectionToArray(list)));
+            remainingIds.remove(curId);
+        }
 
-                // fill empty ones
-                if (!remainingIds.isEmpty()) {
-                    Serializable[] emptyArray = ftype.getEmptyArray();
-                    for (Serializable id : remainingIds) {
-                        res.add(new Row(tableName, id, emptyArray));
-                    }
-                }
-                if (logger.isLogEnabled()) {
-                    for (Row row : res) {
-                        logger.log("  -> " + row);
-                    }
-                }
-                return res;
+        // fill empty ones
+        if (!remainingIds.isEmpty()) {
+            Serializable[] emptyArray = ftype.getEmptyArray();
+            for (Serializable id : remainingIds) {
+                res.add(new Row(tableName, id, emptyArray));
             }
-        } catch (SQLException e) {
-            throw new NuxeoException("Could not select: " + sql, e);
         }
+        if (logger.isLogEnabled()) {
+            for (Row row : res) {
+                logger.log("  -> " + row);
+            }
+        }
+        return res;
     }
 
     /**
@@ -522,9 +689,20 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         if (sql == null) {
             throw new NuxeoException("Unknown table: " + tableName);
         }
+        List<Column> columns = sqlInfo.getInsertColumns(tableName);
+        insertedRows.mark(rows.size());
+        if (bulkInsertEnabled && rows.size() > 1 && !columns.isEmpty()) {
+            if (bulkInsertCopyEnabled && dialect.supportsCopy(columns)) {
+                copyRows(tableName, columns, rows);
+                return;
+            }
+            if (dialect.supportsMultiRowInsert()) {
+                insertMultiRows(tableName, columns, rows);
+                return;
+            }
+        }
         boolean batched = supportsBatchUpdates && rows.size() > 1;
         String loggedSql = batched ? sql + " -- BATCHED" : sql;
-        List<Column> columns = sqlInfo.getInsertColumns(tableName);
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             int batch = 0;
             for (Iterator<Row> rowIt = rows.iterator(); rowIt.hasNext();) {
@@ -539,7 +717,7 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                 if (batched) {
                     ps.addBatch();
                     batch++;
-                    if (batch % UPDATE_BATCH_SIZE == 0 || !rowIt.hasNext()) {
+                    if (batch % insertBatchSize == 0 || !rowIt.hasNext()) {
                         ps.executeBatch();
                         countExecute();
                     }
@@ -561,6 +739,65 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         }
     }
 
+    /**
+     * Inserts multiple rows, all for the same table, using multi-row {@code INSERT} statements.
+     *
+     * @since 9.2
+     */
+    protected void insertMultiRows(String tableName, List<Column> columns, List<Row> rows) {
+        int chunkSize = Math.max(1, Math.min(insertBatchSize, dialect.getMaximumParameters() / columns.size()));
+        List<Row> list = rows instanceof ArrayList ? rows : new ArrayList<>(rows);
+        for (int start = 0; start < list.size(); start += chunkSize) {
+            List<Row> chunk = list.subList(start, Math.min(start + chunkSize, list.size()));
+            String sql = sqlInfo.getMultiRowInsertSql(tableName, chunk.size());
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                if (logger.isLogEnabled()) {
+                    String loggedSql = sqlInfo.getInsertSql(tableName) + " -- MULTI-ROW";
+                    for (Row row : chunk) {
+                        logger.logSQL(loggedSql, columns, row);
+                    }
+                }
+                int i = 1;
+                for (Row row : chunk) {
+                    for (Column column : columns) {
+                        column.setToPreparedStatement(ps, i++, row.get(column.getKey()));
+                    }
+                }
+                ps.execute();
+                countExecute();
+            } catch (SQLException e) {
+                checkConcurrentUpdate(e);
+                throw new NuxeoException("Could not insert: " + sql, e);
+            }
+        }
+    }
+
+    /**
+     * Inserts multiple rows, all for the same table, using the database {@code COPY} protocol.
+     *
+     * @since 9.2
+     */
+    protected void copyRows(String tableName, List<Column> columns, List<Row> rows) {
+        Table table = sqlInfo.getDatabase().getTable(tableName);
+        List<Row> list = rows instanceof ArrayList ? rows : new ArrayList<>(rows);
+        for (int start = 0; start < list.size(); start += insertBatchSize) {
+            List<Row> chunk = list.subList(start, Math.min(start + insertBatchSize, list.size()));
+            if (logger.isLogEnabled()) {
+                String loggedSql = sqlInfo.getInsertSql(tableName) + " -- COPY";
+                for (Row row : chunk) {
+                    logger.logSQL(loggedSql, columns, row);
+                }
+            }
+            try {
+                dialect.copyRows(connection, table, columns, chunk);
+                countExecute();
+            } catch (SQLException e) {
+                checkConcurrentUpdate(e);
+                throw new NuxeoException("Could not copy rows into: " + tableName, e);
+            }
+        }
+    }
+
     /**
      * Updates multiple collection rows, all for the same table.
      */
@@ -19,6 +19,7 @@
 package org.nuxeo.ecm.core.storage.sql.jdbc;
 
 import java.io.Serializable;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -29,9 +30,14 @@ import java.util.NoSuchElementException;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.storage.sql.Session.PathResolver;
+import org.nuxeo.runtime.datasource.ConnectionHelper;
 
 /**
  * Iterable query result implemented as a cursor on a SQL {@link ResultSet}.
+ * <p>
+ * In streaming mode, the result set is forward-only and rows are fetched from the database in batches as the iterator
+ * advances, so that memory use does not depend on the size of the result. In this mode the size is unknown and
+ * {@link #skipTo} can only move forward.
  */
 public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<String, Serializable>> {
 
@@ -41,6 +47,11 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
 
     private ResultSet rs;
 
+    /** Connection used instead of the session one for streaming, when needed. */
+    private Connection dedicatedConnection;
+
+    private final boolean streaming;
+
     private Map<String, Serializable> next;
 
     private boolean eof;
@@ -53,7 +64,24 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
 
     public ResultSetQueryResult(QueryMaker queryMaker, String query, QueryFilter queryFilter, PathResolver pathResolver,
             JDBCMapper mapper, Object... params) throws SQLException {
+        this(queryMaker, query, queryFilter, pathResolver, mapper, 0, params);
+    }
+
+    /**
+     * Constructs a query result, streamed if a positive fetch size is given.
+     * <p>
+     * A streamed result needs a transaction, and some databases cannot execute other statements on a connection
+     * while a result set is being streamed from it. In these cases a dedicated connection is used, which then does not
+     * see the changes not yet committed by the session.
+     *
+     * @param fetchSize the number of rows fetched from the database at a time for a streamed result, or {@code 0} for
+     *            a scrollable result
+     * @since 9.2
+     */
+    public ResultSetQueryResult(QueryMaker queryMaker, String query, QueryFilter queryFilter, PathResolver pathResolver,
+            JDBCMapper mapper, int fetchSize, Object... params) throws SQLException {
         logger = mapper.logger;
+        streaming = fetchSize > 0;
         q = queryMaker.buildQuery(mapper.sqlInfo, mapper.model, pathResolver, query, queryFilter, params);
         if (q == null) {
             // no result
@@ -68,17 +96,61 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
         if (logger.isLogEnabled()) {
             logger.logSQL(q.selectInfo.sql, q.selectParams);
         }
-        ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
-                ResultSet.CONCUR_READ_ONLY);
-        int i = 1;
-        for (Serializable object : q.selectParams) {
-            mapper.setToPreparedStatement(ps, i++, object);
+        try {
+            if (streaming) {
+                Connection connection = mapper.connection;
+                if (connection.getAutoCommit() || mapper.dialect.isStreamingBlockingConnection()) {
+                    String dataSourceName = JDBCConnection.getDataSourceName(mapper.getRepositoryName());
+                    dedicatedConnection = ConnectionHelper.getConnection(dataSourceName, true);
+                    dedicatedConnection.setAutoCommit(false);
+                    connection = dedicatedConnection;
+                }
+                ps = connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(mapper.dialect.getStreamingFetchSize(fetchSize));
+            } else {
+                ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
+                        ResultSet.CONCUR_READ_ONLY);
+            }
+            int i = 1;
+            for (Serializable object : q.selectParams) {
+                mapper.setToPreparedStatement(ps, i++, object);
+            }
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            if (ps != null) {
+                try {
+                    closePreparedStatement(ps);
+                } catch (SQLException ee) {
+                    e.addSuppressed(ee);
+                }
+                ps = null;
+            }
+            closeDedicatedConnection();
+            throw e;
         }
-        rs = ps.executeQuery();
         mapper.countExecute();
         // rs.setFetchDirection(ResultSet.FETCH_UNKNOWN); fails in H2
     }
 
+    protected void closeDedicatedConnection() {
+        if (dedicatedConnection == null) {
+            return;
+        }
+        try {
+            try {
+                // nothing was written
+                dedicatedConnection.rollback();
+            } finally {
+                dedicatedConnection.close();
+            }
+        } catch (SQLException e) {
+            logger.error("Error closing connection: " + e.getMessage(), e);
+        } finally {
+            dedicatedConnection = null;
+        }
+    }
+
     protected static void closePreparedStatement(PreparedStatement ps) throws SQLException {
         try {
             ps.close();
@@ -102,6 +174,7 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
             pos = -1;
             rs = null;
             ps = null;
+            closeDedicatedConnection();
         }
     }
 
@@ -140,6 +213,10 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
             return size;
         }
         checkNotClosed();
+        if (streaming) {
+            // would need to read the whole result
+            return -1;
+        }
         try {
             // save cursor pos
             int old = rs.isBeforeFirst() ? -1 : rs.isAfterLast() ? -2 : rs.getRow();
@@ -169,6 +246,10 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
     @Override
     public void skipTo(long pos) {
         checkNotClosed();
+        if (streaming) {
+            skipForward(pos);
+            return;
+        }
         try {
             boolean available = rs.absolute((int) pos + 1);
             if (available) {
@@ -186,6 +267,20 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
         }
     }
 
+    protected void skipForward(long pos) {
+        if (pos < this.pos) {
+            throw new IllegalStateException(
+                    "Cannot skip backward in a streamed result, from: " + this.pos + " to: " + pos);
+        }
+        while (this.pos < pos && hasNext()) {
+            next();
+        }
+        if (!hasNext()) {
+            // after last row
+            this.pos = -1; // XXX
+        }
+    }
+
     @Override
     public Iterator<Map<String, Serializable>> iterator() {
         checkNotClosed();
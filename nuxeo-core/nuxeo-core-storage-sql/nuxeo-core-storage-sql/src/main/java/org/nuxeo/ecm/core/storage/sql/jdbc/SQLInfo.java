@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.nuxeo.common.utils.StringUtils;
@@ -91,6 +92,10 @@ public class SQLInfo {
 
     private final Map<String, List<Column>> insertColumnsMap;
 
+    private final Map<String, Insert> insertMap;
+
+    private final Map<String, String> multiRowInsertSqlMap; // statement
+
     private final Map<String, String> deleteSqlMap; // statement
 
     private Map<SelectionType, SQLInfoSelection> selections;
@@ -161,6 +166,8 @@ public class SQLInfo {
 
         insertSqlMap = new HashMap<>();
         insertColumnsMap = new HashMap<>();
+        insertMap = new HashMap<>();
+        multiRowInsertSqlMap = new ConcurrentHashMap<>();
 
         deleteSqlMap = new HashMap<>();
 
@@ -280,6 +287,23 @@ public class SQLInfo {
         return insertColumnsMap.get(tableName);
     }
 
+    /**
+     * Returns the SQL {@code INSERT} to add several rows in one statement, using the same columns as
+     * {@link #getInsertSql} repeated for each row.
+     *
+     * @param tableName the table name
+     * @param nrows the number of rows
+     * @return the SQL multi-row {@code INSERT} statement
+     * @since 9.2
+     */
+    public String getMultiRowInsertSql(String tableName, int nrows) {
+        if (nrows == 1) {
+            return getInsertSql(tableName);
+        }
+        Insert insert = insertMap.get(tableName);
+        return multiRowInsertSqlMap.computeIfAbsent(tableName + ' ' + nrows, k -> insert.getStatement(nrows));
+    }
+
     // -----
 
     /**
@@ -1007,7 +1031,6 @@ public class SQLInfo {
             selectComplexChildrenIdsAndTypesSql = select.getStatement();
         }
 
-        // TODO optimize multiple inserts into one statement for collections
         protected void postProcessInsert() {
             // insert (implicitly auto-generated sequences not included)
             Collection<Column> columns = table.getColumns();
@@ -1023,6 +1046,7 @@ public class SQLInfo {
             }
             insertSqlMap.put(tableName, insert.getStatement());
             insertColumnsMap.put(tableName, insertColumns);
+            insertMap.put(tableName, insert);
         }
 
         protected void postProcessDelete() {
@@ -71,6 +71,19 @@ public class Insert implements Serializable {
      * @return the SQL insert or copy statement
      */
     public String getStatement() {
+        return getStatement(1);
+    }
+
+    /**
+     * Gets the statement to insert several rows at once using a multi-row {@code VALUES} clause.
+     * <p>
+     * Example: {@code INSERT INTO foo (a, b) VALUES (?, ?), (?, ?)}
+     *
+     * @param nrows the number of rows
+     * @return the SQL insert statement
+     * @since 9.2
+     */
+    public String getStatement(int nrows) {
         StringBuilder buf = new StringBuilder(128);
         buf.append("INSERT INTO ");
         buf.append(table.getQuotedName());
@@ -90,9 +103,14 @@ public class Insert implements Serializable {
             buf.append(String.join(", ", columnNames));
             buf.append(") ");
             if (insertValues == null) {
-                buf.append("VALUES (");
-                buf.append(String.join(", ", values));
-                buf.append(')');
+                String tuple = '(' + String.join(", ", values) + ')';
+                buf.append("VALUES ");
+                for (int i = 0; i < nrows; i++) {
+                    if (i > 0) {
+                        buf.append(", ");
+                    }
+                    buf.append(tuple);
+                }
             } else {
                 buf.append(insertValues);
             }
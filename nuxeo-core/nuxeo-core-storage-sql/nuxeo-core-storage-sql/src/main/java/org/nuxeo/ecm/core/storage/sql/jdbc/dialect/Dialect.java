@@ -50,6 +50,7 @@ import org.nuxeo.ecm.core.storage.FulltextDescriptor;
 import org.nuxeo.ecm.core.storage.sql.ColumnType;
 import org.nuxeo.ecm.core.storage.sql.Model;
 import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
+import org.nuxeo.ecm.core.storage.sql.Row;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCLogger;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Database;
@@ -1093,6 +1094,38 @@ public abstract class Dialect {
         return null;
     }
 
+    /**
+     * Does the dialect support updating the read acls incrementally, one subtree level at a time.
+     *
+     * @since 9.2
+     */
+    public boolean supportsIncrementalReadAcls() {
+        return false;
+    }
+
+    /**
+     * Gets the statement to compute the read acls of new documents, and of the subtrees where a change may remove
+     * access to someone. It returns the ids of the documents whose read acl only gives more access, and must be
+     * recomputed along with their descendants.
+     *
+     * @since 9.2
+     */
+    public String getUpdateNewReadAclsSql() {
+        return null;
+    }
+
+    /**
+     * Gets the statement to recompute the read acls of some documents, or of their children. It returns the ids of the
+     * documents whose read acl has changed.
+     *
+     * @param n the number of document ids passed as parameters
+     * @param children whether to recompute the read acls of the children of the documents instead
+     * @since 9.2
+     */
+    public String getUpdateReadAclsSql(int n, boolean children) {
+        return null;
+    }
+
     /**
      * Gets the expression to check if access is allowed using read acls. The dialect must suppportsReadAcl.
      *
@@ -1334,4 +1367,77 @@ public abstract class Dialect {
         return true;
     }
 
+    /**
+     * Does the dialect support inserting several rows with a single {@code INSERT ... VALUES (...), (...)}.
+     *
+     * @since 9.2
+     */
+    public boolean supportsMultiRowInsert() {
+        return false;
+    }
+
+    /**
+     * Maximum number of parameters in a prepared statement.
+     * <p>
+     * Used to limit the number of rows of a multi-row {@code INSERT}.
+     *
+     * @since 9.2
+     */
+    public int getMaximumParameters() {
+        return 2000;
+    }
+
+    /**
+     * Does the dialect support executing several {@code SELECT} statements separated by {@code ;} in a single prepared
+     * statement, returning several result sets.
+     *
+     * @since 9.2
+     */
+    public boolean supportsMultiStatementSelect() {
+        return false;
+    }
+
+    /**
+     * Gets the JDBC fetch size to use to stream the rows of a forward-only result set.
+     *
+     * @param fetchSize the requested number of rows fetched at a time
+     * @since 9.2
+     */
+    public int getStreamingFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * Does streaming a result set prevent the execution of other statements on the same connection until the result
+     * set is closed. If so, streamed results must use a dedicated connection.
+     *
+     * @since 9.2
+     */
+    public boolean isStreamingBlockingConnection() {
+        return false;
+    }
+
+    /**
+     * Does the dialect support the database {@code COPY} protocol for rows having the given columns.
+     *
+     * @since 9.2
+     */
+    public boolean supportsCopy(List<Column> columns) {
+        return false;
+    }
+
+    /**
+     * Inserts rows using the database {@code COPY} protocol.
+     *
+     * @param connection the connection
+     * @param table the table
+     * @param columns the columns to insert, for which {@link #supportsCopy} returned {@code true}
+     * @param rows the rows
+     * @since 9.2
+     */
+    public void copyRows(Connection connection, Table table, List<Column> columns, List<Row> rows)
+            throws SQLException {
+        throw new UnsupportedOperationException();
+    }
+
 }
@@ -400,4 +400,9 @@ public class DialectH2 extends Dialect {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
 }
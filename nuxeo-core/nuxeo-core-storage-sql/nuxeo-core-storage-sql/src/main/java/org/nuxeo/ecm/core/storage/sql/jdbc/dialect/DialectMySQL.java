@@ -488,4 +488,20 @@ public class DialectMySQL extends Dialect {
         return sql + " $$";
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getStreamingFetchSize(int fetchSize) {
+        // Connector/J only streams rows one by one, unless useCursorFetch is set on the connection
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean isStreamingBlockingConnection() {
+        return true;
+    }
+
 }
@@ -19,7 +19,11 @@
  */
 package org.nuxeo.ecm.core.storage.sql.jdbc.dialect;
 
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -59,12 +63,14 @@ import org.nuxeo.ecm.core.storage.FulltextQueryAnalyzer.Op;
 import org.nuxeo.ecm.core.storage.sql.ColumnType;
 import org.nuxeo.ecm.core.storage.sql.Model;
 import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
+import org.nuxeo.ecm.core.storage.sql.Row;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCLogger;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Database;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Join;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.TableAlias;
+import org.nuxeo.runtime.datasource.ConnectionHelper;
 
 /**
  * PostgreSQL-specific dialect.
@@ -110,6 +116,12 @@ public class DialectPostgreSQL extends Dialect {
 
     protected String idSequenceName;
 
+    protected Class<?> pgConnectionClass;
+
+    protected Method getCopyAPIMethod;
+
+    protected Method copyInMethod;
+
     public DialectPostgreSQL(DatabaseMetaData metadata, RepositoryDescriptor repositoryDescriptor) {
         super(metadata, repositoryDescriptor);
         fulltextAnalyzer = repositoryDescriptor == null ? null
@@ -128,6 +140,7 @@ public class DialectPostgreSQL extends Dialect {
             throw new NuxeoException(e);
         }
         supportsWith = major > 8 || (major == 8 && minor >= 4);
+        initCopyReflection();
         if ((major == 9 && minor >= 1) || (major > 9)) {
             unloggedKeyword = UNLOGGED_KEYWORD;
         } else {
@@ -350,6 +363,21 @@ public class DialectPostgreSQL extends Dialect {
         }
     }
 
+    // use reflection to avoid linking dependencies
+    private void initCopyReflection() {
+        try {
+            pgConnectionClass = Class.forName("org.postgresql.PGConnection");
+            getCopyAPIMethod = pgConnectionClass.getMethod("getCopyAPI");
+            Class<?> copyManagerClass = Class.forName("org.postgresql.copy.CopyManager");
+            copyInMethod = copyManagerClass.getMethod("copyIn", String.class, Reader.class);
+        } catch (ClassNotFoundException e) {
+            // query syntax unit test run without PostgreSQL JDBC driver, COPY disabled
+            return;
+        } catch (ReflectiveOperationException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
     @Override
     public void setToPreparedStatement(PreparedStatement ps, int index, Serializable value, Column column)
             throws SQLException {
@@ -777,6 +805,27 @@ public class DialectPostgreSQL extends Dialect {
         return "SELECT nx_rebuild_read_acls();";
     }
 
+    @Override
+    public boolean supportsIncrementalReadAcls() {
+        return aclOptimizationsEnabled;
+    }
+
+    @Override
+    public String getUpdateNewReadAclsSql() {
+        return "SELECT * FROM nx_update_new_read_acls();";
+    }
+
+    @Override
+    public String getUpdateReadAclsSql(int n, boolean children) {
+        String params = String.join(", ", Collections.nCopies(n, "?"));
+        // only touch rows whose read acl actually changes, which stops the propagation
+        return "UPDATE hierarchy_read_acl AS r SET acl_id = md5(x.acl)" //
+                + " FROM (SELECT h.id, nx_get_read_acl(h.id) AS acl FROM hierarchy AS h" //
+                + " WHERE h." + (children ? "parentid" : "id") + " IN (" + params + ") AND NOT h.isproperty) AS x" //
+                + " WHERE r.id = x.id AND r.acl_id IS DISTINCT FROM md5(x.acl)" //
+                + " RETURNING r.id";
+    }
+
     @Override
     public String getSecurityCheckSql(String idColumnName) {
         return String.format("NX_ACCESS_ALLOWED(%s, ?, ?)", idColumnName);
@@ -1376,4 +1425,134 @@ public class DialectPostgreSQL extends Dialect {
         return String.join(", ", newArgList);
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsMultiStatementSelect() {
+        return true;
+    }
+
+    @Override
+    public int getMaximumParameters() {
+        // the protocol encodes the parameter count as a 16-bit integer
+        return 32767;
+    }
+
+    @Override
+    public boolean supportsCopy(List<Column> columns) {
+        if (copyInMethod == null) {
+            return false;
+        }
+        for (Column column : columns) {
+            switch (column.getJdbcType()) {
+            case Types.VARCHAR:
+            case Types.CLOB:
+                if (column.getType() == ColumnType.SYSNAMEARRAY) {
+                    return false;
+                }
+                break;
+            case Types.BIT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.TIMESTAMP:
+                break;
+            case Types.OTHER:
+                // stored fulltext of a compatibility fulltext table is a tsvector that must go through NX_TO_TSVECTOR
+                if (!column.getType().isId()) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void copyRows(Connection connection, Table table, List<Column> columns, List<Row> rows)
+            throws SQLException {
+        String sql = String.format("COPY %s (%s) FROM STDIN", table.getQuotedName(),
+                columns.stream().map(Column::getQuotedName).collect(Collectors.joining(", ")));
+        StringBuilder buf = new StringBuilder(rows.size() * columns.size() * 16);
+        for (Row row : rows) {
+            boolean first = true;
+            for (Column column : columns) {
+                if (!first) {
+                    buf.append('\t');
+                }
+                first = false;
+                appendCopyValue(buf, row.get(column.getKey()), column);
+            }
+            buf.append('\n');
+        }
+        connection = ConnectionHelper.unwrap(connection);
+        try {
+            Object pgConnection = connection.unwrap(pgConnectionClass);
+            Object copyManager = getCopyAPIMethod.invoke(pgConnection);
+            copyInMethod.invoke(copyManager, sql, new StringReader(buf.toString()));
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Appends a value using the {@code COPY} text format.
+     */
+    protected void appendCopyValue(StringBuilder buf, Serializable value, Column column) {
+        if (value == null) {
+            buf.append("\\N");
+            return;
+        }
+        switch (column.getJdbcType()) {
+        case Types.BIT:
+            buf.append(((Boolean) value).booleanValue() ? 't' : 'f');
+            return;
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+            buf.append(((Number) value).longValue());
+            return;
+        case Types.DOUBLE:
+            buf.append(((Double) value).doubleValue());
+            return;
+        case Types.TIMESTAMP:
+            buf.append(getTimestampFromCalendar((Calendar) value).toString());
+            return;
+        default:
+            // strings and ids
+            String string = value.toString();
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                switch (c) {
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                default:
+                    buf.append(c);
+                }
+            }
+        }
+    }
+
 }
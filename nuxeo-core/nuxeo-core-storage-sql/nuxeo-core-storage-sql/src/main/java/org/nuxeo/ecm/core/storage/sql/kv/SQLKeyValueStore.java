@@ -0,0 +1,436 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.kv;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.kv.KeyValueStoreProvider;
+import org.nuxeo.runtime.datasource.ConnectionHelper;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * SQL implementation of a Key/Value Store Provider, for clusters without Redis.
+ * <p>
+ * The following configuration properties are available:
+ * <ul>
+ * <li>datasource: the datasource to use (required).
+ * <li>table: the table in which values are stored, created if missing (default {@value #DEFAULT_TABLE}).
+ * </ul>
+ * Each row holds a key, its value, its expiration time in milliseconds (0 if none) and a version. Atomic operations
+ * read the row then update it only if its version didn't change, and retry otherwise, which avoids comparing binary
+ * values in SQL and works the same on all databases.
+ * <p>
+ * Like the other stores, this store is not transactional: operations are executed outside of any current transaction
+ * and are immediately visible to other nodes.
+ *
+ * @since 9.2
+ */
+public class SQLKeyValueStore implements KeyValueStoreProvider {
+
+    private static final Log log = LogFactory.getLog(SQLKeyValueStore.class);
+
+    public static final String DATASOURCE_PROP = "datasource";
+
+    public static final String TABLE_PROP = "table";
+
+    public static final String DEFAULT_TABLE = "kv";
+
+    protected static final Pattern TABLE_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    protected static final int KEY_LENGTH = 255;
+
+    /** Max number of keys per batch read. */
+    protected static final int BATCH_SIZE = 100;
+
+    /** Delay between two purges of the expired rows. */
+    protected static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    protected String dataSourceName;
+
+    protected String table;
+
+    protected final AtomicLong lastPurge = new AtomicLong();
+
+    @FunctionalInterface
+    protected interface SQLFunction<R> {
+        R apply(Connection connection) throws SQLException;
+    }
+
+    /** A row as read from the database, possibly expired. */
+    protected static class Row {
+
+        protected final byte[] value;
+
+        protected final long expiration;
+
+        protected final long version;
+
+        protected Row(byte[] value, long expiration, long version) {
+            this.value = value;
+            this.expiration = expiration;
+            this.version = version;
+        }
+
+        protected boolean isExpired(long now) {
+            return expiration != 0 && expiration <= now;
+        }
+    }
+
+    @Override
+    public void initialize(Map<String, String> properties) {
+        log.debug("Initializing");
+        dataSourceName = properties.get(DATASOURCE_PROP);
+        if (dataSourceName == null) {
+            throw new NuxeoException("Missing " + DATASOURCE_PROP + " property");
+        }
+        table = properties.getOrDefault(TABLE_PROP, DEFAULT_TABLE);
+        if (!TABLE_PATTERN.matcher(table).matches()) {
+            throw new NuxeoException("Invalid table name: " + table);
+        }
+        execute(connection -> {
+            createTableIfMissing(connection);
+            return null;
+        });
+    }
+
+    protected void createTableIfMissing(Connection connection) throws SQLException {
+        DatabaseMetaData metadata = connection.getMetaData();
+        for (String name : Arrays.asList(table, table.toUpperCase(), table.toLowerCase())) {
+            try (ResultSet rs = metadata.getTables(null, null, name, new String[] { "TABLE" })) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        String product = metadata.getDatabaseProductName();
+        String binaryType;
+        String longType = "BIGINT";
+        if (product.contains("PostgreSQL")) {
+            binaryType = "BYTEA";
+        } else if (product.contains("MySQL") || product.contains("MariaDB")) {
+            binaryType = "LONGBLOB";
+        } else if (product.contains("Microsoft")) {
+            binaryType = "VARBINARY(MAX)";
+        } else if (product.contains("Oracle")) {
+            binaryType = "BLOB";
+            longType = "NUMBER(19)";
+        } else {
+            binaryType = "BLOB";
+        }
+        String sql = "CREATE TABLE " + table + " (kvkey VARCHAR(" + KEY_LENGTH + ") NOT NULL PRIMARY KEY, kvvalue "
+                + binaryType + ", kvexpiration " + longType + " NOT NULL, kvversion " + longType + " NOT NULL)";
+        log.debug(sql);
+        try (Statement st = connection.createStatement()) {
+            st.execute(sql);
+        } catch (SQLException e) {
+            // another node may have created it concurrently
+            log.debug("Cannot create table " + table + ", checking if it exists", e);
+            try (Statement st = connection.createStatement()) {
+                st.executeQuery("SELECT COUNT(*) FROM " + table).close();
+            } catch (SQLException e2) {
+                e.addSuppressed(e2);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Executes a function with a connection in auto-commit mode, outside of the current transaction.
+     */
+    protected <R> R execute(SQLFunction<R> function) {
+        return TransactionHelper.runWithoutTransaction(() -> {
+            try (Connection connection = ConnectionHelper.getConnection(dataSourceName, true)) {
+                return function.apply(connection);
+            } catch (SQLException e) {
+                throw new NuxeoException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        log.debug("Closed");
+    }
+
+    @Override
+    public void clear() {
+        execute(connection -> {
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate("DELETE FROM " + table);
+            }
+            return null;
+        });
+    }
+
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    protected long expiration(long ttl, long now) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Invalid TTL: " + ttl);
+        }
+        return ttl == 0 ? 0 : now + TimeUnit.SECONDS.toMillis(ttl);
+    }
+
+    protected Row read(Connection connection, String key) throws SQLException {
+        String sql = "SELECT kvvalue, kvexpiration, kvversion FROM " + table + " WHERE kvkey = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Row(rs.getBytes(1), rs.getLong(2), rs.getLong(3));
+            }
+        }
+    }
+
+    /**
+     * Writes a value if the row is still the one previously read.
+     *
+     * @param row the row previously read, or {@code null} if there was none
+     * @return {@code true} if the write succeeded, or {@code false} if the row changed concurrently
+     */
+    protected boolean write(Connection connection, String key, Row row, byte[] value, long expiration)
+            throws SQLException {
+        if (row == null) {
+            if (value == null) {
+                return true;
+            }
+            String sql = "INSERT INTO " + table + " (kvkey, kvvalue, kvexpiration, kvversion) VALUES (?, ?, ?, 0)";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, key);
+                ps.setBytes(2, value);
+                ps.setLong(3, expiration);
+                ps.executeUpdate();
+                return true;
+            } catch (SQLException e) {
+                if (isDuplicateKey(e)) {
+                    return false;
+                }
+                throw e;
+            }
+        } else if (value == null) {
+            String sql = "DELETE FROM " + table + " WHERE kvkey = ? AND kvversion = ?";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, key);
+                ps.setLong(2, row.version);
+                return ps.executeUpdate() == 1;
+            }
+        } else {
+            String sql = "UPDATE " + table
+                    + " SET kvvalue = ?, kvexpiration = ?, kvversion = ? WHERE kvkey = ? AND kvversion = ?";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setBytes(1, value);
+                ps.setLong(2, expiration);
+                ps.setLong(3, row.version + 1);
+                ps.setString(4, key);
+                ps.setLong(5, row.version);
+                return ps.executeUpdate() == 1;
+            }
+        }
+    }
+
+    protected boolean isDuplicateKey(SQLException e) {
+        String sqlState = e.getSQLState();
+        // MySQL, Oracle, SQL Server: 23000
+        // H2: 23001 or 23505
+        // PostgreSQL: 23505
+        return "23000".equals(sqlState) || "23001".equals(sqlState) || "23505".equals(sqlState);
+    }
+
+    /** Deletes the expired rows, at most once per interval. */
+    protected void purgeExpired(Connection connection, long now) throws SQLException {
+        long last = lastPurge.get();
+        if (now - last < PURGE_INTERVAL_MILLIS || !lastPurge.compareAndSet(last, now)) {
+            return;
+        }
+        String sql = "DELETE FROM " + table + " WHERE kvexpiration <> 0 AND kvexpiration <= ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, now);
+            int count = ps.executeUpdate();
+            if (log.isDebugEnabled()) {
+                log.debug("Purged " + count + " expired keys from " + table);
+            }
+        }
+    }
+
+    protected static void checkKey(String key) {
+        Objects.requireNonNull(key);
+        if (key.length() > KEY_LENGTH) {
+            throw new IllegalArgumentException("Key too long: " + key);
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        put(key, value, 0);
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttl) {
+        checkKey(key);
+        long now = now();
+        long expiration = expiration(ttl, now);
+        execute(connection -> {
+            purgeExpired(connection, now);
+            while (!write(connection, key, read(connection, key), value, expiration)) {
+                // concurrent update, retry
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean setTTL(String key, long ttl) {
+        checkKey(key);
+        long now = now();
+        long expiration = expiration(ttl, now);
+        return execute(connection -> {
+            // bump the version so that a concurrent read-then-write does not overwrite the new expiration
+            String sql = "UPDATE " + table + " SET kvexpiration = ?, kvversion = kvversion + 1"
+                    + " WHERE kvkey = ? AND (kvexpiration = 0 OR kvexpiration > ?)";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setLong(1, expiration);
+                ps.setString(2, key);
+                ps.setLong(3, now);
+                return Boolean.valueOf(ps.executeUpdate() == 1);
+            }
+        }).booleanValue();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        checkKey(key);
+        long now = now();
+        return execute(connection -> {
+            Row row = read(connection, key);
+            return row == null || row.isExpired(now) ? null : row.value;
+        });
+    }
+
+    @Override
+    public Map<String, byte[]> get(Collection<String> keys) {
+        Map<String, byte[]> values = new HashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        List<String> list = new ArrayList<>(keys);
+        list.forEach(SQLKeyValueStore::checkKey);
+        long now = now();
+        return execute(connection -> {
+            for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+                List<String> batch = list.subList(i, Math.min(i + BATCH_SIZE, list.size()));
+                StringBuilder sql = new StringBuilder();
+                sql.append("SELECT kvkey, kvvalue, kvexpiration FROM ").append(table).append(" WHERE kvkey IN (");
+                for (int j = 0; j < batch.size(); j++) {
+                    sql.append(j == 0 ? "?" : ", ?");
+                }
+                sql.append(')');
+                try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+                    for (int j = 0; j < batch.size(); j++) {
+                        ps.setString(j + 1, batch.get(j));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            long expiration = rs.getLong(3);
+                            if (expiration == 0 || expiration > now) {
+                                values.put(rs.getString(1), rs.getBytes(2));
+                            }
+                        }
+                    }
+                }
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public boolean compareAndSet(String key, byte[] expected, byte[] value) {
+        checkKey(key);
+        long now = now();
+        return execute(connection -> {
+            for (;;) {
+                Row row = read(connection, key);
+                byte[] current = row == null || row.isExpired(now) ? null : row.value;
+                if (!Arrays.equals(expected, current)) {
+                    return Boolean.FALSE;
+                }
+                if (current == null && value == null) {
+                    return Boolean.TRUE;
+                }
+                if (write(connection, key, row, value, 0)) {
+                    return Boolean.TRUE;
+                }
+                // concurrent update, retry
+            }
+        }).booleanValue();
+    }
+
+    @Override
+    public long addAndGet(String key, long delta) throws NumberFormatException {
+        checkKey(key);
+        long now = now();
+        return execute(connection -> {
+            for (;;) {
+                Row row = read(connection, key);
+                boolean missing = row == null || row.isExpired(now);
+                long result = missing ? delta : addExact(new String(row.value, US_ASCII), delta);
+                byte[] value = Long.toString(result).getBytes(US_ASCII);
+                if (write(connection, key, row, value, missing ? 0 : row.expiration)) {
+                    return Long.valueOf(result);
+                }
+                // concurrent update, retry
+            }
+        }).longValue();
+    }
+
+    /**
+     * Adds a delta to a counter, reporting an overflow like a value that is not a counter.
+     */
+    protected static long addExact(String counter, long delta) throws NumberFormatException {
+        try {
+            return Math.addExact(Long.parseLong(counter), delta);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Counter overflow: " + counter + " + " + delta);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TestInvalidations {
+
+    protected static Invalidations roundTrip(Invalidations invals) throws IOException {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        return Invalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        String uuid = "0d8a3a5e-5f5b-4d3c-9a0e-7c1b2f8e9d10";
+        Invalidations invals = new Invalidations();
+        invals.addModified(new RowId("hierarchy", uuid));
+        invals.addModified(new RowId("dublincore", uuid));
+        invals.addModified(new RowId(Invalidations.PARENT, "not-a-uuid"));
+        invals.addModified(new RowId("hierarchy", Long.valueOf(123)));
+        invals.addDeleted(new RowId("hierarchy", uuid.toUpperCase()));
+
+        Invalidations res = roundTrip(invals);
+        assertFalse(res.all);
+        assertEquals(invals.modified, res.modified);
+        assertEquals(invals.deleted, res.deleted);
+
+        // empty sets are kept null
+        invals = new Invalidations();
+        invals.addDeleted(new RowId("hierarchy", "foo"));
+        res = roundTrip(invals);
+        assertNull(res.modified);
+        assertEquals(Collections.singleton(new RowId("hierarchy", "foo")), res.deleted);
+
+        // table names are written once, uuids as 16 bytes
+        invals = new Invalidations();
+        invals.addModified(new RowId("hierarchy", uuid));
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        int header = 1 + 1 + 1 + "hierarchy".length();
+        assertEquals(header + 1 + 1 + 1 + 16 + 1, baout.size());
+    }
+
+    @Test
+    public void testSerializationAll() throws IOException {
+        Invalidations invals = new Invalidations(true);
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        assertEquals("A", new String(baout.toByteArray(), "ISO-8859-1"));
+        Invalidations res = roundTrip(invals);
+        assertTrue(res.all);
+        assertNull(res.modified);
+        assertNull(res.deleted);
+
+        // ids that cannot be written invalidate everything
+        invals = new Invalidations();
+        invals.addModified(new RowId("hierarchy", Long.valueOf(-1)));
+        assertTrue(roundTrip(invals).all);
+
+        // too many invalidations
+        invals = new Invalidations();
+        for (int i = 0; i <= Invalidations.MAX_SIZE; i++) {
+            invals.addModified(new RowId("hierarchy", Long.valueOf(i)));
+        }
+        assertTrue(roundTrip(invals).all);
+    }
+
+    @Test
+    public void testDeserializationJavaSerialization() throws IOException {
+        // format from previous versions
+        Invalidations invals = new Invalidations();
+        invals.addModified(new RowId("hierarchy", "foo"));
+        invals.addDeleted(new RowId("dublincore", "bar"));
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        try (ObjectOutputStream oout = new ObjectOutputStream(baout)) {
+            oout.writeObject(invals);
+        }
+        Invalidations res = Invalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.modified, res.modified);
+        assertEquals(invals.deleted, res.deleted);
+    }
+
+    @Test
+    public void testSerializationLegacy() throws Exception {
+        // format readable by previous versions
+        Invalidations invals = new Invalidations();
+        invals.addModified(new RowId("hierarchy", "0d8a3a5e-5f5b-4d3c-9a0e-7c1b2f8e9d10"));
+        invals.addDeleted(new RowId("dublincore", "bar"));
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serializeLegacy(baout);
+        Invalidations res;
+        try (ObjectInputStream oin = new ObjectInputStream(new ByteArrayInputStream(baout.toByteArray()))) {
+            res = (Invalidations) oin.readObject();
+        }
+        assertEquals(invals.modified, res.modified);
+        assertEquals(invals.deleted, res.deleted);
+        res = Invalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.modified, res.modified);
+        assertEquals(invals.deleted, res.deleted);
+
+        baout = new ByteArrayOutputStream();
+        new Invalidations(true).serializeLegacy(baout);
+        assertTrue(Invalidations.deserialize(new ByteArrayInputStream(baout.toByteArray())).all);
+    }
+
+    @Test
+    public void testDeserializationInvalid() throws IOException {
+        assertNull(Invalidations.deserialize(new ByteArrayInputStream(new byte[0])));
+        for (byte[] bytes : Arrays.asList( //
+                new byte[] { 'x' }, // unknown format
+                new byte[] { 'B', 1, 9, 'h', 'i' }, // truncated table name
+                new byte[] { 'B', (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 }, // too many tables
+                new byte[] { 'B', 1, 1, 't', 1, 1 }, // invalid table index
+                new byte[] { 'B', 1, 1, 't', 1, 0, 9 } // invalid id type
+        )) {
+            try {
+                Invalidations.deserialize(new ByteArrayInputStream(bytes));
+                fail("Should fail for " + Arrays.toString(bytes));
+            } catch (IOException e) {
+                // ok
+            }
+        }
+    }
+
+}
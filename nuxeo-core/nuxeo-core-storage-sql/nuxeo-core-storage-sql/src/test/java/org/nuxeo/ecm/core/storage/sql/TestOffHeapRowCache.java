@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class TestOffHeapRowCache {
+
+    @Test
+    public void testCodecSimpleRow() {
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        cal.setTimeInMillis(1234567890000L);
+        Row row = new Row("dublincore", "id1");
+        row.putNew("title", "caf\u00e9\ttab");
+        row.putNew("count", Long.valueOf(42));
+        row.putNew("flag", Boolean.TRUE);
+        row.putNew("ratio", Double.valueOf(0.5));
+        row.putNew("modified", cal);
+        row.putNew("empty", null);
+        row.putNew("subjects", new String[] { "a", "b" });
+
+        RowId decoded = RowCodec.decode(RowCodec.encode(row));
+        assertTrue(decoded instanceof Row);
+        Row res = (Row) decoded;
+        assertEquals("dublincore", res.tableName);
+        assertEquals("id1", res.id);
+        assertEquals(row.getKeys(), res.getKeys());
+        assertEquals("caf\u00e9\ttab", res.get("title"));
+        assertEquals(Long.valueOf(42), res.get("count"));
+        assertEquals(Boolean.TRUE, res.get("flag"));
+        assertEquals(Double.valueOf(0.5), res.get("ratio"));
+        assertEquals(cal.getTimeInMillis(), ((Calendar) res.get("modified")).getTimeInMillis());
+        assertEquals(cal.getTimeZone().getID(), ((Calendar) res.get("modified")).getTimeZone().getID());
+        assertNull(res.get("empty"));
+        assertTrue(res.get("subjects") instanceof String[]);
+        assertTrue(Arrays.equals(new String[] { "a", "b" }, (String[]) res.get("subjects")));
+    }
+
+    @Test
+    public void testCodecCollectionAndAbsent() {
+        ACLRow acl = new ACLRow(0, "local", true, "Read", "bob", null);
+        Row row = new Row("acls", Long.valueOf(7), new ACLRow[] { acl });
+        Row res = (Row) RowCodec.decode(RowCodec.encode(row));
+        assertTrue(res.isCollection());
+        assertEquals(Long.valueOf(7), res.id);
+        assertTrue(res.values instanceof ACLRow[]);
+        ACLRow resAcl = (ACLRow) res.values[0];
+        assertEquals("local", resAcl.name);
+        assertEquals("Read", resAcl.permission);
+        assertEquals("bob", resAcl.user);
+        assertNull(resAcl.group);
+        assertTrue(resAcl.grant);
+
+        RowId absent = RowCodec.decode(RowCodec.encode(new RowId("hierarchy", "id2")));
+        assertFalse(absent instanceof Row);
+        assertEquals(new RowId("hierarchy", "id2"), absent);
+    }
+
+    @Test
+    public void testCacheGetPutRemove() {
+        OffHeapRowCache cache = new OffHeapRowCache(64 * 1024, 16 * 1024);
+        Row row = new Row("hierarchy", "id1");
+        row.putNew("name", "foo");
+        assertNull(cache.get(new RowId("hierarchy", "id1")));
+        cache.put(row, cache.getGeneration());
+        RowId cached = cache.get(new RowId("hierarchy", "id1"));
+        assertNotNull(cached);
+        assertEquals("foo", ((Row) cached).get("name"));
+
+        cache.remove(new RowId("hierarchy", "id1"));
+        assertNull(cache.get(new RowId("hierarchy", "id1")));
+    }
+
+    @Test
+    public void testCacheStalePutIgnored() {
+        OffHeapRowCache cache = new OffHeapRowCache(64 * 1024, 16 * 1024);
+        long gen = cache.getGeneration();
+        cache.remove(new RowId("hierarchy", "other"));
+        cache.put(new Row("hierarchy", "id1"), gen);
+        assertNull(cache.get(new RowId("hierarchy", "id1")));
+    }
+
+    @Test
+    public void testCacheEviction() {
+        int slabSize = 1024;
+        OffHeapRowCache cache = new OffHeapRowCache(4 * slabSize, slabSize);
+        char[] chars = new char[100];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            Row row = new Row("hierarchy", "id" + i);
+            row.putNew("name", value);
+            cache.put(row, cache.getGeneration());
+            // keep the first row hot
+            assertNotNull(cache.get(new RowId("hierarchy", "id0")));
+        }
+        assertTrue(cache.size() < n);
+        assertEquals(4 * slabSize, cache.getAllocatedBytes());
+        // recent and hot rows are still there, old ones are evicted
+        assertNotNull(cache.get(new RowId("hierarchy", "id" + (n - 1))));
+        assertNotNull(cache.get(new RowId("hierarchy", "id0")));
+        assertNull(cache.get(new RowId("hierarchy", "id1")));
+        Serializable name = ((Row) cache.get(new RowId("hierarchy", "id0"))).get("name");
+        assertEquals(value, name);
+    }
+
+    @Test
+    public void testCacheClosedWithRepository() {
+        OffHeapRowCache cache = OffHeapRowCache.getCache("testrepo", 64 * 1024, 16 * 1024);
+        assertSame(cache, OffHeapRowCache.getCache("testrepo", 64 * 1024, 16 * 1024));
+        cache.put(new Row("hierarchy", "id1"), cache.getGeneration());
+        assertEquals(1, cache.size());
+        assertEquals(16 * 1024, cache.getAllocatedBytes());
+
+        assertTrue(OffHeapRowCache.closeCache("testrepo"));
+        assertFalse(OffHeapRowCache.closeCache("testrepo"));
+        // memory is released and the closed cache is not usable anymore
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getAllocatedBytes());
+        cache.put(new Row("hierarchy", "id1"), cache.getGeneration());
+        assertNull(cache.get(new RowId("hierarchy", "id1")));
+
+        // a restarted repository gets a new cache with its new configuration
+        OffHeapRowCache cache2 = OffHeapRowCache.getCache("testrepo", 128 * 1024, 32 * 1024);
+        try {
+            assertNotSame(cache, cache2);
+            assertEquals(32 * 1024, cache2.slabSize);
+            assertNull(cache2.get(new RowId("hierarchy", "id1")));
+        } finally {
+            OffHeapRowCache.closeCache("testrepo");
+        }
+    }
+
+}
@@ -61,6 +61,15 @@ public class TestRepositoryDescriptor {
         assertEquals("foo", desc.name);
         assertTrue(desc.getClusteringEnabled());
         assertEquals(1234, desc.getClusteringDelay());
+        assertTrue(desc.getBulkInsertEnabled());
+        assertFalse(desc.getBulkInsertCopyEnabled());
+        assertEquals(500, desc.getInsertBatchSize());
+        assertTrue(desc.getPrefetchBatchEnabled());
+        assertTrue(desc.getStreamingQueryEnabled());
+        assertEquals(200, desc.getStreamingFetchSize());
+        assertTrue(desc.getAclOptimizationsEnabled());
+        assertTrue(desc.getAclOptimizationsAsync());
+        assertEquals(50, desc.getReadAclBatchSize());
     }
 
     @Test
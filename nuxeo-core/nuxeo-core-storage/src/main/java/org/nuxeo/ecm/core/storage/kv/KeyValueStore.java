@@ -18,12 +18,18 @@
  */
 package org.nuxeo.ecm.core.storage.kv;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Key/Value Store.
  * <p>
  * This is the interface for a Key/Value store, which stores simple values associated to keys.
  * <p>
  * A Key/Value store is thread-safe.
+ * <p>
+ * Values may expire after a TTL (time to live), expressed in seconds. A TTL of 0 means no expiration. Setting a value
+ * with {@link #put(String, byte[])} or {@link #compareAndSet} removes any previous TTL.
  *
  * @since 9.1
  */
@@ -37,6 +43,26 @@ public interface KeyValueStore {
      */
     void put(String key, byte[] value);
 
+    /**
+     * Sets the value associated to the key, with a TTL.
+     *
+     * @param key the key
+     * @param value the value, which may be {@code null}
+     * @param ttl the TTL of the value, in seconds, or 0 for no expiration
+     * @since 9.2
+     */
+    void put(String key, byte[] value, long ttl);
+
+    /**
+     * Sets the TTL of an existing value.
+     *
+     * @param key the key
+     * @param ttl the new TTL of the value, in seconds, or 0 for no expiration
+     * @return {@code true} if the TTL was set, or {@code false} if there is no value for the key
+     * @since 9.2
+     */
+    boolean setTTL(String key, long ttl);
+
     /**
      * Retrieves the value associated to the key.
      *
@@ -45,6 +71,15 @@ public interface KeyValueStore {
      */
     byte[] get(String key);
 
+    /**
+     * Retrieves the values associated to several keys.
+     *
+     * @param keys the keys
+     * @return a map of the keys that have a value to their value
+     * @since 9.2
+     */
+    Map<String, byte[]> get(Collection<String> keys);
+
     /**
      * Atomically sets the value associated to the key to the given value if the current value is the expected value.
      * <p>
@@ -57,4 +92,18 @@ public interface KeyValueStore {
      */
     boolean compareAndSet(String key, byte[] expected, byte[] value);
 
+    /**
+     * Atomically adds a delta to the counter associated to the key.
+     * <p>
+     * A counter is stored as the decimal representation of a {@code long}, encoded as ASCII. A missing value counts as
+     * 0. The TTL of the value, if any, is kept.
+     *
+     * @param key the key
+     * @param delta the delta to add
+     * @return the counter value after the addition
+     * @throws NumberFormatException if the current value is not a counter, or if the addition overflows
+     * @since 9.2
+     */
+    long addAndGet(String key, long delta) throws NumberFormatException;
+
 }
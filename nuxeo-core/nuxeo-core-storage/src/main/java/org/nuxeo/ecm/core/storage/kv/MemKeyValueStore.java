@@ -18,23 +18,48 @@
  */
 package org.nuxeo.ecm.core.storage.kv;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Memory-based implementation of a Key/Value store.
+ * <p>
+ * Values having a TTL are tracked by a hashed timer wheel with one-second ticks. Expired values are never returned,
+ * and are removed from memory by the next write once their tick has passed.
  *
  * @since 9.1
  */
 public class MemKeyValueStore implements KeyValueStoreProvider {
 
+    protected static final long TICK_MILLIS = 1000;
+
+    protected static final int WHEEL_SIZE = 256;
+
     protected final Map<String, byte[]> map;
 
+    /** Expiration time in milliseconds of the keys having a TTL. */
+    protected final Map<String, Long> expirations;
+
+    /** Buckets of keys expiring during a tick, indexed by tick modulo the wheel size. */
+    protected final List<Set<String>> wheel;
+
+    /** Last tick whose bucket was processed. */
+    protected long lastTick;
+
     protected final Lock readLock;
 
     protected final Lock writeLock;
@@ -47,6 +72,12 @@ public class MemKeyValueStore implements KeyValueStoreProvider {
         // and ConcurrentHashMap doesn't know how to do that. Instead we use full locking;
         // this is ok as this class isn't expected to be used in a high write rate scenario.
         map = new HashMap<>();
+        expirations = new HashMap<>();
+        wheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new HashSet<>());
+        }
+        lastTick = tick(now());
     }
 
     @Override
@@ -62,6 +93,8 @@ public class MemKeyValueStore implements KeyValueStoreProvider {
         writeLock.lock();
         try {
             map.clear();
+            expirations.clear();
+            wheel.forEach(Set::clear);
         } finally {
             writeLock.unlock();
         }
@@ -71,13 +104,113 @@ public class MemKeyValueStore implements KeyValueStoreProvider {
         return value == null ? null : value.clone();
     }
 
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    protected static long tick(long millis) {
+        return millis / TICK_MILLIS;
+    }
+
+    protected Set<String> bucket(long expiration) {
+        return wheel.get((int) (tick(expiration) % WHEEL_SIZE));
+    }
+
+    /** Checks if a key is expired. Called under the read or write lock. */
+    protected boolean isExpired(String key, long now) {
+        Long expiration = expirations.get(key);
+        return expiration != null && expiration.longValue() <= now;
+    }
+
+    /** Gets the current value of a key, ignoring expired values. Called under the read or write lock. */
+    protected byte[] getCurrent(String key, long now) {
+        return isExpired(key, now) ? null : map.get(key);
+    }
+
+    /**
+     * Removes the expired keys of the buckets of the ticks elapsed since the last call. Keys belonging to a later turn
+     * of the wheel are left in place. Called under the write lock.
+     */
+    protected void expire(long now) {
+        long tick = tick(now);
+        // a full turn of the wheel visits all buckets
+        long first = Math.max(lastTick + 1, tick - WHEEL_SIZE + 1);
+        for (long t = first; t <= tick; t++) {
+            Set<String> bucket = wheel.get((int) (t % WHEEL_SIZE));
+            for (Iterator<String> it = bucket.iterator(); it.hasNext();) {
+                String key = it.next();
+                if (isExpired(key, now)) {
+                    it.remove();
+                    expirations.remove(key);
+                    map.remove(key);
+                }
+            }
+        }
+        lastTick = Math.max(lastTick, tick);
+    }
+
+    /** Sets or removes the expiration of a key. Called under the write lock. */
+    protected void setExpiration(String key, long expiration) {
+        Long previous = expiration == 0 ? expirations.remove(key) : expirations.put(key, Long.valueOf(expiration));
+        if (previous != null) {
+            bucket(previous.longValue()).remove(key);
+        }
+        if (expiration != 0) {
+            bucket(expiration).add(key);
+        }
+    }
+
+    /** Sets the value and expiration of a key. Called under the write lock. */
+    protected void putCurrent(String key, byte[] value, long expiration) {
+        if (value == null) {
+            map.remove(key);
+            setExpiration(key, 0);
+        } else {
+            map.put(key, value);
+            setExpiration(key, expiration);
+        }
+    }
+
+    protected long expiration(long ttl, long now) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Invalid TTL: " + ttl);
+        }
+        return ttl == 0 ? 0 : now + TimeUnit.SECONDS.toMillis(ttl);
+    }
+
     @Override
     public void put(String key, byte[] value) {
+        put(key, value, 0);
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttl) {
         Objects.requireNonNull(key);
         value = clone(value);
+        long now = now();
+        long expiration = expiration(ttl, now);
         writeLock.lock();
         try {
-            map.put(key, value);
+            expire(now);
+            putCurrent(key, value, expiration);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean setTTL(String key, long ttl) {
+        Objects.requireNonNull(key);
+        long now = now();
+        long expiration = expiration(ttl, now);
+        writeLock.lock();
+        try {
+            expire(now);
+            if (getCurrent(key, now) == null) {
+                return false;
+            }
+            setExpiration(key, expiration);
+            return true;
         } finally {
             writeLock.unlock();
         }
@@ -87,27 +220,50 @@ public class MemKeyValueStore implements KeyValueStoreProvider {
     public byte[] get(String key) {
         Objects.requireNonNull(key);
         byte[] value;
+        long now = now();
         readLock.lock();
         try {
-            value = map.get(key);
+            value = getCurrent(key, now);
         } finally {
             readLock.unlock();
         }
         return clone(value);
     }
 
+    @Override
+    public Map<String, byte[]> get(Collection<String> keys) {
+        Map<String, byte[]> values = new HashMap<>();
+        long now = now();
+        readLock.lock();
+        try {
+            for (String key : keys) {
+                Objects.requireNonNull(key);
+                byte[] value = getCurrent(key, now);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        values.replaceAll((key, value) -> clone(value));
+        return values;
+    }
+
     @Override
     public boolean compareAndSet(String key, byte[] expected, byte[] value) {
         Objects.requireNonNull(key);
         // clone is not needed if the comparison fails
         // but we are optimistic and prefer to do the clone outside the lock
         value = clone(value);
+        long now = now();
         writeLock.lock();
         try {
-            byte[] current = map.get(key);
+            expire(now);
+            byte[] current = getCurrent(key, now);
             boolean equal = Arrays.equals(expected, current);
             if (equal) {
-                map.put(key, value);
+                putCurrent(key, value, 0);
             }
             return equal;
         } finally {
@@ -115,4 +271,32 @@ public class MemKeyValueStore implements KeyValueStoreProvider {
         }
     }
 
+    @Override
+    public long addAndGet(String key, long delta) throws NumberFormatException {
+        Objects.requireNonNull(key);
+        long now = now();
+        writeLock.lock();
+        try {
+            expire(now);
+            byte[] current = getCurrent(key, now);
+            long result = current == null ? delta : addExact(new String(current, US_ASCII), delta);
+            Long expiration = current == null ? null : expirations.get(key);
+            putCurrent(key, Long.toString(result).getBytes(US_ASCII), expiration == null ? 0 : expiration.longValue());
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a delta to a counter, reporting an overflow like a value that is not a counter.
+     */
+    protected static long addExact(String counter, long delta) throws NumberFormatException {
+        try {
+            return Math.addExact(Long.parseLong(counter), delta);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Counter overflow: " + counter + " + " + delta);
+        }
+    }
+
 }
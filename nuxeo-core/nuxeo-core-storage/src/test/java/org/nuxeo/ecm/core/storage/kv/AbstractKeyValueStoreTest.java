@@ -23,6 +23,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -126,6 +131,85 @@ public abstract class AbstractKeyValueStoreTest {
         assertArrayEquals(value, store.get(key));
     }
 
+    @Test
+    public void testTTL() throws InterruptedException {
+        KeyValueStore store = newKeyValueStore();
+        String key = "foo";
+
+        store.put(key, BAR_B, 1);
+        assertEquals(BAR, new String(store.get(key)));
+        store.put("gee", GEE_B, 1);
+        assertTrue(store.setTTL("gee", 0)); // no more expiration
+        store.put("moo", MOO_B, 1);
+        store.put("moo", MOO_B); // no more expiration
+        store.put("zap", ZAP.getBytes(), 1);
+        assertTrue(store.setTTL("zap", 100)); // later expiration
+        assertFalse(store.setTTL("nosuchkey", 1));
+        store.put("counter", "5".getBytes(), 1);
+        assertEquals(6, store.addAndGet("counter", 1)); // TTL is kept
+
+        Thread.sleep(1500);
+        assertNull(store.get(key));
+        assertFalse(store.setTTL(key, 1));
+        assertEquals(GEE, new String(store.get("gee")));
+        assertEquals(MOO, new String(store.get("moo")));
+        assertEquals(ZAP, new String(store.get("zap")));
+        assertNull(store.get("counter"));
+        assertEquals(1, store.addAndGet("counter", 1));
+
+        // expired value can be set again
+        assertTrue(store.compareAndSet(key, null, BAR_B));
+        assertEquals(BAR, new String(store.get(key)));
+    }
+
+    @Test
+    public void testGetMany() {
+        KeyValueStore store = newKeyValueStore();
+        assertTrue(store.get(Collections.emptyList()).isEmpty());
+
+        store.put("foo", BAR_B);
+        store.put("gee", GEE_B);
+        Map<String, byte[]> values = store.get(Arrays.asList("foo", "gee", "moo"));
+        assertEquals(2, values.size());
+        assertEquals(BAR, new String(values.get("foo")));
+        assertEquals(GEE, new String(values.get("gee")));
+
+        // check value is copied
+        values.get("foo")[0] = 'c';
+        assertEquals(BAR, new String(store.get("foo")));
+    }
+
+    @Test
+    public void testAddAndGet() {
+        KeyValueStore store = newKeyValueStore();
+        String key = "foo";
+
+        assertEquals(1, store.addAndGet(key, 1));
+        assertEquals(11, store.addAndGet(key, 10));
+        assertEquals(8, store.addAndGet(key, -3));
+        assertEquals("8", new String(store.get(key)));
+        store.put(key, "42".getBytes());
+        assertEquals(43, store.addAndGet(key, 1));
+
+        store.put(key, BAR_B);
+        try {
+            store.addAndGet(key, 1);
+            fail();
+        } catch (NumberFormatException e) {
+            // ok
+        }
+        assertEquals(BAR, new String(store.get(key)));
+
+        store.put(key, Long.toString(Long.MAX_VALUE).getBytes());
+        try {
+            store.addAndGet(key, 1);
+            fail();
+        } catch (NumberFormatException e) {
+            // ok
+        }
+        assertEquals(Long.toString(Long.MAX_VALUE), new String(store.get(key)));
+    }
+
     @Test
     public void testClear() {
         KeyValueStore store = newKeyValueStore();
@@ -2673,6 +2673,37 @@ public class TestSQLRepositoryAPI {
         assertEquals("file3", newFile3.getName());
     }
 
+    @Test
+    public void testMoveSubTree() throws Exception {
+        DocumentModel folder1 = session.createDocumentModel("/", "folder1", "Folder");
+        folder1 = session.createDocument(folder1);
+        DocumentModel folder2 = session.createDocumentModel("/", "folder2", "Folder");
+        folder2 = session.createDocument(folder2);
+        DocumentModel sub = session.createDocumentModel("/folder1", "sub", "Folder");
+        sub = session.createDocument(sub);
+        for (int i = 0; i < 5; i++) {
+            DocumentModel subsub = session.createDocumentModel("/folder1/sub", "subsub" + i, "Folder");
+            session.createDocument(subsub);
+            for (int j = 0; j < 5; j++) {
+                DocumentModel file = session.createDocumentModel("/folder1/sub/subsub" + i, "file" + j, "File");
+                session.createDocument(file);
+            }
+        }
+        session.save();
+
+        session.move(sub.getRef(), folder2.getRef(), null);
+        session.save();
+
+        assertFalse(session.exists(new PathRef("/folder1/sub")));
+        assertTrue(session.exists(new PathRef("/folder2/sub/subsub4/file4")));
+        DocumentModelList list = session.query("SELECT * FROM Document WHERE ecm:path STARTSWITH '/folder2'");
+        assertEquals(31, list.size());
+        list = session.query("SELECT * FROM Document WHERE ecm:path STARTSWITH '/folder1'");
+        assertEquals(0, list.size());
+        list = session.query("SELECT * FROM Document WHERE ecm:ancestorId = '" + folder2.getId() + "'");
+        assertEquals(31, list.size());
+    }
+
     @Test
     public void testMoveConcurrentWithGetChild() throws Exception {
         assumeTrue("VCS read-committed semantics cannot enforce this", isDBS());
@@ -25,6 +25,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeFalse;
@@ -74,6 +75,7 @@ import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.Filter;
 import org.nuxeo.ecm.core.api.IdRef;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
+import org.nuxeo.ecm.core.api.KeysetResult;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.PathRef;
@@ -3304,6 +3306,97 @@ public class TestSQLRepositoryQuery {
         }
     }
 
+    protected static List<String> getNames(DocumentModelList dml) {
+        return dml.stream().map(DocumentModel::getName).collect(Collectors.toList());
+    }
+
+    /** Gets the names of all the documents of a query, fetching them by keyset pages. */
+    protected List<String> queryKeysetNames(String query, long limit) {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetResult res = session.queryKeyset(query, cursor, limit);
+            assertTrue(res.getDocuments().size() <= limit);
+            names.addAll(getNames(res.getDocuments()));
+            cursor = res.getNextCursor();
+        } while (cursor != null);
+        return names;
+    }
+
+    @Test
+    public void testQueryKeyset() throws Exception {
+        // titles with duplicates, documents having the same title are ordered by id
+        for (int i = 0; i < 7; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("dc:title", "title" + (i / 3));
+            session.createDocument(doc);
+        }
+        session.save();
+
+        String query = "SELECT * FROM File WHERE ecm:isProxy = 0 ORDER BY dc:title";
+        List<String> expected = getNames(session.query(query + ", ecm:uuid"));
+        assertEquals(7, expected.size());
+        for (int limit = 1; limit <= 8; limit++) {
+            assertEquals("limit " + limit, expected, queryKeysetNames(query, limit));
+        }
+
+        query = "SELECT * FROM File WHERE ecm:isProxy = 0 ORDER BY dc:title DESC";
+        expected = getNames(session.query(query + ", ecm:uuid"));
+        assertEquals("doc6", expected.get(0));
+        assertEquals(expected, queryKeysetNames(query, 2));
+
+        query = "SELECT * FROM File WHERE ecm:isProxy = 0 ORDER BY dc:title DESC, ecm:name";
+        assertEquals(Arrays.asList("doc6", "doc3", "doc4", "doc5", "doc0", "doc1", "doc2"),
+                queryKeysetNames(query, 3));
+
+        // a shorter page is the last one
+        KeysetResult res = session.queryKeyset(query, null, 4);
+        assertEquals(4, res.getDocuments().size());
+        assertTrue(res.hasNext());
+        res = session.queryKeyset(query, res.getNextCursor(), 4);
+        assertEquals(Arrays.asList("doc0", "doc1", "doc2"), getNames(res.getDocuments()));
+        assertFalse(res.hasNext());
+        assertNull(res.getNextCursor());
+
+        // a full last page is followed by an empty one
+        res = session.queryKeyset(query, null, 7);
+        assertEquals(7, res.getDocuments().size());
+        assertTrue(res.hasNext());
+        res = session.queryKeyset(query, res.getNextCursor(), 7);
+        assertEquals(0, res.getDocuments().size());
+        assertFalse(res.hasNext());
+
+        // documents created after the cursor was returned don't shift the following pages
+        res = session.queryKeyset(query, null, 3);
+        DocumentModel doc = session.createDocumentModel("/", "doc", "File");
+        doc.setPropertyValue("dc:title", "title9");
+        session.createDocument(doc);
+        session.save();
+        res = session.queryKeyset(query, res.getNextCursor(), 3);
+        assertEquals(Arrays.asList("doc5", "doc0", "doc1"), getNames(res.getDocuments()));
+    }
+
+    @Test
+    public void testQueryKeysetNullValue() throws Exception {
+        DocumentModel doc = session.createDocumentModel("/", "doc", "File");
+        session.createDocument(doc);
+        session.save();
+        String query = "SELECT * FROM File WHERE ecm:isProxy = 0 ORDER BY dc:title";
+
+        // no cursor is needed after the last page
+        KeysetResult res = session.queryKeyset(query, null, 2);
+        assertEquals(Collections.singletonList("doc"), getNames(res.getDocuments()));
+        assertFalse(res.hasNext());
+
+        // a cursor cannot hold a null value
+        try {
+            session.queryKeyset(query, null, 1);
+            fail("Should fail for a null value");
+        } catch (QueryParseException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Cannot use keyset pagination on a null value"));
+        }
+    }
+
     @Test
     public void testScrollApi() throws Exception {
         final int nbDocs = 127;
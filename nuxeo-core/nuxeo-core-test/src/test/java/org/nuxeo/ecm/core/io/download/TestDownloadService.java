@@ -29,9 +29,12 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
@@ -61,6 +64,7 @@ import org.nuxeo.ecm.core.api.impl.UserPrincipal;
 import org.nuxeo.ecm.core.api.impl.blob.FileBlob;
 import org.nuxeo.ecm.core.api.local.ClientLoginModule;
 import org.nuxeo.ecm.core.api.local.LoginStack;
+import org.nuxeo.ecm.core.io.download.DownloadService.ByteRange;
 import org.nuxeo.ecm.core.io.download.DownloadServiceImpl.Action;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.runtime.api.Framework;
@@ -108,6 +112,32 @@ public class TestDownloadService {
         assertEquals(blobValue, out.toString());
     }
 
+    @Test
+    public void testFileBlobByteRange() throws Exception {
+        FileBlob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes(UTF_8)));
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            downloadService.transferBlobWithByteRange(blob, null, () -> out);
+            assertEquals("Hello World", out.toString("UTF-8"));
+            out.reset();
+            downloadService.transferBlobWithByteRange(blob, new ByteRange(6, 10), () -> out);
+            assertEquals("World", out.toString("UTF-8"));
+
+            // into a file
+            Path path = Files.createTempFile("download", ".txt");
+            try {
+                try (FileOutputStream fout = new FileOutputStream(path.toFile())) {
+                    downloadService.transferBlobWithByteRange(blob, new ByteRange(0, 4), () -> fout);
+                }
+                assertEquals("Hello", new String(Files.readAllBytes(path), UTF_8));
+            } finally {
+                Files.delete(path);
+            }
+        } finally {
+            blob.getFile().delete();
+        }
+    }
+
     @Test
     public void testETagHeaderNone() throws Exception {
         doTestETagHeader(null);
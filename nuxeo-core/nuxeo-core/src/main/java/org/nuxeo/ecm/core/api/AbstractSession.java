@@ -88,7 +88,12 @@ import org.nuxeo.ecm.core.model.PathComparator;
 import org.nuxeo.ecm.core.model.Session;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.KeysetCursor;
+import org.nuxeo.ecm.core.query.sql.KeysetTransformer;
 import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
+import org.nuxeo.ecm.core.query.sql.model.OrderByList;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery.Transformer;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.FacetNames;
@@ -1312,6 +1317,88 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         return getSession().scroll(scrollId);
     }
 
+    @Override
+    public KeysetResult queryKeyset(String query, String cursor, long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+        SecurityService securityService = getSecurityService();
+        try {
+            OrderByList orderBy = KeysetTransformer.getKeysetOrderBy(SQLQueryParser.parse(query));
+            List<Serializable> values = cursor == null ? null : KeysetCursor.decode(cursor);
+            String[] principals = getPrincipalsToCheck();
+            String[] permissions = securityService.getPermissionsToCheck(BROWSE);
+            List<Transformer> transformers = new ArrayList<>(getPoliciesQueryTransformers(NXQL.NXQL));
+            transformers.add(new KeysetTransformer(values));
+            QueryFilter queryFilter = new QueryFilter(getPrincipal(), principals, permissions, null, transformers,
+                    limit, 0);
+            PartialList<Document> pl = getSession().query(query, NXQL.NXQL, queryFilter, 0);
+
+            boolean postFilter = !securityService.arePoliciesExpressibleInQuery(getRepositoryName());
+            DocumentModelListImpl docs = new DocumentModelListImpl(pl.list.size());
+            for (Document doc : pl.list) {
+                if (postFilter && !hasPermission(doc, BROWSE)) {
+                    // the page may be shorter, but the cursor still moves past this document
+                    continue;
+                }
+                docs.add(readModel(doc));
+            }
+            String nextCursor = null;
+            if (pl.list.size() == limit) {
+                Document last = pl.list.get(pl.list.size() - 1);
+                nextCursor = KeysetCursor.encode(getKeysetValues(last, orderBy));
+            }
+            return new KeysetResult(docs, nextCursor);
+        } catch (QueryParseException e) {
+            e.addInfo("Failed to execute query: " + query);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the values of the ORDER BY columns of a document, to build a keyset pagination cursor.
+     *
+     * @since 9.2
+     */
+    protected List<Serializable> getKeysetValues(Document doc, OrderByList orderBy) {
+        List<Serializable> values = new ArrayList<>(orderBy.size());
+        for (OrderByExpr expr : orderBy) {
+            String name = expr.reference.name;
+            Object value;
+            switch (name) {
+            case NXQL.ECM_UUID:
+                value = doc.getUUID();
+                break;
+            case NXQL.ECM_NAME:
+                value = doc.getName();
+                break;
+            case NXQL.ECM_PRIMARYTYPE:
+                value = doc.getType().getName();
+                break;
+            case NXQL.ECM_PARENTID:
+                Document parent = doc.getParent();
+                value = parent == null ? null : parent.getUUID();
+                break;
+            case NXQL.ECM_PATH:
+                value = doc.getPath();
+                break;
+            case NXQL.ECM_LIFECYCLESTATE:
+                value = doc.getLifeCycleState();
+                break;
+            default:
+                if (name.startsWith(NXQL.ECM_PREFIX) || expr.reference.cast != null) {
+                    throw new QueryParseException("Cannot use keyset pagination on: " + expr.reference);
+                }
+                value = doc.getValue(name);
+            }
+            if (value != null && !(value instanceof Serializable)) {
+                throw new QueryParseException("Cannot use keyset pagination on: " + expr.reference);
+            }
+            values.add((Serializable) value);
+        }
+        return values;
+    }
+
     @Override
     public void removeChildren(DocumentRef docRef) {
         // TODO: check req permissions with td
@@ -257,6 +257,8 @@ public class DocumentBlobManagerComponent extends DefaultComponent implements Do
             globalStatus.sizeBinaries += status.sizeBinaries;
             globalStatus.numBinariesGC += status.numBinariesGC;
             globalStatus.sizeBinariesGC += status.sizeBinariesGC;
+            globalStatus.numShards += status.numShards;
+            globalStatus.numShardsSwept += status.numShardsSwept;
         }
         globalStatus.gcDuration = System.currentTimeMillis() - start;
         return globalStatus;
@@ -96,21 +96,18 @@ public class ReadDirectoryEntries extends AbstractDirectoryOperation {
         String schemaName = directory.getSchema();
         Schema schema = schemaManager.getSchema(schemaName);
         try (Session session = directoryService.open(directoryName)) {
-            for (String id : ids) {
-                DocumentModel entry = session.getEntry(id);
-                if (entry != null) {
-                    Map<String, Object> m = new HashMap<String, Object>();
-                    for (Field field : schema.getFields()) {
-                        QName fieldName = field.getName();
-                        String key = fieldName.getLocalName();
-                        Serializable value = entry.getPropertyValue(fieldName.getPrefixedName());
-                        if (translateLabels && "label".equals(key)) {
-                            value = translate((String) value);
-                        }
-                        m.put(key, value);
+            for (DocumentModel entry : session.getEntries(ids, true)) {
+                Map<String, Object> m = new HashMap<String, Object>();
+                for (Field field : schema.getFields()) {
+                    QName fieldName = field.getName();
+                    String key = fieldName.getLocalName();
+                    Serializable value = entry.getPropertyValue(fieldName.getPrefixedName());
+                    if (translateLabels && "label".equals(key)) {
+                        value = translate((String) value);
                     }
-                    entries.add(m);
+                    m.put(key, value);
                 }
+                entries.add(m);
             }
         }
 
@@ -272,6 +272,8 @@ public class IndexingCommand implements Serializable {
                 cmd.recurse = value.getBooleanValue();
             } else if ("sync".equals(key)) {
                 cmd.sync = value.getBooleanValue();
+            } else if ("order".equals(key)) {
+                cmd.order = value.getLongValue();
             }
         }
         if (cmd.targetDocumentId == null) {
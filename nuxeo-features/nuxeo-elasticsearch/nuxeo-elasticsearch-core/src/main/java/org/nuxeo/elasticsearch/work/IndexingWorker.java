@@ -28,7 +28,10 @@ import org.nuxeo.elasticsearch.commands.IndexingCommand;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
 import org.nuxeo.runtime.api.Framework;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_USING_CHILDREN_TRAVERSAL_PROPERTY;
 
@@ -48,6 +51,32 @@ public class IndexingWorker extends AbstractIndexingWorker implements Work {
         return " ElasticSearch indexing for docs: " + getCmdsDigest();
     }
 
+    @Override
+    public String getBatchKey() {
+        return repositoryName;
+    }
+
+    /**
+     * Merges the commands of the given workers. Identical commands on the same document are only kept once, at their
+     * last position, as the document is read when indexing.
+     *
+     * @since 9.2
+     */
+    @Override
+    public Work mergeBatch(List<Work> works) {
+        Map<String, IndexingCommand> merged = new LinkedHashMap<>();
+        for (Work work : works) {
+            for (IndexingCommand cmd : ((IndexingWorker) work).cmds) {
+                String key = cmd.getTargetDocumentId() + '/' + cmd.getType() + '/' + cmd.isRecurse();
+                merged.remove(key);
+                merged.put(key, cmd);
+            }
+        }
+        IndexingWorker worker = new IndexingWorker(repositoryName, new ArrayList<>(merged.values()));
+        worker.setOriginatingUsername(originatingUsername);
+        return worker;
+    }
+
     protected boolean needRecurse(IndexingCommand cmd) {
         if (cmd.isRecurse()) {
             switch (cmd.getType()) {
@@ -0,0 +1,72 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.work;
+
+import static org.nuxeo.common.utils.BinaryEncodingUtils.readCount;
+import static org.nuxeo.common.utils.BinaryEncodingUtils.writeVarint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.nuxeo.ecm.core.work.AbstractWorkCodec;
+import org.nuxeo.elasticsearch.commands.IndexingCommand;
+
+/**
+ * Codec for the {@link IndexingWorker}, the indexing commands are written using their JSON representation and their
+ * schemas.
+ *
+ * @since 9.2
+ */
+public class IndexingWorkerCodec extends AbstractWorkCodec<IndexingWorker> {
+
+    public IndexingWorkerCodec() {
+        super(IndexingWorker.class);
+    }
+
+    @Override
+    protected void writeFields(IndexingWorker work, DataOutput out) throws IOException {
+        writeVarint(out, work.cmds.size());
+        for (IndexingCommand cmd : work.cmds) {
+            writeString(out, cmd.toJSON());
+            String[] schemas = cmd.getSchemas();
+            writeStrings(out, schemas == null ? null : Arrays.asList(schemas));
+        }
+    }
+
+    @Override
+    protected IndexingWorker readFields(DataInput in) throws IOException {
+        int size = readCount(in);
+        List<IndexingCommand> cmds = new ArrayList<>(Math.min(size, 1000));
+        for (int i = 0; i < size; i++) {
+            IndexingCommand cmd = IndexingCommand.fromJSON(readString(in));
+            List<String> schemas = readStrings(in);
+            if (schemas != null) {
+                schemas.forEach(cmd::addSchemas);
+            }
+            cmds.add(cmd);
+        }
+        // the repository and document are restored with the common fields
+        return new IndexingWorker(null, cmds);
+    }
+
+}
@@ -96,11 +96,14 @@ public class TestIndexingCommand {
     public void testJson() throws Exception {
         DocumentModel doc = new MockDocumentModel("foo");
         IndexingCommand cmd = new IndexingCommand(doc, Type.INSERT, false, true);
+        cmd.setOrder(123456789L);
         String json = cmd.toJSON();
         IndexingCommand cmd2 = IndexingCommand.fromJSON(json);
         String json2 = cmd2.toJSON();
         Assert.assertEquals(json, json2);
         Assert.assertTrue(cmd2.isRecurse());
+        // needed for external versioning
+        Assert.assertEquals(123456789L, cmd2.getOrder());
     }
 
     @Test
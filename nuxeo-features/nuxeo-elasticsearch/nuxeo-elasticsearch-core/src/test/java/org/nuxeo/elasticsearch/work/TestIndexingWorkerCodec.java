@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.work;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.WorkCodecRegistry;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+import org.nuxeo.elasticsearch.commands.IndexingCommand;
+
+public class TestIndexingWorkerCodec {
+
+    protected static final String DOC_ID = "0a1b2c3d-4e5f-6789-abcd-ef0123456789";
+
+    protected WorkCodecRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new WorkCodecRegistry();
+        WorkCodecDescriptor descriptor = new WorkCodecDescriptor();
+        descriptor.klass = IndexingWorkerCodec.class;
+        registry.addContribution(descriptor);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        IndexingCommand cmd1 = IndexingCommand.fromJSON("{\"id\": \"cmd1\", \"type\": \"INSERT\", \"docId\": \"" + DOC_ID
+                + "\", \"path\": \"/foo\", \"repo\": \"test\", \"recurse\": true}");
+        cmd1.setOrder(123456789L);
+        cmd1.addSchemas("dublincore");
+        cmd1.addSchemas("common");
+        IndexingCommand cmd2 = IndexingCommand.fromJSON(
+                "{\"id\": \"cmd2\", \"type\": \"DELETE\", \"docId\": \"mydoc\", \"repo\": \"test\", \"sync\": true}");
+        IndexingWorker worker = new IndexingWorker("test", Arrays.asList(cmd1, cmd2));
+        worker.setOriginatingUsername("bob");
+
+        IndexingWorker decoded = (IndexingWorker) registry.deserialize(registry.serialize(worker));
+        assertEquals(worker.getId(), decoded.getId());
+        assertEquals(worker.getDocument(), decoded.getDocument());
+        assertEquals("bob", decoded.getOriginatingUsername());
+        assertEquals(2, decoded.cmds.size());
+        IndexingCommand decoded1 = decoded.cmds.get(0);
+        assertEquals(cmd1.toJSON(), decoded1.toJSON());
+        // the order is needed for external versioning
+        assertEquals(123456789L, decoded1.getOrder());
+        assertArrayEquals(cmd1.getSchemas(), decoded1.getSchemas());
+        IndexingCommand decoded2 = decoded.cmds.get(1);
+        assertEquals(cmd2.toJSON(), decoded2.toJSON());
+        assertEquals(IndexingCommand.Type.DELETE, decoded2.getType());
+        assertNull(decoded2.getSchemas());
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.picture;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.nuxeo.ecm.core.work.AbstractWorkCodec;
+
+/**
+ * Codec for the {@link PictureViewsGenerationWork}.
+ *
+ * @since 9.2
+ */
+public class PictureViewsGenerationWorkCodec extends AbstractWorkCodec<PictureViewsGenerationWork> {
+
+    public PictureViewsGenerationWorkCodec() {
+        super(PictureViewsGenerationWork.class);
+    }
+
+    @Override
+    protected void writeFields(PictureViewsGenerationWork work, DataOutput out) throws IOException {
+        writeString(out, work.xpath);
+    }
+
+    @Override
+    protected PictureViewsGenerationWork readFields(DataInput in) throws IOException {
+        // the id and document are restored with the common fields
+        return new PictureViewsGenerationWork(null, null, readString(in));
+    }
+
+}
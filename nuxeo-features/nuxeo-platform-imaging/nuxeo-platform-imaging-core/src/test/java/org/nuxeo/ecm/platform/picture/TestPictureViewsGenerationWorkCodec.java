@@ -0,0 +1,49 @@
+/*
+ * (C) Copyright 2017 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.picture;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.WorkCodecRegistry;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+
+public class TestPictureViewsGenerationWorkCodec {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        WorkCodecRegistry registry = new WorkCodecRegistry();
+        WorkCodecDescriptor descriptor = new WorkCodecDescriptor();
+        descriptor.klass = PictureViewsGenerationWorkCodec.class;
+        registry.addContribution(descriptor);
+
+        PictureViewsGenerationWork work = new PictureViewsGenerationWork("test",
+                "0a1b2c3d-4e5f-6789-abcd-ef0123456789", "file:content");
+        work.setOriginatingUsername("bob");
+
+        PictureViewsGenerationWork decoded = (PictureViewsGenerationWork) registry.deserialize(
+                registry.serialize(work));
+        assertEquals(work.getId(), decoded.getId());
+        assertEquals(work.getDocument(), decoded.getDocument());
+        assertEquals("file:content", decoded.xpath);
+        assertEquals(work.getCategory(), decoded.getCategory());
+        assertEquals("bob", decoded.getOriginatingUsername());
+    }
+
+}
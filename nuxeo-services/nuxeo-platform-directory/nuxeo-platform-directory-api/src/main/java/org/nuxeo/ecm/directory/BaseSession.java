@@ -334,6 +334,44 @@ public abstract class BaseSession implements Session, EntrySource {
         return directory.getCache().getEntry(id, this, fetchReferences);
     }
 
+    @Override
+    public DocumentModelList getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        if (!hasPermission(SecurityConstants.READ)) {
+            return new DocumentModelListImpl();
+        }
+        if (readAllColumns) {
+            // bypass cache when reading all columns
+            DocumentModelList entries = new DocumentModelListImpl();
+            for (String id : ids) {
+                DocumentModel entry = getEntryFromSource(id, fetchReferences);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        }
+        return directory.getCache().getEntries(ids, this, fetchReferences);
+    }
+
+    /**
+     * Retrieves several directory entries by calling {@link #getEntry(String, boolean)} for each id. Used by the
+     * sessions that override {@link #getEntry(String, boolean)}, for which the bulk read through the directory cache
+     * would not apply.
+     *
+     * @since 9.2
+     */
+    protected DocumentModelList getEntriesOneByOne(List<String> ids, boolean fetchReferences)
+            throws DirectoryException {
+        DocumentModelList entries = new DocumentModelListImpl();
+        for (String id : ids) {
+            DocumentModel entry = getEntry(id, fetchReferences);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
     @Override
     public DocumentModelList getEntries() throws DirectoryException {
         if (!hasPermission(SecurityConstants.READ)) {
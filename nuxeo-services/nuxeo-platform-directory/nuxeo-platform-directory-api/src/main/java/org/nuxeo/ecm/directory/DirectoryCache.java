@@ -21,11 +21,15 @@ package org.nuxeo.ecm.directory;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 import org.nuxeo.ecm.core.cache.Cache;
 import org.nuxeo.ecm.core.cache.CacheService;
 import org.nuxeo.runtime.api.Framework;
@@ -131,6 +135,69 @@ public class DirectoryCache {
         } else {
             hitsCounter.inc();
         }
+        return cloneEntry(dm);
+    }
+
+    /**
+     * Gets several entries at once. The cache is read in a single operation, and the entries missing from it are
+     * fetched from the source then cached in a single operation.
+     *
+     * @return the entries found, in the order of the given ids
+     * @since 9.2
+     */
+    public DocumentModelList getEntries(List<String> entryIds, EntrySource source, boolean fetchReferences)
+            throws DirectoryException {
+        DocumentModelList entries = new DocumentModelListImpl();
+        if (!isCacheEnabled() || getEntryCache() == null || getEntryCacheWithoutReferences() == null) {
+            for (String entryId : entryIds) {
+                DocumentModel entry = getEntry(entryId, source, fetchReferences);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        }
+
+        Cache cache = fetchReferences ? getEntryCache() : getEntryCacheWithoutReferences();
+        Map<String, Serializable> cached = cache.getAll(entryIds);
+        // entries fetched from the source, CACHE_MISS for the ones not found
+        Map<String, Serializable> fetched = new HashMap<>();
+        Map<String, Serializable> toCache = new HashMap<>();
+        for (String entryId : entryIds) {
+            Serializable entry = cached.get(entryId);
+            if (entry != null) {
+                if (CACHE_MISS.equals(entry)) {
+                    negativeHitsCounter.inc();
+                } else {
+                    hitsCounter.inc();
+                }
+            } else {
+                entry = fetched.get(entryId);
+                if (entry == null) {
+                    // fetch the entry from the backend and cache it for later reuse
+                    DocumentModel dm = source.getEntryFromSource(entryId, fetchReferences);
+                    if (dm != null) {
+                        toCache.put(entryId, dm);
+                        if (fetchReferences) {
+                            sizeCounter.inc();
+                        }
+                    } else if (negativeCaching) {
+                        toCache.put(entryId, CACHE_MISS);
+                    }
+                    missesCounter.inc();
+                    entry = dm == null ? CACHE_MISS : dm;
+                    fetched.put(entryId, entry);
+                }
+            }
+            if (!CACHE_MISS.equals(entry)) {
+                entries.add(cloneEntry((DocumentModel) entry));
+            }
+        }
+        cache.putAll(toCache);
+        return entries;
+    }
+
+    protected DocumentModel cloneEntry(DocumentModel dm) {
         try {
             if (dm == null) {
                 return null;
@@ -151,12 +218,10 @@ public class DirectoryCache {
     public void invalidate(List<String> entryIds) {
         if (isCacheEnabled()) {
             synchronized (this) {
-                for (String entryId : entryIds) {
-                    getEntryCache().invalidate(entryId);
-                    getEntryCacheWithoutReferences().invalidate(entryId);
-                    sizeCounter.dec();
-                    invalidationsCounter.inc();
-                }
+                getEntryCache().invalidateAll(entryIds);
+                getEntryCacheWithoutReferences().invalidateAll(entryIds);
+                sizeCounter.dec(entryIds.size());
+                invalidationsCounter.inc(entryIds.size());
             }
         }
     }
@@ -27,6 +27,7 @@ import java.util.Set;
 
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 
 /**
  * A session used to access entries in a directory.
@@ -61,6 +62,26 @@ public interface Session extends AutoCloseable {
      */
     DocumentModel getEntry(String id, boolean fetchReferences) throws DirectoryException;
 
+    /**
+     * Retrieves several directory entries using their ids.
+     *
+     * @param ids the entry ids
+     * @param fetchReferences boolean stating if references have to be fetched
+     * @return the entries found, in the order of the ids
+     * @throws DirectoryException
+     * @since 9.2
+     */
+    default DocumentModelList getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        DocumentModelList entries = new DocumentModelListImpl();
+        for (String id : ids) {
+            DocumentModel entry = getEntry(id, fetchReferences);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
     /**
      * Retrieves all the entries in the directory. If the remote server issues a size limit exceeded error while sending
      * partial results up to that limit, the method {@code DocumentModelList#totalsize} on the returned list will return
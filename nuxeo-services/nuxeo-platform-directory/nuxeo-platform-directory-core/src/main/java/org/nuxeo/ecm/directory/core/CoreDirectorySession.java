@@ -121,6 +121,11 @@ public class CoreDirectorySession extends BaseSession {
         return null;
     }
 
+    @Override
+    public DocumentModelList getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        return getEntriesOneByOne(ids, fetchReferences);
+    }
+
     @Override
     public DocumentModelList getEntries() throws DirectoryException {
         throw new UnsupportedOperationException();
@@ -169,6 +169,11 @@ public class MemoryDirectorySession extends BaseSession {
         }
     }
 
+    @Override
+    public DocumentModelList getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        return getEntriesOneByOne(ids, fetchReferences);
+    }
+
     @Override
     public DocumentModelList getEntries() throws DirectoryException {
         DocumentModelList list = new DocumentModelListImpl();
@@ -168,6 +168,18 @@ public class TestMemoryDirectory extends NXRuntimeTestCase {
         assertEquals("2", l.get(1).getId());
     }
 
+    @Test
+    public void testGetEntriesByIds() throws Exception {
+        Map<String, Object> e2 = new HashMap<String, Object>();
+        e2.put("i", "2");
+        e2.put("a", "AAA2");
+        dir.createEntry(e2);
+        DocumentModelList l = dir.getEntries(Arrays.asList("2", "no-such-entry", "1"), true);
+        assertEquals(2, l.size());
+        assertEquals("AAA2", l.get(0).getProperty(SCHEMA_NAME, "a"));
+        assertEquals("AAA", l.get(1).getProperty(SCHEMA_NAME, "a"));
+    }
+
     @Test
     public void testUpdateEntry() throws Exception {
         DocumentModel e = dir.getEntry("1");
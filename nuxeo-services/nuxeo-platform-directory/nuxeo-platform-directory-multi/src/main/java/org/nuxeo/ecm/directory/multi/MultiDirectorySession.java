@@ -394,6 +394,11 @@ public class MultiDirectorySession extends BaseSession {
         return null;
     }
 
+    @Override
+    public DocumentModelList getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        return getEntriesOneByOne(ids, fetchReferences);
+    }
+
     @Override
     @SuppressWarnings("boxing")
     public DocumentModelList getEntries() {
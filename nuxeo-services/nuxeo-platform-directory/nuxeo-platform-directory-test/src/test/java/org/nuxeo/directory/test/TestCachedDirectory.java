@@ -24,12 +24,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.Arrays;
+
 import javax.inject.Inject;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.redis.RedisFeature;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.directory.Directory;
@@ -116,6 +119,36 @@ public class TestCachedDirectory extends AbstractDirectoryTest {
         assertEquals(baseMissesCount + 1, missesCounter.getCount());
     }
 
+    @Test
+    public void testGetEntriesFromCache() throws Exception {
+        Session session = getDirectory().getSession();
+        MetricRegistry metrics = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        Counter hitsCounter = metrics.counter(
+                MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "hits"));
+        Counter missesCounter = metrics.counter(
+                MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "misses"));
+        long baseHitsCount = hitsCounter.getCount();
+        long baseMissesCount = missesCounter.getCount();
+
+        // user_1 gets cached by the single entry lookup
+        assertNotNull(session.getEntry("user_1"));
+        assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+        DocumentModelList entries = session.getEntries(Arrays.asList("Administrator", "NO_SUCH_USER", "user_1"),
+                true);
+        assertEquals(2, entries.size());
+        assertEquals("Administrator", entries.get(0).getId());
+        assertEquals("user_1", entries.get(1).getId());
+        assertEquals(baseHitsCount + 1, hitsCounter.getCount());
+        assertEquals(baseMissesCount + 3, missesCounter.getCount());
+
+        // now all found entries come from the cache
+        entries = session.getEntries(Arrays.asList("Administrator", "user_1"), true);
+        assertEquals(2, entries.size());
+        assertEquals(baseHitsCount + 3, hitsCounter.getCount());
+        assertEquals(baseMissesCount + 3, missesCounter.getCount());
+    }
+
     @Test
     public void testNegativeCaching() throws Exception {
         DirectoryCache cache = getDirectory().getCache();